@@ -25,18 +25,21 @@ import io.airlift.http.server.HttpServerInfo;
 import io.airlift.node.NodeInfo;
 import io.airlift.units.Duration;
 
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
 import static io.airlift.airship.shared.HttpUriBuilder.uriBuilderFrom;
@@ -52,8 +55,15 @@ public class Agent
     private final String location;
     private final Map<String, Integer> resources;
     private final Duration maxLockWait;
+    private final Duration statusCheckInterval;
     private final URI internalUri;
     private final URI externalUri;
+    private final SlotStatusProber statusProber;
+
+    private final Object statusMonitor = new Object();
+    private String lastAgentVersion;
+    // seeded with the clock so the sequence keeps increasing across agent restarts
+    private long statusSequence = System.currentTimeMillis();
 
     @Inject
     public Agent(AgentConfig config,
@@ -70,7 +80,9 @@ public class Agent
                 config.getResourcesFile(),
                 deploymentManagerFactory,
                 lifecycleManager,
-                config.getMaxLockWait()
+                config.getMaxLockWait(),
+                config.getStatusCheckInterval(),
+                config.getStatusProbeThreads()
         );
     }
 
@@ -83,7 +95,34 @@ public class Agent
             String resourcesFilename,
             DeploymentManagerFactory deploymentManagerFactory,
             LifecycleManager lifecycleManager,
-            Duration maxLockWait)
+            Duration maxLockWait,
+            Duration statusCheckInterval)
+    {
+        this(agentId,
+                location,
+                slotsDirName,
+                internalUri,
+                externalUri,
+                resourcesFilename,
+                deploymentManagerFactory,
+                lifecycleManager,
+                maxLockWait,
+                statusCheckInterval,
+                new AgentConfig().getStatusProbeThreads());
+    }
+
+    public Agent(
+            String agentId,
+            String location,
+            String slotsDirName,
+            URI internalUri,
+            URI externalUri,
+            String resourcesFilename,
+            DeploymentManagerFactory deploymentManagerFactory,
+            LifecycleManager lifecycleManager,
+            Duration maxLockWait,
+            Duration statusCheckInterval,
+            int statusProbeThreads)
     {
         Preconditions.checkNotNull(agentId, "agentId is null");
         Preconditions.checkNotNull(location, "location is null");
@@ -93,11 +132,13 @@ public class Agent
         Preconditions.checkNotNull(deploymentManagerFactory, "deploymentManagerFactory is null");
         Preconditions.checkNotNull(lifecycleManager, "lifecycleManager is null");
         Preconditions.checkNotNull(maxLockWait, "maxLockWait is null");
+        Preconditions.checkNotNull(statusCheckInterval, "statusCheckInterval is null");
 
         this.agentId = agentId;
         this.internalUri = internalUri;
         this.externalUri = externalUri;
         this.maxLockWait = maxLockWait;
+        this.statusCheckInterval = statusCheckInterval;
         this.location = location;
 
         this.deploymentManagerFactory = deploymentManagerFactory;
@@ -105,6 +146,16 @@ public class Agent
 
         slots = new ConcurrentHashMap<UUID, Slot>();
 
+        // a slot whose status changed in the background wakes up the status watchers
+        statusProber = new SlotStatusProber(statusCheckInterval, statusProbeThreads, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                getAgentStatus();
+            }
+        });
+
         File slotsDir = new File(slotsDirName);
         if (!slotsDir.isDirectory()) {
             slotsDir.mkdirs();
@@ -120,6 +171,7 @@ public class Agent
             URI slotExternalUri = uriBuilderFrom(externalUri).appendPath("/v1/agent/slot/").appendPath(slotId.toString()).build();
             Slot slot = new DeploymentSlot(slotInternalUri, slotExternalUri, deploymentManager, lifecycleManager, maxLockWait);
             slots.put(slotId, slot);
+            statusProber.addSlot(slot);
         }
 
         //
@@ -145,6 +197,12 @@ public class Agent
         this.resources = resources;
     }
 
+    @PreDestroy
+    public void stop()
+    {
+        statusProber.stop();
+    }
+
     public Map<String, Integer> getResources()
     {
         return resources;
@@ -163,11 +221,49 @@ public class Agent
     public AgentStatus getAgentStatus()
     {
         Builder<SlotStatus> builder = ImmutableList.builder();
+        // slot processes are probed in the background, so use the last status of each slot
         for (Slot slot : slots.values()) {
-            SlotStatus slotStatus = slot.status();
-            builder.add(slotStatus);
+            builder.add(slot.getLastSlotStatus());
+        }
+        List<SlotStatus> slotStatuses = builder.build();
+
+        // bump the sequence and wake up any status watchers if the status changed
+        synchronized (statusMonitor) {
+            AgentStatus agentStatus = new AgentStatus(agentId, ONLINE, null, internalUri, externalUri, location, null, slotStatuses, resources, statusSequence);
+            if (!agentStatus.getVersion().equals(lastAgentVersion)) {
+                lastAgentVersion = agentStatus.getVersion();
+                statusSequence++;
+                agentStatus = new AgentStatus(agentId, ONLINE, null, internalUri, externalUri, location, null, slotStatuses, resources, statusSequence);
+                statusMonitor.notifyAll();
+            }
+            return agentStatus;
+        }
+    }
+
+    public AgentStatus waitForStatusChange(String currentVersion, Duration maxWait)
+            throws InterruptedException
+    {
+        Preconditions.checkNotNull(currentVersion, "currentVersion is null");
+        Preconditions.checkNotNull(maxWait, "maxWait is null");
+
+        long deadline = System.nanoTime() + maxWait.roundTo(TimeUnit.NANOSECONDS);
+        long checkInterval = statusCheckInterval.roundTo(TimeUnit.NANOSECONDS);
+
+        // lifecycle operations and background probes that find a change
+        // wake up the waiters immediately
+        AgentStatus agentStatus = getAgentStatus();
+        while (currentVersion.equals(agentStatus.getVersion())) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            synchronized (statusMonitor) {
+                if (currentVersion.equals(lastAgentVersion)) {
+                    TimeUnit.NANOSECONDS.timedWait(statusMonitor, Math.min(remaining, checkInterval));
+                }
+            }
+            agentStatus = getAgentStatus();
         }
-        AgentStatus agentStatus = new AgentStatus(agentId, ONLINE, null, internalUri, externalUri, location, null, builder.build(), resources);
         return agentStatus;
     }
 
@@ -190,6 +286,7 @@ public class Agent
         URI slotExternalUri = uriBuilderFrom(externalUri).appendPath("/v1/agent/slot/").appendPath(slotId.toString()).build();
         Slot slot = new DeploymentSlot(slotInternalUri, slotExternalUri, deploymentManager, lifecycleManager, installation, maxLockWait);
         slots.put(slotId, slot);
+        statusProber.addSlot(slot);
 
         // return last slot status
         return slot.getLastSlotStatus();
@@ -207,6 +304,7 @@ public class Agent
         SlotStatus status = slot.terminate();
         if (status.getState() == TERMINATED) {
             slots.remove(slotId);
+            statusProber.removeSlot(slotId);
         }
         return status;
     }
@@ -15,19 +15,30 @@ package io.airlift.airship.agent;
 
 import com.google.common.base.Preconditions;
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.configuration.DefunctConfig;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
 import io.airlift.units.Duration;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.concurrent.TimeUnit;
 
+@DefunctConfig("agent.tar-timeout")
 public class AgentConfig
 {
     private String slotsDir = "slots";
+    private String binaryCacheDir = "binary-cache";
+    private DataSize binaryCacheMaxSize = new DataSize(0, Unit.BYTE);
+    private boolean peerDistributionEnabled;
     private String resourcesFile = "etc/resources.properties";
     private Duration launcherTimeout = new Duration(5, TimeUnit.SECONDS);
     private Duration launcherStopTimeout = new Duration(15, TimeUnit.SECONDS);
-    private Duration tarTimeout = new Duration(1, TimeUnit.MINUTES);
+    private boolean pidFileStatusEnabled = true;
     private Duration maxLockWait = new Duration(1, TimeUnit.SECONDS);
+    private Duration statusCheckInterval = new Duration(5, TimeUnit.SECONDS);
+    private int statusProbeThreads = 4;
 
     @NotNull
     public String getSlotsDir()
@@ -42,6 +53,47 @@ public class AgentConfig
         return this;
     }
 
+    @NotNull
+    public String getBinaryCacheDir()
+    {
+        return binaryCacheDir;
+    }
+
+    @Config("agent.binary-cache-dir")
+    @ConfigDescription("Directory for unpacked binaries shared by the slots")
+    public AgentConfig setBinaryCacheDir(String binaryCacheDir)
+    {
+        this.binaryCacheDir = binaryCacheDir;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getBinaryCacheMaxSize()
+    {
+        return binaryCacheMaxSize;
+    }
+
+    @Config("agent.binary-cache-max-size")
+    @ConfigDescription("Maximum size of the binary cache; zero disables the cache. Cached files are read-only hard links shared by the slots")
+    public AgentConfig setBinaryCacheMaxSize(DataSize binaryCacheMaxSize)
+    {
+        this.binaryCacheMaxSize = binaryCacheMaxSize;
+        return this;
+    }
+
+    public boolean isPeerDistributionEnabled()
+    {
+        return peerDistributionEnabled;
+    }
+
+    @Config("agent.peer-distribution-enabled")
+    @ConfigDescription("Serve cached binaries to other agents and download binaries from the peers sent by the coordinator")
+    public AgentConfig setPeerDistributionEnabled(boolean peerDistributionEnabled)
+    {
+        this.peerDistributionEnabled = peerDistributionEnabled;
+        return this;
+    }
+
     @NotNull
     public String getResourcesFile()
     {
@@ -81,16 +133,16 @@ public class AgentConfig
         return this;
     }
 
-    @NotNull
-    public Duration getTarTimeout()
+    public boolean isPidFileStatusEnabled()
     {
-        return tarTimeout;
+        return pidFileStatusEnabled;
     }
 
-    @Config("agent.tar-timeout")
-    public AgentConfig setTarTimeout(Duration tarTimeout)
+    @Config("agent.pid-file-status-enabled")
+    @ConfigDescription("Check slot processes using the launcher pid file and /proc before running the launcher status command")
+    public AgentConfig setPidFileStatusEnabled(boolean pidFileStatusEnabled)
     {
-        this.tarTimeout = tarTimeout;
+        this.pidFileStatusEnabled = pidFileStatusEnabled;
         return this;
     }
 
@@ -110,4 +162,32 @@ public class AgentConfig
         this.maxLockWait = lockWait;
         return this;
     }
+
+    @NotNull
+    public Duration getStatusCheckInterval()
+    {
+        return statusCheckInterval;
+    }
+
+    @Config("agent.status-check-interval")
+    @ConfigDescription("Interval at which the status of each slot is probed in the background")
+    public AgentConfig setStatusCheckInterval(Duration statusCheckInterval)
+    {
+        this.statusCheckInterval = statusCheckInterval;
+        return this;
+    }
+
+    @Min(1)
+    public int getStatusProbeThreads()
+    {
+        return statusProbeThreads;
+    }
+
+    @Config("agent.status-probe-threads")
+    @ConfigDescription("Maximum number of slots probed for status at the same time")
+    public AgentConfig setStatusProbeThreads(int statusProbeThreads)
+    {
+        this.statusProbeThreads = statusProbeThreads;
+        return this;
+    }
 }
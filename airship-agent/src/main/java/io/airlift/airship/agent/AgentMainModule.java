@@ -40,6 +40,8 @@ public class AgentMainModule
         binder.bind(VersionConflictExceptionMapper.class).in(Scopes.SINGLETON);
 
         binder.bind(DeploymentManagerFactory.class).to(DirectoryDeploymentManagerFactory.class).in(Scopes.SINGLETON);
+        binder.bind(BinaryCache.class).in(Scopes.SINGLETON);
+        binder.bind(BinaryResource.class).in(Scopes.SINGLETON);
         binder.bind(LifecycleManager.class).to(LauncherLifecycleManager.class).in(Scopes.SINGLETON);
 
         binder.bind(ServiceInventoryResource.class).in(Scopes.SINGLETON);
@@ -17,14 +17,20 @@ import com.google.common.base.Preconditions;
 import com.google.inject.Inject;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.AgentStatusRepresentation;
+import io.airlift.units.Duration;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 
 import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_AGENT_VERSION_HEADER;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_MAX_WAIT_HEADER;
+import static javax.ws.rs.core.HttpHeaders.IF_NONE_MATCH;
 
 @Path("/v1/agent/")
 public class AgentResource
@@ -41,12 +47,46 @@ public class AgentResource
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllSlotsStatus()
+    public Response getAllSlotsStatus(@HeaderParam(IF_NONE_MATCH) String ifNoneMatch,
+            @HeaderParam(AIRSHIP_MAX_WAIT_HEADER) Duration maxWait)
+            throws InterruptedException
     {
-        AgentStatus agentStatus = agent.getAgentStatus();
+        // the agent version is the entity tag of the status
+        String currentVersion = parseEntityTag(ifNoneMatch);
+
+        AgentStatus agentStatus;
+        if (currentVersion != null && maxWait != null) {
+            // long poll: hold the request until the status differs from the caller's version
+            agentStatus = agent.waitForStatusChange(currentVersion, maxWait);
+        }
+        else {
+            agentStatus = agent.getAgentStatus();
+        }
+
+        if (agentStatus.getVersion().equals(currentVersion)) {
+            return Response.status(Status.NOT_MODIFIED)
+                    .tag(agentStatus.getVersion())
+                    .header(AIRSHIP_AGENT_VERSION_HEADER, agentStatus.getVersion())
+                    .build();
+        }
+
         AgentStatusRepresentation agentStatusRepresentation = AgentStatusRepresentation.from(agentStatus);
         return Response.ok(agentStatusRepresentation)
+                .tag(agentStatus.getVersion())
                 .header(AIRSHIP_AGENT_VERSION_HEADER, agentStatus.getVersion())
                 .build();
     }
+
+    private static String parseEntityTag(String value)
+    {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return EntityTag.valueOf(value.trim()).getValue();
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
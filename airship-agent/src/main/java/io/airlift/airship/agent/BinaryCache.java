@@ -0,0 +1,534 @@
+package io.airlift.airship.agent;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Striped;
+import com.google.inject.Inject;
+import io.airlift.airship.shared.Installation;
+import io.airlift.airship.shared.MavenCoordinates;
+import io.airlift.log.Logger;
+import io.airlift.units.DataSize;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static io.airlift.airship.shared.FileUtils.listFiles;
+import static io.airlift.airship.shared.HttpUriBuilder.uriBuilderFrom;
+import static io.airlift.airship.shared.TarExtractor.extractCompressedTar;
+
+/**
+ * Unpacked slot binaries shared by all of the slots on an agent.  A binary is
+ * downloaded and unpacked once, keyed by its resolved maven coordinates and
+ * checksum, and each slot gets a copy of the tree made of hard links to the
+ * cached files.  When the cache grows beyond the maximum size the least
+ * recently used binaries are removed.
+ * <p>
+ * The cached files are shared by every slot using the binary, so they are
+ * made read-only, and a slot must replace a file (e.g., write a new file and
+ * rename it) rather than modify it in place.  The read-only permission does
+ * not stop an agent running as root, so the cache is disabled by default.
+ * <p>
+ * With peer distribution enabled the downloaded archive is kept with the
+ * unpacked binary so it can be served to other agents, and binaries with a
+ * published checksum are first fetched from the peers in the installation.
+ */
+public class BinaryCache
+{
+    private static final Logger log = Logger.get(BinaryCache.class);
+    private static final String TEMP_PREFIX = "tmp";
+    private static final String ARCHIVE_SUFFIX = ".tar.gz";
+    private static final int PEER_CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int PEER_READ_TIMEOUT_MILLIS = 30000;
+    private static final int CHECKSUM_CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int CHECKSUM_READ_TIMEOUT_MILLIS = 10000;
+    private static final int MAX_CHECKSUM_FILE_SIZE = 1024;
+
+    private final File cacheDir;
+    private final long maxSizeBytes;
+    private final boolean peerDistributionEnabled;
+    private final Striped<Lock> binaryLocks = Striped.lock(64);
+
+    // cached binaries in least recently used order; guarded by this
+    private final LinkedHashMap<String, Long> binarySizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSizeBytes;
+
+    @Inject
+    public BinaryCache(AgentConfig config)
+    {
+        this(new File(config.getBinaryCacheDir()), config.getBinaryCacheMaxSize(), config.isPeerDistributionEnabled());
+    }
+
+    public BinaryCache(File cacheDir, DataSize maxSize)
+    {
+        this(cacheDir, maxSize, false);
+    }
+
+    /**
+     * @param maxSize maximum size of the cache; zero disables the cache
+     */
+    public BinaryCache(File cacheDir, DataSize maxSize, boolean peerDistributionEnabled)
+    {
+        Preconditions.checkNotNull(cacheDir, "cacheDir is null");
+        Preconditions.checkNotNull(maxSize, "maxSize is null");
+
+        this.cacheDir = cacheDir;
+        this.maxSizeBytes = (long) maxSize.toBytes();
+        this.peerDistributionEnabled = peerDistributionEnabled;
+        if (!isEnabled()) {
+            return;
+        }
+
+        cacheDir.mkdirs();
+        Preconditions.checkArgument(cacheDir.isDirectory(), "cacheDir is not a directory: " + cacheDir.getAbsolutePath());
+
+        // load the existing binaries, oldest first, and remove unfinished downloads
+        List<File> files = new ArrayList<>(listFiles(cacheDir));
+        Collections.sort(files, new Comparator<File>()
+        {
+            @Override
+            public int compare(File a, File b)
+            {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(ARCHIVE_SUFFIX)) {
+                // archives are loaded with their binary
+                continue;
+            }
+            if (file.getName().startsWith(TEMP_PREFIX) || getRootDir(file) == null) {
+                deleteRecursively(file);
+                continue;
+            }
+            long size = sizeOf(file.toPath()) + getArchiveFile(file.getName()).length();
+            binarySizes.put(file.getName(), size);
+            totalSizeBytes += size;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(ARCHIVE_SUFFIX) && !binarySizes.containsKey(name.substring(0, name.length() - ARCHIVE_SUFFIX.length()))) {
+                file.delete();
+            }
+        }
+        evict(null);
+    }
+
+    public boolean isEnabled()
+    {
+        return maxSizeBytes > 0;
+    }
+
+    /**
+     * Creates the unpacked binary for the installation in the target
+     * directory, downloading the binary if it is not already cached.
+     *
+     * @return the root directory of the binary, or null if the cache is
+     * disabled or the binary can not be cached, because it has no checksum
+     * and may change (e.g., a snapshot)
+     */
+    @Nullable
+    public File installBinary(Installation installation, File targetDir)
+            throws IOException
+    {
+        Preconditions.checkNotNull(installation, "installation is null");
+        Preconditions.checkNotNull(targetDir, "targetDir is null");
+
+        if (!isEnabled()) {
+            return null;
+        }
+        String checksum = getChecksum(installation.getBinaryFile());
+        String key = getKey(installation, checksum);
+        if (key == null) {
+            return null;
+        }
+
+        File binaryDir = new File(cacheDir, key);
+        Lock lock = binaryLocks.get(key);
+        lock.lock();
+        try {
+            boolean cached;
+            synchronized (this) {
+                cached = binarySizes.get(key) != null;
+            }
+            if (cached) {
+                binaryDir.setLastModified(System.currentTimeMillis());
+            }
+            else {
+                download(installation, key, checksum);
+                long size = sizeOf(binaryDir.toPath()) + getArchiveFile(key).length();
+                synchronized (this) {
+                    binarySizes.put(key, size);
+                    totalSizeBytes += size;
+                }
+            }
+
+            File rootDir = getRootDir(binaryDir);
+            File targetRootDir = new File(targetDir, rootDir.getName());
+            linkTree(rootDir.toPath(), targetRootDir.toPath());
+            return targetRootDir;
+        }
+        finally {
+            lock.unlock();
+            evict(key);
+        }
+    }
+
+    /**
+     * Opens the downloaded archive of a cached binary so it can be served to
+     * another agent, or returns null if the archive is not available.
+     */
+    @Nullable
+    public InputStream openArchive(String key)
+    {
+        Preconditions.checkNotNull(key, "key is null");
+        if (!peerDistributionEnabled) {
+            return null;
+        }
+        synchronized (this) {
+            if (!binarySizes.containsKey(key)) {
+                return null;
+            }
+        }
+        try {
+            // an open archive can still be read after it is evicted
+            return new FileInputStream(getArchiveFile(key));
+        }
+        catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    public synchronized long getSizeBytes()
+    {
+        return totalSizeBytes;
+    }
+
+    public synchronized List<String> getBinaries()
+    {
+        return ImmutableList.copyOf(binarySizes.keySet());
+    }
+
+    private void download(Installation installation, String key, @Nullable String checksum)
+            throws IOException
+    {
+        // peers are only trusted when the download can be verified
+        List<URI> sources = new ArrayList<>();
+        if (peerDistributionEnabled && checksum != null) {
+            List<URI> peers = new ArrayList<>(installation.getBinaryPeers());
+            Collections.shuffle(peers);
+            for (URI peer : peers) {
+                sources.add(uriBuilderFrom(peer).replacePath("/v1/agent/binary/").appendPath(key).build());
+            }
+        }
+        sources.add(installation.getBinaryFile());
+
+        for (URI source : sources) {
+            boolean peer = !source.equals(installation.getBinaryFile());
+            try {
+                download(source, peer, key, checksum);
+                return;
+            }
+            catch (IOException e) {
+                if (!peer) {
+                    throw e;
+                }
+                log.debug("Unable to download binary %s from peer %s: %s", key, source, e.getMessage());
+            }
+        }
+    }
+
+    private void download(URI source, boolean peer, String key, @Nullable String checksum)
+            throws IOException
+    {
+        // unpack to a temp dir and rename, so a failed download is never used
+        File tempDir = createTempDir(cacheDir, TEMP_PREFIX);
+        try {
+            File unpackDir = new File(tempDir, "unpack");
+            unpackDir.mkdirs();
+            File archiveFile = new File(tempDir, "archive");
+
+            URLConnection connection = source.toURL().openConnection();
+            if (peer) {
+                connection.setConnectTimeout(PEER_CONNECT_TIMEOUT_MILLIS);
+                connection.setReadTimeout(PEER_READ_TIMEOUT_MILLIS);
+            }
+            Hasher hasher = Hashing.sha1().newHasher();
+            try (InputStream in = new TeeInputStream(connection.getInputStream(), hasher, peerDistributionEnabled ? new FileOutputStream(archiveFile) : null)) {
+                extractCompressedTar(in, unpackDir);
+                // read any trailing bytes so the saved archive and checksum are complete
+                ByteStreams.copy(in, ByteStreams.nullOutputStream());
+            }
+            if (checksum != null && !checksum.equals(hasher.hash().toString())) {
+                throw new IOException("Checksum of binary does not match " + checksum + ": " + source);
+            }
+            if (getRootDir(unpackDir) == null) {
+                throw new IOException("Invalid tar file: file does not have a root directory " + source);
+            }
+            makeReadOnly(unpackDir.toPath());
+
+            File binaryDir = new File(cacheDir, key);
+            deleteRecursively(binaryDir);
+            if (peerDistributionEnabled) {
+                Files.move(archiveFile.toPath(), getArchiveFile(key).toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(unpackDir.toPath(), binaryDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            deleteRecursively(tempDir);
+        }
+    }
+
+    private void evict(@Nullable String keep)
+    {
+        List<String> binaries;
+        synchronized (this) {
+            if (totalSizeBytes <= maxSizeBytes) {
+                return;
+            }
+            binaries = ImmutableList.copyOf(binarySizes.keySet());
+        }
+
+        for (String key : binaries) {
+            if (key.equals(keep)) {
+                continue;
+            }
+
+            // skip binaries that are being installed right now
+            Lock lock = binaryLocks.get(key);
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                synchronized (this) {
+                    if (totalSizeBytes <= maxSizeBytes) {
+                        return;
+                    }
+                    Long size = binarySizes.remove(key);
+                    if (size == null) {
+                        continue;
+                    }
+                    totalSizeBytes -= size;
+                }
+                // slots that use the binary keep their own links to the files
+                log.info("Removing binary %s from cache", key);
+                deleteRecursively(new File(cacheDir, key));
+                getArchiveFile(key).delete();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Nullable
+    static String getKey(Installation installation)
+    {
+        return getKey(installation, getChecksum(installation.getBinaryFile()));
+    }
+
+    @Nullable
+    private static String getKey(Installation installation, @Nullable String checksum)
+    {
+        URI binaryFile = installation.getBinaryFile();
+        MavenCoordinates coordinates = MavenCoordinates.fromBinaryGAV(installation.getAssignment().getBinary());
+
+        String name = "binary";
+        if (coordinates != null) {
+            name = coordinates.getArtifactId() + "-" + coordinates.getFileVersion();
+        }
+        name = name.replaceAll("[^a-zA-Z0-9_.-]", "_");
+
+        // prefer the checksum published with the binary
+        if (checksum != null) {
+            return name + "-" + checksum;
+        }
+
+        // without a checksum, only released binaries are known not to change
+        if (coordinates == null || coordinates.getFileVersion().endsWith("SNAPSHOT")) {
+            return null;
+        }
+        return name + "-" + Hashing.sha1().hashString(binaryFile.toString(), Charsets.UTF_8);
+    }
+
+    @Nullable
+    private static String getChecksum(URI binaryFile)
+    {
+        try {
+            // a hung repository must not hang the install, so treat a timeout as no checksum
+            URLConnection connection = new URL(binaryFile.toString() + ".sha1").openConnection();
+            connection.setConnectTimeout(CHECKSUM_CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(CHECKSUM_READ_TIMEOUT_MILLIS);
+            String checksum;
+            try (InputStream in = connection.getInputStream()) {
+                checksum = new String(ByteStreams.toByteArray(ByteStreams.limit(in, MAX_CHECKSUM_FILE_SIZE)), Charsets.UTF_8).trim();
+            }
+            // the file may also contain the file name after the checksum
+            checksum = checksum.split("\\s+")[0].toLowerCase();
+            if (checksum.matches("[0-9a-f]{40}")) {
+                return checksum;
+            }
+        }
+        catch (IOException ignored) {
+        }
+        return null;
+    }
+
+    private File getArchiveFile(String key)
+    {
+        return new File(cacheDir, key + ARCHIVE_SUFFIX);
+    }
+
+    @Nullable
+    private static File getRootDir(File binaryDir)
+    {
+        List<File> files = listFiles(binaryDir);
+        if (files.size() != 1 || !files.get(0).isDirectory()) {
+            return null;
+        }
+        return files.get(0);
+    }
+
+    private static void linkTree(Path source, Path target)
+            throws IOException
+    {
+        if (Files.isSymbolicLink(source)) {
+            Files.createSymbolicLink(target, Files.readSymbolicLink(source));
+        }
+        else if (Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS)) {
+            Files.createDirectories(target);
+            for (File child : listFiles(source.toFile())) {
+                linkTree(child.toPath(), target.resolve(child.getName()));
+            }
+        }
+        else {
+            try {
+                Files.createLink(target, source);
+            }
+            catch (FileSystemException | UnsupportedOperationException e) {
+                // hard links do not work across file systems
+                Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+    }
+
+    private static void makeReadOnly(Path path)
+    {
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            for (File child : listFiles(path.toFile())) {
+                makeReadOnly(child.toPath());
+            }
+        }
+        else if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+            path.toFile().setWritable(false, false);
+        }
+    }
+
+    private static long sizeOf(Path path)
+    {
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            long size = 0;
+            for (File child : listFiles(path.toFile())) {
+                size += sizeOf(child.toPath());
+            }
+            return size;
+        }
+        return path.toFile().length();
+    }
+
+    private static class TeeInputStream
+            extends FilterInputStream
+    {
+        private final Hasher hasher;
+        private final OutputStream out;
+
+        private TeeInputStream(InputStream in, Hasher hasher, @Nullable OutputStream out)
+        {
+            super(in);
+            this.hasher = hasher;
+            this.out = out;
+        }
+
+        @Override
+        public int read()
+                throws IOException
+        {
+            int b = super.read();
+            if (b >= 0) {
+                hasher.putByte((byte) b);
+                if (out != null) {
+                    out.write(b);
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length)
+                throws IOException
+        {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                hasher.putBytes(buffer, offset, count);
+                if (out != null) {
+                    out.write(buffer, offset, count);
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long count)
+                throws IOException
+        {
+            // skipped bytes must still be hashed and saved
+            return ByteStreams.copy(ByteStreams.limit(this, count), ByteStreams.nullOutputStream());
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            try {
+                super.close();
+            }
+            finally {
+                if (out != null) {
+                    out.close();
+                }
+            }
+        }
+    }
+}
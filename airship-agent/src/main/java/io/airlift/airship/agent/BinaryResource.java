@@ -0,0 +1,57 @@
+package io.airlift.airship.agent;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Serves the binaries in the {@link BinaryCache} to other agents when peer
+ * distribution is enabled.
+ */
+@Path("/v1/agent/binary/")
+public class BinaryResource
+{
+    private final BinaryCache binaryCache;
+
+    @Inject
+    public BinaryResource(BinaryCache binaryCache)
+    {
+        Preconditions.checkNotNull(binaryCache, "binaryCache is null");
+        this.binaryCache = binaryCache;
+    }
+
+    @GET
+    @Path("{key: [a-zA-Z0-9_.-]+}")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response getBinary(@PathParam("key") String key)
+    {
+        final InputStream archive = binaryCache.openArchive(key);
+        if (archive == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+
+        return Response.ok(new StreamingOutput()
+        {
+            @Override
+            public void write(OutputStream output)
+                    throws IOException
+            {
+                try (InputStream in = archive) {
+                    ByteStreams.copy(in, output);
+                }
+            }
+        }).build();
+    }
+}
@@ -282,7 +282,9 @@ public class DeploymentSlot implements Slot
 
             Deployment activeDeployment = deploymentManager.getDeployment();
             if (activeDeployment == null) {
-                return lastSlotStatus.get().changeAssignment(UNKNOWN, null, ImmutableMap.<String, Integer>of());
+                SlotStatus slotStatus = lastSlotStatus.get().changeAssignment(UNKNOWN, null, ImmutableMap.<String, Integer>of());
+                lastSlotStatus.set(slotStatus);
+                return slotStatus;
             }
 
             SlotStatus slotStatus = lastSlotStatus.get().changeState(lifecycleManager.status(activeDeployment));
@@ -4,24 +4,29 @@ import com.google.common.base.Preconditions;
 import com.google.common.io.Files;
 import com.google.common.io.Resources;
 import io.airlift.airship.shared.Assignment;
-import io.airlift.airship.shared.CommandFailedException;
 import io.airlift.airship.shared.ConfigUtils;
 import io.airlift.airship.shared.Installation;
 import io.airlift.json.JsonCodec;
 import io.airlift.log.Logger;
-import io.airlift.units.Duration;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static com.google.common.base.Charsets.UTF_8;
 import static io.airlift.airship.shared.FileUtils.createTempDir;
 import static io.airlift.airship.shared.FileUtils.deleteRecursively;
-import static io.airlift.airship.shared.FileUtils.extractTar;
 import static io.airlift.airship.shared.FileUtils.listFiles;
+import static io.airlift.airship.shared.TarExtractor.extractCompressedTar;
 import static io.airlift.json.JsonCodec.jsonCodec;
 
 public class DirectoryDeploymentManager implements DeploymentManager
@@ -31,18 +36,26 @@ public class DirectoryDeploymentManager implements DeploymentManager
 
     private final UUID slotId;
     private final String location;
-    private final Duration tarTimeout;
+    private final ExecutorService executor;
+    private final BinaryCache binaryCache;
 
     private final File baseDir;
     private final File deploymentFile;
     private Deployment deployment;
 
-    public DirectoryDeploymentManager(File baseDir, String location, Duration tarTimeout)
+    public DirectoryDeploymentManager(File baseDir, String location, ExecutorService executor)
+    {
+        this(baseDir, location, executor, null);
+    }
+
+    public DirectoryDeploymentManager(File baseDir, String location, ExecutorService executor, @Nullable BinaryCache binaryCache)
     {
         Preconditions.checkNotNull(location, "location is null");
         Preconditions.checkArgument(location.startsWith("/"), "location must start with /");
+        Preconditions.checkNotNull(executor, "executor is null");
         this.location = location;
-        this.tarTimeout = tarTimeout;
+        this.executor = executor;
+        this.binaryCache = binaryCache;
 
         Preconditions.checkNotNull(baseDir, "baseDir is null");
         baseDir.mkdirs();
@@ -125,40 +138,62 @@ public class DirectoryDeploymentManager implements DeploymentManager
 
         Deployment newDeployment = new Deployment(slotId, location, deploymentDir, getDataDir(), assignment, installation.getResources());
         File tempDir = createTempDir(baseDir, "tmp-install");
+        Future<?> configFuture = null;
         try {
-            // download the binary
-            File binary = new File(tempDir, "airship-binary.tar.gz");
-            try {
-                Files.copy(Resources.newInputStreamSupplier(installation.getBinaryFile().toURL()), binary);
-            }
-            catch (IOException e) {
-                throw new RuntimeException("Unable to download binary " + assignment.getBinary() + " from " + installation.getBinaryFile(), e);
-            }
+            // fetch the config bundle while the binary is downloaded
+            final File configDir = new File(tempDir, "config");
+            configDir.mkdirs();
+            final URI configFile = installation.getConfigFile();
+            configFuture = executor.submit(new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                        throws Exception
+                {
+                    ConfigUtils.unpackConfig(Resources.newInputStreamSupplier(configFile.toURL()), configDir);
+                    return null;
+                }
+            });
 
-            // unpack the binary into a temp unpack dir
+            // link the binary from the cache, or unpack it into a temp unpack dir as it is downloaded
             File unpackDir = new File(tempDir, "unpack");
             unpackDir.mkdirs();
+            File binaryRootDir = null;
             try {
-                extractTar(binary, unpackDir, tarTimeout);
+                if (binaryCache != null) {
+                    binaryRootDir = binaryCache.installBinary(installation, unpackDir);
+                }
+                if (binaryRootDir == null) {
+                    try (InputStream binary = installation.getBinaryFile().toURL().openStream()) {
+                        extractCompressedTar(binary, unpackDir);
+                    }
+                }
             }
-            catch (CommandFailedException e) {
-                throw new RuntimeException("Unable to extract tar file " + assignment.getBinary() + ": " + e.getMessage());
+            catch (IOException e) {
+                throw new RuntimeException("Unable to download and extract binary " + assignment.getBinary() + " from " + installation.getBinaryFile() + ": " + e.getMessage(), e);
             }
 
-            // find the archive root dir (it should be the only file in the temp unpack dir)
-            List<File> files = listFiles(unpackDir);
-            if (files.size() != 1) {
-                throw new RuntimeException("Invalid tar file: file does not have a root directory " + assignment.getBinary());
+            if (binaryRootDir == null) {
+                // find the archive root dir (it should be the only file in the temp unpack dir)
+                List<File> files = listFiles(unpackDir);
+                if (files.size() != 1) {
+                    throw new RuntimeException("Invalid tar file: file does not have a root directory " + assignment.getBinary());
+                }
+                binaryRootDir = files.get(0);
             }
-            File binaryRootDir = files.get(0);
 
-            // unpack config bundle
+            // add the config bundle to the binary
             try {
-                URL url = installation.getConfigFile().toURL();
-                ConfigUtils.unpackConfig(Resources.newInputStreamSupplier(url), binaryRootDir);
+                configFuture.get();
+                moveContents(configDir, binaryRootDir);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while extracting config bundle " + assignment.getConfig());
             }
             catch (Exception e) {
-                throw new RuntimeException("Unable to extract config bundle " + assignment.getConfig() + ": " + e.getMessage());
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                throw new RuntimeException("Unable to extract config bundle " + assignment.getConfig() + ": " + cause.getMessage());
             }
 
             // installation is good, clear the current deployment
@@ -185,6 +220,17 @@ public class DirectoryDeploymentManager implements DeploymentManager
             }
         }
         finally {
+            // the config bundle is written to the temp dir, so wait for it before deleting
+            if (configFuture != null) {
+                try {
+                    configFuture.get();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                catch (ExecutionException ignored) {
+                }
+            }
             if (!deleteRecursively(tempDir)) {
                 log.warn("Unable to delete temp directory: %s", tempDir.getAbsolutePath());
             }
@@ -194,6 +240,20 @@ public class DirectoryDeploymentManager implements DeploymentManager
         return newDeployment;
     }
 
+    private static void moveContents(File sourceDir, File targetDir)
+            throws IOException
+    {
+        for (File source : listFiles(sourceDir)) {
+            File target = new File(targetDir, source.getName());
+            if (source.isDirectory() && target.isDirectory()) {
+                moveContents(source, target);
+            }
+            else {
+                java.nio.file.Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
     @Override
     public Deployment getDeployment()
     {
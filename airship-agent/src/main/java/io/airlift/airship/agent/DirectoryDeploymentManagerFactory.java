@@ -5,40 +5,48 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import io.airlift.airship.shared.FileUtils;
 import io.airlift.airship.shared.Installation;
 import io.airlift.airship.shared.MavenCoordinates;
 import io.airlift.node.NodeInfo;
-import io.airlift.units.Duration;
 
 import javax.annotation.Nullable;
 import java.io.File;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static io.airlift.airship.shared.FileUtils.listFiles;
 
 public class DirectoryDeploymentManagerFactory implements DeploymentManagerFactory
 {
     private final String location;
-    private final Duration tarTimeout;
+    private final ExecutorService executor;
+    private final BinaryCache binaryCache;
     private final File slotDir;
 
     @Inject
-    public DirectoryDeploymentManagerFactory(NodeInfo nodeInfo, AgentConfig config)
+    public DirectoryDeploymentManagerFactory(NodeInfo nodeInfo, AgentConfig config, BinaryCache binaryCache)
     {
-        this(nodeInfo.getLocation(), config.getSlotsDir(), config.getTarTimeout());
+        this(nodeInfo.getLocation(), config.getSlotsDir(), binaryCache);
     }
 
-    public DirectoryDeploymentManagerFactory(String location, String slotsDir, Duration tarTimeout)
+    public DirectoryDeploymentManagerFactory(String location, String slotsDir)
+    {
+        this(location, slotsDir, null);
+    }
+
+    public DirectoryDeploymentManagerFactory(String location, String slotsDir, @Nullable BinaryCache binaryCache)
     {
         Preconditions.checkNotNull(location, "location is null");
         Preconditions.checkNotNull(slotsDir, "slotsDir is null");
-        Preconditions.checkNotNull(tarTimeout, "tarTimeout is null");
 
         this.location = location;
-        this.tarTimeout = tarTimeout;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("slot-install-%s").build());
+        this.binaryCache = binaryCache;
 
         this.slotDir = new File(slotsDir);
 
@@ -54,7 +62,7 @@ public class DirectoryDeploymentManagerFactory implements DeploymentManagerFacto
         ImmutableList.Builder<DeploymentManager> builder = ImmutableList.builder();
         for (File dir : listFiles(slotDir)) {
             if (dir.isDirectory() && new File(dir, "airship-slot-id.txt").canRead()) {
-                DirectoryDeploymentManager deploymentManager = new DirectoryDeploymentManager(dir, location + "/" + dir.getName(), tarTimeout);
+                DirectoryDeploymentManager deploymentManager = new DirectoryDeploymentManager(dir, location + "/" + dir.getName(), executor, binaryCache);
                 builder.add(deploymentManager);
             }
         }
@@ -65,7 +73,7 @@ public class DirectoryDeploymentManagerFactory implements DeploymentManagerFacto
     public DirectoryDeploymentManager createDeploymentManager(Installation installation)
     {
         File slotDirectory = getSlotDirectory(installation);
-        return new DirectoryDeploymentManager(slotDirectory, location + "/" + slotDirectory.getName(), tarTimeout);
+        return new DirectoryDeploymentManager(slotDirectory, location + "/" + slotDirectory.getName(), executor, binaryCache);
     }
 
     private synchronized File getSlotDirectory(Installation installation)
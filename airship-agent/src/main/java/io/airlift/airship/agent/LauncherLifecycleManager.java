@@ -15,6 +15,7 @@ import io.airlift.log.Logger;
 import io.airlift.node.NodeInfo;
 import io.airlift.units.Duration;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
@@ -39,6 +40,7 @@ public class LauncherLifecycleManager implements LifecycleManager
     private final String environment;
     private final InetAddress bindIp;
     private final URI serviceInventoryUri;
+    private final PidFileStatusProbe statusProbe;
 
     @Inject
     public LauncherLifecycleManager(AgentConfig config, NodeInfo nodeInfo, HttpServerInfo httpServerInfo)
@@ -49,7 +51,8 @@ public class LauncherLifecycleManager implements LifecycleManager
                 nodeInfo.getBindIp(),
                 config.getLauncherTimeout(),
                 config.getLauncherStopTimeout(),
-                uriBuilderFrom(httpServerInfo.getHttpsUri() != null ? httpServerInfo.getHttpsUri() : httpServerInfo.getHttpUri()).appendPath("/v1/serviceInventory").build()
+                uriBuilderFrom(httpServerInfo.getHttpsUri() != null ? httpServerInfo.getHttpsUri() : httpServerInfo.getHttpUri()).appendPath("/v1/serviceInventory").build(),
+                config.isPidFileStatusEnabled() ? new PidFileStatusProbe() : null
         );
     }
 
@@ -60,6 +63,18 @@ public class LauncherLifecycleManager implements LifecycleManager
             Duration launcherTimeout,
             Duration launcherStopTimeout,
             URI serviceInventoryUri)
+    {
+        this(environment, internalIp, externalAddress, bindIp, launcherTimeout, launcherStopTimeout, serviceInventoryUri, new PidFileStatusProbe());
+    }
+
+    public LauncherLifecycleManager(String environment,
+            InetAddress internalIp,
+            String externalAddress,
+            InetAddress bindIp,
+            Duration launcherTimeout,
+            Duration launcherStopTimeout,
+            URI serviceInventoryUri,
+            @Nullable PidFileStatusProbe statusProbe)
     {
         this.launcherTimeout = launcherTimeout;
         stopTimeout = launcherStopTimeout;
@@ -71,11 +86,20 @@ public class LauncherLifecycleManager implements LifecycleManager
         this.bindIp = bindIp;
 
         this.serviceInventoryUri = serviceInventoryUri;
+        this.statusProbe = statusProbe;
     }
 
     @Override
     public SlotLifecycleState status(Deployment deployment)
     {
+        // only fork the launcher when the pid file does not give a clear answer
+        if (statusProbe != null) {
+            SlotLifecycleState state = statusProbe.status(deployment);
+            if (state != null) {
+                return state;
+            }
+        }
+
         try {
             int exitCode = createCommand("status", deployment, launcherTimeout)
                     .setSuccessfulExitCodes(0, 1, 2, 3)
@@ -192,6 +216,8 @@ public class LauncherLifecycleManager implements LifecycleManager
         nodeConfig.getParentFile().mkdirs();
 
         try {
+            // the file may be a hard link to a cached binary, so replace it instead of writing through the link
+            nodeConfig.delete();
             String data = Joiner.on("\n").withKeyValueSeparator("=").join(map.build()) + "\n";
             Files.write(data, nodeConfig, Charsets.UTF_8);
         }
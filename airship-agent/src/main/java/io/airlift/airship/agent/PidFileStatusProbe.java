@@ -0,0 +1,86 @@
+package io.airlift.airship.agent;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.io.Files;
+import io.airlift.airship.shared.SlotLifecycleState;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+
+/**
+ * Checks whether a slot process is running using the pid file written by the
+ * launcher and the process table in /proc, which is much cheaper than running
+ * the launcher status command.  When the answer can not be determined this
+ * way, the probe returns null and the caller should ask the launcher.
+ */
+public class PidFileStatusProbe
+{
+    private final File procDir;
+
+    public PidFileStatusProbe()
+    {
+        this(new File("/proc"));
+    }
+
+    public PidFileStatusProbe(File procDir)
+    {
+        Preconditions.checkNotNull(procDir, "procDir is null");
+        this.procDir = procDir;
+    }
+
+    @Nullable
+    public SlotLifecycleState status(Deployment deployment)
+    {
+        // the launcher runs in the data dir and keeps its pid file there
+        File dataDir = deployment.getDataDir();
+        return status(new File(dataDir, "var/run/launcher.pid"), dataDir);
+    }
+
+    @Nullable
+    public SlotLifecycleState status(File pidFile, File dataDir)
+    {
+        if (!procDir.isDirectory() || !pidFile.isFile()) {
+            return null;
+        }
+
+        String pid;
+        try {
+            pid = Files.toString(pidFile, Charsets.UTF_8).trim();
+        }
+        catch (IOException e) {
+            return null;
+        }
+
+        // the launcher empties the pid file when the process is stopped
+        if (pid.isEmpty()) {
+            return STOPPED;
+        }
+        if (!pid.matches("\\d+")) {
+            return null;
+        }
+
+        File processDir = new File(procDir, pid);
+        if (!processDir.isDirectory()) {
+            return STOPPED;
+        }
+
+        // the pid may have been reused by another process after ours died, so
+        // make sure the process is running in the data dir of the slot
+        try {
+            File processWorkingDir = new File(processDir, "cwd").toPath().toRealPath().toFile();
+            if (processWorkingDir.equals(dataDir.getCanonicalFile())) {
+                return RUNNING;
+            }
+            return STOPPED;
+        }
+        catch (IOException e) {
+            // the process exited while we were looking or belongs to another user
+            return null;
+        }
+    }
+}
@@ -14,54 +14,91 @@
 package io.airlift.airship.agent;
 
 import com.google.common.collect.ImmutableList;
-import io.airlift.discovery.client.DiscoveryException;
+import io.airlift.airship.shared.ServiceInventoryDiffRepresentation;
 import io.airlift.discovery.client.ServiceDescriptor;
 import io.airlift.discovery.client.ServiceDescriptorsRepresentation;
 import io.airlift.node.NodeInfo;
 
+import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
-import java.util.concurrent.atomic.AtomicReference;
 
+import java.util.List;
+
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER;
+import static io.airlift.airship.shared.VersionsUtil.createServiceInventoryVersion;
 import static java.lang.String.format;
 
 @Path("/v1/serviceInventory")
 public class ServiceInventoryResource
 {
     private final String environment;
-    private final AtomicReference<ServiceDescriptorsRepresentation> descriptor = new AtomicReference<ServiceDescriptorsRepresentation>();
+
+    @GuardedBy("this")
+    private ServiceDescriptorsRepresentation descriptor;
+
+    @GuardedBy("this")
+    private String version;
 
     @Inject
     public ServiceInventoryResource(NodeInfo nodeInfo)
     {
         environment = nodeInfo.getEnvironment();
-        descriptor.set(new ServiceDescriptorsRepresentation(environment, ImmutableList.<ServiceDescriptor>of()));
+        setDescriptor(new ServiceDescriptorsRepresentation(environment, ImmutableList.<ServiceDescriptor>of()));
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getServiceInventory()
+    public synchronized Response getServiceInventory()
     {
-        ServiceDescriptorsRepresentation descriptor = this.descriptor.get();
-        return Response.ok(descriptor).build();
+        return Response.ok(descriptor).header(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER, version).build();
     }
 
     @PUT
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response setServiceInventory(ServiceDescriptorsRepresentation descriptor)
+    public synchronized Response setServiceInventory(ServiceDescriptorsRepresentation descriptor)
     {
         if (!environment.equals(descriptor.getEnvironment())) {
             return Response.status(Status.BAD_REQUEST).entity(format("Expected environment to be %s, but was %s", environment, descriptor.getEnvironment())).build();
         }
-        this.descriptor.set(descriptor);
-        return Response.ok().build();
+        setDescriptor(descriptor);
+        return Response.ok().header(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER, version).build();
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    public synchronized Response updateServiceInventory(ServiceInventoryDiffRepresentation diff)
+    {
+        if (!environment.equals(diff.getEnvironment())) {
+            return Response.status(Status.BAD_REQUEST).entity(format("Expected environment to be %s, but was %s", environment, diff.getEnvironment())).build();
+        }
+
+        // the sender must resend the full inventory if we do not have the diff base (e.g., after a restart)
+        if (!version.equals(diff.getBaseVersion())) {
+            return Response.status(Status.CONFLICT).header(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER, version).build();
+        }
+
+        if (!diff.isEmpty()) {
+            List<ServiceDescriptor> serviceDescriptors = diff.applyTo(descriptor.getServiceDescriptors());
+            if (!createServiceInventoryVersion(serviceDescriptors).equals(diff.getVersion())) {
+                return Response.status(Status.CONFLICT).header(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER, version).build();
+            }
+            setDescriptor(new ServiceDescriptorsRepresentation(environment, serviceDescriptors));
+        }
+        return Response.ok().header(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER, version).build();
     }
 
+    private synchronized void setDescriptor(ServiceDescriptorsRepresentation descriptor)
+    {
+        this.descriptor = descriptor;
+        this.version = createServiceInventoryVersion(descriptor.getServiceDescriptors());
+    }
 }
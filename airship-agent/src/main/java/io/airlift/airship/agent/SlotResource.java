@@ -113,7 +113,7 @@ public class SlotResource
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
-        SlotStatus slotStatus = slot.status();
+        SlotStatus slotStatus = slot.getLastSlotStatus();
         return Response.ok(SlotStatusRepresentation.from(slotStatus))
                 .header(AIRSHIP_AGENT_VERSION_HEADER, agent.getAgentStatus().getVersion())
                 .header(AIRSHIP_SLOT_VERSION_HEADER, slotStatus.getVersion())
@@ -126,7 +126,7 @@ public class SlotResource
     {
         List<SlotStatusRepresentation> representations = Lists.newArrayList();
         for (Slot slot : agent.getAllSlots()) {
-            SlotStatus slotStatus = slot.status();
+            SlotStatus slotStatus = slot.getLastSlotStatus();
             representations.add(SlotStatusRepresentation.from(slotStatus));
         }
         return Response.ok(representations)
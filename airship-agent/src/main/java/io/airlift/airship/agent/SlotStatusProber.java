@@ -0,0 +1,99 @@
+package io.airlift.airship.agent;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.airship.shared.SlotStatus;
+import io.airlift.log.Logger;
+import io.airlift.units.Duration;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes the status of every slot in the background, so status requests can
+ * be answered from the last status of each slot instead of asking the
+ * launcher.  Each slot is probed on its own schedule, and at most a fixed
+ * number of slots are probed at the same time.
+ */
+public class SlotStatusProber
+{
+    private static final Logger log = Logger.get(SlotStatusProber.class);
+
+    private final ScheduledExecutorService executor;
+    private final long intervalNanos;
+    private final Runnable statusChangeListener;
+    private final ConcurrentMap<UUID, ScheduledFuture<?>> probes = new ConcurrentHashMap<>();
+    private final Random random = new Random();
+
+    /**
+     * @param statusChangeListener called after a probe finds that the status of a slot changed
+     */
+    public SlotStatusProber(Duration interval, int maxThreads, Runnable statusChangeListener)
+    {
+        Preconditions.checkNotNull(interval, "interval is null");
+        Preconditions.checkArgument(maxThreads > 0, "maxThreads must be at least 1");
+        Preconditions.checkNotNull(statusChangeListener, "statusChangeListener is null");
+
+        this.intervalNanos = interval.roundTo(TimeUnit.NANOSECONDS);
+        this.statusChangeListener = statusChangeListener;
+        executor = new ScheduledThreadPoolExecutor(maxThreads, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("slot-status-probe-%s").build());
+    }
+
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+
+    public void addSlot(final Slot slot)
+    {
+        Preconditions.checkNotNull(slot, "slot is null");
+
+        // spread the first probes across the interval so slots are not all probed at once
+        long initialDelay;
+        synchronized (random) {
+            initialDelay = (long) (intervalNanos * random.nextDouble());
+        }
+        ScheduledFuture<?> probe = executor.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                probe(slot);
+            }
+        }, initialDelay, intervalNanos, TimeUnit.NANOSECONDS);
+
+        ScheduledFuture<?> oldProbe = probes.put(slot.getId(), probe);
+        if (oldProbe != null) {
+            oldProbe.cancel(false);
+        }
+    }
+
+    public void removeSlot(UUID slotId)
+    {
+        ScheduledFuture<?> probe = probes.remove(slotId);
+        if (probe != null) {
+            probe.cancel(false);
+        }
+    }
+
+    private void probe(Slot slot)
+    {
+        // an exception would cancel the schedule, so all errors are logged here
+        try {
+            SlotStatus lastStatus = slot.getLastSlotStatus();
+            SlotStatus status = slot.status();
+            if (!status.getVersion().equals(lastStatus.getVersion())) {
+                statusChangeListener.run();
+            }
+        }
+        catch (Exception e) {
+            log.warn(e, "Error probing status of slot %s", slot.getId());
+        }
+    }
+}
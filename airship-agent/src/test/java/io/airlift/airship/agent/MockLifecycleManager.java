@@ -20,11 +20,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
-import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Maps.newConcurrentMap;
 
 public class MockLifecycleManager implements LifecycleManager
 {
-    private final Map<UUID, SlotLifecycleState> states = newHashMap();
+    private final Map<UUID, SlotLifecycleState> states = newConcurrentMap();
     private final Set<UUID> nodeConfigUpdated = Sets.newHashSet();
 
     @Override
@@ -1,5 +1,8 @@
 package io.airlift.airship.agent;
 
+import com.google.common.collect.ImmutableMap;
+import io.airlift.airship.shared.AgentStatus;
+import io.airlift.airship.shared.Installation;
 import io.airlift.http.server.HttpServerConfig;
 import io.airlift.http.server.HttpServerInfo;
 import io.airlift.node.NodeInfo;
@@ -8,9 +11,12 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.net.InetAddress;
+import java.net.URI;
 
 import static io.airlift.airship.agent.ResourcesUtil.TEST_RESOURCES;
+import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 public class TestAgent
 {
@@ -49,4 +55,18 @@ public class TestAgent
         assertEquals(agent.getResources(), TEST_RESOURCES);
     }
 
+    @Test
+    public void testStatusSequence()
+    {
+        AgentStatus initial = agent.getAgentStatus();
+        assertTrue(initial.getSequence() > 0);
+
+        // unchanged status keeps the same sequence
+        assertEquals(agent.getAgentStatus().getSequence(), initial.getSequence());
+
+        agent.install(new Installation("apple", APPLE_ASSIGNMENT, URI.create("fake://binary"), URI.create("fake://config"), ImmutableMap.<String, Integer>of()));
+        AgentStatus changed = agent.getAgentStatus();
+        assertTrue(changed.getSequence() > initial.getSequence());
+        assertEquals(agent.getAgentStatus().getSequence(), changed.getSequence());
+    }
 }
@@ -15,6 +15,8 @@ package io.airlift.airship.agent;
 
 import com.google.common.collect.ImmutableMap;
 import io.airlift.configuration.testing.ConfigAssertions;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
 import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
@@ -28,11 +30,16 @@ public class TestAgentConfig
     {
         ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(AgentConfig.class)
                 .setSlotsDir("slots")
+                .setBinaryCacheDir("binary-cache")
+                .setBinaryCacheMaxSize(new DataSize(0, Unit.BYTE))
+                .setPeerDistributionEnabled(false)
                 .setResourcesFile("etc/resources.properties")
                 .setLauncherTimeout(new Duration(5, TimeUnit.SECONDS))
                 .setLauncherStopTimeout(new Duration(15, TimeUnit.SECONDS))
-                .setTarTimeout(new Duration(1, TimeUnit.MINUTES))
+                .setPidFileStatusEnabled(true)
                 .setMaxLockWait(new Duration(1, TimeUnit.SECONDS))
+                .setStatusCheckInterval(new Duration(5, TimeUnit.SECONDS))
+                .setStatusProbeThreads(4)
         );
     }
 
@@ -41,20 +48,30 @@ public class TestAgentConfig
     {
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("agent.slots-dir", "slots-dir")
+                .put("agent.binary-cache-dir", "binary-cache-dir")
+                .put("agent.binary-cache-max-size", "1GB")
+                .put("agent.peer-distribution-enabled", "true")
                 .put("agent.resources-file", "resources-file")
                 .put("agent.launcher-timeout", "5m")
                 .put("agent.launcher-stop-timeout", "50m")
-                .put("agent.tar-timeout", "10m")
+                .put("agent.pid-file-status-enabled", "false")
                 .put("agent.max-lock-wait", "1m")
+                .put("agent.status-check-interval", "1m")
+                .put("agent.status-probe-threads", "8")
                 .build();
 
         AgentConfig expected = new AgentConfig()
                 .setSlotsDir("slots-dir")
+                .setBinaryCacheDir("binary-cache-dir")
+                .setBinaryCacheMaxSize(new DataSize(1, Unit.GIGABYTE))
+                .setPeerDistributionEnabled(true)
                 .setResourcesFile("resources-file")
                 .setLauncherTimeout(new Duration(5, TimeUnit.MINUTES))
                 .setLauncherStopTimeout(new Duration(50, TimeUnit.MINUTES))
-                .setTarTimeout(new Duration(10, TimeUnit.MINUTES))
-                .setMaxLockWait(new Duration(1, TimeUnit.MINUTES));
+                .setPidFileStatusEnabled(false)
+                .setMaxLockWait(new Duration(1, TimeUnit.MINUTES))
+                .setStatusCheckInterval(new Duration(1, TimeUnit.MINUTES))
+                .setStatusProbeThreads(8);
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
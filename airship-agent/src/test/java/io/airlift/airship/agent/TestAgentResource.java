@@ -4,15 +4,29 @@ import io.airlift.airship.shared.AgentStatusRepresentation;
 import io.airlift.http.server.HttpServerConfig;
 import io.airlift.http.server.HttpServerInfo;
 import io.airlift.node.NodeInfo;
+import io.airlift.units.Duration;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static io.airlift.airship.agent.ResourcesUtil.TEST_RESOURCES;
 import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
+import static io.airlift.airship.shared.InstallationHelper.APPLE_INSTALLATION;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_AGENT_VERSION_HEADER;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 
 public class TestAgentResource
 {
@@ -44,8 +58,9 @@ public class TestAgentResource
 
     @Test
     public void testGetAllSlotsStatus()
+            throws Exception
     {
-        Response response = agentResource.getAllSlotsStatus();
+        Response response = agentResource.getAllSlotsStatus(null, null);
         AgentStatusRepresentation actual = (AgentStatusRepresentation) response.getEntity();
         assertEquals(actual.getAgentId(), agent.getAgentId());
         assertEquals(actual.getState(), ONLINE);
@@ -54,4 +69,69 @@ public class TestAgentResource
         assertEquals(actual.getLocation(), agent.getLocation());
     }
 
+    @Test
+    public void testWaitForStatusChange()
+            throws Exception
+    {
+        String version = agent.getAgentStatus().getVersion();
+
+        // status does not change, so the request returns not modified after max wait
+        Response response = agentResource.getAllSlotsStatus(quote(version), new Duration(10, TimeUnit.MILLISECONDS));
+        assertEquals(response.getStatus(), Status.NOT_MODIFIED.getStatusCode());
+        assertEquals(response.getMetadata().getFirst(AIRSHIP_AGENT_VERSION_HEADER), version);
+
+        // a stale version returns immediately with the current status
+        response = agentResource.getAllSlotsStatus(quote("stale"), new Duration(1, TimeUnit.DAYS));
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        assertEquals(response.getMetadata().getFirst(AIRSHIP_AGENT_VERSION_HEADER), version);
+
+        // installing a slot wakes up the waiting request
+        final String currentVersion = quote(version);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Response> future = executor.submit(new Callable<Response>()
+            {
+                @Override
+                public Response call()
+                        throws Exception
+                {
+                    return agentResource.getAllSlotsStatus(currentVersion, new Duration(1, TimeUnit.DAYS));
+                }
+            });
+            agent.install(APPLE_INSTALLATION);
+            agent.getAgentStatus();
+            response = future.get(10, TimeUnit.SECONDS);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        AgentStatusRepresentation actual = (AgentStatusRepresentation) response.getEntity();
+        assertEquals(actual.getSlots().size(), 1);
+        assertNotEquals(response.getMetadata().getFirst(AIRSHIP_AGENT_VERSION_HEADER), version);
+    }
+
+    @Test
+    public void testConditionalGet()
+            throws Exception
+    {
+        String version = agent.getAgentStatus().getVersion();
+
+        Response response = agentResource.getAllSlotsStatus(null, null);
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        assertEquals(response.getMetadata().getFirst(HttpHeaders.ETAG), new EntityTag(version));
+
+        response = agentResource.getAllSlotsStatus(quote(version), null);
+        assertEquals(response.getStatus(), Status.NOT_MODIFIED.getStatusCode());
+        assertNull(response.getEntity());
+
+        response = agentResource.getAllSlotsStatus(quote("stale"), null);
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        assertNotNull(response.getEntity());
+    }
+
+    private static String quote(String version)
+    {
+        return '"' + version + '"';
+    }
+
 }
@@ -0,0 +1,210 @@
+package io.airlift.airship.agent;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import io.airlift.airship.shared.Installation;
+import io.airlift.airship.shared.InstallationHelper;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.attribute.PosixFilePermission;
+
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static io.airlift.airship.shared.FileUtils.listFiles;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestBinaryCache
+{
+    private File tempDir;
+    private File cacheDir;
+    private InstallationHelper installationHelper;
+    private Installation appleInstallation;
+    private Installation bananaInstallation;
+
+    @BeforeMethod
+    public void setUp()
+            throws Exception
+    {
+        tempDir = createTempDir("binary-cache");
+        cacheDir = new File(tempDir, "cache");
+        installationHelper = new InstallationHelper();
+        appleInstallation = installationHelper.getAppleInstallation();
+        bananaInstallation = installationHelper.getBananaInstallation();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        if (tempDir != null) {
+            deleteRecursively(tempDir);
+        }
+        if (installationHelper != null) {
+            installationHelper.destroy();
+        }
+    }
+
+    @Test
+    public void testSharedBinary()
+            throws Exception
+    {
+        BinaryCache cache = new BinaryCache(cacheDir, new DataSize(1, Unit.GIGABYTE));
+
+        File apple1 = cache.installBinary(appleInstallation, newDir("apple1"));
+        File apple2 = cache.installBinary(appleInstallation, newDir("apple2"));
+        assertNotNull(apple1);
+        assertNotNull(apple2);
+        assertEquals(cache.getBinaries().size(), 1);
+
+        // both slots link to the same files
+        File launcher1 = new File(apple1, "bin/launcher");
+        File launcher2 = new File(apple2, "bin/launcher");
+        assertTrue(launcher1.isFile());
+        assertTrue(java.nio.file.Files.isSameFile(launcher1.toPath(), launcher2.toPath()));
+        assertTrue(launcher1.canExecute());
+
+        // the shared files can not be modified in place
+        assertFalse(java.nio.file.Files.getPosixFilePermissions(launcher1.toPath()).contains(PosixFilePermission.OWNER_WRITE));
+    }
+
+    @Test
+    public void testSnapshotNotCached()
+            throws Exception
+    {
+        BinaryCache cache = new BinaryCache(cacheDir, new DataSize(1, Unit.GIGABYTE));
+
+        assertNull(cache.installBinary(bananaInstallation, newDir("banana")));
+        assertEquals(cache.getBinaries(), ImmutableList.of());
+        assertEquals(listFiles(cacheDir), ImmutableList.of());
+    }
+
+    @Test
+    public void testPublishedChecksum()
+            throws Exception
+    {
+        String checksum = writeChecksum();
+
+        BinaryCache cache = new BinaryCache(cacheDir, new DataSize(1, Unit.GIGABYTE));
+        assertNotNull(cache.installBinary(bananaInstallation, newDir("banana")));
+        assertEquals(cache.getBinaries(), ImmutableList.of("banana-2.0-SNAPSHOT-" + checksum));
+    }
+
+    @Test
+    public void testEviction()
+            throws Exception
+    {
+        writeChecksum();
+
+        // the cache can only hold one binary
+        BinaryCache cache = new BinaryCache(cacheDir, new DataSize(1, Unit.BYTE));
+
+        File apple = cache.installBinary(appleInstallation, newDir("apple"));
+        assertEquals(cache.getBinaries().size(), 1);
+        String appleKey = cache.getBinaries().get(0);
+
+        cache.installBinary(bananaInstallation, newDir("banana"));
+        assertEquals(cache.getBinaries().size(), 1);
+        assertTrue(!cache.getBinaries().contains(appleKey));
+        assertTrue(!new File(cacheDir, appleKey).exists());
+
+        // the installed slot keeps its files
+        assertTrue(new File(apple, "bin/launcher").isFile());
+    }
+
+    @Test
+    public void testReload()
+            throws Exception
+    {
+        BinaryCache cache = new BinaryCache(cacheDir, new DataSize(1, Unit.GIGABYTE));
+        cache.installBinary(appleInstallation, newDir("apple"));
+
+        // unfinished downloads are removed on startup
+        new File(cacheDir, "tmp-download").mkdirs();
+
+        BinaryCache reloaded = new BinaryCache(cacheDir, new DataSize(1, Unit.GIGABYTE));
+        assertEquals(reloaded.getBinaries(), cache.getBinaries());
+        assertEquals(reloaded.getSizeBytes(), cache.getSizeBytes());
+        assertEquals(listFiles(cacheDir).size(), 1);
+    }
+
+    @Test
+    public void testPeerDistribution()
+            throws Exception
+    {
+        writeChecksum();
+        BinaryCache cache = new BinaryCache(cacheDir, new DataSize(1, Unit.GIGABYTE), true);
+
+        // unreachable peers fall back to the binary file
+        Installation installation = new Installation(appleInstallation.getShortName(),
+                appleInstallation.getAssignment(),
+                appleInstallation.getBinaryFile(),
+                appleInstallation.getConfigFile(),
+                appleInstallation.getResources(),
+                ImmutableList.of(URI.create("http://localhost:1"), URI.create("http://localhost:2")));
+        assertNotNull(cache.installBinary(installation, newDir("apple")));
+
+        // the downloaded archive is served to peers
+        String key = cache.getBinaries().get(0);
+        try (InputStream archive = cache.openArchive(key)) {
+            assertNotNull(archive);
+            assertEquals(ByteStreams.toByteArray(archive), Files.toByteArray(new File(appleInstallation.getBinaryFile())));
+        }
+        assertNull(cache.openArchive("unknown"));
+
+        // archives are not kept without peer distribution
+        BinaryCache privateCache = new BinaryCache(new File(tempDir, "private-cache"), new DataSize(1, Unit.GIGABYTE));
+        privateCache.installBinary(appleInstallation, newDir("private-apple"));
+        assertNull(privateCache.openArchive(privateCache.getBinaries().get(0)));
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Checksum of binary does not match.*")
+    public void testChecksumMismatch()
+            throws Exception
+    {
+        File binaryFile = new File(appleInstallation.getBinaryFile());
+        Files.write(Strings.repeat("0", 40), new File(binaryFile.getPath() + ".sha1"), Charsets.UTF_8);
+
+        BinaryCache cache = new BinaryCache(cacheDir, new DataSize(1, Unit.GIGABYTE));
+        cache.installBinary(appleInstallation, newDir("apple"));
+    }
+
+    @Test
+    public void testDisabled()
+            throws Exception
+    {
+        BinaryCache cache = new BinaryCache(cacheDir, new DataSize(0, Unit.BYTE));
+        assertNull(cache.installBinary(appleInstallation, newDir("apple")));
+        assertTrue(!cacheDir.exists());
+    }
+
+    private String writeChecksum()
+            throws Exception
+    {
+        File binaryFile = new File(bananaInstallation.getBinaryFile());
+        String checksum = Files.hash(binaryFile, Hashing.sha1()).toString();
+        Files.write(checksum + "  " + binaryFile.getName() + "\n", new File(binaryFile.getPath() + ".sha1"), Charsets.UTF_8);
+        return checksum;
+    }
+
+    private File newDir(String name)
+    {
+        File dir = new File(tempDir, name);
+        dir.mkdirs();
+        return dir;
+    }
+}
@@ -20,6 +20,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static io.airlift.airship.shared.FileUtils.deleteRecursively;
 import static org.testng.Assert.assertEquals;
@@ -30,6 +32,7 @@ public class TestDirectoryDeploymentManager extends AbstractDeploymentManagerTes
 {
     private File tempDir;
     private InstallationHelper installationHelper;
+    private ExecutorService executor;
 
     @BeforeMethod
     public void setUp()
@@ -39,13 +42,16 @@ public class TestDirectoryDeploymentManager extends AbstractDeploymentManagerTes
         appleInstallation = installationHelper.getAppleInstallation();
         bananaInstallation = installationHelper.getBananaInstallation();
         tempDir = Files.createTempDir().getCanonicalFile();
-        final AgentConfig config = new AgentConfig();
-        manager = new DirectoryDeploymentManager(tempDir, "/location/test", config.getTarTimeout());
+        executor = Executors.newCachedThreadPool();
+        manager = new DirectoryDeploymentManager(tempDir, "/location/test", executor);
     }
 
     @AfterMethod
     public void tearDown()
     {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
         if (tempDir != null) {
             deleteRecursively(tempDir);
         }
@@ -62,8 +68,7 @@ public class TestDirectoryDeploymentManager extends AbstractDeploymentManagerTes
         Deployment appleDeployment = manager.install(appleInstallation);
 
         // replace the deployment manager with a new one, which will cause the persistent data to reload
-        final AgentConfig config = new AgentConfig();
-        manager = new DirectoryDeploymentManager(tempDir, appleDeployment.getLocation(), config.getTarTimeout());
+        manager = new DirectoryDeploymentManager(tempDir, appleDeployment.getLocation(), executor);
 
         // active deployment should still be apple
         assertEquals(manager.getDeployment(), appleDeployment);
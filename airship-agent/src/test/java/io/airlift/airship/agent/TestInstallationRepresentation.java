@@ -14,6 +14,7 @@
 package io.airlift.airship.agent;
 
 import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import io.airlift.json.JsonCodec;
@@ -21,6 +22,8 @@ import io.airlift.airship.shared.AssignmentRepresentation;
 import io.airlift.airship.shared.InstallationRepresentation;
 import org.testng.annotations.Test;
 
+import java.net.URI;
+
 import static io.airlift.json.JsonCodec.jsonCodec;
 import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
 import static org.testng.Assert.assertEquals;
@@ -45,6 +48,25 @@ public class TestInstallationRepresentation
         assertEquals(actual, expected);
     }
 
+    @Test
+    public void testBinaryPeers()
+    {
+        InstallationRepresentation withPeers = new InstallationRepresentation(
+                "apple",
+                AssignmentRepresentation.from(APPLE_ASSIGNMENT),
+                "fetch://binary.tar.gz",
+                "fetch://config.config",
+                ImmutableMap.of("memory", 512),
+                ImmutableList.of("http://agent1:8080", "http://agent2:8080"));
+
+        InstallationRepresentation actual = codec.fromJson(codec.toJson(withPeers));
+        assertEquals(actual.getBinaryPeers(), withPeers.getBinaryPeers());
+        assertEquals(actual.toInstallation().getBinaryPeers(), ImmutableList.of(URI.create("http://agent1:8080"), URI.create("http://agent2:8080")));
+
+        // installations from coordinators without peer distribution
+        assertEquals(expected.getBinaryPeers(), ImmutableList.of());
+    }
+
     @Test
     public void testJsonDecode()
             throws Exception
@@ -0,0 +1,122 @@
+package io.airlift.airship.agent;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestPidFileStatusProbe
+{
+    private File tempDir;
+    private File procDir;
+    private File dataDir;
+    private File pidFile;
+    private PidFileStatusProbe probe;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        tempDir = createTempDir("pid-file-status");
+        procDir = new File(tempDir, "proc");
+        procDir.mkdirs();
+        dataDir = new File(tempDir, "data");
+        pidFile = new File(dataDir, "var/run/launcher.pid");
+        pidFile.getParentFile().mkdirs();
+        probe = new PidFileStatusProbe(procDir);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        deleteRecursively(tempDir);
+    }
+
+    @Test
+    public void testRunning()
+            throws Exception
+    {
+        writePid("1234");
+        createProcess("1234", dataDir);
+        assertEquals(probe.status(pidFile, dataDir), RUNNING);
+    }
+
+    @Test
+    public void testStopped()
+            throws Exception
+    {
+        // cleared pid file
+        writePid("");
+        assertEquals(probe.status(pidFile, dataDir), STOPPED);
+
+        // process is gone
+        writePid("1234");
+        assertEquals(probe.status(pidFile, dataDir), STOPPED);
+
+        // pid reused by a process of another slot
+        File otherDataDir = new File(tempDir, "other");
+        otherDataDir.mkdirs();
+        createProcess("1234", otherDataDir);
+        assertEquals(probe.status(pidFile, dataDir), STOPPED);
+    }
+
+    @Test
+    public void testAmbiguous()
+            throws Exception
+    {
+        // no pid file
+        assertNull(probe.status(pidFile, dataDir));
+
+        // unreadable pid file
+        writePid("not a pid");
+        assertNull(probe.status(pidFile, dataDir));
+
+        // process working directory can not be read
+        writePid("1234");
+        new File(procDir, "1234").mkdirs();
+        assertNull(probe.status(pidFile, dataDir));
+
+        // no process table
+        assertNull(new PidFileStatusProbe(new File(tempDir, "missing")).status(pidFile, dataDir));
+    }
+
+    @Test
+    public void testCurrentProcess()
+            throws Exception
+    {
+        File proc = new File("/proc");
+        if (!proc.isDirectory()) {
+            return;
+        }
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        writePid(name.substring(0, name.indexOf('@')));
+        assertEquals(new PidFileStatusProbe(proc).status(pidFile, new File(System.getProperty("user.dir"))), RUNNING);
+    }
+
+    private void writePid(String pid)
+            throws IOException
+    {
+        Files.write(pid + "\n", pidFile, Charsets.UTF_8);
+    }
+
+    private void createProcess(String pid, File workingDir)
+            throws IOException
+    {
+        File processDir = new File(procDir, pid);
+        processDir.mkdirs();
+        File cwd = new File(processDir, "cwd");
+        cwd.delete();
+        java.nio.file.Files.createSymbolicLink(cwd.toPath(), workingDir.toPath());
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.airship.agent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.airship.shared.ServiceInventoryDiffRepresentation;
+import io.airlift.discovery.client.ServiceDescriptor;
+import io.airlift.discovery.client.ServiceDescriptorsRepresentation;
+import io.airlift.discovery.client.ServiceState;
+import io.airlift.node.NodeInfo;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import java.util.List;
+
+import static io.airlift.airship.shared.ServiceInventoryDiffRepresentation.createServiceInventoryDiff;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER;
+import static io.airlift.airship.shared.VersionsUtil.createServiceInventoryVersion;
+import static org.testng.Assert.assertEquals;
+
+public class TestServiceInventoryResource
+{
+    private static final ServiceDescriptor APPLE = newServiceDescriptor("apple", "http://apple:8080");
+    private static final ServiceDescriptor BANANA = newServiceDescriptor("banana", "http://banana:8080");
+    private static final ServiceDescriptor BANANA_MOVED = newServiceDescriptor("banana", "http://banana:9090");
+
+    private ServiceInventoryResource resource;
+
+    @BeforeMethod
+    public void setup()
+    {
+        resource = new ServiceInventoryResource(new NodeInfo("test"));
+    }
+
+    @Test
+    public void testPutServiceInventory()
+    {
+        List<ServiceDescriptor> inventory = ImmutableList.of(APPLE, BANANA);
+
+        Response response = resource.setServiceInventory(new ServiceDescriptorsRepresentation("test", inventory));
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        assertEquals(response.getMetadata().getFirst(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER), createServiceInventoryVersion(inventory));
+
+        response = resource.getServiceInventory();
+        assertEquals(response.getMetadata().getFirst(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER), createServiceInventoryVersion(inventory));
+        assertEquals(((ServiceDescriptorsRepresentation) response.getEntity()).getServiceDescriptors(), inventory);
+
+        response = resource.setServiceInventory(new ServiceDescriptorsRepresentation("other", inventory));
+        assertEquals(response.getStatus(), Status.BAD_REQUEST.getStatusCode());
+    }
+
+    @Test
+    public void testApplyDiff()
+    {
+        List<ServiceDescriptor> base = ImmutableList.of(APPLE, BANANA);
+        resource.setServiceInventory(new ServiceDescriptorsRepresentation("test", base));
+
+        List<ServiceDescriptor> target = ImmutableList.of(BANANA_MOVED);
+        ServiceInventoryDiffRepresentation diff = createServiceInventoryDiff("test",
+                createServiceInventoryVersion(base),
+                base,
+                createServiceInventoryVersion(target),
+                target);
+        assertEquals(diff.getAdded(), ImmutableList.of(BANANA_MOVED));
+        assertEquals(diff.getRemoved().size(), 2);
+
+        Response response = resource.updateServiceInventory(diff);
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        assertEquals(response.getMetadata().getFirst(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER), createServiceInventoryVersion(target));
+        assertServiceInventory(target);
+
+        // an empty diff against the current version is a no-op
+        response = resource.updateServiceInventory(createServiceInventoryDiff("test",
+                createServiceInventoryVersion(target),
+                target,
+                createServiceInventoryVersion(target),
+                target));
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        assertServiceInventory(target);
+    }
+
+    @Test
+    public void testDiffConflict()
+    {
+        List<ServiceDescriptor> base = ImmutableList.of(APPLE);
+        List<ServiceDescriptor> target = ImmutableList.of(APPLE, BANANA);
+
+        // the agent does not have the base version
+        Response response = resource.updateServiceInventory(createServiceInventoryDiff("test",
+                createServiceInventoryVersion(base),
+                base,
+                createServiceInventoryVersion(target),
+                target));
+        assertEquals(response.getStatus(), Status.CONFLICT.getStatusCode());
+        assertEquals(response.getMetadata().getFirst(AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER), createServiceInventoryVersion(ImmutableList.<ServiceDescriptor>of()));
+        assertServiceInventory(ImmutableList.<ServiceDescriptor>of());
+
+        // the result does not match the target version
+        resource.setServiceInventory(new ServiceDescriptorsRepresentation("test", base));
+        response = resource.updateServiceInventory(new ServiceInventoryDiffRepresentation("test",
+                createServiceInventoryVersion(base),
+                createServiceInventoryVersion(target),
+                ImmutableList.of(BANANA_MOVED),
+                ImmutableList.<String>of()));
+        assertEquals(response.getStatus(), Status.CONFLICT.getStatusCode());
+        assertServiceInventory(base);
+
+        // wrong environment
+        response = resource.updateServiceInventory(createServiceInventoryDiff("other",
+                createServiceInventoryVersion(base),
+                base,
+                createServiceInventoryVersion(target),
+                target));
+        assertEquals(response.getStatus(), Status.BAD_REQUEST.getStatusCode());
+        assertServiceInventory(base);
+    }
+
+    private void assertServiceInventory(List<ServiceDescriptor> expected)
+    {
+        ServiceDescriptorsRepresentation actual = (ServiceDescriptorsRepresentation) resource.getServiceInventory().getEntity();
+        assertEquals(createServiceInventoryVersion(actual.getServiceDescriptors()), createServiceInventoryVersion(expected));
+        assertEquals(actual.getServiceDescriptors().size(), expected.size());
+    }
+
+    private static ServiceDescriptor newServiceDescriptor(String type, String uri)
+    {
+        return new ServiceDescriptor(null, "node", type, "general", "/test/location", ServiceState.RUNNING, ImmutableMap.of("http", uri));
+    }
+}
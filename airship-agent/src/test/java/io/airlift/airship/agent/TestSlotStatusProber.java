@@ -0,0 +1,68 @@
+package io.airlift.airship.agent;
+
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.airship.shared.InstallationHelper.APPLE_INSTALLATION;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestSlotStatusProber
+{
+    private final Semaphore statusChanges = new Semaphore(0);
+    private SlotStatusProber prober;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        statusChanges.drainPermits();
+        prober = new SlotStatusProber(new Duration(10, TimeUnit.MILLISECONDS), 1, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                statusChanges.release();
+            }
+        });
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        prober.stop();
+    }
+
+    @Test
+    public void testProbeDetectsChange()
+            throws Exception
+    {
+        MockDeploymentManager deploymentManager = new MockDeploymentManager();
+        deploymentManager.install(APPLE_INSTALLATION);
+        MockLifecycleManager lifecycleManager = new MockLifecycleManager();
+        URI uri = URI.create("fake://slot");
+        Slot slot = new DeploymentSlot(uri, uri, deploymentManager, lifecycleManager, new Duration(1, TimeUnit.SECONDS));
+        assertEquals(slot.getLastSlotStatus().getState(), STOPPED);
+
+        prober.addSlot(slot);
+
+        // process started outside of the agent
+        lifecycleManager.start(deploymentManager.getDeployment());
+        assertTrue(statusChanges.tryAcquire(10, TimeUnit.SECONDS));
+        assertEquals(slot.getLastSlotStatus().getState(), RUNNING);
+
+        // removed slots are no longer probed
+        prober.removeSlot(slot.getId());
+        lifecycleManager.stop(deploymentManager.getDeployment());
+        assertFalse(statusChanges.tryAcquire(100, TimeUnit.MILLISECONDS));
+        assertEquals(slot.getLastSlotStatus().getState(), RUNNING);
+    }
+}
@@ -6,9 +6,11 @@ import io.airlift.airship.coordinator.AgentFilterBuilder;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.Assignment;
 import io.airlift.airship.shared.HttpUriBuilder;
+import io.airlift.airship.shared.Installation;
 import io.airlift.airship.shared.Repository;
 import io.airlift.command.Option;
 
+import javax.annotation.Nullable;
 import java.net.URI;
 import java.util.List;
 import java.util.UUID;
@@ -58,6 +60,15 @@ public class AgentFilter
         return createFilterBuilder().build(allAgentUuids, allSlotUuids, allowDuplicateInstallationsOnAnAgent, repository);
     }
 
+    public Predicate<AgentStatus> toAgentPredicate(List<String> allAgentUuids,
+            List<UUID> allSlotUuids,
+            boolean allowDuplicateInstallationsOnAnAgent,
+            Repository repository,
+            @Nullable Installation installation)
+    {
+        return createFilterBuilder().build(allAgentUuids, allSlotUuids, allowDuplicateInstallationsOnAnAgent, repository, installation);
+    }
+
     public URI toUri(URI baseUri)
     {
         return createFilterBuilder().buildUri(baseUri);
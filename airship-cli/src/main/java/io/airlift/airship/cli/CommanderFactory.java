@@ -174,7 +174,7 @@ public class CommanderFactory
         //
         String slotsDir = coordinatorUri.getPath();
         String agentLocation = this.location == null ? Joiner.on('/').join("", "local", agentId, "agent") : location;
-        DeploymentManagerFactory deploymentManagerFactory = new DirectoryDeploymentManagerFactory(agentLocation, slotsDir, COMMAND_TIMEOUT);
+        DeploymentManagerFactory deploymentManagerFactory = new DirectoryDeploymentManagerFactory(agentLocation, slotsDir);
 
         LifecycleManager lifecycleManager = new LauncherLifecycleManager(
                 environment,
@@ -193,7 +193,8 @@ public class CommanderFactory
                 null,
                 deploymentManagerFactory,
                 lifecycleManager,
-                COMMAND_TIMEOUT);
+                COMMAND_TIMEOUT,
+                new Duration(5, TimeUnit.SECONDS));
 
         //
         // Create coordinator
@@ -368,7 +369,7 @@ public class CommanderFactory
         }
 
         @Override
-        public void setServiceInventory(List<ServiceDescriptor> serviceInventory)
+        public void setServiceInventory(List<ServiceDescriptor> serviceInventory, String serviceInventoryVersion)
         {
         }
     }
@@ -431,6 +432,42 @@ public class CommanderFactory
         {
             return slot.kill().changeInstanceId(instanceId);
         }
+
+        @Override
+        public ListenableFuture<SlotStatus> terminateAsync()
+        {
+            return Futures.immediateFuture(terminate());
+        }
+
+        @Override
+        public ListenableFuture<SlotStatus> assignAsync(Installation installation)
+        {
+            return Futures.immediateFuture(assign(installation));
+        }
+
+        @Override
+        public ListenableFuture<SlotStatus> startAsync()
+        {
+            return Futures.immediateFuture(start());
+        }
+
+        @Override
+        public ListenableFuture<SlotStatus> restartAsync()
+        {
+            return Futures.immediateFuture(restart());
+        }
+
+        @Override
+        public ListenableFuture<SlotStatus> stopAsync()
+        {
+            return Futures.immediateFuture(stop());
+        }
+
+        @Override
+        public ListenableFuture<SlotStatus> killAsync()
+        {
+            return Futures.immediateFuture(kill());
+        }
     }
 
     public static class ToUriFunction implements Function<String, URI>
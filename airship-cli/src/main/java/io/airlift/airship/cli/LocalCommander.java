@@ -7,11 +7,14 @@ import io.airlift.discovery.client.ServiceDescriptor;
 import io.airlift.discovery.client.ServiceDescriptorsRepresentation;
 import io.airlift.airship.coordinator.Coordinator;
 import io.airlift.airship.coordinator.ServiceInventory;
+import io.airlift.airship.coordinator.SlotIndex;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.AgentStatusRepresentation;
 import io.airlift.airship.shared.Assignment;
 import io.airlift.airship.shared.CoordinatorStatus;
 import io.airlift.airship.shared.CoordinatorStatusRepresentation;
+import io.airlift.airship.shared.Installation;
+import io.airlift.airship.shared.InstallationUtils;
 import io.airlift.airship.shared.Repository;
 import io.airlift.airship.shared.SlotLifecycleState;
 import io.airlift.airship.shared.SlotStatus;
@@ -59,35 +62,35 @@ public class LocalCommander implements Commander
     @Override
     public CommanderResponse<List<SlotStatusRepresentation>> show(SlotFilter slotFilter)
     {
-        List<SlotStatus> allSlotStatus = coordinator.getAllSlotStatus();
-        List<UUID> uuids = transform(allSlotStatus, SlotStatus.uuidGetter());
-
-        Predicate<SlotStatus> slotPredicate = slotFilter.toSlotPredicate(false, uuids);
-
-        List<SlotStatus> slots = coordinator.getAllSlotsStatus(slotPredicate);
+        SlotIndex slotIndex = new SlotIndex(coordinator.getAllSlotStatus());
+        List<SlotStatus> slots = slotFilter.selectSlots(false, slotIndex);
 
         // update just in case something changed
         updateServiceInventory();
 
-        return createCommanderResponse(createSlotsVersion(slots), transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository)));
+        return createCommanderResponse(createSlotsVersion(slots), transform(slots, fromSlotStatus(slotIndex.getSlots(), repository)));
     }
 
     @Override
     public List<SlotStatusRepresentation> install(AgentFilter agentFilter, int count, Assignment assignment, String expectedAgentsVersion)
     {
+        // resolve the assignment once for both agent selection and the install
+        Installation installation = InstallationUtils.toInstallation(repository, assignment);
+
         // select the target agents
         Predicate<AgentStatus> agentsPredicate = agentFilter.toAgentPredicate(
                 transform(coordinator.getAgents(), idGetter()),
                 transform(coordinator.getAllSlotStatus(), uuidGetter()),
                 true,
-                repository);
+                repository,
+                installation);
         List<AgentStatus> agents = coordinator.getAgents(agentsPredicate);
 
         // verify the expected status of agents
         checkAgentsVersion(expectedAgentsVersion, agents);
 
         // install the software
-        List<SlotStatus> slots = coordinator.install(agentsPredicate, count, assignment);
+        List<SlotStatus> slots = coordinator.install(agentsPredicate, count, installation);
 
         // update to latest state
         updateServiceInventory();
@@ -4,6 +4,7 @@ import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import io.airlift.airship.coordinator.SlotFilterBuilder;
+import io.airlift.airship.coordinator.SlotIndex;
 import io.airlift.airship.shared.HttpUriBuilder;
 import io.airlift.airship.shared.SlotStatus;
 import io.airlift.command.Option;
@@ -68,6 +69,11 @@ public class SlotFilter
         return createFilterBuilder().buildPredicate(filterRequired, allUuids);
     }
 
+    public List<SlotStatus> selectSlots(boolean filterRequired, SlotIndex slotIndex)
+    {
+        return createFilterBuilder().selectSlots(filterRequired, slotIndex);
+    }
+
     public URI toUri(URI baseUri)
     {
         return createFilterBuilder().buildUri(baseUri);
@@ -6,6 +6,8 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -54,6 +56,21 @@ public class AgentFilterBuilder
             List<UUID> allSlotUuids,
             boolean allowDuplicateInstallationsOnAnAgent,
             Repository repository)
+    {
+        return build(uriInfo, allAgentUuids, allSlotUuids, allowDuplicateInstallationsOnAnAgent, repository, null);
+    }
+
+    /**
+     * Builds the predicate from the query parameters.  Assignable filters for
+     * the assignment of the installation use the installation instead of
+     * resolving the assignment again.
+     */
+    public static Predicate<AgentStatus> build(UriInfo uriInfo,
+            List<String> allAgentUuids,
+            List<UUID> allSlotUuids,
+            boolean allowDuplicateInstallationsOnAnAgent,
+            Repository repository,
+            @Nullable Installation installation)
     {
         AgentFilterBuilder builder = new AgentFilterBuilder();
         for (Entry<String, List<String>> entry : uriInfo.getQueryParameters().entrySet()) {
@@ -119,7 +136,7 @@ public class AgentFilterBuilder
                 builder.selectAll();
             }
         }
-        return builder.build(allAgentUuids, allSlotUuids, allowDuplicateInstallationsOnAnAgent, repository);
+        return builder.build(allAgentUuids, allSlotUuids, allowDuplicateInstallationsOnAnAgent, repository, installation);
     }
 
     private final List<String> uuidFilters = Lists.newArrayListWithCapacity(6);
@@ -215,7 +232,16 @@ public class AgentFilterBuilder
             final boolean allowDuplicateInstallationsOnAnAgent,
             final Repository repository)
     {
-        Predicate<AgentStatus> include = buildIncludesPredicate(allAgentUuids, allSlotUuids, allowDuplicateInstallationsOnAnAgent, repository);
+        return build(allAgentUuids, allSlotUuids, allowDuplicateInstallationsOnAnAgent, repository, null);
+    }
+
+    public Predicate<AgentStatus> build(final List<String> allAgentUuids,
+            final List<UUID> allSlotUuids,
+            final boolean allowDuplicateInstallationsOnAnAgent,
+            final Repository repository,
+            @Nullable final Installation installation)
+    {
+        Predicate<AgentStatus> include = buildIncludesPredicate(allAgentUuids, allSlotUuids, allowDuplicateInstallationsOnAnAgent, repository, installation);
 
         Optional<Predicate<AgentStatus>> excludesPredicate = buildExcludesPredicate(allAgentUuids, allSlotUuids);
         if (excludesPredicate.isPresent()) {
@@ -229,7 +255,8 @@ public class AgentFilterBuilder
     private Predicate<AgentStatus> buildIncludesPredicate(final List<String> allAgentUuids,
             final List<UUID> allSlotUuids,
             final boolean allowDuplicateInstallationsOnAnAgent,
-            final Repository repository)
+            final Repository repository,
+            @Nullable final Installation installation)
     {
         List<Predicate<AgentStatus>> andPredicates = Lists.newArrayListWithCapacity(6);
         if (!uuidFilters.isEmpty()) {
@@ -293,7 +320,7 @@ public class AgentFilterBuilder
                 @Override
                 public AssignablePredicate apply(Assignment assignment)
                 {
-                    return new AssignablePredicate(assignment, allowDuplicateInstallationsOnAnAgent, repository);
+                    return new AssignablePredicate(assignment, allowDuplicateInstallationsOnAnAgent, repository, installation);
                 }
             }));
             andPredicates.add(predicate);
@@ -525,12 +552,33 @@ public class AgentFilterBuilder
         private final Assignment assignment;
         private final boolean allowDuplicateInstallationsOnAnAgent;
         private final Repository repository;
+        private final Supplier<Installation> installation;
 
         public AssignablePredicate(Assignment assignment, boolean allowDuplicateInstallationsOnAnAgent, Repository repository)
+        {
+            this(assignment, allowDuplicateInstallationsOnAnAgent, repository, null);
+        }
+
+        public AssignablePredicate(Assignment assignment, boolean allowDuplicateInstallationsOnAnAgent, final Repository repository, @Nullable Installation installation)
         {
             this.assignment = InstallationUtils.resolveAssignment(repository, assignment);
             this.allowDuplicateInstallationsOnAnAgent = allowDuplicateInstallationsOnAnAgent;
             this.repository = repository;
+
+            if (installation != null && installation.getAssignment().equals(this.assignment)) {
+                this.installation = Suppliers.ofInstance(installation);
+            }
+            else {
+                // the resources are read from the config bundle, so only read them once and only when needed
+                this.installation = Suppliers.memoize(new Supplier<Installation>()
+                {
+                    @Override
+                    public Installation get()
+                    {
+                        return toInstallation(repository, AssignablePredicate.this.assignment);
+                    }
+                });
+            }
         }
 
         @Override
@@ -553,9 +601,8 @@ public class AgentFilterBuilder
             // agents without declared resources are considered to have unlimited resources
             if (!status.getResources().isEmpty()) {
                 // verify that required resources are available
-                Installation installation = toInstallation(repository, assignment);
                 Map<String, Integer> availableResources = getAvailableResources(status);
-                if (!resourcesAreAvailable(availableResources, installation.getResources())) {
+                if (!resourcesAreAvailable(availableResources, installation.get().getResources())) {
                     return false;
                 }
             }
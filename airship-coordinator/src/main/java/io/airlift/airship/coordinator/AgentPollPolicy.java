@@ -0,0 +1,85 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import io.airlift.units.Duration;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the coordinator next polls the status of an agent.  Healthy
+ * agents are polled once per interval, agents that are busy are polled at the
+ * fast interval, and unreachable agents back off exponentially up to the max
+ * interval.  Every delay is jittered so the polls of many agents spread out
+ * across the interval instead of arriving in bursts.
+ */
+public class AgentPollPolicy
+{
+    // delays are randomized by up to 20% in either direction
+    private static final double JITTER = 0.2;
+
+    private final long intervalNanos;
+    private final long fastIntervalNanos;
+    private final long maxIntervalNanos;
+    private final Random random;
+
+    public AgentPollPolicy(CoordinatorConfig config)
+    {
+        this(config.getStatusExpiration(), config.getStatusFastPollInterval(), config.getStatusMaxPollInterval());
+    }
+
+    public AgentPollPolicy(Duration interval, Duration fastInterval, Duration maxInterval)
+    {
+        this(interval, fastInterval, maxInterval, new Random());
+    }
+
+    public AgentPollPolicy(Duration interval, Duration fastInterval, Duration maxInterval, Random random)
+    {
+        Preconditions.checkNotNull(interval, "interval is null");
+        Preconditions.checkNotNull(fastInterval, "fastInterval is null");
+        Preconditions.checkNotNull(maxInterval, "maxInterval is null");
+        Preconditions.checkNotNull(random, "random is null");
+
+        this.intervalNanos = interval.roundTo(TimeUnit.NANOSECONDS);
+        this.fastIntervalNanos = Math.min(fastInterval.roundTo(TimeUnit.NANOSECONDS), intervalNanos);
+        this.maxIntervalNanos = Math.max(maxInterval.roundTo(TimeUnit.NANOSECONDS), intervalNanos);
+        this.random = random;
+    }
+
+    /**
+     * Delay before the first poll of a new agent, chosen uniformly across the
+     * interval.
+     */
+    public long getInitialDelayNanos()
+    {
+        return (long) (intervalNanos * random.nextDouble());
+    }
+
+    /**
+     * Delay before the next poll of an agent.
+     *
+     * @param consecutiveFailures number of polls in a row that have failed
+     * @param busy true if the agent is running commands or its status changed at the last poll
+     */
+    public long getNextDelayNanos(int consecutiveFailures, boolean busy)
+    {
+        Preconditions.checkArgument(consecutiveFailures >= 0, "consecutiveFailures is negative");
+
+        long delay;
+        if (consecutiveFailures > 0) {
+            // retry quickly once, then double the delay for each failure
+            delay = fastIntervalNanos;
+            for (int i = 1; i < consecutiveFailures && delay < maxIntervalNanos; i++) {
+                delay *= 2;
+            }
+            delay = Math.min(delay, maxIntervalNanos);
+        }
+        else if (busy) {
+            delay = fastIntervalNanos;
+        }
+        else {
+            delay = intervalNanos;
+        }
+        return (long) (delay * (1 - JITTER + (2 * JITTER * random.nextDouble())));
+    }
+}
@@ -0,0 +1,529 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.inject.Inject;
+import io.airlift.airship.shared.Installation;
+import io.airlift.http.server.HttpServerInfo;
+import io.airlift.log.Logger;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.google.common.net.HttpHeaders.ETAG;
+import static com.google.common.net.HttpHeaders.IF_MODIFIED_SINCE;
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
+import static com.google.common.net.HttpHeaders.LAST_MODIFIED;
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static io.airlift.airship.shared.FileUtils.listFiles;
+
+/**
+ * Copies of the binaries and config bundles installed on agents, so a rollout
+ * across many agents downloads each artifact from the repository only once.
+ * Installations handed to agents point at the artifact resource of this
+ * coordinator, and each artifact is fetched by the first request for it while
+ * concurrent requests wait for that fetch.  Cached artifacts are revalidated
+ * against the repository with a conditional request once the revalidate
+ * interval has passed.  The data file of an artifact is named after its
+ * checksum, so a revalidation that changes the artifact writes a new file
+ * instead of replacing the file a response is serving.  When the cached
+ * artifacts grow beyond the maximum
+ * size the least recently used artifacts are removed; their registrations are
+ * kept, so they are downloaded again the next time they are requested.
+ */
+public class ArtifactCache
+{
+    private static final Logger log = Logger.get(ArtifactCache.class);
+    private static final String TEMP_PREFIX = "tmp";
+    private static final String DATA_SUFFIX = ".data";
+
+    private final URI baseUri;
+    private final File cacheDir;
+    private final long revalidateIntervalMillis;
+    private final long maxSizeBytes;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final long maxFetchWaitMillis;
+    private final ConcurrentMap<String, SettableFuture<CachedArtifact>> fetches = new ConcurrentHashMap<>();
+
+    // cached artifacts in least recently used order; guarded by this
+    private final LinkedHashMap<String, Long> artifactSizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSizeBytes;
+
+    @Inject
+    public ArtifactCache(HttpServerInfo httpServerInfo, CoordinatorConfig config)
+    {
+        this(httpServerInfo.getHttpUri(),
+                new File(config.getArtifactCacheDir()),
+                config.getArtifactCacheRevalidateInterval(),
+                config.getArtifactCacheMaxSize(),
+                config.getArtifactCacheConnectTimeout(),
+                config.getArtifactCacheReadTimeout(),
+                config.getArtifactCacheMaxFetchWait());
+    }
+
+    public ArtifactCache(URI baseUri, File cacheDir, Duration revalidateInterval)
+    {
+        this(baseUri, cacheDir, revalidateInterval, new CoordinatorConfig().getArtifactCacheMaxSize());
+    }
+
+    public ArtifactCache(URI baseUri, File cacheDir, Duration revalidateInterval, DataSize maxSize)
+    {
+        this(baseUri,
+                cacheDir,
+                revalidateInterval,
+                maxSize,
+                new CoordinatorConfig().getArtifactCacheConnectTimeout(),
+                new CoordinatorConfig().getArtifactCacheReadTimeout(),
+                new CoordinatorConfig().getArtifactCacheMaxFetchWait());
+    }
+
+    public ArtifactCache(URI baseUri,
+            File cacheDir,
+            Duration revalidateInterval,
+            DataSize maxSize,
+            Duration connectTimeout,
+            Duration readTimeout,
+            Duration maxFetchWait)
+    {
+        Preconditions.checkNotNull(baseUri, "baseUri is null");
+        Preconditions.checkNotNull(cacheDir, "cacheDir is null");
+        Preconditions.checkNotNull(revalidateInterval, "revalidateInterval is null");
+        Preconditions.checkNotNull(maxSize, "maxSize is null");
+        Preconditions.checkNotNull(connectTimeout, "connectTimeout is null");
+        Preconditions.checkNotNull(readTimeout, "readTimeout is null");
+        Preconditions.checkNotNull(maxFetchWait, "maxFetchWait is null");
+
+        this.baseUri = baseUri;
+        this.cacheDir = cacheDir;
+        this.revalidateIntervalMillis = revalidateInterval.roundTo(TimeUnit.MILLISECONDS);
+        this.maxSizeBytes = (long) maxSize.toBytes();
+        this.connectTimeoutMillis = Ints.saturatedCast(connectTimeout.roundTo(TimeUnit.MILLISECONDS));
+        this.readTimeoutMillis = Ints.saturatedCast(readTimeout.roundTo(TimeUnit.MILLISECONDS));
+        this.maxFetchWaitMillis = maxFetchWait.roundTo(TimeUnit.MILLISECONDS);
+
+        // load the existing artifacts, oldest first, and remove unfinished downloads
+        List<File> files = new ArrayList<>(listFiles(cacheDir));
+        Collections.sort(files, new Comparator<File>()
+        {
+            @Override
+            public int compare(File a, File b)
+            {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(TEMP_PREFIX) && file.isDirectory()) {
+                deleteRecursively(file);
+            }
+            else if (name.endsWith(DATA_SUFFIX)) {
+                // remove data files of older versions of the artifact
+                CachedArtifact artifact = loadArtifact(name.substring(0, name.indexOf('.')));
+                if (artifact == null || !artifact.getFile().equals(file)) {
+                    file.delete();
+                    continue;
+                }
+                artifactSizes.put(name.substring(0, name.indexOf('.')), file.length());
+                totalSizeBytes += file.length();
+            }
+        }
+        evict(null);
+    }
+
+    /**
+     * Returns a copy of the installation that downloads the binary and config
+     * bundle from this coordinator.
+     */
+    public Installation toCachedInstallation(Installation installation)
+    {
+        Preconditions.checkNotNull(installation, "installation is null");
+        return new Installation(installation.getShortName(),
+                installation.getAssignment(),
+                register(installation.getBinaryFile()),
+                register(installation.getConfigFile()),
+                installation.getResources(),
+                installation.getBinaryPeers());
+    }
+
+    /**
+     * Registers the artifact with the cache and returns the uri of the artifact
+     * on this coordinator.  Registrations are saved with the cache, so the uri
+     * remains valid after a restart.
+     */
+    public URI register(URI uri)
+    {
+        Preconditions.checkNotNull(uri, "uri is null");
+
+        String key = Hashing.sha1().hashString(uri.toString(), Charsets.UTF_8).toString();
+        File uriFile = getFile(key, "uri");
+        if (!uriFile.exists()) {
+            try {
+                cacheDir.mkdirs();
+                File tempFile = new File(cacheDir, key + ".uri." + Thread.currentThread().getId());
+                Files.write(uri.toString(), tempFile, Charsets.UTF_8);
+                java.nio.file.Files.move(tempFile.toPath(), uriFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (IOException e) {
+                throw new RuntimeException("Unable to register artifact " + uri + " with artifact cache", e);
+            }
+        }
+        return baseUri.resolve("/v1/artifact/" + key);
+    }
+
+    /**
+     * Returns the cached artifact for the key, downloading or revalidating the
+     * artifact if necessary, or null if the key is not registered.
+     */
+    @Nullable
+    public CachedArtifact get(String key)
+            throws IOException
+    {
+        Preconditions.checkNotNull(key, "key is null");
+
+        URI uri = getUri(key);
+        if (uri == null) {
+            return null;
+        }
+
+        CachedArtifact artifact = loadArtifact(key);
+        if (artifact != null && System.currentTimeMillis() - artifact.getCheckedTime() < revalidateIntervalMillis) {
+            synchronized (this) {
+                // mark the artifact as recently used
+                artifactSizes.get(key);
+            }
+            return artifact;
+        }
+
+        // only one request fetches an artifact, everyone else waits for the result
+        SettableFuture<CachedArtifact> future = SettableFuture.create();
+        SettableFuture<CachedArtifact> existing = fetches.putIfAbsent(key, future);
+        if (existing != null) {
+            return waitFor(existing);
+        }
+        try {
+            future.set(fetch(key, uri, artifact));
+        }
+        catch (Throwable e) {
+            future.setException(e);
+        }
+        finally {
+            fetches.remove(key, future);
+        }
+        evict(key);
+        return waitFor(future);
+    }
+
+    public synchronized long getSizeBytes()
+    {
+        return totalSizeBytes;
+    }
+
+    public synchronized List<String> getArtifacts()
+    {
+        return ImmutableList.copyOf(artifactSizes.keySet());
+    }
+
+    @Nullable
+    private URI getUri(String key)
+    {
+        File uriFile = getFile(key, "uri");
+        if (!uriFile.isFile()) {
+            return null;
+        }
+        try {
+            return URI.create(Files.toString(uriFile, Charsets.UTF_8).trim());
+        }
+        catch (IOException | IllegalArgumentException e) {
+            log.warn(e, "Invalid artifact cache entry %s", uriFile);
+            return null;
+        }
+    }
+
+    private CachedArtifact fetch(String key, URI uri, @Nullable CachedArtifact cached)
+            throws IOException
+    {
+        // a hung repository must not hold the requests waiting for this artifact forever
+        URLConnection connection = uri.toURL().openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        HttpURLConnection httpConnection = null;
+        if (connection instanceof HttpURLConnection) {
+            httpConnection = (HttpURLConnection) connection;
+            if (cached != null) {
+                if (cached.getSourceETag() != null) {
+                    httpConnection.setRequestProperty(IF_NONE_MATCH, cached.getSourceETag());
+                }
+                if (cached.getSourceLastModified() != null) {
+                    httpConnection.setRequestProperty(IF_MODIFIED_SINCE, cached.getSourceLastModified());
+                }
+            }
+        }
+
+        try {
+            if (cached != null && httpConnection != null && httpConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                CachedArtifact artifact = cached.withCheckedTime(System.currentTimeMillis());
+                saveArtifact(key, artifact);
+                return artifact;
+            }
+
+            // download to a temp file and hash the contents as they are copied
+            File tempDir = createTempDir(cacheDir, TEMP_PREFIX);
+            try {
+                File tempFile = new File(tempDir, key);
+                Hasher hasher = Hashing.sha1().newHasher();
+                try (InputStream in = connection.getInputStream();
+                        OutputStream out = new FileOutputStream(tempFile)) {
+                    byte[] buffer = new byte[64 * 1024];
+                    for (int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
+                        hasher.putBytes(buffer, 0, count);
+                        out.write(buffer, 0, count);
+                    }
+                }
+                String sha1 = hasher.hash().toString();
+
+                File file = getDataFile(key, sha1);
+                java.nio.file.Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                synchronized (this) {
+                    Long oldSize = artifactSizes.put(key, file.length());
+                    totalSizeBytes += file.length() - (oldSize == null ? 0 : oldSize);
+                }
+
+                CachedArtifact artifact = new CachedArtifact(file,
+                        sha1,
+                        file.lastModified(),
+                        System.currentTimeMillis(),
+                        connection.getHeaderField(ETAG),
+                        connection.getHeaderField(LAST_MODIFIED));
+                saveArtifact(key, artifact);
+
+                // responses that already opened the old version keep reading it
+                if (cached != null && !cached.getFile().equals(file)) {
+                    cached.getFile().delete();
+                }
+                return artifact;
+            }
+            finally {
+                deleteRecursively(tempDir);
+            }
+        }
+        catch (IOException e) {
+            if (cached != null) {
+                // keep serving the cached copy while the repository is unavailable
+                log.warn(e, "Unable to revalidate artifact %s; using cached copy", uri);
+                return cached;
+            }
+            throw e;
+        }
+        finally {
+            if (httpConnection != null) {
+                httpConnection.disconnect();
+            }
+        }
+    }
+
+    private void evict(@Nullable String keep)
+    {
+        List<String> artifacts;
+        synchronized (this) {
+            if (totalSizeBytes <= maxSizeBytes) {
+                return;
+            }
+            artifacts = ImmutableList.copyOf(artifactSizes.keySet());
+        }
+
+        for (String key : artifacts) {
+            // skip artifacts that are being downloaded right now
+            if (key.equals(keep) || fetches.containsKey(key)) {
+                continue;
+            }
+            synchronized (this) {
+                if (totalSizeBytes <= maxSizeBytes) {
+                    return;
+                }
+                Long size = artifactSizes.remove(key);
+                if (size == null) {
+                    continue;
+                }
+                totalSizeBytes -= size;
+            }
+            // the registration is kept so the artifact can be downloaded again, and
+            // responses that already opened the file keep reading the removed file
+            log.info("Removing artifact %s from cache", key);
+            CachedArtifact artifact = loadArtifact(key);
+            getFile(key, "properties").delete();
+            if (artifact != null) {
+                artifact.getFile().delete();
+            }
+        }
+    }
+
+    @Nullable
+    private CachedArtifact loadArtifact(String key)
+    {
+        File metadataFile = getFile(key, "properties");
+        if (!metadataFile.isFile()) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStreamSupplier(metadataFile).getInput()) {
+            properties.load(in);
+            String sha1 = properties.getProperty("sha1");
+            File file = getDataFile(key, sha1);
+            if (!file.isFile()) {
+                return null;
+            }
+            return new CachedArtifact(file,
+                    sha1,
+                    Long.parseLong(properties.getProperty("modified")),
+                    Long.parseLong(properties.getProperty("checked")),
+                    properties.getProperty("source-etag"),
+                    properties.getProperty("source-last-modified"));
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn(e, "Invalid artifact cache entry %s", metadataFile);
+            return null;
+        }
+    }
+
+    private void saveArtifact(String key, CachedArtifact artifact)
+            throws IOException
+    {
+        Properties properties = new Properties();
+        properties.setProperty("sha1", artifact.getSha1());
+        properties.setProperty("modified", String.valueOf(artifact.getLastModified()));
+        properties.setProperty("checked", String.valueOf(artifact.getCheckedTime()));
+        if (artifact.getSourceETag() != null) {
+            properties.setProperty("source-etag", artifact.getSourceETag());
+        }
+        if (artifact.getSourceLastModified() != null) {
+            properties.setProperty("source-last-modified", artifact.getSourceLastModified());
+        }
+
+        File tempFile = getFile(key, "properties.tmp");
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            properties.store(out, null);
+        }
+        java.nio.file.Files.move(tempFile.toPath(), getFile(key, "properties").toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private File getFile(String key, String extension)
+    {
+        return new File(cacheDir, key + "." + extension);
+    }
+
+    private File getDataFile(String key, String sha1)
+    {
+        return new File(cacheDir, key + "." + sha1 + DATA_SUFFIX);
+    }
+
+    private CachedArtifact waitFor(SettableFuture<CachedArtifact> future)
+            throws IOException
+    {
+        try {
+            return future.get(maxFetchWaitMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for artifact download", e);
+        }
+        catch (TimeoutException e) {
+            throw new IOException("Timed out waiting for artifact download", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    public static class CachedArtifact
+    {
+        private final File file;
+        private final String sha1;
+        private final long lastModified;
+        private final long checkedTime;
+        private final String sourceETag;
+        private final String sourceLastModified;
+
+        public CachedArtifact(File file, String sha1, long lastModified, long checkedTime, @Nullable String sourceETag, @Nullable String sourceLastModified)
+        {
+            Preconditions.checkNotNull(file, "file is null");
+            Preconditions.checkNotNull(sha1, "sha1 is null");
+
+            this.file = file;
+            this.sha1 = sha1;
+            this.lastModified = lastModified;
+            this.checkedTime = checkedTime;
+            this.sourceETag = sourceETag;
+            this.sourceLastModified = sourceLastModified;
+        }
+
+        public File getFile()
+        {
+            return file;
+        }
+
+        public String getSha1()
+        {
+            return sha1;
+        }
+
+        public long getLastModified()
+        {
+            return lastModified;
+        }
+
+        public long getCheckedTime()
+        {
+            return checkedTime;
+        }
+
+        @Nullable
+        public String getSourceETag()
+        {
+            return sourceETag;
+        }
+
+        @Nullable
+        public String getSourceLastModified()
+        {
+            return sourceLastModified;
+        }
+
+        private CachedArtifact withCheckedTime(long checkedTime)
+        {
+            return new CachedArtifact(file, sha1, lastModified, checkedTime, sourceETag, sourceLastModified);
+        }
+    }
+}
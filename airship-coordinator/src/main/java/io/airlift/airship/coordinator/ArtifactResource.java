@@ -0,0 +1,227 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import io.airlift.airship.coordinator.ArtifactCache.CachedArtifact;
+import io.airlift.log.Logger;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.net.HttpHeaders.ACCEPT_RANGES;
+import static com.google.common.net.HttpHeaders.CONTENT_LENGTH;
+import static com.google.common.net.HttpHeaders.CONTENT_RANGE;
+import static com.google.common.net.HttpHeaders.IF_RANGE;
+import static com.google.common.net.HttpHeaders.RANGE;
+
+/**
+ * Serves the artifacts in the {@link ArtifactCache} to agents.  Supports
+ * conditional requests and single byte range requests, so agents can resume
+ * interrupted downloads.
+ */
+@Path("/v1/artifact/")
+public class ArtifactResource
+{
+    private static final Logger log = Logger.get(ArtifactResource.class);
+    private static final Pattern BYTE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private static final int PARTIAL_CONTENT = 206;
+    private static final int REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+    private static final int BAD_GATEWAY = 502;
+
+    // the artifact can be replaced or evicted between looking it up and opening it
+    private static final int MAX_OPEN_ATTEMPTS = 3;
+
+    private final ArtifactCache artifactCache;
+
+    @Inject
+    public ArtifactResource(ArtifactCache artifactCache)
+    {
+        Preconditions.checkNotNull(artifactCache, "artifactCache is null");
+        this.artifactCache = artifactCache;
+    }
+
+    @GET
+    @Path("{key: [0-9a-f]{40}}")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response getArtifact(@PathParam("key") String key,
+            @HeaderParam(RANGE) String range,
+            @HeaderParam(IF_RANGE) String ifRange,
+            @Context Request request)
+    {
+        // open the file before building the response, so the length, checksum and body all come from the same file
+        CachedArtifact artifact = null;
+        FileChannel channel = null;
+        for (int attempt = 1; channel == null; attempt++) {
+            artifact = getCachedArtifact(key);
+            try {
+                channel = new FileInputStream(artifact.getFile()).getChannel();
+            }
+            catch (FileNotFoundException e) {
+                if (attempt >= MAX_OPEN_ATTEMPTS) {
+                    log.warn(e, "Unable to open artifact %s", key);
+                    throw new WebApplicationException(Status.SERVICE_UNAVAILABLE);
+                }
+            }
+        }
+
+        boolean success = false;
+        try {
+            Response response = getArtifact(artifact, channel, range, ifRange, request);
+            success = true;
+            return response;
+        }
+        catch (IOException e) {
+            log.warn(e, "Unable to read artifact %s", key);
+            throw new WebApplicationException(Status.INTERNAL_SERVER_ERROR);
+        }
+        finally {
+            // otherwise the channel is closed once the response is written
+            if (!success) {
+                try {
+                    channel.close();
+                }
+                catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static Response getArtifact(CachedArtifact artifact, FileChannel channel, String range, String ifRange, Request request)
+            throws IOException
+    {
+        // http dates only have a resolution of seconds
+        Date lastModified = new Date(artifact.getLastModified() / 1000 * 1000);
+        EntityTag entityTag = new EntityTag(artifact.getSha1());
+        ResponseBuilder notModified = request.evaluatePreconditions(lastModified, entityTag);
+        if (notModified != null) {
+            channel.close();
+            return notModified.build();
+        }
+
+        long length = channel.size();
+
+        // a range is only valid for the version of the artifact the client already has
+        boolean rangeMatches = ifRange == null || ifRange.equals(entityTag.toString());
+        Matcher matcher = BYTE_RANGE.matcher(range == null ? "" : range.trim());
+        if (!rangeMatches || !matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            // multiple ranges are allowed to be answered with the whole artifact
+            return Response.ok(new FileChannelStreamingOutput(channel, 0, length))
+                    .header(ACCEPT_RANGES, "bytes")
+                    .header(CONTENT_LENGTH, length)
+                    .tag(entityTag)
+                    .lastModified(lastModified)
+                    .build();
+        }
+
+        long start;
+        long end;
+        if (matcher.group(1).isEmpty()) {
+            // suffix range of the last N bytes
+            start = Math.max(0, length - Long.parseLong(matcher.group(2)));
+            end = length - 1;
+        }
+        else {
+            start = Long.parseLong(matcher.group(1));
+            end = matcher.group(2).isEmpty() ? length - 1 : Math.min(Long.parseLong(matcher.group(2)), length - 1);
+        }
+        if (start >= length || start > end) {
+            channel.close();
+            return Response.status(REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(CONTENT_RANGE, "bytes */" + length)
+                    .build();
+        }
+
+        return Response.status(PARTIAL_CONTENT)
+                .entity(new FileChannelStreamingOutput(channel, start, end - start + 1))
+                .header(ACCEPT_RANGES, "bytes")
+                .header(CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length)
+                .header(CONTENT_LENGTH, end - start + 1)
+                .tag(entityTag)
+                .lastModified(lastModified)
+                .build();
+    }
+
+    @GET
+    @Path("{key: [0-9a-f]{40}}.sha1")
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response getArtifactChecksum(@PathParam("key") String key)
+    {
+        CachedArtifact artifact = getCachedArtifact(key);
+        return Response.ok(artifact.getSha1()).build();
+    }
+
+    private CachedArtifact getCachedArtifact(String key)
+    {
+        CachedArtifact artifact;
+        try {
+            artifact = artifactCache.get(key);
+        }
+        catch (IOException e) {
+            log.warn(e, "Unable to fetch artifact %s", key);
+            throw new WebApplicationException(Response.status(BAD_GATEWAY).build());
+        }
+        if (artifact == null) {
+            throw new WebApplicationException(Status.NOT_FOUND);
+        }
+        return artifact;
+    }
+
+    private static class FileChannelStreamingOutput
+            implements StreamingOutput
+    {
+        private final FileChannel channel;
+        private final long position;
+        private final long count;
+
+        private FileChannelStreamingOutput(FileChannel channel, long position, long count)
+        {
+            this.channel = channel;
+            this.position = position;
+            this.count = count;
+        }
+
+        @Override
+        public void write(OutputStream output)
+                throws IOException
+        {
+            // stream straight from the file channel so large artifacts are never buffered in memory
+            try {
+                WritableByteChannel target = Channels.newChannel(output);
+                long transferred = 0;
+                while (transferred < count) {
+                    long bytes = channel.transferTo(position + transferred, count - transferred, target);
+                    if (bytes <= 0) {
+                        throw new IOException("Artifact was truncated");
+                    }
+                    transferred += bytes;
+                }
+            }
+            finally {
+                channel.close();
+            }
+        }
+    }
+}
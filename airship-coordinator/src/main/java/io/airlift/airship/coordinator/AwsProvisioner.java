@@ -5,9 +5,7 @@ import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.services.ec2.AmazonEC2;
 import com.amazonaws.services.ec2.model.BlockDeviceMapping;
 import com.amazonaws.services.ec2.model.CreateTagsRequest;
-import com.amazonaws.services.ec2.model.DescribeInstancesResult;
 import com.amazonaws.services.ec2.model.Placement;
-import com.amazonaws.services.ec2.model.Reservation;
 import com.amazonaws.services.ec2.model.RunInstancesRequest;
 import com.amazonaws.services.ec2.model.RunInstancesResult;
 import com.amazonaws.services.ec2.model.Tag;
@@ -28,6 +26,8 @@ import io.airlift.log.Logger;
 import io.airlift.node.NodeInfo;
 import org.apache.commons.codec.binary.Base64;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.net.URI;
 import java.util.Collections;
@@ -69,6 +69,7 @@ public class AwsProvisioner implements Provisioner
     private final String agentDefaultInstanceType;
 
     private final Repository repository;
+    private final Ec2InstanceCache instanceCache;
 
     private final Set<String> invalidInstances = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
@@ -106,103 +107,73 @@ public class AwsProvisioner implements Provisioner
         provisioningScriptsArtifact = firstNonNull(awsProvisionerConfig.getProvisioningScriptsArtifact(), String.format(DEFAULT_PROVISIONING_SCRIPTS, awsProvisionerConfig.getAirshipVersion()));
 
         this.repository = checkNotNull(repository, "repository is null");
+
+        instanceCache = new Ec2InstanceCache(ec2Client, environment, awsProvisionerConfig.getInstanceRefreshInterval());
     }
 
-    @Override
-    public List<Instance> listCoordinators()
+    @PostConstruct
+    public void start()
     {
-        DescribeInstancesResult describeInstancesResult = ec2Client.describeInstances();
-        List<Reservation> reservations = describeInstancesResult.getReservations();
-        List<Instance> instances = newArrayList();
-
-        for (Reservation reservation : reservations) {
-            for (com.amazonaws.services.ec2.model.Instance instance : reservation.getInstances()) {
-                // skip terminated instances
-                if ("terminated".equalsIgnoreCase(instance.getState().getName())) {
-                    continue;
-                }
-                Map<String, String> tags = toMap(instance.getTags());
-                if ("coordinator".equals(tags.get("airship:role")) && environment.equals(tags.get("airship:environment"))) {
-                    String portTag = tags.get("airship:port");
-                    if (portTag == null) {
-                        if (invalidInstances.add(instance.getInstanceId())) {
-                            log.error("Instance %s does not have a airship:port tag", instance.getInstanceId());
-                        }
-                        continue;
-                    }
+        instanceCache.start();
+    }
 
-                    int port;
-                    try {
-                        port = Integer.parseInt(portTag);
-                    }
-                    catch (Exception e) {
-                        if (invalidInstances.add(instance.getInstanceId())) {
-                            log.error("Instance %s airship:port tag is not a number", instance.getInstanceId());
-                        }
-                        continue;
-                    }
+    @PreDestroy
+    public void stop()
+    {
+        instanceCache.stop();
+    }
 
-                    URI internalUri = null;
-                    if (instance.getPrivateIpAddress() != null) {
-                        internalUri = uriBuilder().scheme("http").host(instance.getPrivateIpAddress()).port(port).build();
-                    }
-                    URI externalUri = null;
-                    if (instance.getPublicDnsName() != null) {
-                        externalUri = uriBuilder().scheme("http").host(instance.getPublicDnsName()).port(port).build();
-                    }
-                    instances.add(toInstance(instance, internalUri, externalUri, "coordinator"));
-                    invalidInstances.remove(instance.getInstanceId());
-                }
-            }
-        }
-        return instances;
+    @Override
+    public List<Instance> listCoordinators()
+    {
+        return listInstances("coordinator");
     }
-    
+
     @Override
     public List<Instance> listAgents()
     {
-        DescribeInstancesResult describeInstancesResult = ec2Client.describeInstances();
-        List<Reservation> reservations = describeInstancesResult.getReservations();
-        List<Instance> instances = newArrayList();
+        return listInstances("agent");
+    }
 
-        for (Reservation reservation : reservations) {
-            for (com.amazonaws.services.ec2.model.Instance instance : reservation.getInstances()) {
-                // skip terminated instances
-                if ("terminated".equalsIgnoreCase(instance.getState().getName())) {
+    private List<Instance> listInstances(String role)
+    {
+        List<Instance> instances = newArrayList();
+        for (com.amazonaws.services.ec2.model.Instance instance : instanceCache.getInstances()) {
+            // skip terminated instances
+            if ("terminated".equalsIgnoreCase(instance.getState().getName())) {
+                continue;
+            }
+            Map<String, String> tags = toMap(instance.getTags());
+            if (role.equals(tags.get("airship:role")) && environment.equals(tags.get("airship:environment"))) {
+                String portTag = tags.get("airship:port");
+                if (portTag == null) {
+                    if (invalidInstances.add(instance.getInstanceId())) {
+                        log.error("Instance %s does not have a airship:port tag", instance.getInstanceId());
+                    }
                     continue;
                 }
-                Map<String, String> tags = toMap(instance.getTags());
-                if ("agent".equals(tags.get("airship:role")) && environment.equals(tags.get("airship:environment"))) {
-                    String portTag = tags.get("airship:port");
-                    if (portTag == null) {
-                        if (invalidInstances.add(instance.getInstanceId())) {
-                            log.error("Instance %s does not have a airship:port tag", instance.getInstanceId());
-                        }
-                        continue;
-                    }
 
-                    int port;
-                    try {
-                        port = Integer.parseInt(portTag);
-                    }
-                    catch (Exception e) {
-                        if (invalidInstances.add(instance.getInstanceId())) {
-                            log.error("Instance %s airship:port tag is not a number", instance.getInstanceId());
-                        }
-                        continue;
+                int port;
+                try {
+                    port = Integer.parseInt(portTag);
+                }
+                catch (Exception e) {
+                    if (invalidInstances.add(instance.getInstanceId())) {
+                        log.error("Instance %s airship:port tag is not a number", instance.getInstanceId());
                     }
+                    continue;
+                }
 
-                    URI internalUri = null;
-                    if (instance.getPrivateIpAddress() != null) {
-                        internalUri = uriBuilder().scheme("http").host(instance.getPrivateIpAddress()).port(port).build();
-                    }
-                    URI externalUri = null;
-                    if (instance.getPublicDnsName() != null) {
-                        externalUri = uriBuilder().scheme("http").host(instance.getPublicDnsName()).port(port).build();
-                    }
-                    instances.add(toInstance(instance, internalUri, externalUri, "agent"));
-                    invalidInstances.remove(instance.getInstanceId());
+                URI internalUri = null;
+                if (instance.getPrivateIpAddress() != null) {
+                    internalUri = uriBuilder().scheme("http").host(instance.getPrivateIpAddress()).port(port).build();
+                }
+                URI externalUri = null;
+                if (instance.getPublicDnsName() != null) {
+                    externalUri = uriBuilder().scheme("http").host(instance.getPublicDnsName()).port(port).build();
                 }
+                instances.add(toInstance(instance, internalUri, externalUri, role));
+                invalidInstances.remove(instance.getInstanceId());
             }
         }
         return instances;
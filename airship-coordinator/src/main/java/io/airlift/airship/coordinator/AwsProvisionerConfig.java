@@ -32,6 +32,7 @@ public class AwsProvisionerConfig
     private String s3KeystoreBucket;
     private String s3KeystorePath;
     private Duration s3KeystoreRefreshInterval = new Duration(10, TimeUnit.SECONDS);
+    private Duration instanceRefreshInterval = new Duration(10, TimeUnit.SECONDS);
 
     @Config("coordinator.aws.credentials-file")
     @ConfigDescription("File containing aws credentials")
@@ -211,6 +212,20 @@ public class AwsProvisionerConfig
         return s3KeystoreRefreshInterval;
     }
 
+    @Config("coordinator.aws.instance.refresh")
+    @ConfigDescription("Refresh interval for the cached list of EC2 instances")
+    public AwsProvisionerConfig setInstanceRefreshInterval(Duration instanceRefreshInterval)
+    {
+        this.instanceRefreshInterval = instanceRefreshInterval;
+        return this;
+    }
+
+    @NotNull
+    public Duration getInstanceRefreshInterval()
+    {
+        return instanceRefreshInterval;
+    }
+
     @Config("coordinator.aws.provisioning.artifact")
     @ConfigDescription("An alternate package of provisioning scripts")
     public AwsProvisionerConfig setProvisioningScriptsArtifact(String provisioningScriptsArtifact)
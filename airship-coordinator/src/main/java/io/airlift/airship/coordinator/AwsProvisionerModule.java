@@ -36,6 +36,8 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Properties;
 
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
+
 public class AwsProvisionerModule
         implements Module
 {
@@ -45,7 +47,9 @@ public class AwsProvisionerModule
         binder.requireExplicitBindings();
 
         binder.bind(Provisioner.class).to(AwsProvisioner.class).in(Scopes.SINGLETON);
-        binder.bind(StateManager.class).to(SimpleDbStateManager.class).in(Scopes.SINGLETON);
+        binder.bind(StateManager.class).to(CachingStateManager.class).in(Scopes.SINGLETON);
+        binder.bind(StateManager.class).annotatedWith(ForCachingStateManager.class).to(SimpleDbStateManager.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(CachingStateManager.class).withGeneratedName();
         binder.bind(AuthorizedKeyStore.class).to(S3AuthorizedKeyStore.class).in(Scopes.SINGLETON);
         ConfigurationModule.bindConfig(binder).to(AwsProvisionerConfig.class);
     }
@@ -0,0 +1,381 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.SettableFuture;
+import io.airlift.airship.shared.Repository;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.inject.Inject;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the results of the delegate repository calls that probe the
+ * repository over the network.  Snapshot coordinates are cached for a shorter
+ * time than releases, binaries and configs that are not found are cached for
+ * the negative ttl, and concurrent lookups of the same coordinates share a
+ * single call to the delegate.
+ */
+public class CachingRepository implements Repository
+{
+    private final Repository delegate;
+    private final long releaseTtlNanos;
+    private final long snapshotTtlNanos;
+    private final long negativeTtlNanos;
+    private final int maxSize;
+
+    @GuardedBy("cache")
+    private final Map<List<String>, CacheEntry> cache = new LinkedHashMap<>();
+    private final ConcurrentMap<List<String>, SettableFuture<Optional<Object>>> loads = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+
+    @Inject
+    public CachingRepository(@ForCachingRepository Repository delegate, CoordinatorConfig config)
+    {
+        this(delegate,
+                config.getRepositoryCacheReleaseTtl(),
+                config.getRepositoryCacheSnapshotTtl(),
+                config.getRepositoryCacheNegativeTtl(),
+                config.getRepositoryCacheMaxSize());
+    }
+
+    public CachingRepository(Repository delegate, Duration releaseTtl, Duration snapshotTtl, Duration negativeTtl, int maxSize)
+    {
+        Preconditions.checkNotNull(delegate, "delegate is null");
+        Preconditions.checkNotNull(releaseTtl, "releaseTtl is null");
+        Preconditions.checkNotNull(snapshotTtl, "snapshotTtl is null");
+        Preconditions.checkNotNull(negativeTtl, "negativeTtl is null");
+        Preconditions.checkArgument(maxSize > 0, "maxSize must be at least 1");
+
+        this.delegate = delegate;
+        this.releaseTtlNanos = releaseTtl.roundTo(TimeUnit.NANOSECONDS);
+        this.snapshotTtlNanos = snapshotTtl.roundTo(TimeUnit.NANOSECONDS);
+        this.negativeTtlNanos = negativeTtl.roundTo(TimeUnit.NANOSECONDS);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public String configShortName(String config)
+    {
+        return delegate.configShortName(config);
+    }
+
+    @Override
+    public String configRelativize(String config)
+    {
+        return delegate.configRelativize(config);
+    }
+
+    @Override
+    public String configResolve(final String config)
+    {
+        return get(new Callable<String>()
+        {
+            @Override
+            public String call()
+            {
+                return delegate.configResolve(config);
+            }
+        }, "configResolve", config);
+    }
+
+    @Override
+    public String configUpgrade(final String config, final String version)
+    {
+        return get(new Callable<String>()
+        {
+            @Override
+            public String call()
+            {
+                return delegate.configUpgrade(config, version);
+            }
+        }, "configUpgrade", config, version);
+    }
+
+    @Override
+    public boolean configEqualsIgnoreVersion(String config1, String config2)
+    {
+        return delegate.configEqualsIgnoreVersion(config1, config2);
+    }
+
+    @Override
+    public URI configToHttpUri(final String config)
+    {
+        return get(new Callable<URI>()
+        {
+            @Override
+            public URI call()
+            {
+                return delegate.configToHttpUri(config);
+            }
+        }, "configToHttpUri", config);
+    }
+
+    @Override
+    public String binaryRelativize(String binary)
+    {
+        return delegate.binaryRelativize(binary);
+    }
+
+    @Override
+    public String binaryResolve(final String binary)
+    {
+        return get(new Callable<String>()
+        {
+            @Override
+            public String call()
+            {
+                return delegate.binaryResolve(binary);
+            }
+        }, "binaryResolve", binary);
+    }
+
+    @Override
+    public String binaryUpgrade(final String binary, final String version)
+    {
+        return get(new Callable<String>()
+        {
+            @Override
+            public String call()
+            {
+                return delegate.binaryUpgrade(binary, version);
+            }
+        }, "binaryUpgrade", binary, version);
+    }
+
+    @Override
+    public boolean binaryEqualsIgnoreVersion(String binary1, String binary2)
+    {
+        return delegate.binaryEqualsIgnoreVersion(binary1, binary2);
+    }
+
+    @Override
+    public URI binaryToHttpUri(final String binary)
+    {
+        return get(new Callable<URI>()
+        {
+            @Override
+            public URI call()
+            {
+                return delegate.binaryToHttpUri(binary);
+            }
+        }, "binaryToHttpUri", binary);
+    }
+
+    @Managed
+    public void flush()
+    {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @Managed
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    @Managed
+    public long getNegativeHits()
+    {
+        return negativeHits.get();
+    }
+
+    @Managed
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    @Managed
+    public long getLoadFailures()
+    {
+        return loadFailures.get();
+    }
+
+    @Managed
+    public double getHitRate()
+    {
+        long hits = this.hits.get() + negativeHits.get();
+        long requests = hits + misses.get();
+        if (requests == 0) {
+            return 0.0;
+        }
+        return (double) hits / requests;
+    }
+
+    @Managed
+    public int getSize()
+    {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Callable<T> loader, String method, String... args)
+    {
+        for (String arg : args) {
+            if (arg == null) {
+                // the delegate decides how to handle nulls
+                return call(loader);
+            }
+        }
+        List<String> key = ImmutableList.<String>builder().add(method).add(args).build();
+
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.getExpiration() < 0) {
+                    if (entry.getValue().isPresent()) {
+                        hits.incrementAndGet();
+                    }
+                    else {
+                        negativeHits.incrementAndGet();
+                    }
+                    return (T) entry.getValue().orNull();
+                }
+                cache.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+
+        // only one caller loads the coordinates, everyone else waits for the result
+        SettableFuture<Optional<Object>> future = SettableFuture.create();
+        SettableFuture<Optional<Object>> existing = loads.putIfAbsent(key, future);
+        if (existing != null) {
+            return (T) waitFor(existing).orNull();
+        }
+        try {
+            Optional<Object> value = Optional.<Object>fromNullable(call(loader));
+            put(key, value, isSnapshot(args));
+            future.set(value);
+        }
+        catch (Throwable e) {
+            // failures are not cached, so the next lookup tries again
+            loadFailures.incrementAndGet();
+            future.setException(e);
+        }
+        finally {
+            loads.remove(key, future);
+        }
+        return (T) waitFor(future).orNull();
+    }
+
+    private void put(List<String> key, Optional<Object> value, boolean snapshot)
+    {
+        long ttlNanos;
+        if (!value.isPresent()) {
+            ttlNanos = negativeTtlNanos;
+        }
+        else if (snapshot) {
+            ttlNanos = snapshotTtlNanos;
+        }
+        else {
+            ttlNanos = releaseTtlNanos;
+        }
+        if (ttlNanos <= 0) {
+            return;
+        }
+
+        synchronized (cache) {
+            cache.put(key, new CacheEntry(value, System.nanoTime() + ttlNanos));
+            // entries are evicted in insertion order, which is also roughly expiration order
+            while (cache.size() > maxSize) {
+                cache.remove(cache.keySet().iterator().next());
+            }
+        }
+    }
+
+    private static boolean isSnapshot(String... args)
+    {
+        for (String arg : args) {
+            if (arg.contains("SNAPSHOT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> T call(Callable<T> loader)
+    {
+        try {
+            return loader.call();
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Optional<Object> waitFor(SettableFuture<Optional<Object>> future)
+    {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for repository lookup", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("CachingRepository");
+        sb.append("{delegate=").append(delegate);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static class CacheEntry
+    {
+        private final Optional<Object> value;
+        private final long expiration;
+
+        private CacheEntry(Optional<Object> value, long expiration)
+        {
+            this.value = value;
+            this.expiration = expiration;
+        }
+
+        public Optional<Object> getValue()
+        {
+            return value;
+        }
+
+        public long getExpiration()
+        {
+            return expiration;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.airship.shared.ExpectedSlotStatus;
+import io.airlift.log.Logger;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
+import javax.inject.Inject;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.collect.Maps.newHashMap;
+
+/**
+ * Serves expected states from memory and writes changes through to the
+ * delegate.  The cache is reloaded from the delegate periodically to pick up
+ * changes made by other coordinators.
+ */
+public class CachingStateManager implements StateManager
+{
+    private static final Logger log = Logger.get(CachingStateManager.class);
+
+    private final StateManager delegate;
+    private final Duration reconcileInterval;
+    private final ScheduledExecutorService executor;
+
+    // null until the first successful load
+    private volatile ImmutableMap<UUID, ExpectedSlotStatus> expectedStates;
+
+    @GuardedBy("this")
+    private long writeSequence;
+
+    private volatile long lastReconcile = System.nanoTime();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong reconciles = new AtomicLong();
+    private final AtomicLong reconcileFailures = new AtomicLong();
+    private final AtomicLong reconcileChanges = new AtomicLong();
+
+    @Inject
+    public CachingStateManager(@ForCachingStateManager StateManager delegate, CoordinatorConfig config)
+    {
+        this(delegate, config.getExpectedStateReconcileInterval());
+    }
+
+    public CachingStateManager(StateManager delegate, Duration reconcileInterval)
+    {
+        Preconditions.checkNotNull(delegate, "delegate is null");
+        Preconditions.checkNotNull(reconcileInterval, "reconcileInterval is null");
+
+        this.delegate = delegate;
+        this.reconcileInterval = reconcileInterval;
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("CachingStateManager-%s").build());
+    }
+
+    @PostConstruct
+    public void start()
+    {
+        executor.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    reconcile();
+                }
+                catch (Exception e) {
+                    // keep serving the cached states until the store is back
+                    log.debug(e, "Unable to load expected state");
+                }
+                catch (Throwable e) {
+                    log.error(e, "Unexpected error reconciling expected state");
+                }
+            }
+        }, 0, (long) reconcileInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public Collection<ExpectedSlotStatus> getAllExpectedStates()
+    {
+        Map<UUID, ExpectedSlotStatus> expectedStates = this.expectedStates;
+        if (expectedStates != null) {
+            hits.incrementAndGet();
+            return expectedStates.values();
+        }
+
+        // nothing is cached yet, so a failure to load is reported to the caller
+        misses.incrementAndGet();
+        Collection<ExpectedSlotStatus> loaded = reconcile();
+        expectedStates = this.expectedStates;
+        if (expectedStates != null) {
+            return expectedStates.values();
+        }
+
+        // the load raced with a write, so do not cache this result
+        return loaded;
+    }
+
+    @Override
+    public void deleteExpectedState(UUID slotId)
+    {
+        Preconditions.checkNotNull(slotId, "slotId is null");
+        delegate.deleteExpectedState(slotId);
+
+        synchronized (this) {
+            writeSequence++;
+            if (expectedStates != null) {
+                Map<UUID, ExpectedSlotStatus> newExpectedStates = newHashMap(expectedStates);
+                newExpectedStates.remove(slotId);
+                expectedStates = ImmutableMap.copyOf(newExpectedStates);
+            }
+        }
+    }
+
+    @Override
+    public void setExpectedState(ExpectedSlotStatus slotStatus)
+    {
+        Preconditions.checkNotNull(slotStatus, "slotStatus is null");
+        delegate.setExpectedState(slotStatus);
+
+        synchronized (this) {
+            writeSequence++;
+            if (expectedStates != null) {
+                Map<UUID, ExpectedSlotStatus> newExpectedStates = newHashMap(expectedStates);
+                newExpectedStates.put(slotStatus.getId(), slotStatus);
+                expectedStates = ImmutableMap.copyOf(newExpectedStates);
+            }
+        }
+    }
+
+    @Override
+    public void deleteExpectedStates(Iterable<UUID> slotIds)
+    {
+        Preconditions.checkNotNull(slotIds, "slotIds is null");
+        delegate.deleteExpectedStates(slotIds);
+
+        synchronized (this) {
+            writeSequence++;
+            if (expectedStates != null) {
+                Map<UUID, ExpectedSlotStatus> newExpectedStates = newHashMap(expectedStates);
+                for (UUID slotId : slotIds) {
+                    newExpectedStates.remove(slotId);
+                }
+                expectedStates = ImmutableMap.copyOf(newExpectedStates);
+            }
+        }
+    }
+
+    @Override
+    public void setExpectedStates(Iterable<ExpectedSlotStatus> slotStatuses)
+    {
+        Preconditions.checkNotNull(slotStatuses, "slotStatuses is null");
+        delegate.setExpectedStates(slotStatuses);
+
+        synchronized (this) {
+            writeSequence++;
+            if (expectedStates != null) {
+                Map<UUID, ExpectedSlotStatus> newExpectedStates = newHashMap(expectedStates);
+                for (ExpectedSlotStatus slotStatus : slotStatuses) {
+                    newExpectedStates.put(slotStatus.getId(), slotStatus);
+                }
+                expectedStates = ImmutableMap.copyOf(newExpectedStates);
+            }
+        }
+    }
+
+    /**
+     * Reloads the cache from the delegate.  Returns the states loaded from the
+     * delegate, or rethrows the failure of the delegate, leaving the cached
+     * states unchanged.
+     */
+    @VisibleForTesting
+    Collection<ExpectedSlotStatus> reconcile()
+    {
+        long sequence;
+        synchronized (this) {
+            sequence = writeSequence;
+        }
+
+        Collection<ExpectedSlotStatus> loaded;
+        try {
+            loaded = delegate.getAllExpectedStates();
+        }
+        catch (RuntimeException e) {
+            reconcileFailures.incrementAndGet();
+            throw e;
+        }
+
+        Map<UUID, ExpectedSlotStatus> newExpectedStates = newHashMap();
+        for (ExpectedSlotStatus expectedSlotStatus : loaded) {
+            newExpectedStates.put(expectedSlotStatus.getId(), expectedSlotStatus);
+        }
+
+        synchronized (this) {
+            // a write may not be reflected in the loaded states, so try again next time
+            if (sequence != writeSequence) {
+                return loaded;
+            }
+
+            if (expectedStates != null) {
+                int changes = countChanges(expectedStates, newExpectedStates);
+                if (changes > 0) {
+                    log.debug("Reconciled %s changed expected states", changes);
+                    reconcileChanges.addAndGet(changes);
+                }
+            }
+            expectedStates = ImmutableMap.copyOf(newExpectedStates);
+        }
+        reconciles.incrementAndGet();
+        lastReconcile = System.nanoTime();
+        return loaded;
+    }
+
+    private static int countChanges(Map<UUID, ExpectedSlotStatus> oldStates, Map<UUID, ExpectedSlotStatus> newStates)
+    {
+        int changes = 0;
+        for (Entry<UUID, ExpectedSlotStatus> entry : newStates.entrySet()) {
+            ExpectedSlotStatus oldState = oldStates.get(entry.getKey());
+            ExpectedSlotStatus newState = entry.getValue();
+            // expected slot status equality is based only on the id
+            if (oldState == null || oldState.getStatus() != newState.getStatus() || !Objects.equal(oldState.getAssignment(), newState.getAssignment())) {
+                changes++;
+            }
+        }
+        for (UUID slotId : oldStates.keySet()) {
+            if (!newStates.containsKey(slotId)) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    @Managed
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    @Managed
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    @Managed
+    public long getReconciles()
+    {
+        return reconciles.get();
+    }
+
+    @Managed
+    public long getReconcileFailures()
+    {
+        return reconcileFailures.get();
+    }
+
+    @Managed
+    public long getReconcileChanges()
+    {
+        return reconcileChanges.get();
+    }
+
+    @Managed
+    public long getStalenessMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastReconcile);
+    }
+}
@@ -10,12 +10,18 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ConcurrentHashMultiset;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
+import com.google.common.math.IntMath;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import io.airlift.airship.coordinator.AgentFilterBuilder.StatePredicate;
@@ -39,6 +45,7 @@ import io.airlift.units.Duration;
 
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
+import java.math.RoundingMode;
 
 import java.net.URI;
 import java.util.ArrayList;
@@ -47,20 +54,18 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -77,6 +82,7 @@ import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
 import static io.airlift.airship.shared.SlotLifecycleState.TERMINATED;
 import static io.airlift.airship.shared.SlotLifecycleState.UNKNOWN;
 import static io.airlift.airship.shared.VersionsUtil.checkSlotsVersion;
+import static io.airlift.airship.shared.VersionsUtil.createServiceInventoryVersion;
 
 public class Coordinator
 {
@@ -95,7 +101,38 @@ public class Coordinator
     private final ServiceInventory serviceInventory;
     private final StateManager stateManager;
     private final boolean allowDuplicateInstallationsOnAnAgent;
-    private final ExecutorService executor;
+    private final FanOutExecutor fanOutExecutor;
+    private final AgentPollPolicy agentPollPolicy;
+    private final ArtifactCache artifactCache;
+    private final int maxBinaryPeers;
+
+    private final ConcurrentMap<String, AgentPoller> agentPollers = new ConcurrentHashMap<>();
+    // instance ids of agents with commands in flight; an agent appears once per running command lane
+    private final ConcurrentHashMultiset<String> busyAgents = ConcurrentHashMultiset.create();
+
+    public Coordinator(NodeInfo nodeInfo,
+            HttpServerInfo httpServerInfo,
+            CoordinatorConfig config,
+            RemoteCoordinatorFactory remoteCoordinatorFactory,
+            RemoteAgentFactory remoteAgentFactory,
+            Repository repository,
+            Provisioner provisioner,
+            StateManager stateManager,
+            ServiceInventory serviceInventory,
+            FanOutExecutor fanOutExecutor)
+    {
+        this(nodeInfo,
+                httpServerInfo,
+                config,
+                remoteCoordinatorFactory,
+                remoteAgentFactory,
+                repository,
+                provisioner,
+                stateManager,
+                serviceInventory,
+                fanOutExecutor,
+                null);
+    }
 
     @Inject
     public Coordinator(NodeInfo nodeInfo,
@@ -105,7 +142,10 @@ public class Coordinator
             RemoteAgentFactory remoteAgentFactory,
             Repository repository,
             Provisioner provisioner,
-            StateManager stateManager, ServiceInventory serviceInventory)
+            StateManager stateManager,
+            ServiceInventory serviceInventory,
+            FanOutExecutor fanOutExecutor,
+            @Nullable ArtifactCache artifactCache)
     {
         this(
                 new CoordinatorStatus(nodeInfo.getInstanceId(),
@@ -122,7 +162,11 @@ public class Coordinator
                 stateManager,
                 serviceInventory,
                 checkNotNull(config, "config is null").getStatusExpiration(),
-                config.isAllowDuplicateInstallationsOnAnAgent());
+                config.isAllowDuplicateInstallationsOnAnAgent(),
+                fanOutExecutor,
+                new AgentPollPolicy(config),
+                config.isArtifactCacheEnabled() ? artifactCache : null,
+                config.getPeerDistributionMaxPeers());
     }
 
     public Coordinator(CoordinatorStatus coordinatorStatus,
@@ -134,6 +178,83 @@ public class Coordinator
             ServiceInventory serviceInventory,
             Duration statusExpiration,
             boolean allowDuplicateInstallationsOnAnAgent)
+    {
+        this(coordinatorStatus,
+                remoteCoordinatorFactory,
+                remoteAgentFactory,
+                repository,
+                provisioner,
+                stateManager,
+                serviceInventory,
+                statusExpiration,
+                allowDuplicateInstallationsOnAnAgent,
+                new FanOutExecutor(new CoordinatorConfig()));
+    }
+
+    public Coordinator(CoordinatorStatus coordinatorStatus,
+            RemoteCoordinatorFactory remoteCoordinatorFactory,
+            RemoteAgentFactory remoteAgentFactory,
+            Repository repository,
+            Provisioner provisioner,
+            StateManager stateManager,
+            ServiceInventory serviceInventory,
+            Duration statusExpiration,
+            boolean allowDuplicateInstallationsOnAnAgent,
+            FanOutExecutor fanOutExecutor)
+    {
+        this(coordinatorStatus,
+                remoteCoordinatorFactory,
+                remoteAgentFactory,
+                repository,
+                provisioner,
+                stateManager,
+                serviceInventory,
+                statusExpiration,
+                allowDuplicateInstallationsOnAnAgent,
+                fanOutExecutor,
+                new AgentPollPolicy(new CoordinatorConfig().setStatusExpiration(statusExpiration)));
+    }
+
+    public Coordinator(CoordinatorStatus coordinatorStatus,
+            RemoteCoordinatorFactory remoteCoordinatorFactory,
+            RemoteAgentFactory remoteAgentFactory,
+            Repository repository,
+            Provisioner provisioner,
+            StateManager stateManager,
+            ServiceInventory serviceInventory,
+            Duration statusExpiration,
+            boolean allowDuplicateInstallationsOnAnAgent,
+            FanOutExecutor fanOutExecutor,
+            AgentPollPolicy agentPollPolicy)
+    {
+        this(coordinatorStatus,
+                remoteCoordinatorFactory,
+                remoteAgentFactory,
+                repository,
+                provisioner,
+                stateManager,
+                serviceInventory,
+                statusExpiration,
+                allowDuplicateInstallationsOnAnAgent,
+                fanOutExecutor,
+                agentPollPolicy,
+                null,
+                0);
+    }
+
+    public Coordinator(CoordinatorStatus coordinatorStatus,
+            RemoteCoordinatorFactory remoteCoordinatorFactory,
+            RemoteAgentFactory remoteAgentFactory,
+            Repository repository,
+            Provisioner provisioner,
+            StateManager stateManager,
+            ServiceInventory serviceInventory,
+            Duration statusExpiration,
+            boolean allowDuplicateInstallationsOnAnAgent,
+            FanOutExecutor fanOutExecutor,
+            AgentPollPolicy agentPollPolicy,
+            @Nullable ArtifactCache artifactCache,
+            int maxBinaryPeers)
     {
         Preconditions.checkNotNull(coordinatorStatus, "coordinatorStatus is null");
         Preconditions.checkNotNull(remoteCoordinatorFactory, "remoteCoordinatorFactory is null");
@@ -143,6 +264,9 @@ public class Coordinator
         Preconditions.checkNotNull(stateManager, "stateManager is null");
         Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
         Preconditions.checkNotNull(statusExpiration, "statusExpiration is null");
+        Preconditions.checkNotNull(fanOutExecutor, "fanOutExecutor is null");
+        Preconditions.checkNotNull(agentPollPolicy, "agentPollPolicy is null");
+        Preconditions.checkArgument(maxBinaryPeers >= 0, "maxBinaryPeers is negative");
 
         this.coordinatorStatus = coordinatorStatus;
         this.remoteCoordinatorFactory = remoteCoordinatorFactory;
@@ -154,7 +278,10 @@ public class Coordinator
         this.statusExpiration = statusExpiration;
         this.allowDuplicateInstallationsOnAnAgent = allowDuplicateInstallationsOnAnAgent;
 
-        this.executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("coordinator-task").build());
+        this.fanOutExecutor = fanOutExecutor;
+        this.agentPollPolicy = agentPollPolicy;
+        this.artifactCache = artifactCache;
+        this.maxBinaryPeers = maxBinaryPeers;
 
         timerService = Executors.newScheduledThreadPool(10, new ThreadFactoryBuilder().setNameFormat("coordinator-agent-monitor").setDaemon(true).build());
 
@@ -185,7 +312,9 @@ public class Coordinator
             public void run()
             {
                 try {
-                    updateAllAgents();
+                    // agent status is polled by the per-agent pollers
+                    refreshAgents();
+                    scheduleAgentPollers();
                 }
                 catch (Throwable e) {
                     log.error(e, "Unexpected exception updating agents");
@@ -352,6 +481,20 @@ public class Coordinator
     }
 
     private List<ListenableFuture<?>> updateAllAgents()
+    {
+        refreshAgents();
+
+        List<ListenableFuture<?>> futures = new ArrayList<>();
+        for (RemoteAgent remoteAgent : agents.values()) {
+            futures.add(remoteAgent.updateStatus());
+        }
+        return futures;
+    }
+
+    /**
+     * Syncs the agents with the provisioner and sends them the service inventory.
+     */
+    private void refreshAgents()
     {
         Set<String> instanceIds = newHashSet();
         for (Instance instance : this.provisioner.listAgents()) {
@@ -374,13 +517,90 @@ public class Coordinator
         // remove any agents not in the provisioner list
         agents.keySet().retainAll(instanceIds);
 
-        List<ListenableFuture<?>> futures = new ArrayList<>();
         List<ServiceDescriptor> serviceDescriptors = serviceInventory.getServiceInventory(transform(getAllSlots(), getSlotStatus()));
+        String serviceInventoryVersion = createServiceInventoryVersion(serviceDescriptors);
         for (RemoteAgent remoteAgent : agents.values()) {
-            futures.add(remoteAgent.updateStatus());
-            remoteAgent.setServiceInventory(serviceDescriptors);
+            remoteAgent.setServiceInventory(serviceDescriptors, serviceInventoryVersion);
+        }
+    }
+
+    private void scheduleAgentPollers()
+    {
+        for (Entry<String, RemoteAgent> entry : agents.entrySet()) {
+            AgentPoller poller = agentPollers.get(entry.getKey());
+            if (poller == null || poller.agent != entry.getValue()) {
+                poller = new AgentPoller(entry.getKey(), entry.getValue());
+                agentPollers.put(entry.getKey(), poller);
+                poller.schedule(agentPollPolicy.getInitialDelayNanos());
+            }
+        }
+        // pollers of removed agents stop at their next run
+        agentPollers.keySet().retainAll(agents.keySet());
+    }
+
+    /**
+     * Polls the status of one agent and schedules its next poll based on the
+     * outcome.  Only one poll of an agent is outstanding at a time.
+     */
+    private class AgentPoller
+            implements Runnable
+    {
+        private final String instanceId;
+        private final RemoteAgent agent;
+        private int consecutiveFailures;
+
+        private AgentPoller(String instanceId, RemoteAgent agent)
+        {
+            this.instanceId = instanceId;
+            this.agent = agent;
+        }
+
+        private void schedule(long delayNanos)
+        {
+            if (agentPollers.get(instanceId) != this) {
+                return;
+            }
+            try {
+                timerService.schedule(this, delayNanos, TimeUnit.NANOSECONDS);
+            }
+            catch (RejectedExecutionException ignored) {
+                // coordinator is shutting down
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            if (agentPollers.get(instanceId) != this) {
+                return;
+            }
+
+            final String version = agent.status().getVersion();
+            ListenableFuture<?> future;
+            try {
+                future = agent.updateStatus();
+            }
+            catch (Throwable e) {
+                future = Futures.immediateFailedFuture(e);
+            }
+            Futures.addCallback(future, new FutureCallback<Object>()
+            {
+                @Override
+                public void onSuccess(Object result)
+                {
+                    consecutiveFailures = 0;
+                    boolean changed = !Objects.equal(version, agent.status().getVersion());
+                    schedule(agentPollPolicy.getNextDelayNanos(0, changed || busyAgents.contains(instanceId)));
+                }
+
+                @Override
+                public void onFailure(Throwable t)
+                {
+                    consecutiveFailures++;
+                    schedule(agentPollPolicy.getNextDelayNanos(consecutiveFailures, false));
+                }
+            });
         }
-        return futures;
     }
 
     public List<AgentStatus> provisionAgents(String agentConfigSpec,
@@ -437,19 +657,43 @@ public class Coordinator
 
     public List<SlotStatus> install(Predicate<AgentStatus> filter, int limit, Assignment assignment)
     {
-        final Installation installation = InstallationUtils.toInstallation(repository, assignment);
+        return install(filter, limit, InstallationUtils.toInstallation(repository, assignment));
+    }
+
+    /**
+     * Installs an installation that has already been resolved against the
+     * repository, so callers that also filter agents by the assignment only
+     * resolve it once.
+     */
+    public List<SlotStatus> install(Predicate<AgentStatus> filter, int limit, Installation resolvedInstallation)
+    {
+        Preconditions.checkNotNull(resolvedInstallation, "resolvedInstallation is null");
+        Installation agentInstallation = toAgentInstallation(resolvedInstallation);
 
-        List<RemoteAgent> targetAgents = new ArrayList<>(selectAgents(filter, installation));
+        List<RemoteAgent> targetAgents = new ArrayList<>(selectAgents(filter, agentInstallation));
         targetAgents = targetAgents.subList(0, Math.min(targetAgents.size(), limit));
 
-        return parallel(targetAgents, new Function<RemoteAgent, SlotStatus>()
+        List<AgentStatus> targetStatuses = new ArrayList<>();
+        for (RemoteAgent agent : targetAgents) {
+            targetStatuses.add(agent.status());
+        }
+        final Installation installation = withBinaryPeers(agentInstallation, getBinaryPeers(agentInstallation.getAssignment().getBinary(), targetStatuses));
+
+        return fanOutExecutor.invokeAll(targetAgents, new Function<RemoteAgent, SlotStatus>()
         {
             @Override
             public SlotStatus apply(RemoteAgent agent)
             {
-                SlotStatus slotStatus = agent.install(installation);
-                stateManager.setExpectedState(new ExpectedSlotStatus(slotStatus.getId(), STOPPED, installation.getAssignment()));
-                return slotStatus;
+                String instanceId = agent.status().getInstanceId();
+                busyAgents.add(instanceId);
+                try {
+                    SlotStatus slotStatus = agent.install(installation);
+                    stateManager.setExpectedState(new ExpectedSlotStatus(slotStatus.getId(), STOPPED, installation.getAssignment()));
+                    return slotStatus;
+                }
+                finally {
+                    busyAgents.remove(instanceId);
+                }
             }
         });
     }
@@ -497,7 +741,10 @@ public class Coordinator
     {
         List<RemoteSlot> filteredSlots = selectRemoteSlots(filter, expectedSlotsVersion);
 
+        // slots with the same assignment upgrade to the same assignment, so each distinct assignment is only resolved once
         final Map<UUID, Assignment> newAssignments = new HashMap<>();
+        Map<Assignment, Assignment> upgradedAssignments = new HashMap<>();
+        Assignment forcedAssignment = null;
         List<RemoteSlot> slotsToUpgrade = new ArrayList<>();
         for (RemoteSlot slot : filteredSlots) {
             SlotStatus status = slot.status();
@@ -513,10 +760,19 @@ public class Coordinator
             Assignment assignment;
             if (force && (status.getAssignment() == null)) {
                 // allow forced upgrading if existing assignment is missing
-                assignment = upgradeVersions.forceAssignment(repository);
+                if (forcedAssignment == null) {
+                    forcedAssignment = upgradeVersions.forceAssignment(repository);
+                }
+                assignment = forcedAssignment;
             }
             else {
-                assignment = upgradeVersions.upgradeAssignment(repository, status.getAssignment());
+                assignment = upgradedAssignments.get(status.getAssignment());
+                if (assignment == null) {
+                    long start = System.nanoTime();
+                    assignment = upgradeVersions.upgradeAssignment(repository, status.getAssignment());
+                    log.debug("Resolved upgrade of %s to %s in %s", status.getAssignment(), assignment, Duration.nanosSince(start).convertToMostSuccinctTimeUnit());
+                    upgradedAssignments.put(status.getAssignment(), assignment);
+                }
             }
             newAssignments.put(slot.getId(), assignment);
             slotsToUpgrade.add(slot);
@@ -536,29 +792,124 @@ public class Coordinator
             throw new IllegalArgumentException("Expected a target slots for upgrade command to have a single binary, but found: " + Joiner.on(", ").join(binaries));
         }
 
-        return parallelCommand(slotsToUpgrade, new Function<RemoteSlot, SlotStatus>()
+        // agents being upgraded can share the new binary with each other
+        Set<UUID> slotIdsToUpgrade = newAssignments.keySet();
+        List<AgentStatus> targetAgents = new ArrayList<>();
+        for (RemoteAgent agent : agents.values()) {
+            AgentStatus agentStatus = agent.status();
+            for (SlotStatus slotStatus : agentStatus.getSlotStatuses()) {
+                if (slotIdsToUpgrade.contains(slotStatus.getId())) {
+                    targetAgents.add(agentStatus);
+                    break;
+                }
+            }
+        }
+        Map<String, List<URI>> binaryPeers = new HashMap<>();
+
+        // record the expected state of every slot in one batch before changing any of them
+        final Map<UUID, Installation> installations = new HashMap<>();
+        Map<Assignment, Installation> installationsByAssignment = new HashMap<>();
+        List<ExpectedSlotStatus> expectedStates = new ArrayList<>();
+        for (RemoteSlot slot : slotsToUpgrade) {
+            boolean expectRestart = slot.status().getState() == RUNNING;
+
+            Assignment assignment = newAssignments.get(slot.getId());
+            Preconditions.checkState(assignment != null, "Error no assignment for slot " + slot.getId());
+
+            // every slot upgrading to the same assignment shares one installation
+            Installation installation = installationsByAssignment.get(assignment);
+            if (installation == null) {
+                long start = System.nanoTime();
+                URI configFile = repository.configToHttpUri(assignment.getConfig());
+
+                installation = toAgentInstallation(new Installation(
+                        repository.configShortName(assignment.getConfig()),
+                        assignment,
+                        repository.binaryToHttpUri(assignment.getBinary()),
+                        configFile, ImmutableMap.<String, Integer>of()));
+
+                List<URI> peers = binaryPeers.get(assignment.getBinary());
+                if (peers == null) {
+                    peers = getBinaryPeers(assignment.getBinary(), targetAgents);
+                    binaryPeers.put(assignment.getBinary(), peers);
+                }
+                installation = withBinaryPeers(installation, peers);
+                installationsByAssignment.put(assignment, installation);
+                log.debug("Resolved installation for %s in %s", assignment, Duration.nanosSince(start).convertToMostSuccinctTimeUnit());
+            }
+
+            installations.put(slot.getId(), installation);
+            expectedStates.add(new ExpectedSlotStatus(slot.getId(), expectRestart ? RUNNING : STOPPED, installation.getAssignment()));
+        }
+        stateManager.setExpectedStates(expectedStates);
+
+        return parallelCommand(slotsToUpgrade, new AsyncFunction<RemoteSlot, SlotStatus>()
         {
             @Override
-            public SlotStatus apply(RemoteSlot slot)
+            public ListenableFuture<SlotStatus> apply(RemoteSlot slot)
             {
-                boolean expectRestart = slot.status().getState() == RUNNING;
+                return slot.assignAsync(installations.get(slot.getId()));
+            }
+        });
+    }
 
-                Assignment assignment = newAssignments.get(slot.getId());
-                Preconditions.checkState(assignment != null, "Error no assignment for slot " + slot.getId());
+    private Installation toAgentInstallation(Installation installation)
+    {
+        // agents download through the coordinator cache instead of hitting the repository directly
+        if (artifactCache == null) {
+            return installation;
+        }
+        return artifactCache.toCachedInstallation(installation);
+    }
 
-                URI configFile = repository.configToHttpUri(assignment.getConfig());
+    /**
+     * Returns agents that may be able to serve the binary to the installing
+     * agents: first agents that already have a slot with the binary, then the
+     * other agents receiving the binary, which will have it once they finish.
+     */
+    private List<URI> getBinaryPeers(String binary, Collection<AgentStatus> targetAgents)
+    {
+        if (maxBinaryPeers == 0) {
+            return ImmutableList.of();
+        }
 
-                Installation installation = new Installation(
-                        repository.configShortName(assignment.getConfig()),
-                        assignment,
-                        repository.binaryToHttpUri(assignment.getBinary()),
-                        configFile, ImmutableMap.<String, Integer>of());
+        Set<URI> holders = new LinkedHashSet<>();
+        for (RemoteAgent agent : agents.values()) {
+            AgentStatus agentStatus = agent.status();
+            if (agentStatus.getState() != AgentLifecycleState.ONLINE || agentStatus.getInternalUri() == null) {
+                continue;
+            }
+            for (SlotStatus slotStatus : agentStatus.getSlotStatuses()) {
+                if (slotStatus.getAssignment() != null && binary.equals(slotStatus.getAssignment().getBinary())) {
+                    holders.add(agentStatus.getInternalUri());
+                    break;
+                }
+            }
+        }
 
-                stateManager.setExpectedState(new ExpectedSlotStatus(slot.getId(), expectRestart ? RUNNING : STOPPED, installation.getAssignment()));
-                SlotStatus slotStatus = slot.assign(installation);
-                return slotStatus;
+        Set<URI> receivers = new LinkedHashSet<>();
+        for (AgentStatus agentStatus : targetAgents) {
+            if (agentStatus.getInternalUri() != null && !holders.contains(agentStatus.getInternalUri())) {
+                receivers.add(agentStatus.getInternalUri());
             }
-        }) ;
+        }
+
+        // spread the load across the peers
+        List<URI> shuffledHolders = new ArrayList<>(holders);
+        Collections.shuffle(shuffledHolders);
+        List<URI> shuffledReceivers = new ArrayList<>(receivers);
+        Collections.shuffle(shuffledReceivers);
+        return ImmutableList.copyOf(Iterables.limit(Iterables.concat(shuffledHolders, shuffledReceivers), maxBinaryPeers));
+    }
+
+    private static Installation withBinaryPeers(Installation installation, List<URI> binaryPeers)
+    {
+        return new Installation(installation.getShortName(),
+                installation.getAssignment(),
+                installation.getBinaryFile(),
+                installation.getConfigFile(),
+                installation.getResources(),
+                binaryPeers);
     }
 
     private boolean sameBinary(Collection<Assignment> values)
@@ -583,18 +934,33 @@ public class Coordinator
         // filter the slots
         List<RemoteSlot> filteredSlots = selectRemoteSlots(filter, expectedSlotsVersion);
 
-        return parallelCommand(filteredSlots, new Function<RemoteSlot, SlotStatus>()
-        {
-            @Override
-            public SlotStatus apply(RemoteSlot slot)
+        final Set<UUID> terminatedSlots = Sets.newSetFromMap(new ConcurrentHashMap<UUID, Boolean>());
+        try {
+            return parallelCommand(filteredSlots, new AsyncFunction<RemoteSlot, SlotStatus>()
             {
-                SlotStatus slotStatus = slot.terminate();
-                if (slotStatus.getState() == TERMINATED) {
-                    stateManager.deleteExpectedState(slotStatus.getId());
+                @Override
+                public ListenableFuture<SlotStatus> apply(RemoteSlot slot)
+                {
+                    return Futures.transform(slot.terminateAsync(), new Function<SlotStatus, SlotStatus>()
+                    {
+                        @Override
+                        public SlotStatus apply(SlotStatus slotStatus)
+                        {
+                            if (slotStatus.getState() == TERMINATED) {
+                                terminatedSlots.add(slotStatus.getId());
+                            }
+                            return slotStatus;
+                        }
+                    });
                 }
-                return slotStatus;
+            });
+        }
+        finally {
+            // remove the expected state of the terminated slots in one batch, even if some slots failed
+            if (!terminatedSlots.isEmpty()) {
+                stateManager.deleteExpectedStates(terminatedSlots);
             }
-        });
+        }
     }
 
     public List<SlotStatus> setState(final SlotLifecycleState state, Predicate<SlotStatus> filter, String expectedSlotsVersion)
@@ -604,24 +970,30 @@ public class Coordinator
         // filter the slots
         List<RemoteSlot> filteredSlots = selectRemoteSlots(filter, expectedSlotsVersion);
 
-        return parallelCommand(filteredSlots, new Function<RemoteSlot, SlotStatus>()
+        // record the expected state of every slot in one batch before changing any of them
+        SlotLifecycleState expectedState = (state == RESTARTING) ? RUNNING : state;
+        List<ExpectedSlotStatus> expectedStates = new ArrayList<>();
+        for (RemoteSlot slot : filteredSlots) {
+            expectedStates.add(new ExpectedSlotStatus(slot.getId(), expectedState, slot.status().getAssignment()));
+        }
+        if (!expectedStates.isEmpty()) {
+            stateManager.setExpectedStates(expectedStates);
+        }
+
+        return parallelCommand(filteredSlots, new AsyncFunction<RemoteSlot, SlotStatus>()
         {
             @Override
-            public SlotStatus apply(RemoteSlot slot)
+            public ListenableFuture<SlotStatus> apply(RemoteSlot slot)
             {
                 switch (state) {
                     case RUNNING:
-                        stateManager.setExpectedState(new ExpectedSlotStatus(slot.getId(), RUNNING, slot.status().getAssignment()));
-                        return slot.start();
+                        return slot.startAsync();
                     case RESTARTING:
-                        stateManager.setExpectedState(new ExpectedSlotStatus(slot.getId(), RUNNING, slot.status().getAssignment()));
-                        return slot.restart();
+                        return slot.restartAsync();
                     case STOPPED:
-                        stateManager.setExpectedState(new ExpectedSlotStatus(slot.getId(), STOPPED, slot.status().getAssignment()));
-                        return slot.stop();
+                        return slot.stopAsync();
                     case KILLING:
-                        stateManager.setExpectedState(new ExpectedSlotStatus(slot.getId(), KILLING, slot.status().getAssignment()));
-                        return slot.kill();
+                        return slot.killAsync();
                     default:
                         throw new IllegalArgumentException("Unexpected state transition " + state);
                 }
@@ -637,20 +1009,23 @@ public class Coordinator
         // verify the state of the system hasn't changed
         checkSlotsVersion(expectedSlotsVersion, filteredSlots);
 
-        return ImmutableList.copyOf(transform(filteredSlots, new Function<SlotStatus, SlotStatus>()
-        {
-            @Override
-            public SlotStatus apply(SlotStatus slotStatus)
-            {
-                if (slotStatus.getState() != SlotLifecycleState.UNKNOWN) {
-                    stateManager.setExpectedState(new ExpectedSlotStatus(slotStatus.getId(), slotStatus.getState(), slotStatus.getAssignment()));
-                }
-                else {
-                    stateManager.deleteExpectedState(slotStatus.getId());
-                }
-                return slotStatus;
+        List<ExpectedSlotStatus> expectedStates = new ArrayList<>();
+        List<UUID> unknownSlots = new ArrayList<>();
+        for (SlotStatus slotStatus : filteredSlots) {
+            if (slotStatus.getState() != SlotLifecycleState.UNKNOWN) {
+                expectedStates.add(new ExpectedSlotStatus(slotStatus.getId(), slotStatus.getState(), slotStatus.getAssignment()));
             }
-        }));
+            else {
+                unknownSlots.add(slotStatus.getId());
+            }
+        }
+        if (!expectedStates.isEmpty()) {
+            stateManager.setExpectedStates(expectedStates);
+        }
+        if (!unknownSlots.isEmpty()) {
+            stateManager.deleteExpectedStates(unknownSlots);
+        }
+        return ImmutableList.copyOf(filteredSlots);
     }
 
     private List<RemoteSlot> selectRemoteSlots(Predicate<SlotStatus> filter, String expectedSlotsVersion)
@@ -822,7 +1197,7 @@ public class Coordinator
                 repository.configEqualsIgnoreVersion(a.getConfig(), b.getConfig());
     }
 
-    private <T> ImmutableList<T> parallelCommand(Iterable<RemoteSlot> items, final Function<RemoteSlot, T> function)
+    private <T> ImmutableList<T> parallelCommand(Iterable<RemoteSlot> items, final AsyncFunction<RemoteSlot, T> command)
     {
         ImmutableCollection<Collection<RemoteSlot>> slotsByInstance = Multimaps.index(items, new Function<RemoteSlot, Object>()
         {
@@ -833,65 +1208,55 @@ public class Coordinator
             }
         }).asMap().values();
 
-        // run commands for different instances in parallel
-        return ImmutableList.copyOf(concat(parallel(slotsByInstance, new Function<Collection<RemoteSlot>, List<T>>()
-        {
-            public List<T> apply(Collection<RemoteSlot> input)
-            {
-                // but run commands for a single instance serially
-                return ImmutableList.copyOf(transform(input, function));
+        // run commands for different instances in parallel, but limit the
+        // number of concurrent commands for a single instance
+        List<ListenableFuture<List<T>>> lanes = new ArrayList<>();
+        for (Collection<RemoteSlot> instanceSlots : slotsByInstance) {
+            int laneSize = IntMath.divide(instanceSlots.size(), fanOutExecutor.getMaxTasksPerAgent(), RoundingMode.CEILING);
+            for (List<RemoteSlot> lane : Lists.partition(ImmutableList.copyOf(instanceSlots), laneSize)) {
+                final String instanceId = lane.get(0).status().getInstanceId();
+                busyAgents.add(instanceId);
+                ListenableFuture<List<T>> future = chainCommands(lane, command);
+                future.addListener(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        busyAgents.remove(instanceId);
+                    }
+                }, MoreExecutors.sameThreadExecutor());
+                lanes.add(future);
             }
-        })));
+        }
+        return ImmutableList.copyOf(concat(fanOutExecutor.getAll(lanes)));
     }
 
-    private <F, T> ImmutableList<T> parallel(Iterable<F> items, final Function<F, T> function)
+    /**
+     * Commands within a lane run serially: each command is sent when the
+     * previous one completes, so no thread is held while waiting on an agent.
+     */
+    private static <T> ListenableFuture<List<T>> chainCommands(List<RemoteSlot> lane, final AsyncFunction<RemoteSlot, T> command)
     {
-        List<Callable<T>> callables = ImmutableList.copyOf(transform(items, new Function<F, Callable<T>>()
-        {
-            public Callable<T> apply(@Nullable final F item)
+        ListenableFuture<List<T>> results = Futures.<List<T>>immediateFuture(ImmutableList.<T>of());
+        for (final RemoteSlot slot : lane) {
+            results = Futures.transform(results, new AsyncFunction<List<T>, List<T>>()
             {
-                return new CallableFunction<>(item, function);
-            }
-        }));
-
-        List<Future<T>> futures;
-        try {
-            futures = executor.invokeAll(callables);
-        }
-        catch (InterruptedException e) {
-            throw new RuntimeException("Interrupted while waiting for command to finish", e);
-        }
-
-        List<Throwable> failures = new ArrayList<>();
-        ImmutableList.Builder<T> results = ImmutableList.builder();
-        for (Future<T> future : futures) {
-            try {
-                results.add(future.get());
-            }
-            catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                failures.add(e);
-            }
-            catch (CancellationException e) {
-                failures.add(e);
-            }
-            catch (ExecutionException e) {
-                if (e.getCause() != null) {
-                    failures.add(e.getCause());
-                } else {
-                    failures.add(e);
+                @Override
+                public ListenableFuture<List<T>> apply(final List<T> previous)
+                        throws Exception
+                {
+                    return Futures.transform(command.apply(slot), new Function<T, List<T>>()
+                    {
+                        @Override
+                        public List<T> apply(T result)
+                        {
+                            return ImmutableList.<T>builder().addAll(previous).add(result).build();
+                        }
+                    });
                 }
-            }
+            });
         }
-        if (!failures.isEmpty()) {
-            Throwable first = failures.get(0);
-            RuntimeException runtimeException = new RuntimeException(first.getMessage());
-            for (Throwable failure : failures) {
-                runtimeException.addSuppressed(failure);
-            }
-            throw runtimeException;
-        }
-        return results.build();
+        return results;
     }
 
     private static void waitForFutures(Iterable<ListenableFuture<?>> futures)
@@ -905,24 +1270,4 @@ public class Coordinator
         catch (ExecutionException ignored) {
         }
     }
-
-    private static class CallableFunction<F, T>
-            implements Callable<T>
-    {
-        private final F item;
-        private final Function<F, T> function;
-
-        private CallableFunction(F item, Function<F, T> function)
-        {
-            this.item = item;
-            this.function = function;
-        }
-
-        @Override
-        public T call()
-        {
-            return function.apply(item);
-        }
-
-    }
 }
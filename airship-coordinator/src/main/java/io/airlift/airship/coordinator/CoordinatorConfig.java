@@ -18,8 +18,11 @@ import com.google.common.collect.ImmutableList;
 import io.airlift.configuration.Config;
 import io.airlift.configuration.ConfigDescription;
 import io.airlift.configuration.LegacyConfig;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
 import io.airlift.units.Duration;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -29,13 +32,41 @@ public class CoordinatorConfig
     public static final String DEFAULT_HTTP_SHORT_NAME_PATTERN = "([^\\/]+?)(?:-[0-9][0-9.]*(?:-SNAPSHOT)?)?(?:\\.config)?$";
 
     private Duration statusExpiration = new Duration(5, TimeUnit.SECONDS);
+    private boolean statusStreamEnabled = true;
+    private Duration statusStreamMaxWait = new Duration(30, TimeUnit.SECONDS);
+    private Duration statusResyncInterval = new Duration(1, TimeUnit.MINUTES);
+    private Duration statusFastPollInterval = new Duration(1, TimeUnit.SECONDS);
+    private Duration statusMaxPollInterval = new Duration(2, TimeUnit.MINUTES);
+
+    private Duration expectedStateReconcileInterval = new Duration(1, TimeUnit.MINUTES);
+
+    private int fanOutMaxThreads = 50;
+    private int fanOutMaxQueuedTasks = 1000;
+    private int fanOutMaxTasksPerAgent = 1;
 
     private String serviceInventoryCacheDir = "service-inventory-cache";
 
+    private boolean artifactCacheEnabled;
+    private String artifactCacheDir = "artifact-cache";
+    private Duration artifactCacheRevalidateInterval = new Duration(1, TimeUnit.MINUTES);
+    private DataSize artifactCacheMaxSize = new DataSize(10, Unit.GIGABYTE);
+    private Duration artifactCacheConnectTimeout = new Duration(10, TimeUnit.SECONDS);
+    private Duration artifactCacheReadTimeout = new Duration(1, TimeUnit.MINUTES);
+    private Duration artifactCacheMaxFetchWait = new Duration(10, TimeUnit.MINUTES);
+
+    private int peerDistributionMaxPeers;
+
+    private Duration repositoryCacheReleaseTtl = new Duration(10, TimeUnit.MINUTES);
+    private Duration repositoryCacheSnapshotTtl = new Duration(30, TimeUnit.SECONDS);
+    private Duration repositoryCacheNegativeTtl = new Duration(10, TimeUnit.SECONDS);
+    private int repositoryCacheMaxSize = 10000;
+
     private boolean allowDuplicateInstallationsOnAnAgent;
 
     private List<String> repositories = ImmutableList.of();
     private List<String> defaultRepositoryGroupId = ImmutableList.of();
+    private Duration repositoryResolveTimeout = new Duration(30, TimeUnit.SECONDS);
+    private int repositoryProbeThreads = 16;
 
     private String httpShortNamePattern = DEFAULT_HTTP_SHORT_NAME_PATTERN;
     private String httpRepoBinaryVersionPattern;
@@ -54,6 +85,131 @@ public class CoordinatorConfig
         return this;
     }
 
+    public boolean isStatusStreamEnabled()
+    {
+        return statusStreamEnabled;
+    }
+
+    @Config("coordinator.status.stream-enabled")
+    @ConfigDescription("Long poll agents for status changes instead of fetching the full status every status expiration")
+    public CoordinatorConfig setStatusStreamEnabled(boolean statusStreamEnabled)
+    {
+        this.statusStreamEnabled = statusStreamEnabled;
+        return this;
+    }
+
+    @NotNull
+    public Duration getStatusStreamMaxWait()
+    {
+        return statusStreamMaxWait;
+    }
+
+    @Config("coordinator.status.stream-max-wait")
+    @ConfigDescription("Max time an agent holds a status long poll; must be less than status-stream.http-client.read-timeout")
+    public CoordinatorConfig setStatusStreamMaxWait(Duration statusStreamMaxWait)
+    {
+        this.statusStreamMaxWait = statusStreamMaxWait;
+        return this;
+    }
+
+    @NotNull
+    public Duration getStatusResyncInterval()
+    {
+        return statusResyncInterval;
+    }
+
+    @Config("coordinator.status.resync-interval")
+    @ConfigDescription("Interval between full agent status fetches when status streaming is enabled")
+    public CoordinatorConfig setStatusResyncInterval(Duration statusResyncInterval)
+    {
+        this.statusResyncInterval = statusResyncInterval;
+        return this;
+    }
+
+    @NotNull
+    public Duration getStatusFastPollInterval()
+    {
+        return statusFastPollInterval;
+    }
+
+    @Config("coordinator.status.fast-poll-interval")
+    @ConfigDescription("Interval between status polls of agents that are running commands or have recently changed")
+    public CoordinatorConfig setStatusFastPollInterval(Duration statusFastPollInterval)
+    {
+        this.statusFastPollInterval = statusFastPollInterval;
+        return this;
+    }
+
+    @NotNull
+    public Duration getStatusMaxPollInterval()
+    {
+        return statusMaxPollInterval;
+    }
+
+    @Config("coordinator.status.max-poll-interval")
+    @ConfigDescription("Upper bound for the exponential backoff of status polls to unreachable agents")
+    public CoordinatorConfig setStatusMaxPollInterval(Duration statusMaxPollInterval)
+    {
+        this.statusMaxPollInterval = statusMaxPollInterval;
+        return this;
+    }
+
+    @NotNull
+    public Duration getExpectedStateReconcileInterval()
+    {
+        return expectedStateReconcileInterval;
+    }
+
+    @Config("coordinator.expected-state.reconcile-interval")
+    @ConfigDescription("Interval between reloads of the cached expected state from the state store")
+    public CoordinatorConfig setExpectedStateReconcileInterval(Duration expectedStateReconcileInterval)
+    {
+        this.expectedStateReconcileInterval = expectedStateReconcileInterval;
+        return this;
+    }
+
+    @Min(1)
+    public int getFanOutMaxThreads()
+    {
+        return fanOutMaxThreads;
+    }
+
+    @Config("coordinator.fan-out.max-threads")
+    @ConfigDescription("Maximum number of threads used to send commands to agents")
+    public CoordinatorConfig setFanOutMaxThreads(int fanOutMaxThreads)
+    {
+        this.fanOutMaxThreads = fanOutMaxThreads;
+        return this;
+    }
+
+    @Min(1)
+    public int getFanOutMaxQueuedTasks()
+    {
+        return fanOutMaxQueuedTasks;
+    }
+
+    @Config("coordinator.fan-out.max-queued-tasks")
+    @ConfigDescription("Maximum number of agent commands waiting for a thread; beyond this the caller runs the command itself")
+    public CoordinatorConfig setFanOutMaxQueuedTasks(int fanOutMaxQueuedTasks)
+    {
+        this.fanOutMaxQueuedTasks = fanOutMaxQueuedTasks;
+        return this;
+    }
+
+    @Min(1)
+    public int getFanOutMaxTasksPerAgent()
+    {
+        return fanOutMaxTasksPerAgent;
+    }
+
+    @Config("coordinator.fan-out.max-tasks-per-agent")
+    @ConfigDescription("Maximum number of slot commands sent to a single agent concurrently")
+    public CoordinatorConfig setFanOutMaxTasksPerAgent(int fanOutMaxTasksPerAgent)
+    {
+        this.fanOutMaxTasksPerAgent = fanOutMaxTasksPerAgent;
+        return this;
+    }
+
     @NotNull
     public String getServiceInventoryCacheDir()
     {
@@ -67,6 +223,171 @@ public class CoordinatorConfig
         return this;
     }
 
+    public boolean isArtifactCacheEnabled()
+    {
+        return artifactCacheEnabled;
+    }
+
+    @Config("coordinator.artifact-cache.enabled")
+    @ConfigDescription("Serve binaries and config bundles to agents from a cache on the coordinator instead of the repository")
+    public CoordinatorConfig setArtifactCacheEnabled(boolean artifactCacheEnabled)
+    {
+        this.artifactCacheEnabled = artifactCacheEnabled;
+        return this;
+    }
+
+    @NotNull
+    public String getArtifactCacheDir()
+    {
+        return artifactCacheDir;
+    }
+
+    @Config("coordinator.artifact-cache.dir")
+    public CoordinatorConfig setArtifactCacheDir(String artifactCacheDir)
+    {
+        this.artifactCacheDir = artifactCacheDir;
+        return this;
+    }
+
+    @NotNull
+    public Duration getArtifactCacheRevalidateInterval()
+    {
+        return artifactCacheRevalidateInterval;
+    }
+
+    @Config("coordinator.artifact-cache.revalidate-interval")
+    @ConfigDescription("Interval between checks that a cached artifact has not changed in the repository")
+    public CoordinatorConfig setArtifactCacheRevalidateInterval(Duration artifactCacheRevalidateInterval)
+    {
+        this.artifactCacheRevalidateInterval = artifactCacheRevalidateInterval;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getArtifactCacheMaxSize()
+    {
+        return artifactCacheMaxSize;
+    }
+
+    @Config("coordinator.artifact-cache.max-size")
+    @ConfigDescription("Maximum size of the artifact cache; least recently used artifacts are removed beyond it")
+    public CoordinatorConfig setArtifactCacheMaxSize(DataSize artifactCacheMaxSize)
+    {
+        this.artifactCacheMaxSize = artifactCacheMaxSize;
+        return this;
+    }
+
+    @NotNull
+    public Duration getArtifactCacheConnectTimeout()
+    {
+        return artifactCacheConnectTimeout;
+    }
+
+    @Config("coordinator.artifact-cache.connect-timeout")
+    @ConfigDescription("Connect timeout when downloading an artifact from the repository")
+    public CoordinatorConfig setArtifactCacheConnectTimeout(Duration artifactCacheConnectTimeout)
+    {
+        this.artifactCacheConnectTimeout = artifactCacheConnectTimeout;
+        return this;
+    }
+
+    @NotNull
+    public Duration getArtifactCacheReadTimeout()
+    {
+        return artifactCacheReadTimeout;
+    }
+
+    @Config("coordinator.artifact-cache.read-timeout")
+    @ConfigDescription("Read timeout when downloading an artifact from the repository")
+    public CoordinatorConfig setArtifactCacheReadTimeout(Duration artifactCacheReadTimeout)
+    {
+        this.artifactCacheReadTimeout = artifactCacheReadTimeout;
+        return this;
+    }
+
+    @NotNull
+    public Duration getArtifactCacheMaxFetchWait()
+    {
+        return artifactCacheMaxFetchWait;
+    }
+
+    @Config("coordinator.artifact-cache.max-fetch-wait")
+    @ConfigDescription("Max time a request waits for a download of the same artifact started by another request")
+    public CoordinatorConfig setArtifactCacheMaxFetchWait(Duration artifactCacheMaxFetchWait)
+    {
+        this.artifactCacheMaxFetchWait = artifactCacheMaxFetchWait;
+        return this;
+    }
+
+    @Min(0)
+    public int getPeerDistributionMaxPeers()
+    {
+        return peerDistributionMaxPeers;
+    }
+
+    @Config("coordinator.peer-distribution.max-peers")
+    @ConfigDescription("Maximum number of agents sent with an installation that may serve the binary to the installing agent; zero disables peer distribution")
+    public CoordinatorConfig setPeerDistributionMaxPeers(int peerDistributionMaxPeers)
+    {
+        this.peerDistributionMaxPeers = peerDistributionMaxPeers;
+        return this;
+    }
+
+    @NotNull
+    public Duration getRepositoryCacheReleaseTtl()
+    {
+        return repositoryCacheReleaseTtl;
+    }
+
+    @Config("coordinator.repository-cache.release-ttl")
+    @ConfigDescription("How long resolved release binaries and configs are cached")
+    public CoordinatorConfig setRepositoryCacheReleaseTtl(Duration repositoryCacheReleaseTtl)
+    {
+        this.repositoryCacheReleaseTtl = repositoryCacheReleaseTtl;
+        return this;
+    }
+
+    @NotNull
+    public Duration getRepositoryCacheSnapshotTtl()
+    {
+        return repositoryCacheSnapshotTtl;
+    }
+
+    @Config("coordinator.repository-cache.snapshot-ttl")
+    @ConfigDescription("How long resolved snapshot binaries and configs are cached")
+    public CoordinatorConfig setRepositoryCacheSnapshotTtl(Duration repositoryCacheSnapshotTtl)
+    {
+        this.repositoryCacheSnapshotTtl = repositoryCacheSnapshotTtl;
+        return this;
+    }
+
+    @NotNull
+    public Duration getRepositoryCacheNegativeTtl()
+    {
+        return repositoryCacheNegativeTtl;
+    }
+
+    @Config("coordinator.repository-cache.negative-ttl")
+    @ConfigDescription("How long binaries and configs that are not found in the repository are cached")
+    public CoordinatorConfig setRepositoryCacheNegativeTtl(Duration repositoryCacheNegativeTtl)
+    {
+        this.repositoryCacheNegativeTtl = repositoryCacheNegativeTtl;
+        return this;
+    }
+
+    @Min(1)
+    public int getRepositoryCacheMaxSize()
+    {
+        return repositoryCacheMaxSize;
+    }
+
+    @Config("coordinator.repository-cache.max-size")
+    public CoordinatorConfig setRepositoryCacheMaxSize(int repositoryCacheMaxSize)
+    {
+        this.repositoryCacheMaxSize = repositoryCacheMaxSize;
+        return this;
+    }
+
     @NotNull
     public List<String> getRepositories()
     {
@@ -118,6 +439,34 @@ public class CoordinatorConfig
         return this;
     }
 
+    @NotNull
+    public Duration getRepositoryResolveTimeout()
+    {
+        return repositoryResolveTimeout;
+    }
+
+    @Config("coordinator.repository.resolve-timeout")
+    @ConfigDescription("Maximum time to probe the maven repositories when resolving a binary or config")
+    public CoordinatorConfig setRepositoryResolveTimeout(Duration repositoryResolveTimeout)
+    {
+        this.repositoryResolveTimeout = repositoryResolveTimeout;
+        return this;
+    }
+
+    @Min(1)
+    public int getRepositoryProbeThreads()
+    {
+        return repositoryProbeThreads;
+    }
+
+    @Config("coordinator.repository.probe-threads")
+    @ConfigDescription("Maximum number of maven repository locations probed at the same time")
+    public CoordinatorConfig setRepositoryProbeThreads(int repositoryProbeThreads)
+    {
+        this.repositoryProbeThreads = repositoryProbeThreads;
+        return this;
+    }
+
     public String getHttpShortNamePattern()
     {
         return httpShortNamePattern;
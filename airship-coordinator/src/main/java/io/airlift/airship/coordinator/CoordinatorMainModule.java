@@ -26,6 +26,7 @@ import io.airlift.airship.shared.ExpectedSlotStatus;
 import io.airlift.airship.shared.InstallationRepresentation;
 import io.airlift.airship.shared.Repository;
 import io.airlift.airship.shared.RepositorySet;
+import io.airlift.airship.shared.ServiceInventoryDiffRepresentation;
 import io.airlift.airship.shared.SlotStatusRepresentation;
 import io.airlift.airship.shared.VersionConflictExceptionMapper;
 import io.airlift.discovery.client.ServiceDescriptor;
@@ -37,6 +38,7 @@ import javax.servlet.Filter;
 
 import static io.airlift.configuration.ConfigurationModule.bindConfig;
 import static io.airlift.http.client.HttpClientBinder.httpClientBinder;
+import static org.weakref.jmx.guice.ExportBinder.newExporter;
 
 public class CoordinatorMainModule
         implements Module
@@ -47,6 +49,8 @@ public class CoordinatorMainModule
         binder.requireExplicitBindings();
 
         binder.bind(Coordinator.class).in(Scopes.SINGLETON);
+        binder.bind(FanOutExecutor.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(FanOutExecutor.class).withGeneratedName();
         binder.bind(CoordinatorResource.class).in(Scopes.SINGLETON);
         binder.bind(CoordinatorSlotResource.class).in(Scopes.SINGLETON);
         binder.bind(CoordinatorAssignmentResource.class).in(Scopes.SINGLETON);
@@ -58,11 +62,16 @@ public class CoordinatorMainModule
         binder.bind(RemoteCoordinatorFactory.class).to(HttpRemoteCoordinatorFactory.class).in(Scopes.SINGLETON);
         binder.bind(RemoteAgentFactory.class).to(HttpRemoteAgentFactory.class).in(Scopes.SINGLETON);
 
-        binder.bind(Repository.class).to(RepositorySet.class).in(Scopes.SINGLETON);
+        binder.bind(CachingRepository.class).in(Scopes.SINGLETON);
+        binder.bind(Repository.class).to(CachingRepository.class).in(Scopes.SINGLETON);
+        binder.bind(Repository.class).annotatedWith(ForCachingRepository.class).to(RepositorySet.class).in(Scopes.SINGLETON);
+        newExporter(binder).export(CachingRepository.class).withGeneratedName();
         Multibinder.newSetBinder(binder, Repository.class).addBinding().to(MavenRepository.class).in(Scopes.SINGLETON);
         Multibinder.newSetBinder(binder, Repository.class).addBinding().to(HttpRepository.class).in(Scopes.SINGLETON);
 
         binder.bind(BinaryResource.class).in(Scopes.SINGLETON);
+        binder.bind(ArtifactCache.class).in(Scopes.SINGLETON);
+        binder.bind(ArtifactResource.class).in(Scopes.SINGLETON);
 
         binder.bind(ServiceInventory.class).to(HttpServiceInventory.class).in(Scopes.SINGLETON);
         binder.bind(ServiceInventoryResource.class).in(Scopes.SINGLETON);
@@ -76,11 +85,16 @@ public class CoordinatorMainModule
         JsonCodecBinder.jsonCodecBinder(binder).bindJsonCodec(AgentStatusRepresentation.class);
         JsonCodecBinder.jsonCodecBinder(binder).bindJsonCodec(SlotStatusRepresentation.class);
         JsonCodecBinder.jsonCodecBinder(binder).bindJsonCodec(ServiceDescriptorsRepresentation.class);
+        JsonCodecBinder.jsonCodecBinder(binder).bindJsonCodec(ServiceInventoryDiffRepresentation.class);
         JsonCodecBinder.jsonCodecBinder(binder).bindJsonCodec(ExpectedSlotStatus.class);
         JsonCodecBinder.jsonCodecBinder(binder).bindListJsonCodec(ServiceDescriptor.class);
 
         bindConfig(binder).to(CoordinatorConfig.class);
 
         httpClientBinder(binder).bindAsyncHttpClient("global", Global.class);
+
+        // agent status long polls hold a connection each, so keep them off the global client;
+        // agents beyond status-stream.http-client.max-connections fall back to regular polling
+        httpClientBinder(binder).bindAsyncHttpClient("status-stream", StatusStream.class);
     }
 }
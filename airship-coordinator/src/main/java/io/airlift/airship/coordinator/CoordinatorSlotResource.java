@@ -20,6 +20,8 @@ import com.google.inject.Inject;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.Assignment;
 import io.airlift.airship.shared.AssignmentRepresentation;
+import io.airlift.airship.shared.Installation;
+import io.airlift.airship.shared.InstallationUtils;
 import io.airlift.airship.shared.Repository;
 import io.airlift.airship.shared.SlotStatus;
 
@@ -70,15 +72,14 @@ public class CoordinatorSlotResource
     @Produces(MediaType.APPLICATION_JSON)
     public Response getAllSlots(@Context UriInfo uriInfo)
     {
-        // build filter
-        List<UUID> uuids = transform(coordinator.getAllSlotStatus(), uuidGetter());
-        Predicate<SlotStatus> slotFilter = SlotFilterBuilder.build(uriInfo, false, uuids);
+        // index a single snapshot of the slots
+        SlotIndex slotIndex = new SlotIndex(coordinator.getAllSlotStatus());
 
         // select slots
-        List<SlotStatus> slots = coordinator.getAllSlotsStatus(slotFilter);
+        List<SlotStatus> slots = SlotFilterBuilder.select(uriInfo, false, slotIndex);
 
         // build response
-        return Response.ok(Iterables.transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository)))
+        return Response.ok(Iterables.transform(slots, fromSlotStatus(slotIndex.getSlots(), repository)))
                 .header(AIRSHIP_SLOTS_VERSION_HEADER, createSlotsVersion(slots))
                 .build();
     }
@@ -97,19 +98,23 @@ public class CoordinatorSlotResource
 
         Assignment assignment = assignmentRepresentation.toAssignment();
 
+        // resolve the assignment once for both agent selection and the install
+        Installation installation = InstallationUtils.toInstallation(repository, assignment);
+
         // select the target agents
         Predicate<AgentStatus> agentFilter = AgentFilterBuilder.build(uriInfo,
                 transform(coordinator.getAgents(), idGetter()),
                 transform(coordinator.getAllSlotStatus(), uuidGetter()),
                 false,
-                repository);
+                repository,
+                installation);
         List<AgentStatus> agents = coordinator.getAgents(agentFilter);
 
         // verify the expected status of agents
         checkAgentsVersion(expectedAgentsVersion, agents);
 
         // install the software
-        List<SlotStatus> slots = coordinator.install(agentFilter, limit, assignment);
+        List<SlotStatus> slots = coordinator.install(agentFilter, limit, installation);
 
         // calculate unique prefix size with the new slots included
         return Response.ok(transform(slots, fromSlotStatus(coordinator.getAllSlotStatus(), repository)))
@@ -0,0 +1,97 @@
+package io.airlift.airship.coordinator;
+
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
+import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.log.Logger;
+import io.airlift.units.Duration;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * List of the EC2 instances in an environment, refreshed in the background so
+ * callers never wait on the EC2 API after the first load.  Only instances
+ * tagged with the environment that have not been terminated are requested.
+ */
+public class Ec2InstanceCache
+{
+    private static final Logger log = Logger.get(Ec2InstanceCache.class);
+    private static final List<String> LIVE_INSTANCE_STATES = ImmutableList.of("pending", "running", "shutting-down", "stopping", "stopped");
+
+    private final AmazonEC2 ec2Client;
+    private final String environment;
+    private final Duration refreshInterval;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicReference<List<Instance>> instances = new AtomicReference<>();
+
+    public Ec2InstanceCache(AmazonEC2 ec2Client, String environment, Duration refreshInterval)
+    {
+        this.ec2Client = checkNotNull(ec2Client, "ec2Client is null");
+        this.environment = checkNotNull(environment, "environment is null");
+        this.refreshInterval = checkNotNull(refreshInterval, "refreshInterval is null");
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Ec2InstanceCache-%s").build());
+    }
+
+    public void start()
+    {
+        executor.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    refresh();
+                }
+                catch (Exception e) {
+                    log.error(e, "Error refreshing EC2 instances");
+                }
+            }
+        }, 0, (long) refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gets the instances from the last refresh.  If the instances have never
+     * been loaded, they are loaded before returning.
+     */
+    public List<Instance> getInstances()
+    {
+        List<Instance> current = instances.get();
+        if (current == null) {
+            current = refresh();
+        }
+        return current;
+    }
+
+    synchronized List<Instance> refresh()
+    {
+        DescribeInstancesRequest request = new DescribeInstancesRequest().withFilters(
+                new Filter("tag:airship:environment", ImmutableList.of(environment)),
+                new Filter("instance-state-name", LIVE_INSTANCE_STATES));
+        DescribeInstancesResult result = ec2Client.describeInstances(request);
+
+        ImmutableList.Builder<Instance> builder = ImmutableList.builder();
+        for (Reservation reservation : result.getReservations()) {
+            builder.addAll(reservation.getInstances());
+        }
+        List<Instance> newInstances = builder.build();
+        instances.set(newInstances);
+        return newInstances;
+    }
+}
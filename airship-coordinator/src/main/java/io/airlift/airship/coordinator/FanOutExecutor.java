@@ -0,0 +1,267 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs coordinator commands against agents on a bounded thread pool.  When
+ * the queue is full the calling thread runs the command itself, which slows
+ * down the caller instead of growing the pool or queue without bound.
+ */
+public class FanOutExecutor
+{
+    private final ThreadPoolExecutor executor;
+    private final int maxTasksPerAgent;
+
+    private final AtomicLong submittedTasks = new AtomicLong();
+    private final AtomicLong callerRunsTasks = new AtomicLong();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong failedTasks = new AtomicLong();
+    private final AtomicLong totalQueuedNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    @Inject
+    public FanOutExecutor(CoordinatorConfig config)
+    {
+        this(config.getFanOutMaxThreads(), config.getFanOutMaxQueuedTasks(), config.getFanOutMaxTasksPerAgent());
+    }
+
+    public FanOutExecutor(int maxThreads, int maxQueuedTasks, int maxTasksPerAgent)
+    {
+        Preconditions.checkArgument(maxThreads > 0, "maxThreads must be at least 1");
+        Preconditions.checkArgument(maxQueuedTasks > 0, "maxQueuedTasks must be at least 1");
+        Preconditions.checkArgument(maxTasksPerAgent > 0, "maxTasksPerAgent must be at least 1");
+
+        this.maxTasksPerAgent = maxTasksPerAgent;
+        executor = new ThreadPoolExecutor(maxThreads,
+                maxThreads,
+                1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<Runnable>(maxQueuedTasks),
+                new ThreadFactoryBuilder().setNameFormat("coordinator-task-%s").setDaemon(true).build(),
+                new RejectedExecutionHandler()
+                {
+                    @Override
+                    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor)
+                    {
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("Coordinator is shutting down");
+                        }
+                        callerRunsTasks.incrementAndGet();
+                        task.run();
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Maximum number of commands that should be sent to a single agent at the same time.
+     */
+    public int getMaxTasksPerAgent()
+    {
+        return maxTasksPerAgent;
+    }
+
+    /**
+     * Applies the function to every item in parallel and waits for all of them
+     * to finish.  If any fail, a single exception is thrown with all of the
+     * failures suppressed in it.
+     */
+    public <F, T> ImmutableList<T> invokeAll(Iterable<F> items, Function<F, T> function)
+    {
+        List<Callable<T>> callables = new ArrayList<>();
+        for (F item : items) {
+            callables.add(new TimedCallable<>(item, function));
+        }
+        submittedTasks.addAndGet(callables.size());
+
+        List<Future<T>> futures;
+        try {
+            futures = executor.invokeAll(callables);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for command to finish", e);
+        }
+
+        return getAll(futures);
+    }
+
+    /**
+     * Waits for all of the futures to finish.  If any fail, a single exception
+     * is thrown with all of the failures suppressed in it.
+     */
+    public <T> ImmutableList<T> getAll(List<? extends Future<T>> futures)
+    {
+        List<Throwable> failures = new ArrayList<>();
+        ImmutableList.Builder<T> results = ImmutableList.builder();
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.add(e);
+            }
+            catch (CancellationException e) {
+                failures.add(e);
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() != null) {
+                    failures.add(e.getCause());
+                } else {
+                    failures.add(e);
+                }
+            }
+        }
+        if (!failures.isEmpty()) {
+            failedTasks.addAndGet(failures.size());
+            Throwable first = failures.get(0);
+            RuntimeException runtimeException = new RuntimeException(first.getMessage());
+            for (Throwable failure : failures) {
+                runtimeException.addSuppressed(failure);
+            }
+            throw runtimeException;
+        }
+        return results.build();
+    }
+
+    @Managed
+    public int getMaxThreads()
+    {
+        return executor.getMaximumPoolSize();
+    }
+
+    @Managed
+    public int getThreads()
+    {
+        return executor.getPoolSize();
+    }
+
+    @Managed
+    public int getActiveTasks()
+    {
+        return executor.getActiveCount();
+    }
+
+    @Managed
+    public int getQueuedTasks()
+    {
+        return executor.getQueue().size();
+    }
+
+    @Managed
+    public long getSubmittedTasks()
+    {
+        return submittedTasks.get();
+    }
+
+    @Managed
+    public long getCallerRunsTasks()
+    {
+        return callerRunsTasks.get();
+    }
+
+    @Managed
+    public long getCompletedTasks()
+    {
+        return completedTasks.get();
+    }
+
+    @Managed
+    public long getFailedTasks()
+    {
+        return failedTasks.get();
+    }
+
+    @Managed
+    public double getAverageQueuedMillis()
+    {
+        return averageMillis(totalQueuedNanos.get());
+    }
+
+    @Managed
+    public double getAverageRunMillis()
+    {
+        return averageMillis(totalRunNanos.get());
+    }
+
+    @Managed
+    public double getMaxRunMillis()
+    {
+        return maxRunNanos.get() / 1_000_000.0;
+    }
+
+    private double averageMillis(long totalNanos)
+    {
+        long completed = completedTasks.get();
+        if (completed == 0) {
+            return 0;
+        }
+        return totalNanos / 1_000_000.0 / completed;
+    }
+
+    private class TimedCallable<F, T>
+            implements Callable<T>
+    {
+        private final F item;
+        private final Function<F, T> function;
+        private final long createTime = System.nanoTime();
+
+        private TimedCallable(F item, Function<F, T> function)
+        {
+            this.item = item;
+            this.function = function;
+        }
+
+        @Override
+        public T call()
+        {
+            long start = System.nanoTime();
+            try {
+                return function.apply(item);
+            }
+            finally {
+                long end = System.nanoTime();
+                totalQueuedNanos.addAndGet(start - createTime);
+                totalRunNanos.addAndGet(end - start);
+                updateMax(maxRunNanos, end - start);
+                completedTasks.incrementAndGet();
+            }
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value)
+    {
+        while (true) {
+            long current = max.get();
+            if (value <= current || max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.airlift.airship.coordinator;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.Files;
 import com.google.common.io.PatternFilenameFilter;
 import io.airlift.airship.shared.ExpectedSlotStatus;
@@ -9,71 +10,527 @@ import io.airlift.airship.shared.FileUtils;
 import io.airlift.json.JsonCodec;
 import io.airlift.log.Logger;
 
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.zip.CRC32;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
 
+/**
+ * Keeps all expected slot states in memory.  Changes are appended to a log
+ * which is periodically compacted into a snapshot; on startup the snapshot
+ * is loaded and the log is replayed on top of it.
+ */
 public class FileStateManager implements StateManager
 {
     private static final Logger log = Logger.get(FileStateManager.class);
+
+    private static final String SNAPSHOT_FILE = "expected-state.snapshot";
+    private static final String LOG_FILE = "expected-state.log";
+
+    private static final byte SET = 1;
+    private static final byte DELETE = 2;
+
+    // an expected slot status is a few kilobytes of json; anything larger is a corrupted length
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
     private final File dataDir;
     private final JsonCodec<ExpectedSlotStatus> codec;
+    private final int compactionThreshold;
+
+    @GuardedBy("this")
+    private final Map<UUID, ExpectedSlotStatus> expectedStates = newHashMap();
+
+    @GuardedBy("this")
+    private FileOutputStream logFile;
+
+    // length of the complete records in the log
+    @GuardedBy("this")
+    private long logLength;
+
+    // a failed write may have left a partial record at the end of the log
+    @GuardedBy("this")
+    private boolean logDamaged;
+
+    @GuardedBy("this")
+    private int logEntries;
+
+    @GuardedBy("this")
+    private long appendedSequence;
+
+    // lock order is syncLock then this; the log is only replaced while holding both
+    private final Object syncLock = new Object();
+
+    @GuardedBy("syncLock")
+    private long syncedSequence;
 
     @Inject
     public FileStateManager(FileStateManagerConfig fileStateManagerConfig, JsonCodec<ExpectedSlotStatus> codec)
     {
-        this(new File(checkNotNull(fileStateManagerConfig, "fileStateManagerConfig is null").getExpectedStateDir()), codec);
+        this(new File(checkNotNull(fileStateManagerConfig, "fileStateManagerConfig is null").getExpectedStateDir()),
+                codec,
+                fileStateManagerConfig.getCompactionThreshold());
     }
 
     public FileStateManager(File dataDir, JsonCodec<ExpectedSlotStatus> codec)
+    {
+        this(dataDir, codec, new FileStateManagerConfig().getCompactionThreshold());
+    }
+
+    public FileStateManager(File dataDir, JsonCodec<ExpectedSlotStatus> codec, int compactionThreshold)
     {
         Preconditions.checkNotNull(dataDir, "dataDir is null");
         Preconditions.checkNotNull(codec, "codec is null");
+        Preconditions.checkArgument(compactionThreshold > 0, "compactionThreshold must be at least 1");
         this.dataDir = dataDir;
         this.codec = codec;
+        this.compactionThreshold = compactionThreshold;
 
         dataDir.mkdirs();
         Preconditions.checkArgument(dataDir.isDirectory(), "dataDir is not a directory");
+
+        try {
+            load();
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Unable to load expected state from " + dataDir, e);
+        }
     }
 
     @Override
-    public Collection<ExpectedSlotStatus> getAllExpectedStates()
+    public synchronized Collection<ExpectedSlotStatus> getAllExpectedStates()
     {
-        List<ExpectedSlotStatus> slots = newArrayList();
+        return ImmutableList.copyOf(expectedStates.values());
+    }
+
+    @Override
+    public void deleteExpectedState(UUID slotId)
+    {
+        Preconditions.checkNotNull(slotId, "slotId is null");
+        RecordBuffer records = new RecordBuffer();
+        records.add(DELETE, slotId.toString());
+        long sequence;
+        synchronized (this) {
+            sequence = append(records);
+            expectedStates.remove(slotId);
+        }
+        sync(sequence);
+    }
+
+    @Override
+    public void setExpectedState(ExpectedSlotStatus slotStatus)
+    {
+        Preconditions.checkNotNull(slotStatus, "slotStatus is null");
+        RecordBuffer records = new RecordBuffer();
+        records.add(SET, codec.toJson(slotStatus));
+        long sequence;
+        synchronized (this) {
+            sequence = append(records);
+            expectedStates.put(slotStatus.getId(), slotStatus);
+        }
+        sync(sequence);
+    }
+
+    @Override
+    public void deleteExpectedStates(Iterable<UUID> slotIds)
+    {
+        Preconditions.checkNotNull(slotIds, "slotIds is null");
+        slotIds = ImmutableList.copyOf(slotIds);
+        RecordBuffer records = new RecordBuffer();
+        for (UUID slotId : slotIds) {
+            records.add(DELETE, slotId.toString());
+        }
+        long sequence;
+        synchronized (this) {
+            sequence = append(records);
+            for (UUID slotId : slotIds) {
+                expectedStates.remove(slotId);
+            }
+        }
+        sync(sequence);
+    }
+
+    @Override
+    public void setExpectedStates(Iterable<ExpectedSlotStatus> slotStatuses)
+    {
+        Preconditions.checkNotNull(slotStatuses, "slotStatuses is null");
+        slotStatuses = ImmutableList.copyOf(slotStatuses);
+        RecordBuffer records = new RecordBuffer();
+        for (ExpectedSlotStatus slotStatus : slotStatuses) {
+            records.add(SET, codec.toJson(slotStatus));
+        }
+        long sequence;
+        synchronized (this) {
+            sequence = append(records);
+            for (ExpectedSlotStatus slotStatus : slotStatuses) {
+                expectedStates.put(slotStatus.getId(), slotStatus);
+            }
+        }
+        sync(sequence);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        synchronized (syncLock) {
+            synchronized (this) {
+                try {
+                    logFile.close();
+                }
+                catch (IOException e) {
+                    log.error(e, "Error closing expected slot status log");
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the records to the log.  The in memory state must only be changed
+     * after this returns, so a failed write never changes the expected state.
+     */
+    @GuardedBy("this")
+    private long append(RecordBuffer records)
+    {
+        if (records.getCount() == 0) {
+            return appendedSequence;
+        }
+        try {
+            if (logDamaged) {
+                truncateLog();
+            }
+            logFile.write(records.getBytes());
+        }
+        catch (IOException e) {
+            // drop the partial record, otherwise replay would stop there and lose every later record
+            try {
+                truncateLog();
+            }
+            catch (IOException truncateException) {
+                logDamaged = true;
+            }
+            throw new RuntimeException("Error writing expected slot status", e);
+        }
+        logLength += records.getBytes().length;
+        logEntries += records.getCount();
+        return ++appendedSequence;
+    }
+
+    @GuardedBy("this")
+    private void truncateLog()
+            throws IOException
+    {
+        logFile.getChannel().truncate(logLength);
+        logDamaged = false;
+    }
+
+    private void sync(long sequence)
+    {
+        boolean compact;
+        synchronized (syncLock) {
+            // a single fsync covers every record appended before it, so concurrent writers share it
+            if (syncedSequence < sequence) {
+                FileOutputStream file;
+                long sequenceToSync;
+                synchronized (this) {
+                    file = logFile;
+                    sequenceToSync = appendedSequence;
+                }
+                try {
+                    file.getFD().sync();
+                }
+                catch (IOException e) {
+                    throw new RuntimeException("Error syncing expected slot status log", e);
+                }
+                syncedSequence = sequenceToSync;
+            }
+
+            synchronized (this) {
+                compact = logEntries >= compactionThreshold;
+            }
+        }
+
+        if (compact) {
+            try {
+                compact();
+            }
+            catch (IOException e) {
+                log.error(e, "Error compacting expected slot status log");
+            }
+        }
+    }
+
+    private void compact()
+            throws IOException
+    {
+        synchronized (syncLock) {
+            synchronized (this) {
+                // another writer may have already compacted the log
+                if (logEntries < compactionThreshold) {
+                    return;
+                }
+
+                writeSnapshot();
+
+                // the snapshot contains everything in the log, so start a new log
+                logFile.close();
+                openLog(false);
+                syncedSequence = appendedSequence;
+            }
+        }
+    }
+
+    private synchronized void load()
+            throws IOException
+    {
+        File snapshotFile = new File(dataDir, SNAPSHOT_FILE);
+        File logFile = new File(dataDir, LOG_FILE);
+
+        boolean importLegacy = !snapshotFile.exists() && !logFile.exists();
+        if (snapshotFile.exists()) {
+            // the snapshot is synced before it is renamed, so unlike the log it is never torn
+            long length = replay(snapshotFile);
+            if (length != snapshotFile.length()) {
+                throw new IOException(String.format("Expected slot status snapshot %s is corrupted after %s bytes", snapshotFile, length));
+            }
+        }
+
+        // only count the records in the log towards compaction
+        logEntries = 0;
+        logLength = 0;
+        if (logFile.exists()) {
+            logLength = replay(logFile);
+            if (logLength != logFile.length()) {
+                log.warn("Discarding incomplete expected slot status log entries in %s after %s bytes", logFile, logLength);
+            }
+        }
+
+        openLog(true);
+        this.logFile.getChannel().truncate(logLength);
+
+        // expected states used to be stored as one json file per slot
+        List<File> legacyFiles = ImmutableList.of();
+        if (importLegacy) {
+            legacyFiles = importLegacyFiles();
+        }
+
+        if (!legacyFiles.isEmpty() || logEntries >= compactionThreshold) {
+            writeSnapshot();
+            this.logFile.close();
+            openLog(false);
+            for (File legacyFile : legacyFiles) {
+                legacyFile.delete();
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private List<File> importLegacyFiles()
+    {
+        ImmutableList.Builder<File> legacyFiles = ImmutableList.builder();
         for (File file : FileUtils.listFiles(dataDir, new PatternFilenameFilter("[^\\.].*\\.json"))) {
             try {
                 String json = Files.toString(file, Charsets.UTF_8);
                 ExpectedSlotStatus expectedSlotStatus = codec.fromJson(json);
-                slots.add(expectedSlotStatus);
+                expectedStates.put(expectedSlotStatus.getId(), expectedSlotStatus);
+                legacyFiles.add(file);
             }
             catch (Exception e) {
                 // skip corrupted entries... these will be marked as unexpected
                 // and someone will resolve the conflict (and overwrite the corrupted record)
             }
         }
-        return slots;
+        return legacyFiles.build();
     }
 
-    @Override
-    public void deleteExpectedState(UUID slotId)
+    @GuardedBy("this")
+    private void openLog(boolean append)
+            throws IOException
     {
-         new File(dataDir, slotId.toString() + ".json").delete();
+        logFile = new FileOutputStream(new File(dataDir, LOG_FILE), append);
+        if (!append) {
+            logLength = 0;
+            logEntries = 0;
+            logDamaged = false;
+        }
     }
 
-    @Override
-    public void setExpectedState(ExpectedSlotStatus slotStatus)
+    @GuardedBy("this")
+    private void writeSnapshot()
+            throws IOException
+    {
+        File tempFile = new File(dataDir, SNAPSHOT_FILE + ".tmp");
+        FileOutputStream file = new FileOutputStream(tempFile);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            for (ExpectedSlotStatus expectedSlotStatus : expectedStates.values()) {
+                writeRecord(out, SET, codec.toJson(expectedSlotStatus));
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        java.nio.file.Files.move(tempFile.toPath(), new File(dataDir, SNAPSHOT_FILE).toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+
+        // the rename is only durable once the directory is synced, and the log must not be truncated before that
+        try (FileChannel directory = FileChannel.open(dataDir.toPath(), READ)) {
+            directory.force(true);
+        }
+    }
+
+    /**
+     * Applies the records in the file to the in memory state, and returns the
+     * length of the valid prefix of the file.  Each record is counted in logEntries.
+     */
+    @GuardedBy("this")
+    private long replay(File file)
+            throws IOException
+    {
+        long fileLength = file.length();
+        long length = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                Record record = readRecord(in, fileLength - length);
+                if (record == null) {
+                    return length;
+                }
+
+                if (record.getOperation() == SET) {
+                    try {
+                        ExpectedSlotStatus expectedSlotStatus = codec.fromJson(record.getValue());
+                        expectedStates.put(expectedSlotStatus.getId(), expectedSlotStatus);
+                    }
+                    catch (Exception ignored) {
+                        // skip corrupted entries... these will be marked as unexpected
+                    }
+                }
+                else if (record.getOperation() == DELETE) {
+                    expectedStates.remove(UUID.fromString(record.getValue()));
+                }
+                length += record.getSize();
+                logEntries++;
+            }
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, byte operation, String value)
+            throws IOException
+    {
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        out.writeByte(operation);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeLong(checksum(operation, bytes));
+    }
+
+    /**
+     * Reads the next record, or returns null at the end of the file or if the
+     * record is incomplete or corrupted (e.g., a write torn by a crash).
+     */
+    private static Record readRecord(DataInputStream in, long remaining)
+            throws IOException
     {
-        Preconditions.checkNotNull(slotStatus, "slotStatus is null");
         try {
-            Files.write(codec.toJson(slotStatus), new File(dataDir, slotStatus.getId().toString() + ".json"), Charsets.UTF_8);
+            byte operation = in.readByte();
+            int length = in.readInt();
+            if ((operation != SET && operation != DELETE) || length < 0) {
+                return null;
+            }
+            // a torn or corrupted length must not turn into a huge allocation
+            if (length > MAX_RECORD_SIZE || length > remaining - (1 + 4 + 8)) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            if (in.readLong() != checksum(operation, bytes)) {
+                return null;
+            }
+            return new Record(operation, new String(bytes, Charsets.UTF_8), 1 + 4 + length + 8);
+        }
+        catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static long checksum(byte operation, byte[] bytes)
+    {
+        CRC32 crc32 = new CRC32();
+        crc32.update(operation);
+        crc32.update(bytes);
+        return crc32.getValue();
+    }
+
+    private static class RecordBuffer
+    {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count;
+
+        public void add(byte operation, String value)
+        {
+            try {
+                writeRecord(out, operation, value);
+            }
+            catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            count++;
         }
-        catch (Exception e) {
-            log.error(e, "Error writing expected slot status");
+
+        public byte[] getBytes()
+        {
+            return bytes.toByteArray();
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+    }
+
+    private static class Record
+    {
+        private final byte operation;
+        private final String value;
+        private final int size;
+
+        private Record(byte operation, String value, int size)
+        {
+            this.operation = operation;
+            this.value = value;
+            this.size = size;
+        }
+
+        public byte getOperation()
+        {
+            return operation;
+        }
+
+        public String getValue()
+        {
+            return value;
+        }
+
+        public int getSize()
+        {
+            return size;
         }
     }
 }
@@ -1,12 +1,15 @@
 package io.airlift.airship.coordinator;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 public class FileStateManagerConfig
 {
     private String expectedStateDir = "expected-state";
+    private int compactionThreshold = 1000;
 
     @NotNull
     public String getExpectedStateDir()
@@ -20,4 +23,18 @@ public class FileStateManagerConfig
         this.expectedStateDir = expectedStateDir;
         return this;
     }
+
+    @Min(1)
+    public int getCompactionThreshold()
+    {
+        return compactionThreshold;
+    }
+
+    @Config("coordinator.expected-state.compaction-threshold")
+    @ConfigDescription("Number of expected state log entries after which the log is compacted into a snapshot")
+    public FileStateManagerConfig setCompactionThreshold(int compactionThreshold)
+    {
+        this.compactionThreshold = compactionThreshold;
+        return this;
+    }
 }
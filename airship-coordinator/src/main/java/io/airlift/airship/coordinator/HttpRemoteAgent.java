@@ -12,6 +12,7 @@ import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.AgentStatusRepresentation;
 import io.airlift.airship.shared.Installation;
 import io.airlift.airship.shared.InstallationRepresentation;
+import io.airlift.airship.shared.ServiceInventoryDiffRepresentation;
 import io.airlift.airship.shared.SlotLifecycleState;
 import io.airlift.airship.shared.SlotStatus;
 import io.airlift.airship.shared.SlotStatusRepresentation;
@@ -19,23 +20,30 @@ import io.airlift.discovery.client.ServiceDescriptor;
 import io.airlift.discovery.client.ServiceDescriptorsRepresentation;
 import io.airlift.http.client.AsyncHttpClient;
 import io.airlift.http.client.Request;
-import io.airlift.http.client.StatusResponseHandler;
 import io.airlift.json.JsonCodec;
 import io.airlift.log.Logger;
+import io.airlift.units.Duration;
 
+import javax.annotation.Nullable;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Response.Status;
 
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
+import static io.airlift.airship.coordinator.NotModifiedResponseHandler.allowNotModified;
 import static io.airlift.airship.shared.AgentLifecycleState.OFFLINE;
 import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
 import static io.airlift.airship.shared.AgentLifecycleState.PROVISIONING;
 import static io.airlift.airship.shared.HttpUriBuilder.uriBuilderFrom;
+import static io.airlift.airship.shared.ServiceInventoryDiffRepresentation.createServiceInventoryDiff;
 import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_AGENT_VERSION_HEADER;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_MAX_WAIT_HEADER;
 import static io.airlift.http.client.JsonBodyGenerator.jsonBodyGenerator;
 import static io.airlift.http.client.JsonResponseHandler.createJsonResponseHandler;
 import static io.airlift.http.client.StatusResponseHandler.StatusResponse;
@@ -50,34 +58,65 @@ public class HttpRemoteAgent implements RemoteAgent
     private final JsonCodec<AgentStatusRepresentation> agentStatusCodec;
     private final JsonCodec<SlotStatusRepresentation> slotStatusCodec;
     private final JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec;
+    private final JsonCodec<ServiceInventoryDiffRepresentation> serviceInventoryDiffCodec;
 
     private AgentStatus agentStatus;
     private final String environment;
     private final AsyncHttpClient httpClient;
-
-    private final AtomicLong failureCount = new AtomicLong();
+    private final AsyncHttpClient statusStreamClient;
+    private final Duration statusStreamMaxWait;
+    private final Semaphore statusStreamConnections;
+    private final long statusResyncNanos;
 
     private final AtomicBoolean serviceInventoryUp = new AtomicBoolean(true);
 
+    // the last service inventory the agent confirmed, used as the base for diffs
+    private final AtomicBoolean serviceInventoryUpdateInProgress = new AtomicBoolean();
+    private volatile List<ServiceDescriptor> acknowledgedServiceInventory;
+    private volatile String acknowledgedServiceInventoryVersion;
+    private volatile long nextServiceInventoryResync = System.nanoTime();
+
+    private final AtomicBoolean statusStreamActive = new AtomicBoolean();
+    private volatile long nextStatusResync = System.nanoTime();
+    private volatile long lastStatusUpdateRequest = System.nanoTime();
+
+    // start times of the requests behind the last local slot change and the
+    // last applied status response; guarded by this
+    private long lastSlotChangeNanos = System.nanoTime();
+    private long lastStatusResponseNanos = System.nanoTime();
+
     public HttpRemoteAgent(AgentStatus agentStatus,
             String environment,
             AsyncHttpClient httpClient,
+            AsyncHttpClient statusStreamClient,
+            @Nullable Duration statusStreamMaxWait,
+            @Nullable Semaphore statusStreamConnections,
+            Duration statusResyncInterval,
             JsonCodec<InstallationRepresentation> installationCodec,
             JsonCodec<AgentStatusRepresentation> agentStatusCodec,
             JsonCodec<SlotStatusRepresentation> slotStatusCodec,
-            JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec)
+            JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec,
+            JsonCodec<ServiceInventoryDiffRepresentation> serviceInventoryDiffCodec)
     {
         Preconditions.checkNotNull(agentStatus, "agentStatus is null");
         Preconditions.checkNotNull(environment, "environment is null");
         Preconditions.checkNotNull(httpClient, "httpClient is null");
+        Preconditions.checkNotNull(statusStreamClient, "statusStreamClient is null");
+        Preconditions.checkArgument(statusStreamMaxWait == null || statusStreamConnections != null, "statusStreamConnections is null");
+        Preconditions.checkNotNull(statusResyncInterval, "statusResyncInterval is null");
 
         this.agentStatus = agentStatus;
         this.environment = environment;
         this.httpClient = httpClient;
+        this.statusStreamClient = statusStreamClient;
+        this.statusStreamMaxWait = statusStreamMaxWait;
+        this.statusStreamConnections = statusStreamConnections;
+        this.statusResyncNanos = statusResyncInterval.roundTo(TimeUnit.NANOSECONDS);
         this.installationCodec = installationCodec;
         this.agentStatusCodec = agentStatusCodec;
         this.slotStatusCodec = slotStatusCodec;
         this.serviceDescriptorsCodec = serviceDescriptorsCodec;
+        this.serviceInventoryDiffCodec = serviceInventoryDiffCodec;
     }
 
     @Override
@@ -106,68 +145,179 @@ public class HttpRemoteAgent implements RemoteAgent
     }
 
     @Override
-    public void setServiceInventory(List<ServiceDescriptor> serviceInventory)
+    public void setServiceInventory(List<ServiceDescriptor> serviceInventory, String serviceInventoryVersion)
     {
         AgentStatus agentStatus = status();
-        if (agentStatus.getState() == ONLINE) {
-            Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
-            final URI internalUri = agentStatus.getInternalUri();
-            Request request = Request.Builder.preparePut()
-                    .setUri(uriBuilderFrom(internalUri).replacePath("/v1/serviceInventory").build())
-                    .setHeader(CONTENT_TYPE, APPLICATION_JSON)
-                    .setBodyGenerator(jsonBodyGenerator(serviceDescriptorsCodec, new ServiceDescriptorsRepresentation(environment, serviceInventory)))
-                    .build();
+        if (agentStatus.getState() != ONLINE) {
+            // the agent may come back without an inventory, so start over with a full update
+            acknowledgedServiceInventoryVersion = null;
+            return;
+        }
 
-            Futures.addCallback(httpClient.executeAsync(request, createStatusResponseHandler()), new FutureCallback<StatusResponseHandler.StatusResponse>()
-            {
-                @Override
-                public void onSuccess(StatusResponse result)
-                {
-                    if (serviceInventoryUp.compareAndSet(false, true)) {
-                        log.info("Service inventory put succeeded for agent at %s", internalUri);
-                    }
-                }
+        Preconditions.checkNotNull(serviceInventory, "serviceInventory is null");
+        Preconditions.checkNotNull(serviceInventoryVersion, "serviceInventoryVersion is null");
 
-                @Override
-                public void onFailure(Throwable t)
-                {
-                    if (serviceInventoryUp.compareAndSet(true, false) && !log.isDebugEnabled()) {
-                        log.error("Unable to post service inventory to agent at %s: %s", internalUri, t.getMessage());
-                    }
-                    log.debug(t, "Unable to post service inventory to agent at %s: %s", internalUri, t.getMessage());
-                }
-            });
+        // only one update at a time; a newer inventory will be sent on the next tick
+        if (!serviceInventoryUpdateInProgress.compareAndSet(false, true)) {
+            return;
+        }
+
+        // an unchanged inventory is only confirmed on the resync interval, which also catches agent restarts
+        if (serviceInventoryVersion.equals(acknowledgedServiceInventoryVersion) && System.nanoTime() - nextServiceInventoryResync < 0) {
+            serviceInventoryUpdateInProgress.set(false);
+            return;
+        }
+
+        URI internalUri = agentStatus.getInternalUri();
+        if (acknowledgedServiceInventoryVersion == null) {
+            putServiceInventory(internalUri, serviceInventory, serviceInventoryVersion);
+        }
+        else {
+            postServiceInventoryDiff(internalUri, serviceInventory, serviceInventoryVersion);
+        }
+    }
+
+    private void putServiceInventory(URI internalUri, List<ServiceDescriptor> serviceInventory, String serviceInventoryVersion)
+    {
+        Request request = Request.Builder.preparePut()
+                .setUri(uriBuilderFrom(internalUri).replacePath("/v1/serviceInventory").build())
+                .setHeader(CONTENT_TYPE, APPLICATION_JSON)
+                .setBodyGenerator(jsonBodyGenerator(serviceDescriptorsCodec, new ServiceDescriptorsRepresentation(environment, serviceInventory)))
+                .build();
+
+        Futures.addCallback(httpClient.executeAsync(request, createStatusResponseHandler()),
+                new ServiceInventoryUpdateCallback(internalUri, serviceInventory, serviceInventoryVersion, false));
+    }
+
+    private void postServiceInventoryDiff(URI internalUri, List<ServiceDescriptor> serviceInventory, String serviceInventoryVersion)
+    {
+        ServiceInventoryDiffRepresentation diff = createServiceInventoryDiff(environment,
+                acknowledgedServiceInventoryVersion,
+                acknowledgedServiceInventory,
+                serviceInventoryVersion,
+                serviceInventory);
+
+        Request request = Request.Builder.preparePost()
+                .setUri(uriBuilderFrom(internalUri).replacePath("/v1/serviceInventory").build())
+                .setHeader(CONTENT_TYPE, APPLICATION_JSON)
+                .setBodyGenerator(jsonBodyGenerator(serviceInventoryDiffCodec, diff))
+                .build();
+
+        Futures.addCallback(httpClient.executeAsync(request, createStatusResponseHandler()),
+                new ServiceInventoryUpdateCallback(internalUri, serviceInventory, serviceInventoryVersion, true));
+    }
+
+    private class ServiceInventoryUpdateCallback
+            implements FutureCallback<StatusResponse>
+    {
+        private final URI internalUri;
+        private final List<ServiceDescriptor> serviceInventory;
+        private final String serviceInventoryVersion;
+        private final boolean diff;
+
+        private ServiceInventoryUpdateCallback(URI internalUri, List<ServiceDescriptor> serviceInventory, String serviceInventoryVersion, boolean diff)
+        {
+            this.internalUri = internalUri;
+            this.serviceInventory = serviceInventory;
+            this.serviceInventoryVersion = serviceInventoryVersion;
+            this.diff = diff;
+        }
+
+        @Override
+        public void onSuccess(StatusResponse result)
+        {
+            // the agent does not have the base of the diff, so send the full inventory
+            if (diff && result.getStatusCode() == Status.CONFLICT.getStatusCode()) {
+                acknowledgedServiceInventoryVersion = null;
+                putServiceInventory(internalUri, serviceInventory, serviceInventoryVersion);
+                return;
+            }
+
+            if (result.getStatusCode() / 100 != 2) {
+                onFailure(new RuntimeException(String.format("Expected response code to be 2xx, but was %s: %s", result.getStatusCode(), result.getStatusMessage())));
+                return;
+            }
+
+            acknowledgedServiceInventory = serviceInventory;
+            acknowledgedServiceInventoryVersion = serviceInventoryVersion;
+            nextServiceInventoryResync = System.nanoTime() + statusResyncNanos;
+            serviceInventoryUpdateInProgress.set(false);
+
+            if (serviceInventoryUp.compareAndSet(false, true)) {
+                log.info("Service inventory put succeeded for agent at %s", internalUri);
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable t)
+        {
+            acknowledgedServiceInventoryVersion = null;
+            serviceInventoryUpdateInProgress.set(false);
+
+            if (serviceInventoryUp.compareAndSet(true, false) && !log.isDebugEnabled()) {
+                log.error("Unable to post service inventory to agent at %s: %s", internalUri, t.getMessage());
+            }
+            log.debug(t, "Unable to post service inventory to agent at %s: %s", internalUri, t.getMessage());
         }
     }
 
     @Override
     public ListenableFuture<?> updateStatus()
+    {
+        lastStatusUpdateRequest = System.nanoTime();
+
+        // while the status stream is running, only fetch the full status on the resync interval
+        boolean resync = System.nanoTime() - nextStatusResync >= 0;
+        if (statusStreamActive.get() && !resync) {
+            return Futures.immediateFuture(null);
+        }
+
+        ListenableFuture<?> future = fetchStatus(!resync);
+        if (statusStreamMaxWait != null && statusStreamActive.compareAndSet(false, true)) {
+            // keep polling if every status stream connection is held by another agent
+            if (statusStreamConnections.tryAcquire()) {
+                pollStatusChange();
+            }
+            else {
+                statusStreamActive.set(false);
+            }
+        }
+        return future;
+    }
+
+    private ListenableFuture<?> fetchStatus(final boolean conditional)
     {
         final AgentStatus agentStatus = status();
+        final long requestStart = System.nanoTime();
         URI internalUri = agentStatus.getInternalUri();
         if (internalUri != null) {
-            Request request = Request.Builder.prepareGet()
-                    .setUri(uriBuilderFrom(internalUri).replacePath("/v1/agent/").build())
-                    .build();
+            Request.Builder requestBuilder = Request.Builder.prepareGet()
+                    .setUri(uriBuilderFrom(internalUri).replacePath("/v1/agent/").build());
+            if (conditional) {
+                requestBuilder.setHeader(IF_NONE_MATCH, new EntityTag(agentStatus.getVersion()).toString());
+            }
 
-            ListenableFuture<AgentStatusRepresentation> future = httpClient.executeAsync(request, createJsonResponseHandler(agentStatusCodec));
+            ListenableFuture<AgentStatusRepresentation> future = httpClient.executeAsync(requestBuilder.build(), allowNotModified(createJsonResponseHandler(agentStatusCodec)));
             Futures.addCallback(future, new FutureCallback<AgentStatusRepresentation>()
             {
                 @Override
                 public void onSuccess(AgentStatusRepresentation result)
                 {
-                    // todo deal with out of order responses
-                    setStatus(result.toAgentStatus(agentStatus.getInstanceId(), agentStatus.getInstanceType()));
-                    failureCount.set(0);
+                    // a null result means the status has not changed
+                    if (result != null) {
+                        applyStatus(result.toAgentStatus(agentStatus.getInstanceId(), agentStatus.getInstanceType()), requestStart);
+                    }
+                    if (!conditional) {
+                        nextStatusResync = System.nanoTime() + statusResyncNanos;
+                    }
                 }
 
                 @Override
                 public void onFailure(Throwable t)
                 {
-                    // error talking to agent -- mark agent offline
-                    if (agentStatus.getState() != PROVISIONING && failureCount.incrementAndGet() > 5) {
-                        setStatus(agentStatus.changeState(OFFLINE).changeAllSlotsState(SlotLifecycleState.UNKNOWN));
-                    }
+                    // error talking to agent -- mark agent offline; the coordinator
+                    // retries quickly and then backs off while the agent is unreachable
+                    markOffline(requestStart);
                 }
             });
             return future;
@@ -175,15 +325,102 @@ public class HttpRemoteAgent implements RemoteAgent
         return Futures.immediateFuture(null);
     }
 
+    private void pollStatusChange()
+    {
+        final AgentStatus agentStatus = status();
+        final long requestStart = System.nanoTime();
+        URI internalUri = agentStatus.getInternalUri();
+
+        // stop streaming if the agent is not reachable, or the coordinator
+        // has stopped updating this agent (e.g., it was removed)
+        if (internalUri == null || agentStatus.getState() != ONLINE || System.nanoTime() - lastStatusUpdateRequest > statusResyncNanos) {
+            stopStatusStream();
+            return;
+        }
+
+        // the agent holds the request until its status differs from our version
+        Request request = Request.Builder.prepareGet()
+                .setUri(uriBuilderFrom(internalUri).replacePath("/v1/agent/").build())
+                .setHeader(IF_NONE_MATCH, new EntityTag(agentStatus.getVersion()).toString())
+                .setHeader(AIRSHIP_MAX_WAIT_HEADER, statusStreamMaxWait.toString())
+                .build();
+
+        Futures.addCallback(statusStreamClient.executeAsync(request, allowNotModified(createJsonResponseHandler(agentStatusCodec))), new FutureCallback<AgentStatusRepresentation>()
+        {
+            @Override
+            public void onSuccess(AgentStatusRepresentation result)
+            {
+                // a null result means the max wait expired without a change
+                if (result != null) {
+                    applyStatus(result.toAgentStatus(agentStatus.getInstanceId(), agentStatus.getInstanceType()), requestStart);
+                }
+                pollStatusChange();
+            }
+
+            @Override
+            public void onFailure(Throwable t)
+            {
+                // fall back to polling; the next status update restarts the stream
+                log.debug(t, "Status stream from agent at %s failed: %s", agentStatus.getInternalUri(), t.getMessage());
+                stopStatusStream();
+            }
+        });
+    }
+
+    private void stopStatusStream()
+    {
+        statusStreamConnections.release();
+        statusStreamActive.set(false);
+    }
+
     public synchronized void setStatus(AgentStatus agentStatus)
     {
         Preconditions.checkNotNull(agentStatus, "agentStatus is null");
         this.agentStatus = agentStatus;
     }
 
+    /**
+     * Replaces the status with a status fetched from the agent, unless it is
+     * older than the current status.  Responses can arrive out of order, so a
+     * response is stale if the request was sent before the last slot change
+     * made by this coordinator, or if the response to a later request has
+     * already been applied and the agent did not give this status a higher
+     * sequence number.
+     *
+     * @return true if the status was applied
+     */
+    synchronized boolean applyStatus(AgentStatus newStatus, long requestStartNanos)
+    {
+        Preconditions.checkNotNull(newStatus, "newStatus is null");
+        if (requestStartNanos - lastSlotChangeNanos < 0) {
+            return false;
+        }
+        // agents that predate sequence numbers always report zero
+        if (requestStartNanos - lastStatusResponseNanos < 0 && newStatus.getSequence() <= agentStatus.getSequence()) {
+            return false;
+        }
+        agentStatus = newStatus;
+        if (requestStartNanos - lastStatusResponseNanos > 0) {
+            lastStatusResponseNanos = requestStartNanos;
+        }
+        return true;
+    }
+
+    private synchronized void markOffline(long requestStartNanos)
+    {
+        // a later request has already reached the agent
+        if (requestStartNanos - lastStatusResponseNanos < 0) {
+            return;
+        }
+        if (agentStatus.getState() != PROVISIONING) {
+            agentStatus = agentStatus.changeState(OFFLINE).changeAllSlotsState(SlotLifecycleState.UNKNOWN);
+        }
+    }
+
     public synchronized void setSlotStatus(SlotStatus slotStatus)
     {
         agentStatus = agentStatus.changeSlotStatus(slotStatus);
+        lastSlotChangeNanos = System.nanoTime();
     }
 
     @Override
@@ -203,7 +440,7 @@ public class HttpRemoteAgent implements RemoteAgent
             SlotStatusRepresentation slotStatusRepresentation = httpClient.execute(request, createJsonResponseHandler(slotStatusCodec, Status.CREATED.getStatusCode()));
 
             SlotStatus slotStatus = slotStatusRepresentation.toSlotStatus(agentStatus.getInstanceId());
-            setStatus(agentStatus.changeSlotStatus(slotStatus));
+            setSlotStatus(slotStatus);
 
             return slotStatus;
         }
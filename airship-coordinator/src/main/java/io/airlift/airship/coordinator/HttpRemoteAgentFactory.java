@@ -1,5 +1,6 @@
 package io.airlift.airship.coordinator;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
@@ -7,36 +8,68 @@ import io.airlift.airship.shared.AgentLifecycleState;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.AgentStatusRepresentation;
 import io.airlift.airship.shared.InstallationRepresentation;
+import io.airlift.airship.shared.ServiceInventoryDiffRepresentation;
 import io.airlift.airship.shared.SlotStatus;
 import io.airlift.airship.shared.SlotStatusRepresentation;
 import io.airlift.discovery.client.ServiceDescriptorsRepresentation;
 import io.airlift.http.client.AsyncHttpClient;
+import io.airlift.http.client.HttpClientConfig;
 import io.airlift.json.JsonCodec;
 import io.airlift.node.NodeInfo;
+import io.airlift.units.Duration;
+
+import java.util.concurrent.Semaphore;
 
 public class HttpRemoteAgentFactory implements RemoteAgentFactory
 {
     private final String environment;
     private final AsyncHttpClient httpClient;
+    private final AsyncHttpClient statusStreamClient;
+    private final Duration statusStreamMaxWait;
+    private final Semaphore statusStreamConnections;
+    private final Duration statusResyncInterval;
     private final JsonCodec<InstallationRepresentation> installationCodec;
     private final JsonCodec<AgentStatusRepresentation> agentStatusCodec;
     private final JsonCodec<SlotStatusRepresentation> slotStatusCodec;
     private final JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec;
+    private final JsonCodec<ServiceInventoryDiffRepresentation> serviceInventoryDiffCodec;
 
     @Inject
     public HttpRemoteAgentFactory(NodeInfo nodeInfo,
+            CoordinatorConfig config,
             @Global AsyncHttpClient httpClient,
+            @StatusStream AsyncHttpClient statusStreamClient,
+            @StatusStream HttpClientConfig statusStreamClientConfig,
             JsonCodec<InstallationRepresentation> installationCodec,
             JsonCodec<SlotStatusRepresentation> slotStatusCodec,
             JsonCodec<AgentStatusRepresentation> agentStatusCodec,
-            JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec)
+            JsonCodec<ServiceDescriptorsRepresentation> serviceDescriptorsCodec,
+            JsonCodec<ServiceInventoryDiffRepresentation> serviceInventoryDiffCodec)
     {
         environment = nodeInfo.getEnvironment();
         this.httpClient = httpClient;
+        this.statusStreamClient = statusStreamClient;
+        if (config.isStatusStreamEnabled()) {
+            // the agent answers a long poll at the max wait, so it must not be cut off by the read timeout first
+            Preconditions.checkArgument(config.getStatusStreamMaxWait().compareTo(statusStreamClientConfig.getReadTimeout()) < 0,
+                    "coordinator.status.stream-max-wait (%s) must be less than status-stream.http-client.read-timeout (%s)",
+                    config.getStatusStreamMaxWait(),
+                    statusStreamClientConfig.getReadTimeout());
+            this.statusStreamMaxWait = config.getStatusStreamMaxWait();
+
+            // each long poll holds a connection, so agents beyond the client connection limit keep polling
+            this.statusStreamConnections = new Semaphore(statusStreamClientConfig.getMaxConnections());
+        }
+        else {
+            this.statusStreamMaxWait = null;
+            this.statusStreamConnections = null;
+        }
+        this.statusResyncInterval = config.getStatusResyncInterval();
         this.agentStatusCodec = agentStatusCodec;
         this.installationCodec = installationCodec;
         this.slotStatusCodec = slotStatusCodec;
         this.serviceDescriptorsCodec = serviceDescriptorsCodec;
+        this.serviceInventoryDiffCodec = serviceInventoryDiffCodec;
     }
 
     @Override
@@ -52,6 +85,17 @@ public class HttpRemoteAgentFactory implements RemoteAgentFactory
                 ImmutableList.<SlotStatus>of(),
                 ImmutableMap.<String, Integer>of());
 
-        return new HttpRemoteAgent(agentStatus, environment, httpClient, installationCodec, agentStatusCodec, slotStatusCodec, serviceDescriptorsCodec);
+        return new HttpRemoteAgent(agentStatus,
+                environment,
+                httpClient,
+                statusStreamClient,
+                statusStreamMaxWait,
+                statusStreamConnections,
+                statusResyncInterval,
+                installationCodec,
+                agentStatusCodec,
+                slotStatusCodec,
+                serviceDescriptorsCodec,
+                serviceInventoryDiffCodec);
     }
 }
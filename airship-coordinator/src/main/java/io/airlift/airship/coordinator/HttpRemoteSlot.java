@@ -1,11 +1,15 @@
 package io.airlift.airship.coordinator;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.airship.shared.Installation;
 import io.airlift.airship.shared.InstallationRepresentation;
 import io.airlift.airship.shared.SlotStatus;
 import io.airlift.airship.shared.SlotStatusRepresentation;
-import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.AsyncHttpClient;
 import io.airlift.http.client.Request;
 import io.airlift.json.JsonCodec;
 import io.airlift.log.Logger;
@@ -31,11 +35,11 @@ public class HttpRemoteSlot implements RemoteSlot
     private static final JsonCodec<InstallationRepresentation> installationCodec = jsonCodec(InstallationRepresentation.class);
     private static final JsonCodec<SlotStatusRepresentation> slotStatusCodec = jsonCodec(SlotStatusRepresentation.class);
 
-    private SlotStatus slotStatus;
-    private final HttpClient httpClient;
+    private volatile SlotStatus slotStatus;
+    private final AsyncHttpClient httpClient;
     private final HttpRemoteAgent agent;
 
-    public HttpRemoteSlot(SlotStatus slotStatus, HttpClient httpClient, HttpRemoteAgent agent)
+    public HttpRemoteSlot(SlotStatus slotStatus, AsyncHttpClient httpClient, HttpRemoteAgent agent)
     {
         Preconditions.checkNotNull(slotStatus, "slotStatus is null");
         Preconditions.checkNotNull(httpClient, "httpClient is null");
@@ -76,6 +80,42 @@ public class HttpRemoteSlot implements RemoteSlot
 
     @Override
     public SlotStatus assign(Installation installation)
+    {
+        return Futures.getUnchecked(assignAsync(installation));
+    }
+
+    @Override
+    public SlotStatus terminate()
+    {
+        return Futures.getUnchecked(terminateAsync());
+    }
+
+    @Override
+    public SlotStatus start()
+    {
+        return Futures.getUnchecked(startAsync());
+    }
+
+    @Override
+    public SlotStatus restart()
+    {
+        return Futures.getUnchecked(restartAsync());
+    }
+
+    @Override
+    public SlotStatus stop()
+    {
+        return Futures.getUnchecked(stopAsync());
+    }
+
+    @Override
+    public SlotStatus kill()
+    {
+        return Futures.getUnchecked(killAsync());
+    }
+
+    @Override
+    public ListenableFuture<SlotStatus> assignAsync(Installation installation)
     {
         try {
             Request request = Request.Builder.preparePut()
@@ -85,19 +125,16 @@ public class HttpRemoteSlot implements RemoteSlot
                     .setHeader(AIRSHIP_SLOT_VERSION_HEADER, slotStatus.getVersion())
                     .setBodyGenerator(jsonBodyGenerator(installationCodec, InstallationRepresentation.from(installation)))
                     .build();
-            SlotStatusRepresentation slotStatusRepresentation = httpClient.execute(request, createJsonResponseHandler(slotStatusCodec, Status.OK.getStatusCode()));
-
-            updateStatus(slotStatusRepresentation.toSlotStatus(slotStatus.getInstanceId()));
-            return slotStatus;
+            return execute(request);
         }
         catch (Exception e) {
             log.error(e);
-            return setErrorStatus(e.getMessage());
+            return Futures.immediateFuture(setErrorStatus(e.getMessage()));
         }
     }
 
     @Override
-    public SlotStatus terminate()
+    public ListenableFuture<SlotStatus> terminateAsync()
     {
         try {
             Request request = Request.Builder.prepareDelete()
@@ -105,96 +142,93 @@ public class HttpRemoteSlot implements RemoteSlot
                     .setHeader(AIRSHIP_AGENT_VERSION_HEADER, agent.status().getVersion())
                     .setHeader(AIRSHIP_SLOT_VERSION_HEADER, slotStatus.getVersion())
                     .build();
-            SlotStatusRepresentation slotStatusRepresentation = httpClient.execute(request, createJsonResponseHandler(slotStatusCodec, Status.OK.getStatusCode()));
-
-            updateStatus(slotStatusRepresentation.toSlotStatus(slotStatus.getInstanceId()));
-            return slotStatus;
+            return execute(request);
         }
         catch (Exception e) {
             log.error(e);
-            return setErrorStatus(e.getMessage());
+            return Futures.immediateFuture(setErrorStatus(e.getMessage()));
         }
     }
 
     @Override
-    public SlotStatus start()
+    public ListenableFuture<SlotStatus> startAsync()
     {
-        try {
-            Request request = Request.Builder.preparePut()
-                    .setUri(uriBuilderFrom(slotStatus.getSelf()).appendPath("lifecycle").build())
-                    .setHeader(AIRSHIP_AGENT_VERSION_HEADER, agent.status().getVersion())
-                    .setHeader(AIRSHIP_SLOT_VERSION_HEADER, slotStatus.getVersion())
-                    .setBodyGenerator(createStaticBodyGenerator("running", UTF_8))
-                    .build();
-            SlotStatusRepresentation slotStatusRepresentation = httpClient.execute(request, createJsonResponseHandler(slotStatusCodec, Status.OK.getStatusCode()));
+        return setLifecycleState("running");
+    }
 
-            updateStatus(slotStatusRepresentation.toSlotStatus(slotStatus.getInstanceId()));
-            return slotStatus;
-        }
-        catch (Exception e) {
-            log.error(e);
-            return setErrorStatus(e.getMessage());
-        }
+    @Override
+    public ListenableFuture<SlotStatus> restartAsync()
+    {
+        return setLifecycleState("restarting");
     }
 
     @Override
-    public SlotStatus restart()
+    public ListenableFuture<SlotStatus> stopAsync()
+    {
+        return setLifecycleState("stopped");
+    }
+
+    @Override
+    public ListenableFuture<SlotStatus> killAsync()
     {
         try {
             Request request = Request.Builder.preparePut()
                     .setUri(uriBuilderFrom(slotStatus.getSelf()).appendPath("lifecycle").build())
-                    .setHeader(AIRSHIP_AGENT_VERSION_HEADER, agent.status().getVersion())
-                    .setHeader(AIRSHIP_SLOT_VERSION_HEADER, slotStatus.getVersion())
-                    .setBodyGenerator(createStaticBodyGenerator("restarting", UTF_8))
+                    .setBodyGenerator(createStaticBodyGenerator("killing", UTF_8))
                     .build();
-            SlotStatusRepresentation slotStatusRepresentation = httpClient.execute(request, createJsonResponseHandler(slotStatusCodec, Status.OK.getStatusCode()));
-
-            updateStatus(slotStatusRepresentation.toSlotStatus(slotStatus.getInstanceId()));
-            return slotStatus;
+            return execute(request);
         }
         catch (Exception e) {
             log.error(e);
-            return setErrorStatus(e.getMessage());
+            return Futures.immediateFuture(setErrorStatus(e.getMessage()));
         }
     }
 
-    @Override
-    public SlotStatus stop()
+    private ListenableFuture<SlotStatus> setLifecycleState(String state)
     {
         try {
             Request request = Request.Builder.preparePut()
                     .setUri(uriBuilderFrom(slotStatus.getSelf()).appendPath("lifecycle").build())
                     .setHeader(AIRSHIP_AGENT_VERSION_HEADER, agent.status().getVersion())
                     .setHeader(AIRSHIP_SLOT_VERSION_HEADER, slotStatus.getVersion())
-                    .setBodyGenerator(createStaticBodyGenerator("stopped", UTF_8))
+                    .setBodyGenerator(createStaticBodyGenerator(state, UTF_8))
                     .build();
-            SlotStatusRepresentation slotStatusRepresentation = httpClient.execute(request, createJsonResponseHandler(slotStatusCodec, Status.OK.getStatusCode()));
-
-            updateStatus(slotStatusRepresentation.toSlotStatus(slotStatus.getInstanceId()));
-            return slotStatus;
+            return execute(request);
         }
         catch (Exception e) {
             log.error(e);
-            return setErrorStatus(e.getMessage());
+            return Futures.immediateFuture(setErrorStatus(e.getMessage()));
         }
     }
 
-    @Override
-    public SlotStatus kill()
+    /**
+     * Sends the request without blocking.  The returned future never fails;
+     * errors are reported as a slot status in the unknown state, the same as
+     * the blocking methods.
+     */
+    private ListenableFuture<SlotStatus> execute(Request request)
     {
-        try {
-            Request request = Request.Builder.preparePut()
-                    .setUri(uriBuilderFrom(slotStatus.getSelf()).appendPath("lifecycle").build())
-                    .setBodyGenerator(createStaticBodyGenerator("killing", UTF_8))
-                    .build();
-            SlotStatusRepresentation slotStatusRepresentation = httpClient.execute(request, createJsonResponseHandler(slotStatusCodec, Status.OK.getStatusCode()));
-
-            updateStatus(slotStatusRepresentation.toSlotStatus(slotStatus.getInstanceId()));
-            return slotStatus;
-        }
-        catch (Exception e) {
-            log.error(e);
-            return setErrorStatus(e.getMessage());
-        }
+        final String instanceId = slotStatus.getInstanceId();
+        ListenableFuture<SlotStatus> future = Futures.transform(
+                httpClient.executeAsync(request, createJsonResponseHandler(slotStatusCodec, Status.OK.getStatusCode())),
+                new Function<SlotStatusRepresentation, SlotStatus>()
+                {
+                    @Override
+                    public SlotStatus apply(SlotStatusRepresentation slotStatusRepresentation)
+                    {
+                        updateStatus(slotStatusRepresentation.toSlotStatus(instanceId));
+                        return slotStatus;
+                    }
+                });
+
+        return Futures.withFallback(future, new FutureFallback<SlotStatus>()
+        {
+            @Override
+            public ListenableFuture<SlotStatus> create(Throwable t)
+            {
+                log.error(t);
+                return Futures.immediateFuture(setErrorStatus(t.getMessage()));
+            }
+        });
     }
 }
@@ -14,7 +14,11 @@
 package io.airlift.airship.coordinator;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.CharStreams;
@@ -34,24 +38,33 @@ import io.airlift.log.Logger;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
 
 public class HttpServiceInventory implements ServiceInventory
 {
     private static final Logger log = Logger.get(HttpServiceInventory.class);
+    private static final String AIRSHIP_HOST = "${airship.host}";
+    private static final int MAX_CACHED_CONFIGS = 1000;
+
     private final Repository repository;
     private final JsonCodec<List<ServiceDescriptor>> descriptorsJsonCodec;
     private final Set<String> invalidServiceInventory = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     private final File cacheDir;
 
+    // parsed service inventory templates by config; configs are immutable so entries never go stale
+    private final Cache<String, List<ServiceDescriptorTemplate>> templateCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_CONFIGS)
+            .build();
+
+    private volatile MemoizedServiceInventory memoizedServiceInventory;
+
     @Inject
     public HttpServiceInventory(Repository repository, JsonCodec<List<ServiceDescriptor>> descriptorsJsonCodec, CoordinatorConfig config)
     {
@@ -71,6 +84,28 @@ public class HttpServiceInventory implements ServiceInventory
     @Override
     public ImmutableList<ServiceDescriptor> getServiceInventory(Iterable<SlotStatus> allSlotStatus)
     {
+        // the inventory only depends on these slot fields, so reuse the last inventory if none have changed
+        ImmutableList.Builder<List<?>> keyBuilder = ImmutableList.builder();
+        for (SlotStatus slotStatus : allSlotStatus) {
+            // if the self reference is null, the slot is totally offline so skip for now
+            if (slotStatus.getSelf() == null || slotStatus.getAssignment() == null) {
+                continue;
+            }
+            keyBuilder.add(Arrays.asList(slotStatus.getId(),
+                    slotStatus.getAssignment().getConfig(),
+                    slotStatus.getLocation(),
+                    slotStatus.getState() == SlotLifecycleState.RUNNING,
+                    slotStatus.getSelf().getHost()));
+        }
+
+        List<List<?>> inventoryKey = keyBuilder.build();
+
+        MemoizedServiceInventory memoized = memoizedServiceInventory;
+        if (memoized != null && memoized.matches(inventoryKey)) {
+            return memoized.getServiceDescriptors();
+        }
+
+        boolean complete = true;
         ImmutableList.Builder<ServiceDescriptor> newDescriptors = ImmutableList.builder();
         for (SlotStatus slotStatus : allSlotStatus) {
             // if the self reference is null, the slot is totally offline so skip for now
@@ -78,51 +113,70 @@ public class HttpServiceInventory implements ServiceInventory
                 continue;
             }
 
-            List<ServiceDescriptor> serviceDescriptors = getServiceInventory(slotStatus);
-            if (serviceDescriptors == null) {
+            List<ServiceDescriptorTemplate> templates = getServiceInventory(slotStatus);
+            if (templates == null) {
+                complete = false;
                 continue;
             }
-            for (ServiceDescriptor serviceDescriptor : serviceDescriptors) {
-                newDescriptors.add(new ServiceDescriptor(null,
-                        slotStatus.getId().toString(),
-                        serviceDescriptor.getType(),
-                        serviceDescriptor.getPool(),
-                        slotStatus.getLocation(),
-                        slotStatus.getState() == SlotLifecycleState.RUNNING ? ServiceState.RUNNING : ServiceState.STOPPED,
-                        interpolateProperties(serviceDescriptor.getProperties(), slotStatus)));
+            for (ServiceDescriptorTemplate template : templates) {
+                newDescriptors.add(template.createServiceDescriptor(slotStatus));
             }
         }
-        return newDescriptors.build();
-    }
+        ImmutableList<ServiceDescriptor> serviceDescriptors = newDescriptors.build();
 
-    private Map<String, String> interpolateProperties(Map<String, String> properties, SlotStatus slotStatus)
-    {
-        ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
-        for (Entry<String, String> entry : properties.entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue();
-            value = value.replaceAll(Pattern.quote("${airship.host}"), slotStatus.getSelf().getHost());
-            builder.put(key, value);
-        }
-        return builder.build();
+        // do not memoize if a config could not be loaded, so it is retried on the next call
+        if (complete) {
+            memoizedServiceInventory = new MemoizedServiceInventory(inventoryKey, serviceDescriptors);
+        }
+        return serviceDescriptors;
     }
 
-    private List<ServiceDescriptor> getServiceInventory(SlotStatus slotStatus)
+    private List<ServiceDescriptorTemplate> getServiceInventory(SlotStatus slotStatus)
     {
         Assignment assignment = slotStatus.getAssignment();
         if (assignment == null) {
-            return null;
+            return ImmutableList.of();
         }
 
         String config = assignment.getConfig();
 
+        List<ServiceDescriptorTemplate> templates = templateCache.getIfPresent(config);
+        if (templates == null) {
+            templates = createTemplates(readServiceInventory(config));
+            if (templates != null) {
+                templateCache.put(config, templates);
+            }
+        }
+        return templates;
+    }
+
+    private static List<ServiceDescriptorTemplate> createTemplates(List<ServiceDescriptor> serviceDescriptors)
+    {
+        if (serviceDescriptors == null) {
+            return null;
+        }
+
+        ImmutableList.Builder<ServiceDescriptorTemplate> templates = ImmutableList.builder();
+        for (ServiceDescriptor serviceDescriptor : serviceDescriptors) {
+            templates.add(new ServiceDescriptorTemplate(serviceDescriptor));
+        }
+        return templates.build();
+    }
+
+    /**
+     * Returns the service descriptors declared by the config, an empty list if
+     * the config does not have a service inventory, or null if the config could
+     * not be loaded.
+     */
+    private List<ServiceDescriptor> readServiceInventory(String config)
+    {
         File cacheFile = getCacheFile(config);
         if (cacheFile.canRead()) {
             try {
                 String json = CharStreams.toString(Files.newReaderSupplier(cacheFile, Charsets.UTF_8));
                 List<ServiceDescriptor> descriptors = descriptorsJsonCodec.fromJson(json);
                 invalidServiceInventory.remove(config);
-                return descriptors;
+                return nullToEmpty(descriptors);
             }
             catch (Exception ignored) {
                 // delete the bad cache file
@@ -152,7 +206,7 @@ public class HttpServiceInventory implements ServiceInventory
             Files.write(json, cacheFile, Charsets.UTF_8);
 
             List<ServiceDescriptor> descriptors = descriptorsJsonCodec.fromJson(json);
-            return descriptors;
+            return nullToEmpty(descriptors);
         }
         catch (Exception e) {
             if (invalidServiceInventory.add(config)) {
@@ -162,6 +216,14 @@ public class HttpServiceInventory implements ServiceInventory
         return null;
     }
 
+    private static List<ServiceDescriptor> nullToEmpty(List<ServiceDescriptor> descriptors)
+    {
+        if (descriptors == null) {
+            return ImmutableList.of();
+        }
+        return descriptors;
+    }
+
     private File getCacheFile(String config)
     {
         String cacheName = config;
@@ -173,4 +235,65 @@ public class HttpServiceInventory implements ServiceInventory
         cacheName = cacheName + "_" + DigestUtils.md5Hex(cacheName);
         return new File(cacheDir, cacheName).getAbsoluteFile();
     }
+
+    private static class ServiceDescriptorTemplate
+    {
+        private final String type;
+        private final String pool;
+
+        // property values split around ${airship.host}
+        private final Map<String, List<String>> properties;
+
+        private ServiceDescriptorTemplate(ServiceDescriptor serviceDescriptor)
+        {
+            this.type = serviceDescriptor.getType();
+            this.pool = serviceDescriptor.getPool();
+
+            ImmutableMap.Builder<String, List<String>> properties = ImmutableMap.builder();
+            for (Entry<String, String> entry : serviceDescriptor.getProperties().entrySet()) {
+                properties.put(entry.getKey(), ImmutableList.copyOf(Splitter.on(AIRSHIP_HOST).split(entry.getValue())));
+            }
+            this.properties = properties.build();
+        }
+
+        public ServiceDescriptor createServiceDescriptor(SlotStatus slotStatus)
+        {
+            Joiner hostJoiner = Joiner.on(slotStatus.getSelf().getHost());
+
+            ImmutableMap.Builder<String, String> interpolatedProperties = ImmutableMap.builder();
+            for (Entry<String, List<String>> entry : properties.entrySet()) {
+                interpolatedProperties.put(entry.getKey(), hostJoiner.join(entry.getValue()));
+            }
+
+            return new ServiceDescriptor(null,
+                    slotStatus.getId().toString(),
+                    type,
+                    pool,
+                    slotStatus.getLocation(),
+                    slotStatus.getState() == SlotLifecycleState.RUNNING ? ServiceState.RUNNING : ServiceState.STOPPED,
+                    interpolatedProperties.build());
+        }
+    }
+
+    private static class MemoizedServiceInventory
+    {
+        private final List<List<?>> key;
+        private final ImmutableList<ServiceDescriptor> serviceDescriptors;
+
+        private MemoizedServiceInventory(List<List<?>> key, ImmutableList<ServiceDescriptor> serviceDescriptors)
+        {
+            this.key = key;
+            this.serviceDescriptors = serviceDescriptors;
+        }
+
+        public boolean matches(List<List<?>> key)
+        {
+            return this.key.equals(key);
+        }
+
+        public ImmutableList<ServiceDescriptor> getServiceDescriptors()
+        {
+            return serviceDescriptors;
+        }
+    }
 }
@@ -4,18 +4,18 @@ import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
-import com.google.common.io.ByteProcessor;
-import com.google.common.io.ByteStreams;
 import com.google.common.io.CharStreams;
 import com.google.common.io.InputSupplier;
-import com.google.common.io.Resources;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import io.airlift.airship.coordinator.MavenMetadata.SnapshotVersion;
 import io.airlift.airship.shared.HttpUriBuilder;
 import io.airlift.airship.shared.MavenCoordinates;
 import io.airlift.airship.shared.Repository;
 import io.airlift.log.Logger;
+import io.airlift.units.Duration;
 
+import javax.annotation.PreDestroy;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,12 +24,23 @@ import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static com.google.common.base.Charsets.UTF_8;
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
 import static io.airlift.airship.shared.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.airship.shared.MavenCoordinates.toBinaryGAV;
 import static io.airlift.airship.shared.MavenCoordinates.toConfigGAV;
@@ -39,8 +50,11 @@ public class MavenRepository implements Repository
     private static final Logger log = Logger.get(MavenRepository.class);
 
     private static final Pattern TIMESTAMP_VERSION = Pattern.compile("^(.+)-[0-9]{8}\\.[0-9]{6}\\-[0-9]+$");
+
     private final List<String> defaultGroupIds;
     private final List<URI> repositoryBases;
+    private final long resolveTimeoutNanos;
+    private final ThreadPoolExecutor probeExecutor;
 
     public MavenRepository(Iterable<String> defaultGroupIds, URI repositoryBase, URI... repositoryBases)
     {
@@ -49,30 +63,59 @@ public class MavenRepository implements Repository
 
     public MavenRepository(Iterable<String> defaultGroupIds, Iterable<URI> repositoryBases)
     {
+        this(defaultGroupIds, repositoryBases, new CoordinatorConfig().getRepositoryResolveTimeout());
+    }
+
+    public MavenRepository(Iterable<String> defaultGroupIds, Iterable<URI> repositoryBases, Duration resolveTimeout)
+    {
+        this(defaultGroupIds, repositoryBases, resolveTimeout, new CoordinatorConfig().getRepositoryProbeThreads());
+    }
+
+    public MavenRepository(Iterable<String> defaultGroupIds, Iterable<URI> repositoryBases, Duration resolveTimeout, int probeThreads)
+    {
+        Preconditions.checkNotNull(resolveTimeout, "resolveTimeout is null");
+        Preconditions.checkArgument(probeThreads > 0, "probeThreads must be at least 1");
         this.defaultGroupIds = ImmutableList.copyOf(defaultGroupIds);
         for (URI uri : repositoryBases) {
             Preconditions.checkArgument(uri.toASCIIString().endsWith("/"), "Uri must end with a '/' " + uri);
         }
         this.repositoryBases = ImmutableList.copyOf(repositoryBases);
+        this.resolveTimeoutNanos = resolveTimeout.roundTo(TimeUnit.NANOSECONDS);
+
+        // probes mostly wait on the network; a probe never waits for another probe, so the pool can be bounded
+        probeExecutor = new ThreadPoolExecutor(probeThreads,
+                probeThreads,
+                1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("maven-repository-probe-%s").setDaemon(true).build());
+        probeExecutor.allowCoreThreadTimeOut(true);
     }
 
     @Inject
     public MavenRepository(CoordinatorConfig config)
     {
-        if (config.getDefaultRepositoryGroupId() != null) {
-            this.defaultGroupIds = ImmutableList.copyOf(config.getDefaultRepositoryGroupId());
-        } else {
-            this.defaultGroupIds = ImmutableList.of();
-        }
+        this(Objects.firstNonNull(config.getDefaultRepositoryGroupId(), ImmutableList.<String>of()),
+                toRepositoryBases(config.getRepositories()),
+                config.getRepositoryResolveTimeout(),
+                config.getRepositoryProbeThreads());
+    }
 
+    private static List<URI> toRepositoryBases(List<String> repositories)
+    {
         Builder<URI> builder = ImmutableList.builder();
-        for (String binaryRepoBase : config.getRepositories()) {
+        for (String binaryRepoBase : repositories) {
             if (!binaryRepoBase.endsWith("/")) {
                 binaryRepoBase = binaryRepoBase + "/";
             }
             builder.add(URI.create(binaryRepoBase));
         }
-        repositoryBases = builder.build();
+        return builder.build();
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        probeExecutor.shutdownNow();
     }
 
     @Override
@@ -252,45 +295,42 @@ public class MavenRepository implements Repository
     }
 
     public URI toHttpUri(MavenCoordinates coordinates, boolean required)
+    {
+        return toHttpUri(coordinates, required, System.nanoTime() + resolveTimeoutNanos);
+    }
+
+    private URI toHttpUri(MavenCoordinates coordinates, boolean required, long deadline)
     {
         // resolve binary spec groupId or snapshot version
-        coordinates = resolve(coordinates);
+        Map<MavenCoordinates, URI> foundFiles = newHashMap();
+        coordinates = resolve(coordinates, deadline, foundFiles);
         if (coordinates == null) {
             return null;
         }
-        List<URI> checkedUris = newArrayList();
-        for (URI repositoryBase : repositoryBases) {
-            // build the uri
-            HttpUriBuilder uriBuilder = uriBuilderFrom(repositoryBase);
-            uriBuilder.appendPath(coordinates.getGroupId().replace('.', '/'));
-            uriBuilder.appendPath(coordinates.getArtifactId());
-            uriBuilder.appendPath(coordinates.getVersion());
-
-            StringBuilder fileNameBuilder = new StringBuilder().append(coordinates.getArtifactId()).append('-').append(coordinates.getFileVersion());
-            if (coordinates.getClassifier() != null) {
-                fileNameBuilder.append('-').append(coordinates.getClassifier());
-            }
-            fileNameBuilder.append('.').append(coordinates.getPackaging());
-            uriBuilder.appendPath(fileNameBuilder.toString());
-
-            URI uri = uriBuilder.build();
 
-            // try to download some of the file
-            if (isValidBinary(uri)) {
-                return uri;
-            }
-
-            checkedUris.add(uri);
-        }
-        if (required) {
-            throw new RuntimeException("Unable to find binary " + coordinates + " at " + checkedUris);
+        // the file may have been found while resolving, so do not spend the rest of the deadline looking for it again
+        URI uri = foundFiles.get(coordinates);
+        if (uri == null) {
+            uri = findFiles(ImmutableList.of(coordinates), deadline, foundFiles).get(0);
         }
-        else {
-            return null;
+        if (uri == null && required) {
+            throw new RuntimeException("Unable to find binary " + coordinates + " at " + toUris(coordinates));
         }
+        return uri;
     }
 
     public MavenCoordinates resolve(MavenCoordinates coordinates)
+    {
+        return resolve(coordinates, System.nanoTime() + resolveTimeoutNanos, new HashMap<MavenCoordinates, URI>());
+    }
+
+    /**
+     * Resolves the coordinates in every group at once.  Only the individual
+     * probes run on the probe executor, and this thread waits for them, so a
+     * probe never waits for another probe.  The location of every file found
+     * along the way is added to foundFiles.
+     */
+    private MavenCoordinates resolve(MavenCoordinates coordinates, long deadline, Map<MavenCoordinates, URI> foundFiles)
     {
         if (coordinates.isResolved()) {
             return coordinates;
@@ -304,46 +344,64 @@ public class MavenRepository implements Repository
             groupIds = defaultGroupIds;
         }
 
-        List<MavenCoordinates> matchedCoordinates = newArrayList();
+        // check for a file with the exact name
+        List<MavenCoordinates> resolvedSpecs = newArrayList();
         for (String groupId : groupIds) {
-            // check for a file with the exact name
-            MavenCoordinates resolvedSpec = new MavenCoordinates(groupId,
+            resolvedSpecs.add(new MavenCoordinates(groupId,
                     coordinates.getArtifactId(),
                     coordinates.getVersion(),
                     coordinates.getPackaging(),
                     coordinates.getClassifier(),
-                    coordinates.getFileVersion());
-
-            if (toHttpUri(resolvedSpec, false) != null) {
-                matchedCoordinates.add(resolvedSpec);
-                continue;
+                    coordinates.getFileVersion()));
+        }
+        List<URI> uris = findFiles(resolvedSpecs, deadline, foundFiles);
+        List<String> unresolvedGroupIds = newArrayList();
+        for (int i = 0; i < groupIds.size(); i++) {
+            if (uris.get(i) == null) {
+                resolvedSpecs.set(i, null);
+                unresolvedGroupIds.add(groupIds.get(i));
             }
+        }
 
-            // check of a timestamped snapshot file
+        if (!unresolvedGroupIds.isEmpty()) {
+            List<MavenCoordinates> fallbackSpecs = null;
+            Matcher timestampMatcher = TIMESTAMP_VERSION.matcher(coordinates.getVersion());
             if (coordinates.getVersion().contains("SNAPSHOT")) {
-                MavenCoordinates timestampSpec = resolveSnapshotTimestamp(coordinates, groupId);
-                if (timestampSpec != null) {
-                    matchedCoordinates.add(timestampSpec);
-                    continue;
+                // check of a timestamped snapshot file
+                fallbackSpecs = resolveSnapshotTimestamps(coordinates, unresolvedGroupIds, deadline);
+            }
+            else if (timestampMatcher.matches()) {
+                // Snapshot revisions are resolved to timestamp version which may need to be converted back to SNAPSHOT for resolution
+                List<MavenCoordinates> snapshotSpecs = newArrayList();
+                for (String groupId : unresolvedGroupIds) {
+                    snapshotSpecs.add(new MavenCoordinates(groupId,
+                            coordinates.getArtifactId(),
+                            timestampMatcher.group(1) + "-SNAPSHOT",
+                            coordinates.getPackaging(),
+                            coordinates.getClassifier(),
+                            coordinates.getVersion()));
+                }
+                List<URI> snapshotUris = findFiles(snapshotSpecs, deadline, foundFiles);
+                fallbackSpecs = newArrayList();
+                for (int i = 0; i < snapshotSpecs.size(); i++) {
+                    fallbackSpecs.add(snapshotUris.get(i) != null ? snapshotSpecs.get(i) : null);
                 }
             }
 
-            // Snapshot revisions are resolved to timestamp version which may need to be converted back to SNAPSHOT for resolution
-            Matcher timestampMatcher = TIMESTAMP_VERSION.matcher(coordinates.getVersion());
-            if (timestampMatcher.matches()) {
-                MavenCoordinates snapshotSpec = new MavenCoordinates(groupId,
-                        coordinates.getArtifactId(),
-                        timestampMatcher.group(1) + "-SNAPSHOT",
-                        coordinates.getPackaging(),
-                        coordinates.getClassifier(),
-                        coordinates.getVersion());
-
-                if (toHttpUri(snapshotSpec, false) != null) {
-                    matchedCoordinates.add(snapshotSpec);
+            if (fallbackSpecs != null) {
+                for (int i = 0; i < unresolvedGroupIds.size(); i++) {
+                    resolvedSpecs.set(groupIds.indexOf(unresolvedGroupIds.get(i)), fallbackSpecs.get(i));
                 }
             }
         }
 
+        List<MavenCoordinates> matchedCoordinates = newArrayList();
+        for (MavenCoordinates resolvedSpec : resolvedSpecs) {
+            if (resolvedSpec != null) {
+                matchedCoordinates.add(resolvedSpec);
+            }
+        }
+
         if (matchedCoordinates.size() > 1) {
             throw new RuntimeException("Ambiguous spec " + coordinates + "  matched " + matchedCoordinates);
         }
@@ -355,41 +413,151 @@ public class MavenRepository implements Repository
         return matchedCoordinates.get(0);
     }
 
-    private MavenCoordinates resolveSnapshotTimestamp(MavenCoordinates coordinates, String groupId)
+    /**
+     * Probes every repository for each of the specs at once, and returns the
+     * uri in the first repository that has the file, or null, for each spec.
+     * The files found are also added to foundFiles.
+     */
+    private List<URI> findFiles(List<MavenCoordinates> specs, final long deadline, Map<MavenCoordinates, URI> foundFiles)
     {
+        List<List<URI>> checkedUris = newArrayList();
+        List<List<Future<Boolean>>> probes = newArrayList();
+        try {
+            for (MavenCoordinates spec : specs) {
+                List<URI> uris = toUris(spec);
+                List<Future<Boolean>> specProbes = newArrayList();
+                for (final URI uri : uris) {
+                    specProbes.add(probeExecutor.submit(new Callable<Boolean>()
+                    {
+                        @Override
+                        public Boolean call()
+                        {
+                            return isValidBinary(uri, deadline);
+                        }
+                    }));
+                }
+                checkedUris.add(uris);
+                probes.add(specProbes);
+            }
 
-        for (URI repositoryBase : repositoryBases) {
-            try {
-                // load maven metadata file
-                HttpUriBuilder uriBuilder = uriBuilderFrom(repositoryBase);
-                uriBuilder.appendPath(groupId.replace('.', '/'));
-                uriBuilder.appendPath(coordinates.getArtifactId());
-                uriBuilder.appendPath(coordinates.getVersion());
-                uriBuilder.appendPath("maven-metadata.xml");
-                URI uri = uriBuilder.build();
-                MavenMetadata metadata = MavenMetadata.unmarshalMavenMetadata(toString(uri));
-
-                for (SnapshotVersion snapshotVersion : metadata.versioning.snapshotVersions) {
-                    if (coordinates.getPackaging().equals(snapshotVersion.extension) && Objects.equal(coordinates.getClassifier(), snapshotVersion.classifier)) {
-                        MavenCoordinates timestampSpec = new MavenCoordinates(groupId,
-                                coordinates.getArtifactId(),
-                                coordinates.getVersion(),
-                                coordinates.getPackaging(),
-                                coordinates.getClassifier(),
-                                snapshotVersion.value);
-
-                        return timestampSpec;
+            // the first repository with the file wins
+            List<URI> results = newArrayList();
+            for (int i = 0; i < specs.size(); i++) {
+                URI result = null;
+                for (int j = 0; j < probes.get(i).size() && result == null; j++) {
+                    if (Boolean.TRUE.equals(getBeforeDeadline(probes.get(i).get(j), deadline, checkedUris.get(i).get(j)))) {
+                        result = checkedUris.get(i).get(j);
                     }
                 }
+                if (result != null) {
+                    foundFiles.put(specs.get(i), result);
+                }
+                results.add(result);
             }
-            catch (Exception ignored) {
-                // no maven-metadata.xml file... hope this is laid out normally
+            return results;
+        }
+        finally {
+            for (List<Future<Boolean>> specProbes : probes) {
+                cancelAll(specProbes);
             }
         }
+    }
+
+    private List<URI> toUris(MavenCoordinates coordinates)
+    {
+        List<URI> uris = newArrayList();
+        for (URI repositoryBase : repositoryBases) {
+            // build the uri
+            HttpUriBuilder uriBuilder = uriBuilderFrom(repositoryBase);
+            uriBuilder.appendPath(coordinates.getGroupId().replace('.', '/'));
+            uriBuilder.appendPath(coordinates.getArtifactId());
+            uriBuilder.appendPath(coordinates.getVersion());
+
+            StringBuilder fileNameBuilder = new StringBuilder().append(coordinates.getArtifactId()).append('-').append(coordinates.getFileVersion());
+            if (coordinates.getClassifier() != null) {
+                fileNameBuilder.append('-').append(coordinates.getClassifier());
+            }
+            fileNameBuilder.append('.').append(coordinates.getPackaging());
+            uriBuilder.appendPath(fileNameBuilder.toString());
+
+            uris.add(uriBuilder.build());
+        }
+        return uris;
+    }
+
+    /**
+     * Loads the maven metadata files of every group from all repositories at
+     * once, and returns the timestamped snapshot in the first repository with
+     * a match, or null, for each group.
+     */
+    private List<MavenCoordinates> resolveSnapshotTimestamps(final MavenCoordinates coordinates, List<String> groupIds, final long deadline)
+    {
+        List<List<Future<MavenCoordinates>>> lookups = newArrayList();
+        try {
+            for (final String groupId : groupIds) {
+                List<Future<MavenCoordinates>> groupLookups = newArrayList();
+                for (final URI repositoryBase : repositoryBases) {
+                    groupLookups.add(probeExecutor.submit(new Callable<MavenCoordinates>()
+                    {
+                        @Override
+                        public MavenCoordinates call()
+                        {
+                            return resolveSnapshotTimestamp(coordinates, groupId, repositoryBase, deadline);
+                        }
+                    }));
+                }
+                lookups.add(groupLookups);
+            }
+
+            List<MavenCoordinates> results = newArrayList();
+            for (List<Future<MavenCoordinates>> groupLookups : lookups) {
+                MavenCoordinates result = null;
+                for (int i = 0; i < groupLookups.size() && result == null; i++) {
+                    result = getBeforeDeadline(groupLookups.get(i), deadline, repositoryBases.get(i));
+                }
+                results.add(result);
+            }
+            return results;
+        }
+        finally {
+            for (List<Future<MavenCoordinates>> groupLookups : lookups) {
+                cancelAll(groupLookups);
+            }
+        }
+    }
+
+    private MavenCoordinates resolveSnapshotTimestamp(MavenCoordinates coordinates, String groupId, URI repositoryBase, long deadline)
+    {
+        try {
+            // load maven metadata file
+            HttpUriBuilder uriBuilder = uriBuilderFrom(repositoryBase);
+            uriBuilder.appendPath(groupId.replace('.', '/'));
+            uriBuilder.appendPath(coordinates.getArtifactId());
+            uriBuilder.appendPath(coordinates.getVersion());
+            uriBuilder.appendPath("maven-metadata.xml");
+            URI uri = uriBuilder.build();
+            MavenMetadata metadata = MavenMetadata.unmarshalMavenMetadata(toString(uri, deadline));
+
+            for (SnapshotVersion snapshotVersion : metadata.versioning.snapshotVersions) {
+                if (coordinates.getPackaging().equals(snapshotVersion.extension) && Objects.equal(coordinates.getClassifier(), snapshotVersion.classifier)) {
+                    MavenCoordinates timestampSpec = new MavenCoordinates(groupId,
+                            coordinates.getArtifactId(),
+                            coordinates.getVersion(),
+                            coordinates.getPackaging(),
+                            coordinates.getClassifier(),
+                            snapshotVersion.value);
+
+                    return timestampSpec;
+                }
+            }
+        }
+        catch (Exception ignored) {
+            // no maven-metadata.xml file... hope this is laid out normally
+        }
         return null;
     }
 
-    private String toString(URI uri)
+    private String toString(URI uri, final long deadline)
             throws IOException
     {
         final URL url = uri.toURL();
@@ -403,33 +571,40 @@ public class MavenRepository implements Repository
                     HttpURLConnection httpConnection = (HttpURLConnection) connection;
                     httpConnection.addRequestProperty("User-Agent", "User-Agent: Apache-Maven/3.0.3 (Java 1.6.0_29; Mac OS X 10.7.2)");
                 }
+                setTimeouts(connection, deadline);
                 InputStream in = connection.getInputStream();
                 return new InputStreamReader(in, UTF_8);
             }
         });
     }
 
-    private boolean isValidBinary(URI uri)
+    private boolean isValidBinary(URI uri, long deadline)
     {
         log.debug("validating URI: %s", uri);
         try {
-            InputSupplier<InputStream> inputSupplier = Resources.newInputStreamSupplier(uri.toURL());
-            ByteStreams.readBytes(inputSupplier, new ByteProcessor<Void>()
-            {
-                private int count;
-
-                public boolean processBytes(byte[] buffer, int offset, int length)
-                {
-                    count += length;
-                    // make sure we got at least 10 bytes
-                    return count < 10;
+            URLConnection connection = uri.toURL().openConnection();
+            setTimeouts(connection, deadline);
+            if (connection instanceof HttpURLConnection) {
+                // the headers are enough to know the file exists, so don't download any of it
+                HttpURLConnection httpConnection = (HttpURLConnection) connection;
+                httpConnection.setRequestMethod("HEAD");
+                try {
+                    int responseCode = httpConnection.getResponseCode();
+                    if (responseCode / 100 == 2) {
+                        return true;
+                    }
+                    log.debug("URI does not exist: %s (%s)", uri, responseCode);
+                    return false;
                 }
-
-                public Void getResult()
-                {
-                    return null;
+                finally {
+                    httpConnection.disconnect();
                 }
-            });
+            }
+
+            try (InputStream in = connection.getInputStream()) {
+                // make sure the file can be read
+                in.read();
+            }
             return true;
         }
         catch (FileNotFoundException e) {
@@ -441,6 +616,47 @@ public class MavenRepository implements Repository
         return false;
     }
 
+    private static void setTimeouts(URLConnection connection, long deadline)
+    {
+        // a zero timeout means wait forever, so always allow at least a millisecond
+        int timeoutMillis = (int) Math.max(1, Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+    }
+
+    /**
+     * Returns the result of the probe, or null if the probe did not finish
+     * before the deadline or failed, so a slow repository is treated as not
+     * having the file and the remaining repositories are still checked.
+     */
+    private static <T> T getBeforeDeadline(Future<T> future, long deadline, Object target)
+    {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while resolving " + target, e);
+        }
+        catch (TimeoutException e) {
+            log.debug("Timed out probing %s", target);
+        }
+        catch (CancellationException e) {
+            log.debug("Probe of %s was cancelled", target);
+        }
+        catch (ExecutionException e) {
+            log.debug(e.getCause(), "Error probing %s", target);
+        }
+        return null;
+    }
+
+    private static void cancelAll(List<? extends Future<?>> futures)
+    {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
     @Override
     public String toString()
     {
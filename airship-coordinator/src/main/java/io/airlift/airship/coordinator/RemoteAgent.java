@@ -21,5 +21,5 @@ public interface RemoteAgent
 
     ListenableFuture<?> updateStatus();
 
-    void setServiceInventory(List<ServiceDescriptor> serviceInventory);
+    void setServiceInventory(List<ServiceDescriptor> serviceInventory, String serviceInventoryVersion);
 }
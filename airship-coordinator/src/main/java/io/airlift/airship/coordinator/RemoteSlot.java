@@ -1,5 +1,6 @@
 package io.airlift.airship.coordinator;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.airship.shared.SlotStatus;
 import io.airlift.airship.shared.Installation;
 
@@ -22,4 +23,16 @@ public interface RemoteSlot
     SlotStatus stop();
 
     SlotStatus kill();
+
+    ListenableFuture<SlotStatus> terminateAsync();
+
+    ListenableFuture<SlotStatus> assignAsync(Installation installation);
+
+    ListenableFuture<SlotStatus> startAsync();
+
+    ListenableFuture<SlotStatus> restartAsync();
+
+    ListenableFuture<SlotStatus> stopAsync();
+
+    ListenableFuture<SlotStatus> killAsync();
 }
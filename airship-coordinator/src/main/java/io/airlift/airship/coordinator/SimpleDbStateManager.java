@@ -3,33 +3,56 @@ package io.airlift.airship.coordinator;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.simpledb.AmazonSimpleDB;
 import com.amazonaws.services.simpledb.model.Attribute;
+import com.amazonaws.services.simpledb.model.BatchDeleteAttributesRequest;
+import com.amazonaws.services.simpledb.model.BatchPutAttributesRequest;
 import com.amazonaws.services.simpledb.model.CreateDomainRequest;
+import com.amazonaws.services.simpledb.model.DeletableItem;
 import com.amazonaws.services.simpledb.model.DeleteAttributesRequest;
 import com.amazonaws.services.simpledb.model.Item;
 import com.amazonaws.services.simpledb.model.PutAttributesRequest;
 import com.amazonaws.services.simpledb.model.ReplaceableAttribute;
+import com.amazonaws.services.simpledb.model.ReplaceableItem;
 import com.amazonaws.services.simpledb.model.SelectRequest;
 import com.amazonaws.services.simpledb.model.SelectResult;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.airlift.airship.shared.Assignment;
 import io.airlift.airship.shared.ExpectedSlotStatus;
 import io.airlift.airship.shared.SlotLifecycleState;
 import io.airlift.log.Logger;
 import io.airlift.node.NodeInfo;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newLinkedHashMap;
+import static com.google.common.collect.Sets.newLinkedHashSet;
 
 public class SimpleDbStateManager implements StateManager
 {
     private static final Logger log = Logger.get(SimpleDbStateManager.class);
+
+    // SimpleDB limits batch put and delete requests to 25 items
+    private static final int MAX_BATCH_SIZE = 25;
+    private static final String SEGMENT_PREFIXES = "0123456789abcdef";
+
     private final AmazonSimpleDB simpleDb;
     private final String domainName;
+    private final ExecutorService executor;
     private boolean domainCreated;
 
     @Inject
@@ -37,6 +60,13 @@ public class SimpleDbStateManager implements StateManager
     {
         this.simpleDb = simpleDb;
         domainName = "airship-" + nodeInfo.getEnvironment();
+        executor = Executors.newFixedThreadPool(SEGMENT_PREFIXES.length(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("SimpleDbStateManager-%s").build());
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        executor.shutdownNow();
     }
 
     @Override
@@ -45,23 +75,66 @@ public class SimpleDbStateManager implements StateManager
         List<ExpectedSlotStatus> slots = newArrayList();
         if (isDomainCreated()) {
             try {
-                String query = String.format("select itemName, state, binary, config from `%s`", domainName);
-                SelectResult select = simpleDb.select(new SelectRequest(query, true));
-                for (Item item : select.getItems()) {
-                    ExpectedSlotStatus expectedSlotStatus = loadSlotStatus(item);
-                    if (expectedSlotStatus != null) {
-                        slots.add(expectedSlotStatus);
-                    }
+                // item names are slot ids, so the domain is read as one segment per leading hex digit
+                List<Future<List<ExpectedSlotStatus>>> segments = newArrayList();
+                for (final char prefix : SEGMENT_PREFIXES.toCharArray()) {
+                    segments.add(executor.submit(new Callable<List<ExpectedSlotStatus>>()
+                    {
+                        @Override
+                        public List<ExpectedSlotStatus> call()
+                        {
+                            return loadSegment(prefix);
+                        }
+                    }));
+                }
+                for (Future<List<ExpectedSlotStatus>> segment : segments) {
+                    slots.addAll(getSegment(segment));
                 }
                 expectedStateStoreUp();
             }
             catch (Exception e) {
+                // let the caller distinguish a store failure from an empty store
                 expectedStateStoreDown(e);
+                throw Throwables.propagate(e);
             }
         }
         return slots;
     }
 
+    private List<ExpectedSlotStatus> loadSegment(char prefix)
+    {
+        String query = String.format("select itemName, state, binary, config from `%s` where itemName() like '%s%%'", domainName, prefix);
+        List<ExpectedSlotStatus> slots = newArrayList();
+        String nextToken = null;
+        do {
+            SelectResult select = simpleDb.select(new SelectRequest(query, true).withNextToken(nextToken));
+            for (Item item : select.getItems()) {
+                ExpectedSlotStatus expectedSlotStatus = loadSlotStatus(item);
+                if (expectedSlotStatus != null) {
+                    slots.add(expectedSlotStatus);
+                }
+            }
+            nextToken = select.getNextToken();
+        } while (nextToken != null);
+        return slots;
+    }
+
+    private static <T> T getSegment(Future<T> segment)
+            throws Exception
+    {
+        try {
+            return segment.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), Exception.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
     @Override
     public void deleteExpectedState(UUID slotId)
     {
@@ -89,15 +162,68 @@ public class SimpleDbStateManager implements StateManager
         Preconditions.checkNotNull(slotStatus, "slotStatus is null");
 
         if (isDomainCreated()) {
-            List<ReplaceableAttribute> attributes = newArrayList();
-            attributes.add(new ReplaceableAttribute("state", slotStatus.getStatus().toString(), true));
-            if (slotStatus.getAssignment() != null) {
-                attributes.add(new ReplaceableAttribute("binary", slotStatus.getAssignment().getBinary(), true));
-                attributes.add(new ReplaceableAttribute("config", slotStatus.getAssignment().getConfig(), true));
+            try {
+                simpleDb.putAttributes(new PutAttributesRequest().withDomainName(domainName).withItemName(slotStatus.getId().toString()).withAttributes(toAttributes(slotStatus)));
+                expectedStateStoreUp();
+            }
+            catch (Exception e) {
+                expectedStateStoreDown(e);
+            }
+        }
+    }
+
+    @Override
+    public void deleteExpectedStates(Iterable<UUID> slotIds)
+    {
+        Preconditions.checkNotNull(slotIds, "slotIds is null");
+
+        if (isDomainCreated()) {
+            // an item may only appear once in a batch
+            Set<String> itemNames = newLinkedHashSet();
+            for (UUID slotId : slotIds) {
+                itemNames.add(slotId.toString());
+            }
+
+            try {
+                for (List<String> batch : Iterables.partition(itemNames, MAX_BATCH_SIZE)) {
+                    List<DeletableItem> items = newArrayList();
+                    for (String itemName : batch) {
+                        List<Attribute> attributes = newArrayList();
+                        attributes.add(new Attribute("state", null));
+                        attributes.add(new Attribute("binary", null));
+                        attributes.add(new Attribute("config", null));
+                        items.add(new DeletableItem(itemName, attributes));
+                    }
+                    simpleDb.batchDeleteAttributes(new BatchDeleteAttributesRequest(domainName, items));
+                }
+                expectedStateStoreUp();
+            }
+            catch (Exception e) {
+                expectedStateStoreDown(e);
+            }
+        }
+    }
+
+    @Override
+    public void setExpectedStates(Iterable<ExpectedSlotStatus> slotStatuses)
+    {
+        Preconditions.checkNotNull(slotStatuses, "slotStatuses is null");
+
+        if (isDomainCreated()) {
+            // an item may only appear once in a batch, so the last status for a slot wins
+            Map<UUID, ExpectedSlotStatus> expectedStates = newLinkedHashMap();
+            for (ExpectedSlotStatus slotStatus : slotStatuses) {
+                expectedStates.put(slotStatus.getId(), slotStatus);
             }
 
             try {
-                simpleDb.putAttributes(new PutAttributesRequest().withDomainName(domainName).withItemName(slotStatus.getId().toString()).withAttributes(attributes));
+                for (List<ExpectedSlotStatus> batch : Iterables.partition(expectedStates.values(), MAX_BATCH_SIZE)) {
+                    List<ReplaceableItem> items = newArrayList();
+                    for (ExpectedSlotStatus slotStatus : batch) {
+                        items.add(new ReplaceableItem(slotStatus.getId().toString(), toAttributes(slotStatus)));
+                    }
+                    simpleDb.batchPutAttributes(new BatchPutAttributesRequest(domainName, items));
+                }
                 expectedStateStoreUp();
             }
             catch (Exception e) {
@@ -106,6 +232,17 @@ public class SimpleDbStateManager implements StateManager
         }
     }
 
+    private static List<ReplaceableAttribute> toAttributes(ExpectedSlotStatus slotStatus)
+    {
+        List<ReplaceableAttribute> attributes = newArrayList();
+        attributes.add(new ReplaceableAttribute("state", slotStatus.getStatus().toString(), true));
+        if (slotStatus.getAssignment() != null) {
+            attributes.add(new ReplaceableAttribute("binary", slotStatus.getAssignment().getBinary(), true));
+            attributes.add(new ReplaceableAttribute("config", slotStatus.getAssignment().getConfig(), true));
+        }
+        return attributes;
+    }
+
     private synchronized boolean isDomainCreated()
     {
         if (!domainCreated) {
@@ -14,6 +14,7 @@ import io.airlift.airship.shared.SlotStatus;
 import javax.annotation.Nullable;
 import javax.ws.rs.core.UriInfo;
 import java.net.URI;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map.Entry;
@@ -32,6 +33,16 @@ public class SlotFilterBuilder
     }
 
     public static Predicate<SlotStatus> build(UriInfo uriInfo, boolean filterRequired, List<UUID> allUuids)
+    {
+        return fromQueryParameters(uriInfo).buildPredicate(filterRequired, allUuids);
+    }
+
+    public static List<SlotStatus> select(UriInfo uriInfo, boolean filterRequired, SlotIndex slotIndex)
+    {
+        return fromQueryParameters(uriInfo).selectSlots(filterRequired, slotIndex);
+    }
+
+    private static SlotFilterBuilder fromQueryParameters(UriInfo uriInfo)
     {
         SlotFilterBuilder builder = new SlotFilterBuilder();
         for (Entry<String, List<String>> entry : uriInfo.getQueryParameters().entrySet()) {
@@ -99,7 +110,7 @@ public class SlotFilterBuilder
                 builder.selectAll();
             }
         }
-        return builder.buildPredicate(filterRequired, allUuids);
+        return builder;
     }
 
     private final List<SlotLifecycleState> stateFilters = Lists.newArrayListWithCapacity(6);
@@ -377,6 +388,130 @@ public class SlotFilterBuilder
         return Optional.of(Predicates.or(excludes));
     }
 
+    /**
+     * Selects the matching slots using the indexes instead of applying the
+     * predicate to every slot.  The result is the same as filtering the
+     * indexed slots with {@link #buildPredicate}.
+     */
+    public List<SlotStatus> selectSlots(boolean filterRequired, SlotIndex slotIndex)
+    {
+        Optional<BitSet> includes = selectIncludes(slotIndex);
+        Optional<BitSet> excludes = selectExcludes(slotIndex);
+
+        // if filter is required, make sure we got an include or exclude
+        if (filterRequired && !includes.isPresent() && !excludes.isPresent()) {
+            throw new InvalidSlotFilterException();
+        }
+
+        BitSet selected = includes.or(slotIndex.all());
+        if (excludes.isPresent()) {
+            selected.andNot(excludes.get());
+        }
+        return slotIndex.getSlots(selected);
+    }
+
+    private Optional<BitSet> selectIncludes(SlotIndex slotIndex)
+    {
+        // Filters are evaluated as: (uuid || uuid || uuid) && (state || state || state) && etc.
+        List<BitSet> andSelections = Lists.newArrayListWithCapacity(6);
+        if (!slotUuidFilters.isEmpty()) {
+            BitSet selection = new BitSet();
+            for (String shortId : slotUuidFilters) {
+                selection.or(slotIndex.withUuidPrefix(shortId));
+            }
+            andSelections.add(selection);
+        }
+        if (!stateFilters.isEmpty()) {
+            BitSet selection = new BitSet();
+            for (SlotLifecycleState state : stateFilters) {
+                selection.or(slotIndex.withState(state));
+            }
+            andSelections.add(selection);
+        }
+        if (!hostGlobs.isEmpty()) {
+            BitSet selection = new BitSet();
+            for (String hostGlob : hostGlobs) {
+                selection.or(slotIndex.withHost(hostGlobPredicate(hostGlob)));
+            }
+            andSelections.add(selection);
+        }
+        if (!machineGlobs.isEmpty()) {
+            BitSet selection = new BitSet();
+            for (String machineGlob : machineGlobs) {
+                selection.or(slotIndex.withMachine(new GlobPredicate(machineGlob)));
+            }
+            andSelections.add(selection);
+        }
+        if (!binaryGlobs.isEmpty()) {
+            BitSet selection = new BitSet();
+            for (String binaryGlob : binaryGlobs) {
+                selection.or(slotIndex.withBinary(specGlobPredicate(binaryGlob)));
+            }
+            andSelections.add(selection);
+        }
+        if (!configGlobs.isEmpty()) {
+            BitSet selection = new BitSet();
+            for (String configGlob : configGlobs) {
+                selection.or(slotIndex.withConfig(specGlobPredicate(configGlob)));
+            }
+            andSelections.add(selection);
+        }
+
+        // we evaluate all the explicit filters even if "all" was specified to catch errors
+        if (selectAll) {
+            return Optional.of(slotIndex.all());
+        }
+        else if (!andSelections.isEmpty()) {
+            BitSet selection = andSelections.get(0);
+            for (BitSet andSelection : andSelections.subList(1, andSelections.size())) {
+                selection.and(andSelection);
+            }
+            return Optional.of(selection);
+        }
+        return Optional.absent();
+    }
+
+    private Optional<BitSet> selectExcludes(SlotIndex slotIndex)
+    {
+        // If the slot matches any of the excludes it will not be considered
+        BitSet excludes = new BitSet();
+        for (String shortId : notSlotUuidFilters) {
+            excludes.or(slotIndex.withUuidPrefix(shortId));
+        }
+        for (SlotLifecycleState state : notStateFilters) {
+            excludes.or(slotIndex.withState(state));
+        }
+        for (String hostGlob : notHostGlobs) {
+            excludes.or(slotIndex.withHost(hostGlobPredicate(hostGlob)));
+        }
+        for (String machineGlob : notMachineGlobs) {
+            excludes.or(slotIndex.withMachine(new GlobPredicate(machineGlob)));
+        }
+        for (String binaryGlob : notBinaryGlobs) {
+            excludes.or(slotIndex.withBinary(specGlobPredicate(binaryGlob)));
+        }
+        for (String configGlob : notConfigGlobs) {
+            excludes.or(slotIndex.withConfig(specGlobPredicate(configGlob)));
+        }
+
+        boolean hasExcludes = !(notSlotUuidFilters.isEmpty() && notStateFilters.isEmpty() && notHostGlobs.isEmpty() &&
+                notMachineGlobs.isEmpty() && notBinaryGlobs.isEmpty() && notConfigGlobs.isEmpty());
+        if (!hasExcludes) {
+            return Optional.absent();
+        }
+        return Optional.of(excludes);
+    }
+
+    private static UriHostPredicate hostGlobPredicate(String hostGlob)
+    {
+        return new UriHostPredicate(hostGlob.toLowerCase());
+    }
+
+    private static GlobPredicate specGlobPredicate(String specFilter)
+    {
+        return new GlobPredicate("*" + specFilter + "*");
+    }
+
     public URI buildUri(URI baseUri)
     {
         HttpUriBuilder uriBuilder = HttpUriBuilder.uriBuilderFrom(baseUri);
@@ -471,7 +606,7 @@ public class SlotFilterBuilder
 
         public HostPredicate(String hostGlob)
         {
-            predicate = new UriHostPredicate(hostGlob.toLowerCase());
+            predicate = hostGlobPredicate(hostGlob);
         }
 
         @Override
@@ -523,7 +658,7 @@ public class SlotFilterBuilder
 
         public BinarySpecPredicate(String binaryFilter)
         {
-            glob = new GlobPredicate("*" + binaryFilter + "*");
+            glob = specGlobPredicate(binaryFilter);
         }
 
         @Override
@@ -542,7 +677,7 @@ public class SlotFilterBuilder
 
         public ConfigSpecPredicate(String configFilter)
         {
-            glob = new GlobPredicate("*" + configFilter + "*");
+            glob = specGlobPredicate(configFilter);
         }
 
         @Override
@@ -0,0 +1,188 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import io.airlift.airship.shared.SlotLifecycleState;
+import io.airlift.airship.shared.SlotStatus;
+
+import java.net.URI;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.UUID;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Maps.newTreeMap;
+import static java.lang.String.format;
+
+/**
+ * Snapshot of the slots with secondary indexes for the slot filters.  Glob
+ * filters are evaluated once per distinct host, machine, binary and config
+ * rather than once per slot, and uuid prefixes are resolved with a sorted map.
+ * Query results are sets of slot positions which are combined by the caller.
+ */
+public class SlotIndex
+{
+    private final List<SlotStatus> slots;
+    private final List<UUID> uuids;
+    private final NavigableMap<String, Integer> uuidIndex = newTreeMap();
+    private final Map<SlotLifecycleState, BitSet> stateIndex = new EnumMap<>(SlotLifecycleState.class);
+    private final Map<String, BitSet> hostIndex = newHashMap();
+    private final Map<String, URI> hostUris = newHashMap();
+    private final Map<String, BitSet> machineIndex = newHashMap();
+    private final Map<String, BitSet> binaryIndex = newHashMap();
+    private final Map<String, BitSet> configIndex = newHashMap();
+
+    public SlotIndex(List<SlotStatus> slots)
+    {
+        Preconditions.checkNotNull(slots, "slots is null");
+        this.slots = ImmutableList.copyOf(slots);
+
+        ImmutableList.Builder<UUID> uuids = ImmutableList.builder();
+        for (int position = 0; position < this.slots.size(); position++) {
+            SlotStatus slot = this.slots.get(position);
+            if (slot.getId() != null) {
+                uuids.add(slot.getId());
+                uuidIndex.put(slot.getId().toString().toLowerCase(), position);
+            }
+            if (slot.getState() != null) {
+                add(stateIndex, slot.getState(), position);
+            }
+            addHost(slot.getExternalUri(), position);
+            addHost(slot.getSelf(), position);
+            if (slot.getInstanceId() != null) {
+                add(machineIndex, slot.getInstanceId(), position);
+            }
+            if (slot.getAssignment() != null) {
+                add(binaryIndex, slot.getAssignment().getBinary(), position);
+                add(configIndex, slot.getAssignment().getConfig(), position);
+            }
+        }
+        this.uuids = uuids.build();
+    }
+
+    public List<SlotStatus> getSlots()
+    {
+        return slots;
+    }
+
+    public List<UUID> getUuids()
+    {
+        return uuids;
+    }
+
+    public List<SlotStatus> getSlots(BitSet positions)
+    {
+        ImmutableList.Builder<SlotStatus> selected = ImmutableList.builder();
+        for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+            selected.add(slots.get(position));
+        }
+        return selected.build();
+    }
+
+    public BitSet all()
+    {
+        BitSet positions = new BitSet(slots.size());
+        positions.set(0, slots.size());
+        return positions;
+    }
+
+    public BitSet withState(SlotLifecycleState state)
+    {
+        BitSet positions = stateIndex.get(state);
+        if (positions == null) {
+            return new BitSet();
+        }
+        return (BitSet) positions.clone();
+    }
+
+    public BitSet withHost(Predicate<URI> hostPredicate)
+    {
+        BitSet positions = new BitSet();
+        for (Entry<String, BitSet> entry : hostIndex.entrySet()) {
+            // host predicates only look at the host, so any uri with the host will do
+            if (hostPredicate.apply(hostUris.get(entry.getKey()))) {
+                positions.or(entry.getValue());
+            }
+        }
+        return positions;
+    }
+
+    public BitSet withMachine(Predicate<? super String> machinePredicate)
+    {
+        return select(machineIndex, machinePredicate);
+    }
+
+    public BitSet withBinary(Predicate<? super String> binaryPredicate)
+    {
+        return select(binaryIndex, binaryPredicate);
+    }
+
+    public BitSet withConfig(Predicate<? super String> configPredicate)
+    {
+        return select(configIndex, configPredicate);
+    }
+
+    /**
+     * Selects the slot with the uuid starting with the specified prefix.
+     *
+     * @throws IllegalArgumentException if more than one slot matches the prefix
+     */
+    public BitSet withUuidPrefix(String shortId)
+    {
+        Preconditions.checkNotNull(shortId, "shortId is null");
+        String prefix = shortId.toLowerCase();
+        NavigableMap<String, Integer> matches = uuidIndex.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+
+        BitSet positions = new BitSet();
+        for (Integer position : matches.values()) {
+            positions.set(position);
+        }
+
+        if (matches.size() > 1) {
+            throw new IllegalArgumentException(format("Ambiguous expansion for id '%s': %s", shortId, Lists.transform(getSlots(positions), SlotStatus.uuidGetter())));
+        }
+        return positions;
+    }
+
+    private void addHost(URI uri, int position)
+    {
+        if (uri == null || uri.getHost() == null) {
+            return;
+        }
+        String host = uri.getHost().toLowerCase();
+        if (!hostUris.containsKey(host)) {
+            hostUris.put(host, uri);
+        }
+        add(hostIndex, host, position);
+    }
+
+    private static BitSet select(Map<String, BitSet> index, Predicate<? super String> predicate)
+    {
+        BitSet positions = new BitSet();
+        for (Entry<String, BitSet> entry : index.entrySet()) {
+            if (predicate.apply(entry.getKey())) {
+                positions.or(entry.getValue());
+            }
+        }
+        return positions;
+    }
+
+    private static <K> void add(Map<K, BitSet> index, K key, int position)
+    {
+        if (key == null) {
+            return;
+        }
+        BitSet positions = index.get(key);
+        if (positions == null) {
+            positions = new BitSet();
+            index.put(key, positions);
+        }
+        positions.set(position);
+    }
+}
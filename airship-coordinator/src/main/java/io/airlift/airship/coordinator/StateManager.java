@@ -12,4 +12,8 @@ public interface StateManager
     void deleteExpectedState(UUID slotId);
 
     void setExpectedState(ExpectedSlotStatus slotStatus);
+
+    void deleteExpectedStates(Iterable<UUID> slotIds);
+
+    void setExpectedStates(Iterable<ExpectedSlotStatus> slotStatuses);
 }
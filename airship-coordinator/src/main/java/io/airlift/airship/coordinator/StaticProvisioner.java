@@ -5,6 +5,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.io.CharStreams;
 import com.google.common.io.Files;
@@ -21,8 +22,10 @@ import io.airlift.http.client.StringResponseHandler.StringResponse;
 import io.airlift.json.JsonCodec;
 import io.airlift.log.Logger;
 import io.airlift.node.NodeInfo;
+import io.airlift.units.Duration;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
 import javax.ws.rs.core.UriBuilder;
 
@@ -32,9 +35,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.common.base.Objects.firstNonNull;
@@ -57,6 +64,14 @@ public class StaticProvisioner
     private final AsyncHttpClient httpClient;
     private final JsonCodec<CoordinatorStatusRepresentation> coordinatorCodec;
     private final JsonCodec<AgentStatusRepresentation> agentCodec;
+    private final long agentsRefreshNanos;
+
+    @GuardedBy("this")
+    private List<String> agentLines = ImmutableList.of();
+    @GuardedBy("this")
+    private Map<URI, Instance> resolvedAgents = ImmutableMap.of();
+    @GuardedBy("this")
+    private long nextAgentsRefresh = System.nanoTime();
 
     private final AtomicBoolean coordinatorsResourceIsUp = new AtomicBoolean(true);
     private final AtomicBoolean agentsResourceIsUp = new AtomicBoolean(true);
@@ -74,7 +89,8 @@ public class StaticProvisioner
                 nodeInfo,
                 httpClient,
                 coordinatorCodec,
-                agentCodec);
+                agentCodec,
+                config.getAgentsRefreshInterval());
     }
 
     public StaticProvisioner(URI coordinatorsUri,
@@ -83,6 +99,17 @@ public class StaticProvisioner
             AsyncHttpClient httpClient,
             JsonCodec<CoordinatorStatusRepresentation> coordinatorCodec,
             JsonCodec<AgentStatusRepresentation> agentCodec)
+    {
+        this(coordinatorsUri, agentsUri, nodeInfo, httpClient, coordinatorCodec, agentCodec, new StaticProvisionerConfig().getAgentsRefreshInterval());
+    }
+
+    public StaticProvisioner(URI coordinatorsUri,
+            URI agentsUri,
+            NodeInfo nodeInfo,
+            AsyncHttpClient httpClient,
+            JsonCodec<CoordinatorStatusRepresentation> coordinatorCodec,
+            JsonCodec<AgentStatusRepresentation> agentCodec,
+            Duration agentsRefreshInterval)
     {
         Preconditions.checkNotNull(coordinatorsUri, "coordinatorsUri is null");
         Preconditions.checkNotNull(agentsUri, "agentsUri is null");
@@ -90,12 +117,14 @@ public class StaticProvisioner
         Preconditions.checkNotNull(httpClient, "httpClient is null");
         Preconditions.checkNotNull(coordinatorCodec, "coordinatorCodec is null");
         Preconditions.checkNotNull(agentCodec, "agentCodec is null");
+        Preconditions.checkNotNull(agentsRefreshInterval, "agentsRefreshInterval is null");
 
         this.nodeInfo = nodeInfo;
         this.httpClient = httpClient;
 
         this.coordinatorCodec = coordinatorCodec;
         this.agentCodec = agentCodec;
+        this.agentsRefreshNanos = agentsRefreshInterval.roundTo(TimeUnit.NANOSECONDS);
 
         this.agentsUri = agentsUri;
         String agentsUriScheme = agentsUri.getScheme().toLowerCase();
@@ -153,35 +182,65 @@ public class StaticProvisioner
         throw new UnsupportedOperationException("Static provisioner does not support coordinator provisioning");
     }
 
+    /**
+     * Agents are only contacted when they are added to the agents list, when
+     * they could not be reached the last time, or on the refresh interval.
+     * Otherwise the instances from the last listing are returned, since the
+     * coordinator polls the status of every agent anyway.
+     */
     @Override
-    public List<Instance> listAgents()
+    public synchronized List<Instance> listAgents()
     {
         List<String> lines = readLines("agents", agentsUri, agentsResourceIsUp);
 
+        boolean refresh = !lines.equals(agentLines) || System.nanoTime() - nextAgentsRefresh >= 0;
+        if (refresh) {
+            agentLines = ImmutableList.copyOf(lines);
+            nextAgentsRefresh = System.nanoTime() + agentsRefreshNanos;
+        }
+
         List<URI> agentUris = FluentIterable.from(lines)
                 .transform(validAgentUri())
                 .filter(notNull())
                 .toList();
 
-        List<ListenableFuture<Instance>> futures = new ArrayList<>();
+        Set<URI> unreachableAgents = Collections.newSetFromMap(new ConcurrentHashMap<URI, Boolean>());
+        Map<URI, ListenableFuture<Instance>> futures = new LinkedHashMap<>();
         for (URI agentUri : agentUris) {
-            futures.add(getAgentInstance(agentUri));
+            Instance instance = resolvedAgents.get(agentUri);
+            if (refresh || instance == null) {
+                futures.put(agentUri, getAgentInstance(agentUri, unreachableAgents));
+            }
+            else {
+                futures.put(agentUri, Futures.immediateFuture(instance));
+            }
         }
-        return Futures.getUnchecked(Futures.allAsList(futures));
+        List<Instance> instances = Futures.getUnchecked(Futures.allAsList(futures.values()));
+
+        // only remember agents that answered, so unreachable agents are retried on the next listing
+        ImmutableMap.Builder<URI, Instance> resolved = ImmutableMap.builder();
+        for (Entry<URI, ListenableFuture<Instance>> entry : futures.entrySet()) {
+            if (!unreachableAgents.contains(entry.getKey())) {
+                resolved.put(entry.getKey(), Futures.getUnchecked(entry.getValue()));
+            }
+        }
+        resolvedAgents = resolved.build();
+
+        return instances;
     }
 
-    private ListenableFuture<Instance> getAgentInstance(URI agentUri)
+    private ListenableFuture<Instance> getAgentInstance(URI agentUri, Set<URI> unreachableAgents)
     {
         URI uri = uriBuilderFrom(agentUri).replacePath("/v1/agent").build();
         Request request = prepareGet().setUri(uri).build();
         SettableFuture<Instance> future = SettableFuture.create();
         Futures.addCallback(
                 httpClient.executeAsync(request, validate(createJsonResponseHandler(agentCodec))),
-                agentStatusCallback(future, agentUri));
+                agentStatusCallback(future, agentUri, unreachableAgents));
         return future;
     }
 
-    private FutureCallback<AgentStatusRepresentation> agentStatusCallback(final SettableFuture<Instance> future, final URI uri)
+    private FutureCallback<AgentStatusRepresentation> agentStatusCallback(final SettableFuture<Instance> future, final URI uri, final Set<URI> unreachableAgents)
     {
         return new FutureCallback<AgentStatusRepresentation>()
         {
@@ -199,6 +258,7 @@ public class StaticProvisioner
             public void onFailure(Throwable t)
             {
                 log.debug(t, "Failed to get agent status");
+                unreachableAgents.add(uri);
                 String hostAndPort = uri.getHost() + ":" + uri.getPort();
                 future.set(new Instance(hostAndPort, "unknown", null, uri, uri));
             }
@@ -1,14 +1,18 @@
 package io.airlift.airship.coordinator;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
 
 import javax.validation.constraints.NotNull;
 import java.net.URI;
+import java.util.concurrent.TimeUnit;
 
 public class StaticProvisionerConfig
 {
     private URI coordinatorsUri = URI.create("file:etc/coordinators.txt");
     private URI agentsUri = URI.create("file:etc/agents.txt");
+    private Duration agentsRefreshInterval = new Duration(5, TimeUnit.MINUTES);
 
     @NotNull
     public URI getCoordinatorsUri()
@@ -35,4 +39,18 @@ public class StaticProvisionerConfig
         this.agentsUri = agentsUri;
         return this;
     }
+
+    @NotNull
+    public Duration getAgentsRefreshInterval()
+    {
+        return agentsRefreshInterval;
+    }
+
+    @Config("coordinator.agents-refresh-interval")
+    @ConfigDescription("How often agents in an unchanged agents list are contacted to refresh their instance information")
+    public StaticProvisionerConfig setAgentsRefreshInterval(Duration agentsRefreshInterval)
+    {
+        this.agentsRefreshInterval = agentsRefreshInterval;
+        return this;
+    }
 }
@@ -38,6 +38,10 @@ public class AuthFilter
     public static final String AUTHORIZED_KEY_ATTRIBUTE = "AuthorizedKey";
     private static final Duration MAX_REQUEST_TIME_SKEW = new Duration(5, TimeUnit.MINUTES);
 
+    // agents download binaries and config bundles from the artifact cache without signing the request,
+    // just as they would from the repository
+    private static final String ARTIFACT_PATH = "/v1/artifact/";
+
     private final SignatureVerifier verifier;
     private final boolean enabled;
 
@@ -74,6 +78,11 @@ public class AuthFilter
         HttpServletRequest request = (HttpServletRequest) servletRequest;
         HttpServletResponse response = (HttpServletResponse) servletResponse;
 
+        if (isArtifactDownload(request)) {
+            chain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+
         // get authorization headers
         ArrayList<String> authorizations = Collections.list(request.getHeaders("Authorization"));
         if (authorizations.isEmpty()) {
@@ -185,6 +194,13 @@ public class AuthFilter
         writer.close();
     }
 
+    private static boolean isArtifactDownload(HttpServletRequest request)
+    {
+        String method = request.getMethod();
+        String path = request.getRequestURI();
+        return ("GET".equals(method) || "HEAD".equals(method)) && path != null && path.startsWith(ARTIFACT_PATH) && !path.contains("..");
+    }
+
     private static String getRequestUri(HttpServletRequest request)
     {
         String uri = request.getRequestURI();
@@ -73,7 +73,7 @@ public class MockRemoteAgent implements RemoteAgent
     }
 
     @Override
-    public synchronized void setServiceInventory(List<ServiceDescriptor> serviceInventory)
+    public synchronized void setServiceInventory(List<ServiceDescriptor> serviceInventory, String serviceInventoryVersion)
     {
     }
 
@@ -1,11 +1,13 @@
 package io.airlift.airship.coordinator;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.airlift.airship.shared.SlotStatus;
 import io.airlift.airship.shared.Installation;
 
 import java.util.UUID;
 
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
 import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
 import static io.airlift.airship.shared.SlotLifecycleState.TERMINATED;
@@ -91,4 +93,40 @@ public class MockRemoteSlot implements RemoteSlot
     {
         return stop();
     }
+
+    @Override
+    public ListenableFuture<SlotStatus> terminateAsync()
+    {
+        return immediateFuture(terminate());
+    }
+
+    @Override
+    public ListenableFuture<SlotStatus> assignAsync(Installation installation)
+    {
+        return immediateFuture(assign(installation));
+    }
+
+    @Override
+    public ListenableFuture<SlotStatus> startAsync()
+    {
+        return immediateFuture(start());
+    }
+
+    @Override
+    public ListenableFuture<SlotStatus> restartAsync()
+    {
+        return immediateFuture(restart());
+    }
+
+    @Override
+    public ListenableFuture<SlotStatus> stopAsync()
+    {
+        return immediateFuture(stop());
+    }
+
+    @Override
+    public ListenableFuture<SlotStatus> killAsync()
+    {
+        return immediateFuture(kill());
+    }
 }
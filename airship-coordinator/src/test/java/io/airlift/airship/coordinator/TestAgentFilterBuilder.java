@@ -10,6 +10,9 @@ import io.airlift.airship.coordinator.AgentFilterBuilder.SlotUuidPredicate;
 import io.airlift.airship.coordinator.AgentFilterBuilder.StatePredicate;
 import io.airlift.airship.coordinator.AgentFilterBuilder.UuidPredicate;
 import io.airlift.airship.shared.AgentStatus;
+import io.airlift.airship.shared.Assignment;
+import io.airlift.airship.shared.Installation;
+import io.airlift.airship.shared.InstallationUtils;
 import io.airlift.airship.shared.MockUriInfo;
 import io.airlift.airship.shared.Repository;
 import io.airlift.airship.shared.SlotStatus;
@@ -256,6 +259,35 @@ public class TestAgentFilterBuilder
         }
     }
 
+    @Test
+    public void testAssignablePredicateWithInstallation()
+            throws Exception
+    {
+        TestingMavenRepository repository = new TestingMavenRepository();
+        try {
+            // the installation is used instead of reading the resources from the config bundle
+            Assignment resolvedBanana = InstallationUtils.resolveAssignment(repository, BANANA_ASSIGNMENT);
+            Installation installation = new Installation("banana",
+                    resolvedBanana,
+                    URI.create("fake://localhost/banana.tar.gz"),
+                    URI.create("fake://localhost/banana.config"),
+                    ImmutableMap.of("memory", 4096));
+            assertFalse(new AssignablePredicate(BANANA_ASSIGNMENT, true, repository, installation).apply(status));
+            assertFalse(AgentFilterBuilder.build(MockUriInfo.from("fake://localhost?assignable=" + BANANA_ASSIGNMENT.getBinary() + BANANA_ASSIGNMENT.getConfig()),
+                    ImmutableList.<String>of(),
+                    ImmutableList.<UUID>of(),
+                    true,
+                    repository,
+                    installation).apply(status));
+
+            // an installation for a different assignment is ignored
+            assertTrue(new AssignablePredicate(APPLE_ASSIGNMENT, true, repository, installation).apply(status));
+        }
+        finally {
+            repository.destroy();
+        }
+    }
+
     @Test
     public void testNullFields()
     {
@@ -0,0 +1,69 @@
+package io.airlift.airship.coordinator;
+
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertTrue;
+
+public class TestAgentPollPolicy
+{
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(5);
+    private static final long FAST_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_INTERVAL = TimeUnit.SECONDS.toNanos(60);
+
+    private final AgentPollPolicy policy = new AgentPollPolicy(
+            new Duration(5, TimeUnit.SECONDS),
+            new Duration(1, TimeUnit.SECONDS),
+            new Duration(60, TimeUnit.SECONDS),
+            new Random(42));
+
+    @Test
+    public void testInitialDelaySpreadAcrossInterval()
+    {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.getInitialDelayNanos();
+            assertTrue(delay >= 0 && delay < INTERVAL, "delay " + delay);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        assertTrue(min < INTERVAL / 10, "min " + min);
+        assertTrue(max > INTERVAL * 9 / 10, "max " + max);
+    }
+
+    @Test
+    public void testHealthyAgent()
+    {
+        for (int i = 0; i < 100; i++) {
+            assertJittered(policy.getNextDelayNanos(0, false), INTERVAL);
+        }
+    }
+
+    @Test
+    public void testBusyAgent()
+    {
+        for (int i = 0; i < 100; i++) {
+            assertJittered(policy.getNextDelayNanos(0, true), FAST_INTERVAL);
+        }
+    }
+
+    @Test
+    public void testBackoff()
+    {
+        assertJittered(policy.getNextDelayNanos(1, false), FAST_INTERVAL);
+        assertJittered(policy.getNextDelayNanos(2, true), 2 * FAST_INTERVAL);
+        assertJittered(policy.getNextDelayNanos(3, false), 4 * FAST_INTERVAL);
+        assertJittered(policy.getNextDelayNanos(6, false), 32 * FAST_INTERVAL);
+        assertJittered(policy.getNextDelayNanos(7, false), MAX_INTERVAL);
+        assertJittered(policy.getNextDelayNanos(1000, false), MAX_INTERVAL);
+    }
+
+    private static void assertJittered(long delay, long expected)
+    {
+        assertTrue(delay >= expected * 0.8 && delay <= expected * 1.2, String.format("delay %s is not within 20%% of %s", delay, expected));
+    }
+}
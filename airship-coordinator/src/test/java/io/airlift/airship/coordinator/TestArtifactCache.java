@@ -0,0 +1,230 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import io.airlift.airship.coordinator.ArtifactCache.CachedArtifact;
+import io.airlift.airship.shared.Installation;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestArtifactCache
+{
+    private static final URI BASE_URI = URI.create("http://coordinator:8080");
+
+    private File tempDir;
+    private File repoDir;
+    private File cacheDir;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        tempDir = createTempDir("artifact-cache");
+        repoDir = new File(tempDir, "repo");
+        repoDir.mkdirs();
+        cacheDir = new File(tempDir, "cache");
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        if (tempDir != null) {
+            deleteRecursively(tempDir);
+        }
+    }
+
+    @Test
+    public void testCachedInstallation()
+            throws Exception
+    {
+        ArtifactCache cache = new ArtifactCache(BASE_URI, cacheDir, new Duration(1, TimeUnit.MINUTES));
+
+        Installation installation = new Installation("apple",
+                APPLE_ASSIGNMENT,
+                URI.create("http://repo/apple-1.0.tar.gz"),
+                URI.create("http://repo/apple-1.0.config"),
+                ImmutableMap.of("memory", 512));
+        Installation cachedInstallation = cache.toCachedInstallation(installation);
+
+        assertEquals(cachedInstallation.getAssignment(), installation.getAssignment());
+        assertEquals(cachedInstallation.getResources(), installation.getResources());
+        assertEquals(cachedInstallation.getBinaryFile(), BASE_URI.resolve("/v1/artifact/" + sha1("http://repo/apple-1.0.tar.gz")));
+        assertEquals(cachedInstallation.getConfigFile(), BASE_URI.resolve("/v1/artifact/" + sha1("http://repo/apple-1.0.config")));
+    }
+
+    @Test
+    public void testGet()
+            throws Exception
+    {
+        File artifactFile = writeArtifact("apple.tar.gz", "apple");
+        ArtifactCache cache = new ArtifactCache(BASE_URI, cacheDir, new Duration(1, TimeUnit.MINUTES));
+        String key = getKey(cache.register(artifactFile.toURI()));
+
+        CachedArtifact artifact = cache.get(key);
+        assertNotNull(artifact);
+        assertEquals(Files.toString(artifact.getFile(), Charsets.UTF_8), "apple");
+        assertEquals(artifact.getSha1(), Hashing.sha1().hashString("apple", Charsets.UTF_8).toString());
+
+        // the cached copy is used until it must be revalidated
+        writeArtifact("apple.tar.gz", "changed");
+        assertEquals(Files.toString(cache.get(key).getFile(), Charsets.UTF_8), "apple");
+
+        // registrations and artifacts survive a restart
+        ArtifactCache reloaded = new ArtifactCache(BASE_URI, cacheDir, new Duration(1, TimeUnit.MINUTES));
+        assertEquals(reloaded.get(key).getSha1(), artifact.getSha1());
+    }
+
+    @Test
+    public void testRevalidate()
+            throws Exception
+    {
+        File artifactFile = writeArtifact("apple.tar.gz", "apple");
+        ArtifactCache cache = new ArtifactCache(BASE_URI, cacheDir, new Duration(0, TimeUnit.MILLISECONDS));
+        String key = getKey(cache.register(artifactFile.toURI()));
+        assertEquals(Files.toString(cache.get(key).getFile(), Charsets.UTF_8), "apple");
+
+        writeArtifact("apple.tar.gz", "changed");
+        CachedArtifact artifact = cache.get(key);
+        assertEquals(Files.toString(artifact.getFile(), Charsets.UTF_8), "changed");
+        assertEquals(artifact.getSha1(), Hashing.sha1().hashString("changed", Charsets.UTF_8).toString());
+
+        // the cached copy is served while the repository is unavailable
+        assertTrue(artifactFile.delete());
+        assertEquals(cache.get(key).getSha1(), artifact.getSha1());
+    }
+
+    @Test
+    public void testEviction()
+            throws Exception
+    {
+        File appleFile = writeArtifact("apple.tar.gz", "apple");
+        File bananaFile = writeArtifact("banana.tar.gz", "banana");
+        ArtifactCache cache = new ArtifactCache(BASE_URI, cacheDir, new Duration(1, TimeUnit.MINUTES), new DataSize(10, Unit.BYTE));
+        String appleKey = getKey(cache.register(appleFile.toURI()));
+        String bananaKey = getKey(cache.register(bananaFile.toURI()));
+
+        assertNotNull(cache.get(appleKey));
+        assertEquals(cache.getArtifacts(), ImmutableList.of(appleKey));
+
+        // the least recently used artifact is removed
+        assertNotNull(cache.get(bananaKey));
+        assertEquals(cache.getArtifacts(), ImmutableList.of(bananaKey));
+        assertEquals(cache.getSizeBytes(), "banana".length());
+
+        // an evicted artifact is still registered and is downloaded again
+        assertEquals(Files.toString(cache.get(appleKey).getFile(), Charsets.UTF_8), "apple");
+        assertEquals(cache.getArtifacts(), ImmutableList.of(appleKey));
+
+        // the size is restored after a restart
+        ArtifactCache reloaded = new ArtifactCache(BASE_URI, cacheDir, new Duration(1, TimeUnit.MINUTES), new DataSize(10, Unit.BYTE));
+        assertEquals(reloaded.getArtifacts(), ImmutableList.of(appleKey));
+        assertEquals(reloaded.getSizeBytes(), "apple".length());
+    }
+
+    @Test
+    public void testHungRepository()
+            throws Exception
+    {
+        // the repository accepts connections but never responds
+        try (ServerSocket repository = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            final ArtifactCache cache = new ArtifactCache(BASE_URI,
+                    cacheDir,
+                    new Duration(1, TimeUnit.MINUTES),
+                    new DataSize(10, Unit.GIGABYTE),
+                    new Duration(1, TimeUnit.SECONDS),
+                    new Duration(2, TimeUnit.SECONDS),
+                    new Duration(100, TimeUnit.MILLISECONDS));
+            final String key = getKey(cache.register(URI.create("http://127.0.0.1:" + repository.getLocalPort() + "/apple-1.0.tar.gz")));
+
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<CachedArtifact> download = executor.submit(new Callable<CachedArtifact>()
+                {
+                    @Override
+                    public CachedArtifact call()
+                            throws Exception
+                    {
+                        return cache.get(key);
+                    }
+                });
+
+                // a request waiting for the hung download gives up
+                Thread.sleep(200);
+                long start = System.nanoTime();
+                try {
+                    cache.get(key);
+                    fail("expected IOException");
+                }
+                catch (IOException expected) {
+                }
+                assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+                // the download itself fails at the read timeout
+                try {
+                    download.get(10, TimeUnit.SECONDS);
+                    fail("expected ExecutionException");
+                }
+                catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IOException, String.valueOf(e.getCause()));
+                }
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void testUnknownArtifact()
+            throws Exception
+    {
+        ArtifactCache cache = new ArtifactCache(BASE_URI, cacheDir, new Duration(1, TimeUnit.MINUTES));
+        assertNull(cache.get(sha1("unknown")));
+    }
+
+    private File writeArtifact(String name, String contents)
+            throws Exception
+    {
+        File file = new File(repoDir, name);
+        Files.write(contents, file, Charsets.UTF_8);
+        return file;
+    }
+
+    static String getKey(URI uri)
+    {
+        String path = uri.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static String sha1(String value)
+    {
+        return Hashing.sha1().hashString(value, Charsets.UTF_8).toString();
+    }
+}
@@ -0,0 +1,219 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.Variant;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.net.HttpHeaders.CONTENT_RANGE;
+import static io.airlift.airship.coordinator.TestArtifactCache.getKey;
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class TestArtifactResource
+{
+    private static final String CONTENTS = "0123456789";
+    private static final EntityTag ENTITY_TAG = new EntityTag(Hashing.sha1().hashString(CONTENTS, Charsets.UTF_8).toString());
+
+    private File tempDir;
+    private ArtifactResource resource;
+    private String key;
+
+    @BeforeMethod
+    public void setUp()
+            throws Exception
+    {
+        tempDir = createTempDir("artifact-resource");
+        File artifactFile = new File(tempDir, "apple.tar.gz");
+        Files.write(CONTENTS, artifactFile, Charsets.UTF_8);
+
+        ArtifactCache cache = new ArtifactCache(URI.create("http://coordinator:8080"), new File(tempDir, "cache"), new Duration(1, TimeUnit.MINUTES));
+        key = getKey(cache.register(artifactFile.toURI()));
+        resource = new ArtifactResource(cache);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        if (tempDir != null) {
+            deleteRecursively(tempDir);
+        }
+    }
+
+    @Test
+    public void testGetArtifact()
+            throws Exception
+    {
+        Response response = resource.getArtifact(key, null, null, new TestingRequest(null));
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        assertEquals(readEntity(response), CONTENTS);
+        assertEquals(response.getMetadata().getFirst("ETag"), ENTITY_TAG);
+    }
+
+    @Test
+    public void testNotModified()
+    {
+        Response response = resource.getArtifact(key, null, null, new TestingRequest(ENTITY_TAG));
+        assertEquals(response.getStatus(), Status.NOT_MODIFIED.getStatusCode());
+    }
+
+    @Test
+    public void testRange()
+            throws Exception
+    {
+        Response response = resource.getArtifact(key, "bytes=2-5", null, new TestingRequest(null));
+        assertEquals(response.getStatus(), 206);
+        assertEquals(readEntity(response), "2345");
+        assertEquals(response.getMetadata().getFirst(CONTENT_RANGE), "bytes 2-5/10");
+
+        response = resource.getArtifact(key, "bytes=7-", ENTITY_TAG.toString(), new TestingRequest(null));
+        assertEquals(response.getStatus(), 206);
+        assertEquals(readEntity(response), "789");
+
+        response = resource.getArtifact(key, "bytes=-3", null, new TestingRequest(null));
+        assertEquals(response.getStatus(), 206);
+        assertEquals(readEntity(response), "789");
+
+        // end of range past the end of the artifact
+        response = resource.getArtifact(key, "bytes=8-100", null, new TestingRequest(null));
+        assertEquals(readEntity(response), "89");
+    }
+
+    @Test
+    public void testInvalidRange()
+            throws Exception
+    {
+        Response response = resource.getArtifact(key, "bytes=10-", null, new TestingRequest(null));
+        assertEquals(response.getStatus(), 416);
+        assertEquals(response.getMetadata().getFirst(CONTENT_RANGE), "bytes */10");
+
+        // the whole artifact is sent when the client has a different version
+        response = resource.getArtifact(key, "bytes=2-5", "\"other\"", new TestingRequest(null));
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        assertEquals(readEntity(response), CONTENTS);
+
+        // multiple ranges are answered with the whole artifact
+        response = resource.getArtifact(key, "bytes=0-1,4-5", null, new TestingRequest(null));
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        assertEquals(readEntity(response), CONTENTS);
+    }
+
+    @Test
+    public void testArtifactReplacedWhileServing()
+            throws Exception
+    {
+        File artifactFile = new File(tempDir, "banana.tar.gz");
+        Files.write(CONTENTS, artifactFile, Charsets.UTF_8);
+        ArtifactCache cache = new ArtifactCache(URI.create("http://coordinator:8080"), new File(tempDir, "revalidated-cache"), new Duration(0, TimeUnit.MILLISECONDS));
+        String key = getKey(cache.register(artifactFile.toURI()));
+        ArtifactResource resource = new ArtifactResource(cache);
+
+        Response response = resource.getArtifact(key, "bytes=2-", null, new TestingRequest(null));
+
+        // a revalidation replaces the artifact before the response is written
+        Files.write("changed", artifactFile, Charsets.UTF_8);
+        assertEquals(cache.get(key).getSha1(), Hashing.sha1().hashString("changed", Charsets.UTF_8).toString());
+
+        // the response still matches the advertised version of the artifact
+        assertEquals(response.getMetadata().getFirst(CONTENT_RANGE), "bytes 2-9/10");
+        assertEquals(response.getMetadata().getFirst("ETag"), ENTITY_TAG);
+        assertEquals(readEntity(response), CONTENTS.substring(2));
+    }
+
+    @Test
+    public void testChecksum()
+    {
+        Response response = resource.getArtifactChecksum(key);
+        assertEquals(response.getEntity(), ENTITY_TAG.getValue());
+    }
+
+    @Test
+    public void testUnknownArtifact()
+    {
+        try {
+            resource.getArtifact(Hashing.sha1().hashString("unknown", Charsets.UTF_8).toString(), null, null, new TestingRequest(null));
+            fail("expected WebApplicationException");
+        }
+        catch (WebApplicationException e) {
+            assertEquals(e.getResponse().getStatus(), Status.NOT_FOUND.getStatusCode());
+        }
+    }
+
+    private static String readEntity(Response response)
+            throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(out);
+        return new String(out.toByteArray(), Charsets.UTF_8);
+    }
+
+    private static class TestingRequest
+            implements Request
+    {
+        private final EntityTag ifNoneMatch;
+
+        private TestingRequest(EntityTag ifNoneMatch)
+        {
+            this.ifNoneMatch = ifNoneMatch;
+        }
+
+        @Override
+        public String getMethod()
+        {
+            return "GET";
+        }
+
+        @Override
+        public Variant selectVariant(List<Variant> variants)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ResponseBuilder evaluatePreconditions(EntityTag eTag)
+        {
+            if (eTag.equals(ifNoneMatch)) {
+                return Response.notModified(eTag);
+            }
+            return null;
+        }
+
+        @Override
+        public ResponseBuilder evaluatePreconditions(Date lastModified)
+        {
+            return null;
+        }
+
+        @Override
+        public ResponseBuilder evaluatePreconditions(Date lastModified, EntityTag eTag)
+        {
+            return evaluatePreconditions(eTag);
+        }
+
+        @Override
+        public ResponseBuilder evaluatePreconditions()
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.airlift.airship.coordinator;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.google.common.collect.ImmutableList;
+import io.airlift.http.server.HttpServerConfig;
+import io.airlift.http.server.HttpServerInfo;
+import io.airlift.node.NodeInfo;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.airship.coordinator.TestingMavenRepository.MOCK_REPO;
+import static org.testng.Assert.assertEquals;
+
+public class TestAwsProvisioner
+{
+    private TestingEc2 ec2;
+    private AwsProvisioner provisioner;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        ec2 = new TestingEc2();
+        ec2.addInstance("i-coordinator", "coordinator", "test", 8080);
+        ec2.addInstance("i-agent-1", "agent", "test", 8081);
+        ec2.addInstance("i-agent-2", "agent", "test", 8081);
+        ec2.addInstance("i-other", "agent", "other", 8081);
+
+        NodeInfo nodeInfo = new NodeInfo("test");
+        provisioner = new AwsProvisioner(new BasicAWSCredentials("access-key", "secret-key"),
+                ec2,
+                nodeInfo,
+                new HttpServerInfo(new HttpServerConfig(), nodeInfo),
+                MOCK_REPO,
+                new CoordinatorConfig(),
+                new AwsProvisionerConfig()
+                        .setAirshipVersion("0.7-SNAPSHOT")
+                        .setInstanceRefreshInterval(new Duration(1, TimeUnit.HOURS)));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        provisioner.stop();
+    }
+
+    @Test
+    public void testListingsShareCachedInstances()
+    {
+        assertInstanceIds(provisioner.listCoordinators(), "i-coordinator");
+        assertInstanceIds(provisioner.listAgents(), "i-agent-1", "i-agent-2");
+        assertEquals(ec2.getDescribeRequests(), 1);
+
+        // new instances are not visible until the cache is refreshed
+        ec2.addInstance("i-agent-3", "agent", "test", 8081);
+        assertInstanceIds(provisioner.listAgents(), "i-agent-1", "i-agent-2");
+        assertEquals(ec2.getDescribeRequests(), 1);
+    }
+
+    @Test
+    public void testBackgroundRefresh()
+            throws Exception
+    {
+        provisioner.listAgents();
+        provisioner.terminateAgents(ImmutableList.of("i-agent-1"));
+        ec2.addInstance("i-agent-3", "agent", "test", 8081);
+
+        // the scheduled refresh runs immediately
+        provisioner.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!instanceIds(provisioner.listAgents()).contains("i-agent-3") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertInstanceIds(provisioner.listAgents(), "i-agent-2", "i-agent-3");
+    }
+
+    private static void assertInstanceIds(List<Instance> instances, String... instanceIds)
+    {
+        assertEquals(instanceIds(instances), ImmutableList.copyOf(instanceIds));
+    }
+
+    private static List<String> instanceIds(List<Instance> instances)
+    {
+        ImmutableList.Builder<String> instanceIds = ImmutableList.builder();
+        for (Instance instance : instances) {
+            instanceIds.add(instance.getInstanceId());
+        }
+        return instanceIds.build();
+    }
+}
@@ -50,6 +50,7 @@ public class TestAwsProvisionerConfig
                 .setS3KeystoreBucket(null)
                 .setS3KeystorePath(null)
                 .setS3KeystoreRefreshInterval(new Duration(10, TimeUnit.SECONDS))
+                .setInstanceRefreshInterval(new Duration(10, TimeUnit.SECONDS))
         );
     }
 
@@ -73,6 +74,7 @@ public class TestAwsProvisionerConfig
                 .put("coordinator.aws.s3-keystore.bucket", "bucket")
                 .put("coordinator.aws.s3-keystore.path", "path")
                 .put("coordinator.aws.s3-keystore.refresh", "30s")
+                .put("coordinator.aws.instance.refresh", "1m")
                 .build();
 
         AwsProvisionerConfig expected = new AwsProvisionerConfig()
@@ -91,7 +93,8 @@ public class TestAwsProvisionerConfig
                 .setAwsAgentDefaultInstanceType("a-t1.micro")
                 .setS3KeystoreBucket("bucket")
                 .setS3KeystorePath("path")
-                .setS3KeystoreRefreshInterval(new Duration(30, TimeUnit.SECONDS));
+                .setS3KeystoreRefreshInterval(new Duration(30, TimeUnit.SECONDS))
+                .setInstanceRefreshInterval(new Duration(1, TimeUnit.MINUTES));
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
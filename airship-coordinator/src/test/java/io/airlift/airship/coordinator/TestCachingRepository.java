@@ -0,0 +1,275 @@
+package io.airlift.airship.coordinator;
+
+import io.airlift.airship.shared.Repository;
+import io.airlift.units.Duration;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
+
+public class TestCachingRepository
+{
+    private static final Duration ONE_HOUR = new Duration(1, TimeUnit.HOURS);
+    private static final Duration ZERO = new Duration(0, TimeUnit.MILLISECONDS);
+
+    private CountingRepository delegate;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        delegate = new CountingRepository();
+    }
+
+    @Test
+    public void testCachesResults()
+    {
+        CachingRepository repository = new CachingRepository(delegate, ONE_HOUR, ONE_HOUR, ONE_HOUR, 100);
+
+        assertEquals(repository.binaryResolve("apple:1.0"), "food.fruit:apple:1.0");
+        assertEquals(repository.binaryResolve("apple:1.0"), "food.fruit:apple:1.0");
+        assertEquals(repository.binaryToHttpUri("food.fruit:apple:1.0"), URI.create("http://repo/food.fruit:apple:1.0"));
+        assertEquals(repository.binaryToHttpUri("food.fruit:apple:1.0"), URI.create("http://repo/food.fruit:apple:1.0"));
+        assertEquals(delegate.getCalls(), 2);
+
+        assertEquals(repository.getHits(), 2);
+        assertEquals(repository.getMisses(), 2);
+        assertEquals(repository.getHitRate(), 0.5);
+
+        // version comparisons are not cached
+        repository.binaryEqualsIgnoreVersion("apple:1.0", "apple:2.0");
+        repository.binaryEqualsIgnoreVersion("apple:1.0", "apple:2.0");
+        assertEquals(delegate.getCalls(), 4);
+
+        repository.flush();
+        repository.binaryResolve("apple:1.0");
+        assertEquals(delegate.getCalls(), 5);
+    }
+
+    @Test
+    public void testNegativeCaching()
+    {
+        CachingRepository repository = new CachingRepository(delegate, ONE_HOUR, ONE_HOUR, ONE_HOUR, 100);
+        assertNull(repository.binaryResolve("unknown:1.0"));
+        assertNull(repository.binaryResolve("unknown:1.0"));
+        assertEquals(delegate.getCalls(), 1);
+        assertEquals(repository.getNegativeHits(), 1);
+
+        repository = new CachingRepository(delegate, ONE_HOUR, ONE_HOUR, ZERO, 100);
+        assertNull(repository.binaryResolve("unknown:1.0"));
+        assertNull(repository.binaryResolve("unknown:1.0"));
+        assertEquals(delegate.getCalls(), 3);
+    }
+
+    @Test
+    public void testSnapshotTtl()
+    {
+        CachingRepository repository = new CachingRepository(delegate, ONE_HOUR, ZERO, ONE_HOUR, 100);
+
+        repository.binaryResolve("apple:2.0-SNAPSHOT");
+        repository.binaryResolve("apple:2.0-SNAPSHOT");
+        assertEquals(delegate.getCalls(), 2);
+
+        repository.binaryUpgrade("food.fruit:apple:1.0", "2.0-SNAPSHOT");
+        repository.binaryUpgrade("food.fruit:apple:1.0", "2.0-SNAPSHOT");
+        assertEquals(delegate.getCalls(), 4);
+
+        repository.binaryResolve("apple:1.0");
+        repository.binaryResolve("apple:1.0");
+        assertEquals(delegate.getCalls(), 5);
+    }
+
+    @Test
+    public void testMaxSize()
+    {
+        CachingRepository repository = new CachingRepository(delegate, ONE_HOUR, ONE_HOUR, ONE_HOUR, 2);
+        repository.binaryResolve("apple:1.0");
+        repository.binaryResolve("banana:1.0");
+        repository.binaryResolve("cherry:1.0");
+        assertEquals(repository.getSize(), 2);
+
+        // the oldest entry was evicted
+        repository.binaryResolve("apple:1.0");
+        assertEquals(delegate.getCalls(), 4);
+    }
+
+    @Test
+    public void testFailuresAreNotCached()
+    {
+        CachingRepository repository = new CachingRepository(delegate, ONE_HOUR, ONE_HOUR, ONE_HOUR, 100);
+        for (int i = 0; i < 2; i++) {
+            try {
+                repository.binaryResolve("fail:1.0");
+                fail("expected RuntimeException");
+            }
+            catch (RuntimeException expected) {
+            }
+        }
+        assertEquals(delegate.getCalls(), 2);
+        assertEquals(repository.getLoadFailures(), 2);
+    }
+
+    @Test
+    public void testConcurrentLookupsShareLoad()
+            throws Exception
+    {
+        final CachingRepository repository = new CachingRepository(delegate, ONE_HOUR, ONE_HOUR, ONE_HOUR, 100);
+        delegate.block();
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Callable<String> resolve = new Callable<String>()
+            {
+                @Override
+                public String call()
+                {
+                    return repository.binaryResolve("apple:1.0");
+                }
+            };
+            Future<String> first = executor.submit(resolve);
+            delegate.awaitCall();
+            Future<String> second = executor.submit(resolve);
+
+            // wait for the second lookup to join the load in progress
+            while (repository.getMisses() < 2) {
+                Thread.sleep(10);
+            }
+            delegate.unblock();
+
+            assertEquals(first.get(1, TimeUnit.MINUTES), "food.fruit:apple:1.0");
+            assertEquals(second.get(1, TimeUnit.MINUTES), "food.fruit:apple:1.0");
+            assertEquals(delegate.getCalls(), 1);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class CountingRepository
+            implements Repository
+    {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch called = new CountDownLatch(1);
+        private volatile CountDownLatch blocked = new CountDownLatch(0);
+
+        public int getCalls()
+        {
+            return calls.get();
+        }
+
+        public void block()
+        {
+            blocked = new CountDownLatch(1);
+        }
+
+        public void unblock()
+        {
+            blocked.countDown();
+        }
+
+        public void awaitCall()
+                throws InterruptedException
+        {
+            called.await();
+        }
+
+        private String lookup(String name)
+        {
+            calls.incrementAndGet();
+            called.countDown();
+            try {
+                blocked.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+
+            if (name.startsWith("fail")) {
+                throw new RuntimeException("repository unavailable");
+            }
+            if (name.startsWith("unknown")) {
+                return null;
+            }
+            return name.startsWith("food.fruit:") ? name : "food.fruit:" + name;
+        }
+
+        @Override
+        public String configShortName(String config)
+        {
+            return config;
+        }
+
+        @Override
+        public String configRelativize(String config)
+        {
+            return config;
+        }
+
+        @Override
+        public String configResolve(String config)
+        {
+            return lookup(config);
+        }
+
+        @Override
+        public String configUpgrade(String config, String version)
+        {
+            return lookup(config + version);
+        }
+
+        @Override
+        public boolean configEqualsIgnoreVersion(String config1, String config2)
+        {
+            calls.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public URI configToHttpUri(String config)
+        {
+            return URI.create("http://repo/" + lookup(config));
+        }
+
+        @Override
+        public String binaryRelativize(String binary)
+        {
+            return binary;
+        }
+
+        @Override
+        public String binaryResolve(String binary)
+        {
+            return lookup(binary);
+        }
+
+        @Override
+        public String binaryUpgrade(String binary, String version)
+        {
+            return lookup(binary + version);
+        }
+
+        @Override
+        public boolean binaryEqualsIgnoreVersion(String binary1, String binary2)
+        {
+            calls.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public URI binaryToHttpUri(String binary)
+        {
+            return URI.create("http://repo/" + lookup(binary));
+        }
+    }
+}
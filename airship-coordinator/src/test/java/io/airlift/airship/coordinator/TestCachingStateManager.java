@@ -0,0 +1,189 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.collect.ImmutableSet;
+import io.airlift.airship.shared.ExpectedSlotStatus;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class TestCachingStateManager
+{
+    private final UUID apple = UUID.randomUUID();
+    private final UUID banana = UUID.randomUUID();
+
+    private FailingStateManager delegate;
+    private CachingStateManager stateManager;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        delegate = new FailingStateManager();
+        delegate.setExpectedState(new ExpectedSlotStatus(apple, RUNNING, APPLE_ASSIGNMENT));
+
+        // reconcile is called directly by the tests, so start() is not called
+        stateManager = new CachingStateManager(delegate, new Duration(1, TimeUnit.HOURS));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        stateManager.stop();
+    }
+
+    @Test
+    public void testHitsAndMisses()
+    {
+        assertEquals(slotIds(stateManager.getAllExpectedStates()), ImmutableSet.of(apple));
+        assertEquals(stateManager.getMisses(), 1);
+        assertEquals(stateManager.getHits(), 0);
+
+        // served from memory
+        delegate.clearAll();
+        assertEquals(slotIds(stateManager.getAllExpectedStates()), ImmutableSet.of(apple));
+        assertEquals(stateManager.getMisses(), 1);
+        assertEquals(stateManager.getHits(), 1);
+    }
+
+    @Test
+    public void testWriteThrough()
+    {
+        stateManager.getAllExpectedStates();
+
+        stateManager.setExpectedState(new ExpectedSlotStatus(banana, STOPPED, BANANA_ASSIGNMENT));
+        assertEquals(slotIds(stateManager.getAllExpectedStates()), ImmutableSet.of(apple, banana));
+        assertEquals(slotIds(delegate.getAllExpectedStates()), ImmutableSet.of(apple, banana));
+
+        stateManager.deleteExpectedState(apple);
+        assertEquals(slotIds(stateManager.getAllExpectedStates()), ImmutableSet.of(banana));
+        assertEquals(slotIds(delegate.getAllExpectedStates()), ImmutableSet.of(banana));
+    }
+
+    @Test
+    public void testReconcile()
+    {
+        stateManager.getAllExpectedStates();
+
+        // another coordinator changes the store
+        delegate.deleteExpectedState(apple);
+        delegate.setExpectedState(new ExpectedSlotStatus(banana, RUNNING, BANANA_ASSIGNMENT));
+        assertEquals(slotIds(stateManager.getAllExpectedStates()), ImmutableSet.of(apple));
+
+        stateManager.reconcile();
+        assertEquals(slotIds(stateManager.getAllExpectedStates()), ImmutableSet.of(banana));
+        assertEquals(stateManager.getReconcileChanges(), 2);
+        assertEquals(stateManager.getReconciles(), 2);
+    }
+
+    @Test
+    public void testReconcileFailure()
+    {
+        stateManager.getAllExpectedStates();
+
+        delegate.setFailing(true);
+        try {
+            stateManager.reconcile();
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException expected) {
+        }
+        assertEquals(stateManager.getReconcileFailures(), 1);
+
+        // the cached states are still served
+        assertEquals(slotIds(stateManager.getAllExpectedStates()), ImmutableSet.of(apple));
+    }
+
+    @Test
+    public void testInitialLoadFailure()
+    {
+        // nothing is cached, so the failure is not hidden behind an empty result
+        delegate.setFailing(true);
+        try {
+            stateManager.getAllExpectedStates();
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException expected) {
+        }
+        assertEquals(stateManager.getReconcileFailures(), 1);
+
+        // the next read loads again
+        delegate.setFailing(false);
+        assertEquals(slotIds(stateManager.getAllExpectedStates()), ImmutableSet.of(apple));
+        assertEquals(stateManager.getMisses(), 2);
+    }
+
+    @Test
+    public void testReconcileRacingWrite()
+    {
+        stateManager.getAllExpectedStates();
+        final ExpectedSlotStatus bananaStatus = new ExpectedSlotStatus(banana, RUNNING, BANANA_ASSIGNMENT);
+
+        // write while the reconcile is loading from the store
+        delegate.setAfterLoad(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                delegate.setAfterLoad(null);
+                stateManager.setExpectedState(bananaStatus);
+            }
+        });
+        assertEquals(slotIds(stateManager.reconcile()), ImmutableSet.of(apple));
+
+        // the racing reconcile was discarded, so the write is not lost
+        assertEquals(slotIds(stateManager.getAllExpectedStates()), ImmutableSet.of(apple, banana));
+        assertEquals(stateManager.getReconciles(), 1);
+    }
+
+    private static Set<UUID> slotIds(Collection<ExpectedSlotStatus> expectedStates)
+    {
+        ImmutableSet.Builder<UUID> slotIds = ImmutableSet.builder();
+        for (ExpectedSlotStatus expectedState : expectedStates) {
+            slotIds.add(expectedState.getId());
+        }
+        return slotIds.build();
+    }
+
+    private static class FailingStateManager
+            extends InMemoryStateManager
+    {
+        private volatile boolean failing;
+        private volatile Runnable afterLoad;
+
+        public void setFailing(boolean failing)
+        {
+            this.failing = failing;
+        }
+
+        public void setAfterLoad(Runnable afterLoad)
+        {
+            this.afterLoad = afterLoad;
+        }
+
+        @Override
+        public Collection<ExpectedSlotStatus> getAllExpectedStates()
+        {
+            if (failing) {
+                throw new IllegalStateException("store is down");
+            }
+            Collection<ExpectedSlotStatus> expectedStates = super.getAllExpectedStates();
+            Runnable afterLoad = this.afterLoad;
+            if (afterLoad != null) {
+                afterLoad.run();
+            }
+            return expectedStates;
+        }
+    }
+}
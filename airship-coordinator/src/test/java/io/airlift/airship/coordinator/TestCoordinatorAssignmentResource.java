@@ -13,11 +13,15 @@
  */
 package io.airlift.airship.coordinator;
 
+import com.google.common.collect.ConcurrentHashMultiset;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Multiset;
+import com.google.common.reflect.Reflection;
 import io.airlift.airship.shared.AgentStatus;
 import io.airlift.airship.shared.MockUriInfo;
+import io.airlift.airship.shared.Repository;
 import io.airlift.airship.shared.SlotLifecycleState;
 import io.airlift.airship.shared.SlotStatus;
 import io.airlift.airship.shared.SlotStatusRepresentation;
@@ -31,6 +35,9 @@ import org.testng.annotations.Test;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URI;
 import java.util.Collection;
 import java.util.UUID;
@@ -59,6 +66,7 @@ public class TestCoordinatorAssignmentResource
     private UUID apple1SlotId;
     private UUID apple2SlotId;
     private UUID bananaSlotId;
+    private final Multiset<String> repositoryCalls = ConcurrentHashMultiset.create();
 
     @BeforeMethod
     public void setup()
@@ -72,10 +80,11 @@ public class TestCoordinatorAssignmentResource
                 new CoordinatorConfig().setStatusExpiration(new Duration(1, TimeUnit.DAYS)),
                 provisioner.getCoordinatorFactory(),
                 provisioner.getAgentFactory(),
-                MOCK_REPO,
+                countingRepository(MOCK_REPO, repositoryCalls),
                 provisioner,
                 new InMemoryStateManager(),
-                new MockServiceInventory());
+                new MockServiceInventory(),
+                new FanOutExecutor(new CoordinatorConfig()));
         resource = new CoordinatorAssignmentResource(coordinator, MOCK_REPO);
 
         apple1SlotId = UUID.randomUUID();
@@ -170,6 +179,20 @@ public class TestCoordinatorAssignmentResource
         assertEquals(bananaStatus.getAssignment(), BANANA_ASSIGNMENT);
     }
 
+    @Test
+    public void testUpgradeResolvesEachAssignmentOnce()
+    {
+        repositoryCalls.clear();
+        UpgradeVersions upgradeVersions = new UpgradeVersions("2.0", "2.0");
+        resource.upgrade(upgradeVersions, MockUriInfo.from("http://localhost/v1/slot/assignment?host=apple*"), null, false);
+
+        // both apple slots share one resolved assignment and installation
+        assertEquals(repositoryCalls.count("binaryUpgrade"), 1);
+        assertEquals(repositoryCalls.count("configUpgrade"), 1);
+        assertEquals(repositoryCalls.count("binaryToHttpUri"), 1);
+        assertEquals(repositoryCalls.count("configToHttpUri"), 1);
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".* single binary.*food.fruit:apple:1.0, food.fruit:banana:2.0-SNAPSHOT")
     public void testUpgradeDifferentBinaries()
     {
@@ -227,4 +250,23 @@ public class TestCoordinatorAssignmentResource
         assertEqualsNoOrder((Collection<?>) response.getEntity(), builder.build());
         assertNull(response.getMetadata().get("Content-Type")); // content type is set by jersey based on @Produces
     }
+
+    private static Repository countingRepository(final Repository repository, final Multiset<String> calls)
+    {
+        return Reflection.newProxy(Repository.class, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable
+            {
+                calls.add(method.getName());
+                try {
+                    return method.invoke(repository, args);
+                }
+                catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        });
+    }
 }
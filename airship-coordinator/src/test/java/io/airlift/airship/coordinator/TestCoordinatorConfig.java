@@ -3,6 +3,8 @@ package io.airlift.airship.coordinator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.airlift.configuration.testing.ConfigAssertions;
+import io.airlift.units.DataSize;
+import io.airlift.units.DataSize.Unit;
 import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
@@ -18,10 +20,33 @@ public class TestCoordinatorConfig
     {
         ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(CoordinatorConfig.class)
                 .setStatusExpiration(new Duration(5, TimeUnit.SECONDS))
+                .setStatusStreamEnabled(true)
+                .setStatusStreamMaxWait(new Duration(30, TimeUnit.SECONDS))
+                .setStatusResyncInterval(new Duration(1, TimeUnit.MINUTES))
+                .setStatusFastPollInterval(new Duration(1, TimeUnit.SECONDS))
+                .setStatusMaxPollInterval(new Duration(2, TimeUnit.MINUTES))
+                .setExpectedStateReconcileInterval(new Duration(1, TimeUnit.MINUTES))
+                .setFanOutMaxThreads(50)
+                .setFanOutMaxQueuedTasks(1000)
+                .setFanOutMaxTasksPerAgent(1)
                 .setServiceInventoryCacheDir("service-inventory-cache")
+                .setArtifactCacheEnabled(false)
+                .setArtifactCacheDir("artifact-cache")
+                .setArtifactCacheRevalidateInterval(new Duration(1, TimeUnit.MINUTES))
+                .setArtifactCacheMaxSize(new DataSize(10, Unit.GIGABYTE))
+                .setArtifactCacheConnectTimeout(new Duration(10, TimeUnit.SECONDS))
+                .setArtifactCacheReadTimeout(new Duration(1, TimeUnit.MINUTES))
+                .setArtifactCacheMaxFetchWait(new Duration(10, TimeUnit.MINUTES))
+                .setPeerDistributionMaxPeers(0)
+                .setRepositoryCacheReleaseTtl(new Duration(10, TimeUnit.MINUTES))
+                .setRepositoryCacheSnapshotTtl(new Duration(30, TimeUnit.SECONDS))
+                .setRepositoryCacheNegativeTtl(new Duration(10, TimeUnit.SECONDS))
+                .setRepositoryCacheMaxSize(10000)
                 .setAllowDuplicateInstallationsOnAnAgent(false)
                 .setRepositories("")
                 .setDefaultRepositoryGroupId("")
+                .setRepositoryResolveTimeout(new Duration(30, TimeUnit.SECONDS))
+                .setRepositoryProbeThreads(16)
                 .setHttpShortNamePattern(DEFAULT_HTTP_SHORT_NAME_PATTERN)
                 .setHttpRepoBinaryVersionPattern(null)
                 .setHttpRepoConfigVersionPattern(null)
@@ -33,10 +58,33 @@ public class TestCoordinatorConfig
     {
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("coordinator.status.expiration", "1m")
+                .put("coordinator.status.stream-enabled", "false")
+                .put("coordinator.status.stream-max-wait", "10s")
+                .put("coordinator.status.resync-interval", "5m")
+                .put("coordinator.status.fast-poll-interval", "500ms")
+                .put("coordinator.status.max-poll-interval", "10m")
+                .put("coordinator.expected-state.reconcile-interval", "30s")
+                .put("coordinator.fan-out.max-threads", "10")
+                .put("coordinator.fan-out.max-queued-tasks", "20")
+                .put("coordinator.fan-out.max-tasks-per-agent", "2")
                 .put("coordinator.service-inventory.cache-dir", "si-cache")
+                .put("coordinator.artifact-cache.enabled", "true")
+                .put("coordinator.artifact-cache.dir", "a-cache")
+                .put("coordinator.artifact-cache.revalidate-interval", "5m")
+                .put("coordinator.artifact-cache.max-size", "1GB")
+                .put("coordinator.artifact-cache.connect-timeout", "1s")
+                .put("coordinator.artifact-cache.read-timeout", "20s")
+                .put("coordinator.artifact-cache.max-fetch-wait", "2m")
+                .put("coordinator.peer-distribution.max-peers", "8")
+                .put("coordinator.repository-cache.release-ttl", "1h")
+                .put("coordinator.repository-cache.snapshot-ttl", "5s")
+                .put("coordinator.repository-cache.negative-ttl", "1s")
+                .put("coordinator.repository-cache.max-size", "50")
                 .put("coordinator.allow-duplicate-installations-on-an-agent", "true")
                 .put("coordinator.repository", "repo1,repo2,repo3")
                 .put("coordinator.default-group-id", "group1,group2,group3")
+                .put("coordinator.repository.resolve-timeout", "5s")
+                .put("coordinator.repository.probe-threads", "4")
                 .put("coordinator.http-repo.short-name-pattern", "shortNamePattern")
                 .put("coordinator.http-repo.binary-version-pattern", "binaryVersionPattern")
                 .put("coordinator.http-repo.config-version-pattern", "configVersionPattern")
@@ -44,10 +92,33 @@ public class TestCoordinatorConfig
 
         CoordinatorConfig expected = new CoordinatorConfig()
                 .setStatusExpiration(new Duration(1, TimeUnit.MINUTES))
+                .setStatusStreamEnabled(false)
+                .setStatusStreamMaxWait(new Duration(10, TimeUnit.SECONDS))
+                .setStatusResyncInterval(new Duration(5, TimeUnit.MINUTES))
+                .setStatusFastPollInterval(new Duration(500, TimeUnit.MILLISECONDS))
+                .setStatusMaxPollInterval(new Duration(10, TimeUnit.MINUTES))
+                .setExpectedStateReconcileInterval(new Duration(30, TimeUnit.SECONDS))
+                .setFanOutMaxThreads(10)
+                .setFanOutMaxQueuedTasks(20)
+                .setFanOutMaxTasksPerAgent(2)
                 .setServiceInventoryCacheDir("si-cache")
+                .setArtifactCacheEnabled(true)
+                .setArtifactCacheDir("a-cache")
+                .setArtifactCacheRevalidateInterval(new Duration(5, TimeUnit.MINUTES))
+                .setArtifactCacheMaxSize(new DataSize(1, Unit.GIGABYTE))
+                .setArtifactCacheConnectTimeout(new Duration(1, TimeUnit.SECONDS))
+                .setArtifactCacheReadTimeout(new Duration(20, TimeUnit.SECONDS))
+                .setArtifactCacheMaxFetchWait(new Duration(2, TimeUnit.MINUTES))
+                .setPeerDistributionMaxPeers(8)
+                .setRepositoryCacheReleaseTtl(new Duration(1, TimeUnit.HOURS))
+                .setRepositoryCacheSnapshotTtl(new Duration(5, TimeUnit.SECONDS))
+                .setRepositoryCacheNegativeTtl(new Duration(1, TimeUnit.SECONDS))
+                .setRepositoryCacheMaxSize(50)
                 .setAllowDuplicateInstallationsOnAnAgent(true)
                 .setRepositories(ImmutableList.of("repo1", "repo2", "repo3"))
                 .setDefaultRepositoryGroupId(ImmutableList.of("group1", "group2", "group3"))
+                .setRepositoryResolveTimeout(new Duration(5, TimeUnit.SECONDS))
+                .setRepositoryProbeThreads(4)
                 .setHttpShortNamePattern("shortNamePattern")
                 .setHttpRepoBinaryVersionPattern("binaryVersionPattern")
                 .setHttpRepoConfigVersionPattern("configVersionPattern");
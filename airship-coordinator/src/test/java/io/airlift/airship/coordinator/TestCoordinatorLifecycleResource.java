@@ -80,7 +80,8 @@ public class TestCoordinatorLifecycleResource
                 MOCK_REPO,
                 provisioner,
                 new InMemoryStateManager(),
-                new MockServiceInventory());
+                new MockServiceInventory(),
+                new FanOutExecutor(new CoordinatorConfig()));
         resource = new CoordinatorLifecycleResource(coordinator, MOCK_REPO);
 
         apple1SlotId = UUID.randomUUID();
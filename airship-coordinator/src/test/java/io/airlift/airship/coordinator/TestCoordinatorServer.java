@@ -57,6 +57,7 @@ import org.testng.annotations.Test;
 import javax.inject.Singleton;
 import javax.ws.rs.core.Response.Status;
 
+import java.io.File;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
@@ -71,6 +72,8 @@ import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
 import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
 import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
 import static io.airlift.airship.shared.ExtraAssertions.assertEqualsNoOrder;
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
 import static io.airlift.airship.shared.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
 import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
@@ -99,6 +102,7 @@ public class TestCoordinatorServer
     private MockProvisioner provisioner;
     private InMemoryStateManager stateManager;
     private Repository repository;
+    private File artifactCacheDir;
 
     private final JsonCodec<List<CoordinatorStatusRepresentation>> coordinatorStatusesCodec = listJsonCodec(CoordinatorStatusRepresentation.class);
     private final JsonCodec<List<AgentStatusRepresentation>> agentStatusesCodec = listJsonCodec(AgentStatusRepresentation.class);
@@ -117,6 +121,7 @@ public class TestCoordinatorServer
     public void startServer()
             throws Exception
     {
+        artifactCacheDir = createTempDir("artifact-cache");
         Map<String, String> properties = ImmutableMap.<String, String>builder()
                 .put("airship.version", "123")
                 .put("node.id", "this-coordinator-instance-id")
@@ -130,6 +135,8 @@ public class TestCoordinatorServer
                 .put("coordinator.aws.agent.keypair", "keypair")
                 .put("coordinator.aws.agent.security-group", "default")
                 .put("coordinator.aws.agent.default-instance-type", "t1.micro")
+                .put("coordinator.artifact-cache.enabled", "true")
+                .put("coordinator.artifact-cache.dir", artifactCacheDir.getAbsolutePath())
                 .build();
 
         Injector injector = Guice.createInjector(new TestingHttpServerModule(),
@@ -255,6 +262,9 @@ public class TestCoordinatorServer
         if (server != null) {
             server.stop();
         }
+        if (artifactCacheDir != null) {
+            deleteRecursively(artifactCacheDir);
+        }
     }
 
     @Test
@@ -61,7 +61,8 @@ public class TestCoordinatorSlotResource
                 repository,
                 provisioner,
                 new InMemoryStateManager(),
-                new MockServiceInventory());
+                new MockServiceInventory(),
+                new FanOutExecutor(new CoordinatorConfig()));
         resource = new CoordinatorSlotResource(coordinator, repository);
     }
 
@@ -0,0 +1,114 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestFanOutExecutor
+{
+    private FanOutExecutor executor;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        executor = new FanOutExecutor(2, 2, 1);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        executor.stop();
+    }
+
+    @Test
+    public void testInvokeAll()
+    {
+        List<Integer> results = executor.invokeAll(ImmutableList.of(1, 2, 3), new Function<Integer, Integer>()
+        {
+            @Override
+            public Integer apply(Integer input)
+            {
+                return input * 10;
+            }
+        });
+        assertEquals(results, ImmutableList.of(10, 20, 30));
+        assertEquals(executor.getSubmittedTasks(), 3);
+        assertEquals(executor.getCompletedTasks(), 3);
+        assertEquals(executor.getFailedTasks(), 0);
+    }
+
+    @Test
+    public void testCallerRunsWhenSaturated()
+            throws Exception
+    {
+        // two threads and two queue slots, so the fifth task runs in the caller
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+        final Set<Integer> ranInCaller = Sets.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+        List<Integer> results = executor.invokeAll(ImmutableList.of(1, 2, 3, 4, 5), new Function<Integer, Integer>()
+        {
+            @Override
+            public Integer apply(Integer input)
+            {
+                if (Thread.currentThread() == caller) {
+                    ranInCaller.add(input);
+                    release.countDown();
+                }
+                else {
+                    try {
+                        assertTrue(release.await(10, TimeUnit.SECONDS));
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                }
+                return input;
+            }
+        });
+
+        assertEquals(results, ImmutableList.of(1, 2, 3, 4, 5));
+        assertEquals(ranInCaller.size(), 1);
+        assertEquals(executor.getCallerRunsTasks(), 1);
+        assertTrue(executor.getThreads() <= 2);
+    }
+
+    @Test
+    public void testFailures()
+    {
+        try {
+            executor.invokeAll(ImmutableList.of(1, 2, 3), new Function<Integer, Integer>()
+            {
+                @Override
+                public Integer apply(Integer input)
+                {
+                    if (input != 2) {
+                        throw new IllegalStateException("failed " + input);
+                    }
+                    return input;
+                }
+            });
+            fail("expected RuntimeException");
+        }
+        catch (RuntimeException e) {
+            assertEquals(e.getMessage(), "failed 1");
+            assertEquals(e.getSuppressed().length, 2);
+        }
+        assertEquals(executor.getFailedTasks(), 2);
+        assertEquals(executor.getCompletedTasks(), 3);
+    }
+}
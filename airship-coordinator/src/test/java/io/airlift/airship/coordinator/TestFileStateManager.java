@@ -0,0 +1,206 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import io.airlift.airship.shared.ExpectedSlotStatus;
+import io.airlift.json.JsonCodec;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestFileStateManager
+{
+    private final JsonCodec<ExpectedSlotStatus> codec = JsonCodec.jsonCodec(ExpectedSlotStatus.class);
+    private File dataDir;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        dataDir = createTempDir("expected-state");
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        deleteRecursively(dataDir);
+    }
+
+    @Test
+    public void testReplayLog()
+    {
+        UUID apple = UUID.randomUUID();
+        UUID banana = UUID.randomUUID();
+
+        FileStateManager stateManager = new FileStateManager(dataDir, codec, 100);
+        stateManager.setExpectedState(new ExpectedSlotStatus(apple, STOPPED, APPLE_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(banana, RUNNING, BANANA_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(apple, RUNNING, APPLE_ASSIGNMENT));
+        stateManager.deleteExpectedState(banana);
+        stateManager.stop();
+
+        assertExpectedStates(stateManager, ImmutableMap.of(apple, "running " + APPLE_ASSIGNMENT));
+        assertExpectedStates(new FileStateManager(dataDir, codec, 100), ImmutableMap.of(apple, "running " + APPLE_ASSIGNMENT));
+    }
+
+    @Test
+    public void testCompaction()
+    {
+        UUID apple = UUID.randomUUID();
+        UUID banana = UUID.randomUUID();
+
+        FileStateManager stateManager = new FileStateManager(dataDir, codec, 3);
+        stateManager.setExpectedState(new ExpectedSlotStatus(apple, STOPPED, APPLE_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(banana, STOPPED, BANANA_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(banana, RUNNING, BANANA_ASSIGNMENT));
+
+        // the log was compacted into the snapshot
+        assertTrue(new File(dataDir, "expected-state.snapshot").exists());
+        assertEquals(new File(dataDir, "expected-state.log").length(), 0);
+
+        stateManager.deleteExpectedState(apple);
+        stateManager.stop();
+
+        assertExpectedStates(new FileStateManager(dataDir, codec, 3), ImmutableMap.of(banana, "running " + BANANA_ASSIGNMENT));
+    }
+
+    @Test
+    public void testTornWrite()
+            throws Exception
+    {
+        UUID apple = UUID.randomUUID();
+        UUID banana = UUID.randomUUID();
+
+        FileStateManager stateManager = new FileStateManager(dataDir, codec, 100);
+        stateManager.setExpectedState(new ExpectedSlotStatus(apple, RUNNING, APPLE_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(banana, RUNNING, BANANA_ASSIGNMENT));
+        stateManager.stop();
+
+        // simulate a crash in the middle of writing the last record
+        File logFile = new File(dataDir, "expected-state.log");
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        stateManager = new FileStateManager(dataDir, codec, 100);
+        assertExpectedStates(stateManager, ImmutableMap.of(apple, "running " + APPLE_ASSIGNMENT));
+
+        // new records are appended after the last complete record
+        stateManager.setExpectedState(new ExpectedSlotStatus(banana, STOPPED, BANANA_ASSIGNMENT));
+        stateManager.stop();
+        assertExpectedStates(new FileStateManager(dataDir, codec, 100), ImmutableMap.of(
+                apple, "running " + APPLE_ASSIGNMENT,
+                banana, "stopped " + BANANA_ASSIGNMENT));
+    }
+
+    @Test
+    public void testCorruptedLength()
+            throws Exception
+    {
+        UUID apple = UUID.randomUUID();
+        UUID banana = UUID.randomUUID();
+
+        FileStateManager stateManager = new FileStateManager(dataDir, codec, 100);
+        stateManager.setExpectedState(new ExpectedSlotStatus(apple, RUNNING, APPLE_ASSIGNMENT));
+        long validLength = new File(dataDir, "expected-state.log").length();
+        stateManager.setExpectedState(new ExpectedSlotStatus(banana, RUNNING, BANANA_ASSIGNMENT));
+        stateManager.stop();
+
+        // corrupt the length of the last record so it claims to be huge
+        try (RandomAccessFile file = new RandomAccessFile(new File(dataDir, "expected-state.log"), "rw")) {
+            file.seek(validLength + 1);
+            file.writeInt(Integer.MAX_VALUE - 1);
+        }
+
+        stateManager = new FileStateManager(dataDir, codec, 100);
+        assertExpectedStates(stateManager, ImmutableMap.of(apple, "running " + APPLE_ASSIGNMENT));
+        assertEquals(new File(dataDir, "expected-state.log").length(), validLength);
+        stateManager.stop();
+    }
+
+    @Test
+    public void testCorruptedSnapshot()
+            throws Exception
+    {
+        UUID apple = UUID.randomUUID();
+        UUID banana = UUID.randomUUID();
+
+        FileStateManager stateManager = new FileStateManager(dataDir, codec, 2);
+        stateManager.setExpectedState(new ExpectedSlotStatus(apple, RUNNING, APPLE_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(banana, RUNNING, BANANA_ASSIGNMENT));
+        stateManager.stop();
+
+        File snapshotFile = new File(dataDir, "expected-state.snapshot");
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        try {
+            new FileStateManager(dataDir, codec, 2);
+            fail("expected RuntimeException");
+        }
+        catch (RuntimeException expected) {
+        }
+    }
+
+    @Test
+    public void testFailedWrite()
+    {
+        UUID apple = UUID.randomUUID();
+        UUID banana = UUID.randomUUID();
+
+        FileStateManager stateManager = new FileStateManager(dataDir, codec, 100);
+        stateManager.setExpectedState(new ExpectedSlotStatus(apple, RUNNING, APPLE_ASSIGNMENT));
+        stateManager.stop();
+
+        // the log is closed, so the write fails
+        try {
+            stateManager.setExpectedState(new ExpectedSlotStatus(banana, RUNNING, BANANA_ASSIGNMENT));
+            fail("expected RuntimeException");
+        }
+        catch (RuntimeException expected) {
+        }
+        assertExpectedStates(stateManager, ImmutableMap.of(apple, "running " + APPLE_ASSIGNMENT));
+    }
+
+    @Test
+    public void testImportLegacyFiles()
+            throws Exception
+    {
+        UUID apple = UUID.randomUUID();
+        File legacyFile = new File(dataDir, apple + ".json");
+        Files.write(codec.toJson(new ExpectedSlotStatus(apple, RUNNING, APPLE_ASSIGNMENT)), legacyFile, Charsets.UTF_8);
+
+        FileStateManager stateManager = new FileStateManager(dataDir, codec, 100);
+        assertExpectedStates(stateManager, ImmutableMap.of(apple, "running " + APPLE_ASSIGNMENT));
+        assertFalse(legacyFile.exists());
+        stateManager.stop();
+
+        assertExpectedStates(new FileStateManager(dataDir, codec, 100), ImmutableMap.of(apple, "running " + APPLE_ASSIGNMENT));
+    }
+
+    private static void assertExpectedStates(StateManager stateManager, Map<UUID, String> expected)
+    {
+        ImmutableMap.Builder<UUID, String> actual = ImmutableMap.builder();
+        for (ExpectedSlotStatus expectedSlotStatus : stateManager.getAllExpectedStates()) {
+            actual.put(expectedSlotStatus.getId(), expectedSlotStatus.getStatus().toString().toLowerCase() + " " + expectedSlotStatus.getAssignment());
+        }
+        assertEquals(actual.build(), expected);
+    }
+}
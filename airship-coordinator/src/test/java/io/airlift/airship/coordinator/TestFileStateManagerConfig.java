@@ -13,6 +13,7 @@ public class TestFileStateManagerConfig
     {
         ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(FileStateManagerConfig.class)
                 .setExpectedStateDir("expected-state")
+                .setCompactionThreshold(1000)
         );
     }
 
@@ -21,10 +22,12 @@ public class TestFileStateManagerConfig
     {
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("coordinator.expected-state.dir", "state")
+                .put("coordinator.expected-state.compaction-threshold", "50")
                 .build();
 
         FileStateManagerConfig expected = new FileStateManagerConfig()
-                .setExpectedStateDir("state");
+                .setExpectedStateDir("state")
+                .setCompactionThreshold(50);
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
@@ -0,0 +1,193 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.airship.shared.AgentStatus;
+import io.airlift.airship.shared.AgentStatusRepresentation;
+import io.airlift.airship.shared.InstallationRepresentation;
+import io.airlift.airship.shared.ServiceInventoryDiffRepresentation;
+import io.airlift.airship.shared.SlotStatus;
+import io.airlift.airship.shared.SlotStatusRepresentation;
+import io.airlift.discovery.client.ServiceDescriptorsRepresentation;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.testing.TestingHttpClient;
+import io.airlift.units.Duration;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
+import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotStatus.createSlotStatus;
+import static io.airlift.airship.shared.VersionsUtil.AIRSHIP_MAX_WAIT_HEADER;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestHttpRemoteAgent
+{
+    private static final URI AGENT_URI = URI.create("http://agent:8080");
+
+    private HttpRemoteAgent agent;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        TestingHttpClient httpClient = new TestingHttpClient(new Function<Request, Response>()
+        {
+            @Override
+            public Response apply(Request request)
+            {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        agent = new HttpRemoteAgent(createAgentStatus(0),
+                "test",
+                httpClient,
+                httpClient,
+                null,
+                null,
+                new Duration(1, TimeUnit.MINUTES),
+                jsonCodec(InstallationRepresentation.class),
+                jsonCodec(AgentStatusRepresentation.class),
+                jsonCodec(SlotStatusRepresentation.class),
+                jsonCodec(ServiceDescriptorsRepresentation.class),
+                jsonCodec(ServiceInventoryDiffRepresentation.class));
+    }
+
+    @Test
+    public void testOutOfOrderResponses()
+    {
+        long firstRequest = System.nanoTime();
+        long secondRequest = firstRequest + 1000;
+
+        assertTrue(agent.applyStatus(createAgentStatus(5), secondRequest));
+
+        // response to the earlier request arrives late with an older status
+        assertFalse(agent.applyStatus(createAgentStatus(4), firstRequest));
+        assertEquals(agent.status().getSequence(), 5);
+
+        // a held request can still deliver a newer status
+        assertTrue(agent.applyStatus(createAgentStatus(6), firstRequest));
+        assertEquals(agent.status().getSequence(), 6);
+    }
+
+    @Test
+    public void testAgentWithoutSequence()
+    {
+        long firstRequest = System.nanoTime();
+        long secondRequest = firstRequest + 1000;
+
+        assertTrue(agent.applyStatus(createAgentStatus(0), secondRequest));
+        assertFalse(agent.applyStatus(createAgentStatus(0), firstRequest));
+    }
+
+    @Test
+    public void testRestartedAgent()
+    {
+        long firstRequest = System.nanoTime();
+        long secondRequest = firstRequest + 1000;
+
+        assertTrue(agent.applyStatus(createAgentStatus(10), firstRequest));
+
+        // a later request is applied even if the agent sequence went backwards
+        assertTrue(agent.applyStatus(createAgentStatus(3), secondRequest));
+        assertEquals(agent.status().getSequence(), 3);
+    }
+
+    @Test
+    public void testResponseOlderThanSlotChange()
+    {
+        long request = System.nanoTime() - 1000;
+
+        SlotStatus slotStatus = createSlotStatus(UUID.randomUUID(),
+                AGENT_URI.resolve("/v1/agent/slot/apple"),
+                AGENT_URI.resolve("/v1/agent/slot/apple"),
+                "instance",
+                "/location/apple",
+                RUNNING,
+                APPLE_ASSIGNMENT,
+                "/apple",
+                ImmutableMap.<String, Integer>of());
+        agent.setSlotStatus(slotStatus);
+
+        // the response was generated before the slot was installed
+        assertFalse(agent.applyStatus(createAgentStatus(7), request));
+        assertNotNull(agent.status().getSlotStatus(slotStatus.getId()));
+
+        assertTrue(agent.applyStatus(createAgentStatus(7), System.nanoTime()));
+        assertEquals(agent.status().getSlotStatuses().size(), 0);
+    }
+
+    @Test
+    public void testStatusStreamWithoutConnection()
+    {
+        final List<Request> requests = new CopyOnWriteArrayList<>();
+        TestingHttpClient httpClient = new TestingHttpClient(new Function<Request, Response>()
+        {
+            @Override
+            public Response apply(Request request)
+            {
+                requests.add(request);
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        // every status stream connection is held by other agents
+        Semaphore statusStreamConnections = new Semaphore(0);
+        HttpRemoteAgent agent = new HttpRemoteAgent(createAgentStatus(0),
+                "test",
+                httpClient,
+                httpClient,
+                new Duration(30, TimeUnit.SECONDS),
+                statusStreamConnections,
+                new Duration(1, TimeUnit.MINUTES),
+                jsonCodec(InstallationRepresentation.class),
+                jsonCodec(AgentStatusRepresentation.class),
+                jsonCodec(SlotStatusRepresentation.class),
+                jsonCodec(ServiceDescriptorsRepresentation.class),
+                jsonCodec(ServiceInventoryDiffRepresentation.class));
+
+        // the agent keeps polling instead of waiting for a connection
+        agent.updateStatus();
+        agent.setStatus(createAgentStatus(0));
+        agent.updateStatus();
+        assertEquals(requests.size(), 2);
+        for (Request request : requests) {
+            assertNull(request.getHeader(AIRSHIP_MAX_WAIT_HEADER));
+        }
+
+        // a stream that stops returns its connection
+        statusStreamConnections.release();
+        agent.setStatus(createAgentStatus(0));
+        agent.updateStatus();
+        assertEquals(statusStreamConnections.availablePermits(), 1);
+    }
+
+    private static AgentStatus createAgentStatus(long sequence)
+    {
+        return new AgentStatus("agent",
+                ONLINE,
+                "instance",
+                AGENT_URI,
+                AGENT_URI,
+                "/location",
+                "instance.type",
+                ImmutableList.<SlotStatus>of(),
+                ImmutableMap.<String, Integer>of(),
+                sequence);
+    }
+}
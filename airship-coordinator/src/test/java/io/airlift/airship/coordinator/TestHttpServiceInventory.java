@@ -0,0 +1,148 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.airship.shared.Assignment;
+import io.airlift.airship.shared.SlotLifecycleState;
+import io.airlift.airship.shared.SlotStatus;
+import io.airlift.discovery.client.ServiceDescriptor;
+import io.airlift.discovery.client.ServiceState;
+import io.airlift.json.JsonCodec;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static io.airlift.airship.shared.SlotStatus.createSlotStatus;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class TestHttpServiceInventory
+{
+    private static final Assignment APPLE_ASSIGNMENT = new Assignment("food.fruit:apple:1.0", "@apple-1.0.config");
+    private static final Assignment BANANA_ASSIGNMENT = new Assignment("food.fruit:banana:2.0", "@banana-2.0.config");
+
+    private File repoDir;
+    private File cacheDir;
+    private HttpServiceInventory serviceInventory;
+
+    @BeforeMethod
+    public void setUp()
+            throws Exception
+    {
+        repoDir = createTempDir("repo");
+        cacheDir = createTempDir("service-inventory-cache");
+
+        createConfig(repoDir, "apple-1.0.config",
+                "[{\"type\":\"apple\",\"pool\":\"general\",\"properties\":{\"http\":\"http://${airship.host}:8080\",\"jmx\":\"${airship.host}:${airship.host}\"}}]");
+        createConfig(repoDir, "banana-2.0.config", null);
+
+        serviceInventory = new HttpServiceInventory(new TestingHttpRepository(repoDir),
+                JsonCodec.listJsonCodec(ServiceDescriptor.class),
+                cacheDir);
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        deleteRecursively(repoDir);
+        deleteRecursively(cacheDir);
+    }
+
+    @Test
+    public void testServiceInventory()
+    {
+        SlotStatus apple = createSlot(UUID.randomUUID(), "apple.example.com", RUNNING, APPLE_ASSIGNMENT);
+        SlotStatus banana = createSlot(UUID.randomUUID(), "banana.example.com", RUNNING, BANANA_ASSIGNMENT);
+
+        List<ServiceDescriptor> descriptors = serviceInventory.getServiceInventory(ImmutableList.of(apple, banana));
+        assertEquals(descriptors.size(), 1);
+
+        ServiceDescriptor descriptor = descriptors.get(0);
+        assertEquals(descriptor.getNodeId(), apple.getId().toString());
+        assertEquals(descriptor.getType(), "apple");
+        assertEquals(descriptor.getPool(), "general");
+        assertEquals(descriptor.getLocation(), apple.getLocation());
+        assertEquals(descriptor.getState(), ServiceState.RUNNING);
+        assertEquals(descriptor.getProperties(), ImmutableMap.of(
+                "http", "http://apple.example.com:8080",
+                "jmx", "apple.example.com:apple.example.com"));
+    }
+
+    @Test
+    public void testMemoization()
+    {
+        UUID appleId = UUID.randomUUID();
+        List<ServiceDescriptor> descriptors = serviceInventory.getServiceInventory(ImmutableList.of(createSlot(appleId, "apple.example.com", RUNNING, APPLE_ASSIGNMENT)));
+        assertEquals(descriptors.size(), 1);
+
+        // the inventory is reused while the slots are unchanged
+        assertSame(serviceInventory.getServiceInventory(ImmutableList.of(createSlot(appleId, "apple.example.com", RUNNING, APPLE_ASSIGNMENT))), descriptors);
+
+        // parsed configs are kept in memory, so the repository and disk cache are no longer needed
+        deleteRecursively(repoDir);
+        deleteRecursively(cacheDir);
+
+        List<ServiceDescriptor> stopped = serviceInventory.getServiceInventory(ImmutableList.of(createSlot(appleId, "apple.example.com", STOPPED, APPLE_ASSIGNMENT)));
+        assertNotSame(stopped, descriptors);
+        assertEquals(stopped.size(), 1);
+        assertEquals(stopped.get(0).getState(), ServiceState.STOPPED);
+
+        List<ServiceDescriptor> moved = serviceInventory.getServiceInventory(ImmutableList.of(createSlot(appleId, "moved.example.com", STOPPED, APPLE_ASSIGNMENT)));
+        assertEquals(moved.size(), 1);
+        assertEquals(moved.get(0).getProperties().get("http"), "http://moved.example.com:8080");
+    }
+
+    @Test
+    public void testUnknownConfigIsRetried()
+            throws Exception
+    {
+        Assignment cherryAssignment = new Assignment("food.fruit:cherry:1.0", "@cherry-1.0.config");
+        SlotStatus cherry = createSlot(UUID.randomUUID(), "cherry.example.com", RUNNING, cherryAssignment);
+
+        assertEquals(serviceInventory.getServiceInventory(ImmutableList.of(cherry)).size(), 0);
+
+        createConfig(repoDir, "cherry-1.0.config", "[{\"type\":\"cherry\",\"pool\":\"general\",\"properties\":{}}]");
+        assertEquals(serviceInventory.getServiceInventory(ImmutableList.of(cherry)).size(), 1);
+    }
+
+    private static SlotStatus createSlot(UUID id, String host, SlotLifecycleState state, Assignment assignment)
+    {
+        return createSlotStatus(id,
+                URI.create("http://" + host + ":1234/v1/agent/slot/" + id),
+                URI.create("http://" + host + ":1234/v1/agent/slot/" + id),
+                "instance",
+                "/test/" + id,
+                state,
+                assignment,
+                "/install",
+                ImmutableMap.<String, Integer>of());
+    }
+
+    private static void createConfig(File repoDir, String name, String serviceInventory)
+            throws Exception
+    {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(new File(repoDir, name)))) {
+            out.putNextEntry(new ZipEntry("config.properties"));
+            out.write("http-server.http.port=0\n".getBytes(UTF_8));
+
+            if (serviceInventory != null) {
+                out.putNextEntry(new ZipEntry("airship-service-inventory.json"));
+                out.write(serviceInventory.getBytes(UTF_8));
+            }
+        }
+    }
+}
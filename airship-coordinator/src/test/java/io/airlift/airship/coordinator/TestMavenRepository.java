@@ -1,12 +1,23 @@
 package io.airlift.airship.coordinator;
 
+import com.google.common.collect.ImmutableList;
+import io.airlift.airship.shared.MavenCoordinates;
+import io.airlift.units.Duration;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.net.InetAddress;
+import java.net.ServerSocket;
 import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.airship.shared.FileUtils.copyDirectoryContents;
+import static io.airlift.airship.shared.FileUtils.copyRecursively;
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
 
 public class TestMavenRepository
 {
@@ -92,6 +103,81 @@ public class TestMavenRepository
         Assert.assertTrue(uri.getPath().endsWith("/food/fruit/banana/2.0-SNAPSHOT/banana-2.0-20110311.201909-1.tar.gz"));
     }
 
+    @Test
+    public void resolveAmbiguousDefaultGroupId()
+            throws Exception
+    {
+        // the same artifact in two default groups is ambiguous
+        copyRecursively(new File(repo.getTargetRepo(), "food/fruit"), new File(repo.getTargetRepo(), "food/tree"));
+        MavenRepository repository = new MavenRepository(ImmutableList.of("food.fruit", "food.tree"), repo.getTargetRepo().toURI());
+        try {
+            repository.binaryResolve("apple:1.0");
+            Assert.fail("expected RuntimeException");
+        }
+        catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Ambiguous spec"), e.getMessage());
+        }
+        Assert.assertEquals(repository.binaryResolve("food.tree:apple:1.0"), "food.tree:apple:1.0");
+    }
+
+    @Test
+    public void resolveMultipleRepositories()
+            throws Exception
+    {
+        File emptyRepo = createTempDir("empty-repo");
+        try {
+            // the binary is found in the second repository
+            MavenRepository repository = new MavenRepository(ImmutableList.of("food.fruit"), emptyRepo.toURI(), repo.getTargetRepo().toURI());
+            Assert.assertEquals(repository.binaryResolve("apple:1.0"), "food.fruit:apple:1.0");
+            Assert.assertEquals(repository.binaryToHttpUri("apple:1.0"), new File(repo.getTargetRepo(), "food/fruit/apple/1.0/apple-1.0.tar.gz").toURI());
+            Assert.assertEquals(repository.binaryResolve("banana:2.0-SNAPSHOT"), "food.fruit:banana:2.0-20110311.201909-1");
+
+            // the first repository with the binary wins
+            File copyRepo = createTempDir("copy-repo");
+            try {
+                copyDirectoryContents(repo.getTargetRepo(), copyRepo);
+                repository = new MavenRepository(ImmutableList.of("food.fruit"), copyRepo.toURI(), repo.getTargetRepo().toURI());
+                Assert.assertEquals(repository.binaryToHttpUri("apple:1.0"), new File(copyRepo, "food/fruit/apple/1.0/apple-1.0.tar.gz").toURI());
+            }
+            finally {
+                deleteRecursively(copyRepo);
+            }
+        }
+        finally {
+            deleteRecursively(emptyRepo);
+        }
+    }
+
+    @Test
+    public void resolveWithSlowRepository()
+            throws Exception
+    {
+        // the slow repository accepts connections but never responds
+        try (ServerSocket slowRepo = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            URI slowRepoUri = URI.create("http://127.0.0.1:" + slowRepo.getLocalPort() + "/");
+            MavenRepository repository = new MavenRepository(ImmutableList.of("food.fruit"),
+                    ImmutableList.of(slowRepoUri, repo.getTargetRepo().toURI()),
+                    new Duration(500, TimeUnit.MILLISECONDS));
+            try {
+                // a timed out probe is a miss, so the binary is found in the second repository
+                Assert.assertEquals(repository.binaryResolve("apple:1.0"), "food.fruit:apple:1.0");
+                Assert.assertEquals(repository.toHttpUri(MavenCoordinates.fromBinaryGAV("food.fruit:apple:1.0"), false),
+                        new File(repo.getTargetRepo(), "food/fruit/apple/1.0/apple-1.0.tar.gz").toURI());
+            }
+            finally {
+                repository.stop();
+            }
+
+            repository = new MavenRepository(ImmutableList.of("food.fruit"), ImmutableList.of(slowRepoUri), new Duration(500, TimeUnit.MILLISECONDS));
+            try {
+                Assert.assertNull(repository.toHttpUri(MavenCoordinates.fromBinaryGAV("food.fruit:apple:1.0"), false));
+            }
+            finally {
+                repository.stop();
+            }
+        }
+    }
+
     @Test
     public void configShortName()
             throws Exception
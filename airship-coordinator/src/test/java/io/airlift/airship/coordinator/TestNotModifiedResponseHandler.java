@@ -0,0 +1,89 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.net.HttpHeaders;
+import com.google.common.net.MediaType;
+import io.airlift.airship.shared.AgentStatusRepresentation;
+import io.airlift.http.client.HttpStatus;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.UnexpectedResponseException;
+import io.airlift.json.JsonCodec;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+
+import static io.airlift.airship.coordinator.NotModifiedResponseHandler.allowNotModified;
+import static io.airlift.http.client.JsonResponseHandler.createJsonResponseHandler;
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static org.testng.Assert.assertNull;
+
+public class TestNotModifiedResponseHandler
+{
+    private final JsonCodec<AgentStatusRepresentation> agentCodec = JsonCodec.jsonCodec(AgentStatusRepresentation.class);
+    private final Request request = prepareGet().setUri(URI.create("http://localhost/")).build();
+
+    @Test
+    public void testNotModified()
+    {
+        // body is not valid json, so it must not be read
+        assertNull(allowNotModified(createJsonResponseHandler(agentCodec)).handle(request, fakeResponse(HttpStatus.NOT_MODIFIED, "not json")));
+    }
+
+    @Test(expectedExceptions = UnexpectedResponseException.class)
+    public void testOtherStatusDelegates()
+    {
+        allowNotModified(createJsonResponseHandler(agentCodec)).handle(request, fakeResponse(HttpStatus.INTERNAL_SERVER_ERROR, "{}"));
+    }
+
+    private static Response fakeResponse(final HttpStatus status, String body)
+    {
+        final InputStream input = new ByteArrayInputStream(body.getBytes(Charsets.UTF_8));
+        return new Response()
+        {
+            @Override
+            public int getStatusCode()
+            {
+                return status.code();
+            }
+
+            @Override
+            public String getStatusMessage()
+            {
+                return status.reason();
+            }
+
+            @Override
+            public String getHeader(String name)
+            {
+                List<String> list = getHeaders().get(name);
+                return list.isEmpty() ? null : list.get(0);
+            }
+
+            @Override
+            public ListMultimap<String, String> getHeaders()
+            {
+                return ImmutableListMultimap.<String, String>builder()
+                        .put(HttpHeaders.CONTENT_TYPE, MediaType.JSON_UTF_8.toString())
+                        .build();
+            }
+
+            @Override
+            public long getBytesRead()
+            {
+                return 0;
+            }
+
+            @Override
+            public InputStream getInputStream()
+            {
+                return input;
+            }
+        };
+    }
+}
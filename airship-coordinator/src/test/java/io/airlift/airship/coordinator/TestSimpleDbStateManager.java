@@ -0,0 +1,105 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.airship.shared.ExpectedSlotStatus;
+import io.airlift.node.NodeInfo;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestSimpleDbStateManager
+{
+    private TestingSimpleDb simpleDb;
+    private SimpleDbStateManager stateManager;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        simpleDb = new TestingSimpleDb(3);
+        stateManager = new SimpleDbStateManager(simpleDb, new NodeInfo("testing"));
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        stateManager.stop();
+    }
+
+    @Test
+    public void testSetAndDelete()
+    {
+        UUID apple = UUID.randomUUID();
+        UUID banana = UUID.randomUUID();
+
+        stateManager.setExpectedState(new ExpectedSlotStatus(apple, STOPPED, APPLE_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(banana, RUNNING, BANANA_ASSIGNMENT));
+        stateManager.setExpectedState(new ExpectedSlotStatus(apple, RUNNING, APPLE_ASSIGNMENT));
+        assertExpectedStates(ImmutableMap.of(
+                apple, "running " + APPLE_ASSIGNMENT,
+                banana, "running " + BANANA_ASSIGNMENT));
+
+        stateManager.deleteExpectedState(banana);
+        assertExpectedStates(ImmutableMap.of(apple, "running " + APPLE_ASSIGNMENT));
+    }
+
+    @Test
+    public void testBatches()
+    {
+        ImmutableList.Builder<ExpectedSlotStatus> expectedStates = ImmutableList.builder();
+        ImmutableMap.Builder<UUID, String> expected = ImmutableMap.builder();
+        for (int i = 0; i < 60; i++) {
+            UUID slotId = UUID.randomUUID();
+            expectedStates.add(new ExpectedSlotStatus(slotId, RUNNING, APPLE_ASSIGNMENT));
+            expected.put(slotId, "running " + APPLE_ASSIGNMENT);
+        }
+        List<ExpectedSlotStatus> slots = expectedStates.build();
+
+        // 60 items are written in batches of 25
+        stateManager.setExpectedStates(slots);
+        assertEquals(simpleDb.getBatchRequests(), 3);
+
+        // items are read in pages of 3 across all segments
+        int selectRequests = simpleDb.getSelectRequests();
+        assertExpectedStates(expected.build());
+        assertTrue(simpleDb.getSelectRequests() - selectRequests > 16);
+
+        ImmutableList.Builder<UUID> slotIds = ImmutableList.builder();
+        for (ExpectedSlotStatus slot : slots.subList(0, 30)) {
+            slotIds.add(slot.getId());
+        }
+        stateManager.deleteExpectedStates(slotIds.build());
+        assertEquals(simpleDb.getBatchRequests(), 5);
+        assertEquals(stateManager.getAllExpectedStates().size(), 30);
+    }
+
+    @Test
+    public void testDuplicateSlotInBatch()
+    {
+        UUID apple = UUID.randomUUID();
+        stateManager.setExpectedStates(ImmutableList.of(
+                new ExpectedSlotStatus(apple, STOPPED, APPLE_ASSIGNMENT),
+                new ExpectedSlotStatus(apple, RUNNING, APPLE_ASSIGNMENT)));
+        assertExpectedStates(ImmutableMap.of(apple, "running " + APPLE_ASSIGNMENT));
+    }
+
+    private void assertExpectedStates(Map<UUID, String> expected)
+    {
+        ImmutableMap.Builder<UUID, String> actual = ImmutableMap.builder();
+        for (ExpectedSlotStatus expectedSlotStatus : stateManager.getAllExpectedStates()) {
+            actual.put(expectedSlotStatus.getId(), expectedSlotStatus.getStatus().toString().toLowerCase() + " " + expectedSlotStatus.getAssignment());
+        }
+        assertEquals(actual.build(), expected);
+    }
+}
@@ -0,0 +1,99 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import io.airlift.airship.shared.Assignment;
+import io.airlift.airship.shared.MockUriInfo;
+import io.airlift.airship.shared.SlotLifecycleState;
+import io.airlift.airship.shared.SlotStatus;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+
+import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
+import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
+import static io.airlift.airship.shared.SlotLifecycleState.RUNNING;
+import static io.airlift.airship.shared.SlotLifecycleState.STOPPED;
+import static io.airlift.airship.shared.SlotLifecycleState.UNKNOWN;
+import static io.airlift.airship.shared.SlotStatus.createSlotStatus;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class TestSlotIndex
+{
+    private final List<SlotStatus> slots = ImmutableList.of(
+            createSlot("12345678-1234-1234-1234-123456789012", "10.0.0.1", "i-1", RUNNING, APPLE_ASSIGNMENT),
+            createSlot("12345678-0000-0000-0000-000000000000", "10.0.0.1", "i-1", STOPPED, BANANA_ASSIGNMENT),
+            createSlot("abcdef00-0000-0000-0000-000000000000", "10.0.0.2", "i-2", RUNNING, BANANA_ASSIGNMENT),
+            createSlot("ABCDEF11-0000-0000-0000-000000000000", "10.0.0.3", "i-3", UNKNOWN, null),
+            createSlot("99999999-0000-0000-0000-000000000000", null, null, UNKNOWN, APPLE_ASSIGNMENT));
+
+    private final SlotIndex slotIndex = new SlotIndex(slots);
+
+    @Test
+    public void testMatchesPredicate()
+    {
+        assertSameSelection("all");
+        assertSameSelection("state=running");
+        assertSameSelection("state=running&state=stopped");
+        assertSameSelection("!state=running");
+        assertSameSelection("host=10.0.0.1");
+        assertSameSelection("host=10.0.0.*&!host=10.0.0.2");
+        assertSameSelection("machine=i-*&state=running");
+        assertSameSelection("!machine=i-1");
+        assertSameSelection("binary=apple");
+        assertSameSelection("binary=apple&binary=banana&state=running");
+        assertSameSelection("!binary=apple");
+        assertSameSelection("config=@banana*");
+        assertSameSelection("!config=@banana*");
+        assertSameSelection("uuid=12345678-1&state=running");
+        assertSameSelection("uuid=abcdef0&uuid=ABCDEF1");
+        assertSameSelection("!uuid=9999");
+        assertSameSelection("all&!state=unknown");
+        assertSameSelection("state=terminated");
+    }
+
+    @Test
+    public void testAmbiguousUuidPrefix()
+    {
+        try {
+            SlotFilterBuilder.select(MockUriInfo.from("fake://localhost?uuid=12345678"), true, slotIndex);
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), String.format("Ambiguous expansion for id '12345678': [%s, %s]", slots.get(0).getId(), slots.get(1).getId()));
+        }
+    }
+
+    @Test(expectedExceptions = InvalidSlotFilterException.class)
+    public void testFilterRequired()
+    {
+        SlotFilterBuilder.select(MockUriInfo.from("fake://localhost"), true, slotIndex);
+    }
+
+    private void assertSameSelection(String query)
+    {
+        Predicate<SlotStatus> predicate = SlotFilterBuilder.build(MockUriInfo.from("fake://localhost?" + query), false, slotIndex.getUuids());
+        List<SlotStatus> expected = ImmutableList.copyOf(Iterables.filter(slots, predicate));
+        List<SlotStatus> actual = SlotFilterBuilder.select(MockUriInfo.from("fake://localhost?" + query), false, slotIndex);
+        assertEquals(actual, expected, query);
+    }
+
+    private static SlotStatus createSlot(String id, String host, String instanceId, SlotLifecycleState state, Assignment assignment)
+    {
+        URI uri = host == null ? null : URI.create("http://" + host + ":1234/v1/agent/slot/" + id);
+        return createSlotStatus(UUID.fromString(id),
+                uri,
+                uri,
+                instanceId,
+                "/location/" + id,
+                state,
+                assignment,
+                "/install-path",
+                ImmutableMap.<String, Integer>of());
+    }
+}
@@ -0,0 +1,180 @@
+package io.airlift.airship.coordinator;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.google.common.net.MediaType;
+import io.airlift.airship.shared.AgentStatus;
+import io.airlift.airship.shared.AgentStatusRepresentation;
+import io.airlift.airship.shared.CoordinatorStatusRepresentation;
+import io.airlift.airship.shared.SlotStatus;
+import io.airlift.http.client.HttpStatus;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.testing.TestingHttpClient;
+import io.airlift.json.JsonCodec;
+import io.airlift.node.NodeInfo;
+import io.airlift.units.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.collect.Sets.newSetFromMap;
+import static io.airlift.airship.shared.AgentLifecycleState.ONLINE;
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static io.airlift.http.client.testing.TestingResponse.mockResponse;
+import static io.airlift.json.JsonCodec.jsonCodec;
+import static org.testng.Assert.assertEquals;
+
+public class TestStaticProvisioner
+{
+    private static final JsonCodec<AgentStatusRepresentation> agentCodec = jsonCodec(AgentStatusRepresentation.class);
+
+    private final AtomicInteger agentRequests = new AtomicInteger();
+    private final Set<String> offlineHosts = newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private File tempDir;
+    private File agentsFile;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        tempDir = createTempDir("static-provisioner");
+        agentsFile = new File(tempDir, "agents.txt");
+        agentRequests.set(0);
+        offlineHosts.clear();
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        deleteRecursively(tempDir);
+    }
+
+    @Test
+    public void testAgentsOnlyContactedWhenListChanges()
+            throws Exception
+    {
+        StaticProvisioner provisioner = createProvisioner(new Duration(1, TimeUnit.HOURS));
+
+        writeAgents("http://agent-1:8080", "http://agent-2:8080");
+        assertInstanceIds(provisioner.listAgents(), "i-agent-1", "i-agent-2");
+        assertEquals(agentRequests.get(), 2);
+
+        // unchanged list is served from the last listing
+        assertInstanceIds(provisioner.listAgents(), "i-agent-1", "i-agent-2");
+        assertEquals(agentRequests.get(), 2);
+
+        // a changed list contacts the agents again
+        writeAgents("http://agent-1:8080", "http://agent-2:8080", "http://agent-3:8080");
+        assertInstanceIds(provisioner.listAgents(), "i-agent-1", "i-agent-2", "i-agent-3");
+        assertEquals(agentRequests.get(), 5);
+
+        writeAgents("http://agent-3:8080");
+        assertInstanceIds(provisioner.listAgents(), "i-agent-3");
+        assertEquals(agentRequests.get(), 6);
+    }
+
+    @Test
+    public void testUnreachableAgentsAreRetried()
+            throws Exception
+    {
+        StaticProvisioner provisioner = createProvisioner(new Duration(1, TimeUnit.HOURS));
+
+        offlineHosts.add("agent-2");
+        writeAgents("http://agent-1:8080", "http://agent-2:8080");
+        assertInstanceIds(provisioner.listAgents(), "i-agent-1", "agent-2:8080");
+        assertEquals(agentRequests.get(), 2);
+
+        // only the unreachable agent is contacted again
+        assertInstanceIds(provisioner.listAgents(), "i-agent-1", "agent-2:8080");
+        assertEquals(agentRequests.get(), 3);
+
+        offlineHosts.clear();
+        assertInstanceIds(provisioner.listAgents(), "i-agent-1", "i-agent-2");
+        assertEquals(agentRequests.get(), 4);
+
+        assertInstanceIds(provisioner.listAgents(), "i-agent-1", "i-agent-2");
+        assertEquals(agentRequests.get(), 4);
+    }
+
+    @Test
+    public void testRefreshInterval()
+            throws Exception
+    {
+        StaticProvisioner provisioner = createProvisioner(new Duration(0, TimeUnit.MILLISECONDS));
+
+        writeAgents("http://agent-1:8080");
+        provisioner.listAgents();
+        provisioner.listAgents();
+        assertEquals(agentRequests.get(), 2);
+    }
+
+    private StaticProvisioner createProvisioner(Duration agentsRefreshInterval)
+    {
+        TestingHttpClient httpClient = new TestingHttpClient(new Function<Request, Response>()
+        {
+            @Override
+            public Response apply(Request request)
+            {
+                agentRequests.incrementAndGet();
+                String host = request.getUri().getHost();
+                if (offlineHosts.contains(host)) {
+                    throw new RuntimeException("agent is offline");
+                }
+                return mockResponse(HttpStatus.OK, MediaType.JSON_UTF_8, agentCodec.toJson(createAgentStatus(host)));
+            }
+        });
+        return new StaticProvisioner(new File(tempDir, "coordinators.txt").toURI(),
+                agentsFile.toURI(),
+                new NodeInfo("test"),
+                httpClient,
+                jsonCodec(CoordinatorStatusRepresentation.class),
+                agentCodec,
+                agentsRefreshInterval);
+    }
+
+    private void writeAgents(String... agentUris)
+            throws IOException
+    {
+        StringBuilder contents = new StringBuilder();
+        for (String agentUri : agentUris) {
+            contents.append(agentUri).append('\n');
+        }
+        Files.write(contents, agentsFile, Charsets.UTF_8);
+    }
+
+    private static AgentStatusRepresentation createAgentStatus(String host)
+    {
+        URI uri = URI.create("http://" + host + ":8080");
+        return AgentStatusRepresentation.from(new AgentStatus("agent-" + host,
+                ONLINE,
+                "i-" + host,
+                uri,
+                uri,
+                "/test/" + host,
+                "instance.type",
+                ImmutableList.<SlotStatus>of(),
+                ImmutableMap.<String, Integer>of()));
+    }
+
+    private static void assertInstanceIds(List<Instance> instances, String... instanceIds)
+    {
+        ImmutableList.Builder<String> actual = ImmutableList.builder();
+        for (Instance instance : instances) {
+            actual.add(instance.getInstanceId());
+        }
+        assertEquals(actual.build(), ImmutableList.copyOf(instanceIds));
+    }
+}
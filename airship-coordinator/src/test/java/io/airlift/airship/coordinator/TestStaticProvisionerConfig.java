@@ -2,10 +2,12 @@ package io.airlift.airship.coordinator;
 
 import com.google.common.collect.ImmutableMap;
 import io.airlift.configuration.testing.ConfigAssertions;
+import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
 import java.net.URI;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class TestStaticProvisionerConfig
 {
@@ -15,6 +17,7 @@ public class TestStaticProvisionerConfig
         ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(StaticProvisionerConfig.class)
                 .setCoordinatorsUri(URI.create("file:etc/coordinators.txt"))
                 .setAgentsUri(URI.create("file:etc/agents.txt"))
+                .setAgentsRefreshInterval(new Duration(5, TimeUnit.MINUTES))
         );
     }
 
@@ -24,11 +27,13 @@ public class TestStaticProvisionerConfig
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("coordinator.coordinators-uri", "file:/tmp/coordinators.txt")
                 .put("coordinator.agents-uri", "file:/tmp/agents.txt")
+                .put("coordinator.agents-refresh-interval", "1m")
                 .build();
 
         StaticProvisionerConfig expected = new StaticProvisionerConfig()
                 .setCoordinatorsUri(URI.create("file:/tmp/coordinators.txt"))
-                .setAgentsUri(URI.create("file:/tmp/agents.txt"));
+                .setAgentsUri(URI.create("file:/tmp/agents.txt"))
+                .setAgentsRefreshInterval(new Duration(1, TimeUnit.MINUTES));
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
@@ -0,0 +1,116 @@
+package io.airlift.airship.coordinator;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.ec2.AmazonEC2Client;
+import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
+import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceState;
+import com.amazonaws.services.ec2.model.Placement;
+import com.amazonaws.services.ec2.model.Reservation;
+import com.amazonaws.services.ec2.model.Tag;
+import com.amazonaws.services.ec2.model.TerminateInstancesRequest;
+import com.amazonaws.services.ec2.model.TerminateInstancesResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newLinkedHashMap;
+
+/**
+ * In memory EC2 supporting the subset of the API used to list instances by
+ * {@link AwsProvisioner}.  Describe instances understands tag and instance
+ * state filters; every other call goes to the real client and fails.
+ */
+public class TestingEc2
+        extends AmazonEC2Client
+{
+    private final Map<String, Instance> instances = newLinkedHashMap();
+    private final AtomicInteger describeRequests = new AtomicInteger();
+
+    public TestingEc2()
+    {
+        super(new BasicAWSCredentials("access-key", "secret-key"));
+    }
+
+    public int getDescribeRequests()
+    {
+        return describeRequests.get();
+    }
+
+    public synchronized void addInstance(String instanceId, String role, String environment, int port)
+    {
+        Instance instance = new Instance()
+                .withInstanceId(instanceId)
+                .withInstanceType("t1.micro")
+                .withState(new InstanceState().withName("running"))
+                .withPlacement(new Placement("us-east-1a"))
+                .withPrivateIpAddress("10.0.0." + (instances.size() + 1))
+                .withTags(new Tag("airship:role", role),
+                        new Tag("airship:environment", environment),
+                        new Tag("airship:port", String.valueOf(port)));
+        instances.put(instanceId, instance);
+    }
+
+    @Override
+    public synchronized DescribeInstancesResult describeInstances()
+    {
+        return describeInstances(new DescribeInstancesRequest());
+    }
+
+    @Override
+    public synchronized DescribeInstancesResult describeInstances(DescribeInstancesRequest request)
+    {
+        describeRequests.incrementAndGet();
+
+        List<Instance> matches = newArrayList();
+        for (Instance instance : instances.values()) {
+            if (matches(instance, request.getFilters())) {
+                matches.add(instance);
+            }
+        }
+        return new DescribeInstancesResult().withReservations(new Reservation().withInstances(matches));
+    }
+
+    @Override
+    public synchronized TerminateInstancesResult terminateInstances(TerminateInstancesRequest request)
+    {
+        for (String instanceId : request.getInstanceIds()) {
+            Instance instance = instances.get(instanceId);
+            if (instance == null) {
+                throw new AmazonServiceException("No such instance: " + instanceId);
+            }
+            instance.setState(new InstanceState().withName("terminated"));
+        }
+        return new TerminateInstancesResult();
+    }
+
+    private static boolean matches(Instance instance, List<Filter> filters)
+    {
+        for (Filter filter : filters) {
+            String value;
+            if (filter.getName().equals("instance-state-name")) {
+                value = instance.getState().getName();
+            }
+            else if (filter.getName().startsWith("tag:")) {
+                value = null;
+                for (Tag tag : instance.getTags()) {
+                    if (tag.getKey().equals(filter.getName().substring("tag:".length()))) {
+                        value = tag.getValue();
+                    }
+                }
+            }
+            else {
+                throw new AmazonServiceException("Unsupported filter: " + filter.getName());
+            }
+            if (!filter.getValues().contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
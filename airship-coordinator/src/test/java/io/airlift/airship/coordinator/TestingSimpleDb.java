@@ -0,0 +1,230 @@
+package io.airlift.airship.coordinator;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.simpledb.AmazonSimpleDB;
+import com.amazonaws.services.simpledb.model.Attribute;
+import com.amazonaws.services.simpledb.model.BatchDeleteAttributesRequest;
+import com.amazonaws.services.simpledb.model.BatchPutAttributesRequest;
+import com.amazonaws.services.simpledb.model.CreateDomainRequest;
+import com.amazonaws.services.simpledb.model.DeletableItem;
+import com.amazonaws.services.simpledb.model.DeleteAttributesRequest;
+import com.amazonaws.services.simpledb.model.DeleteDomainRequest;
+import com.amazonaws.services.simpledb.model.DomainMetadataRequest;
+import com.amazonaws.services.simpledb.model.DomainMetadataResult;
+import com.amazonaws.services.simpledb.model.GetAttributesRequest;
+import com.amazonaws.services.simpledb.model.GetAttributesResult;
+import com.amazonaws.services.simpledb.model.Item;
+import com.amazonaws.services.simpledb.model.ListDomainsRequest;
+import com.amazonaws.services.simpledb.model.ListDomainsResult;
+import com.amazonaws.services.simpledb.model.PutAttributesRequest;
+import com.amazonaws.services.simpledb.model.ReplaceableAttribute;
+import com.amazonaws.services.simpledb.model.ReplaceableItem;
+import com.amazonaws.services.simpledb.model.SelectRequest;
+import com.amazonaws.services.simpledb.model.SelectResult;
+import com.google.common.base.Preconditions;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+
+/**
+ * In memory SimpleDB supporting the subset of the API used by
+ * {@link SimpleDbStateManager}.  Select only understands queries of the form
+ * {@code select ... from `domain` [where itemName() like 'prefix%']}, and
+ * results are returned in pages of a fixed size.
+ */
+public class TestingSimpleDb
+        implements AmazonSimpleDB
+{
+    private static final int MAX_BATCH_SIZE = 25;
+    private static final Pattern SELECT_PATTERN = Pattern.compile("select .* from `([^`]+)`(?: where itemName\\(\\) like '([^']*)%')?");
+
+    private final int pageSize;
+    private final Map<String, SortedMap<String, Map<String, String>>> domains = newHashMap();
+    private final AtomicInteger selectRequests = new AtomicInteger();
+    private final AtomicInteger batchRequests = new AtomicInteger();
+
+    public TestingSimpleDb(int pageSize)
+    {
+        Preconditions.checkArgument(pageSize > 0, "pageSize must be at least 1");
+        this.pageSize = pageSize;
+    }
+
+    public int getSelectRequests()
+    {
+        return selectRequests.get();
+    }
+
+    public int getBatchRequests()
+    {
+        return batchRequests.get();
+    }
+
+    @Override
+    public synchronized void createDomain(CreateDomainRequest createDomainRequest)
+    {
+        if (!domains.containsKey(createDomainRequest.getDomainName())) {
+            domains.put(createDomainRequest.getDomainName(), new TreeMap<String, Map<String, String>>());
+        }
+    }
+
+    @Override
+    public synchronized void deleteDomain(DeleteDomainRequest deleteDomainRequest)
+    {
+        domains.remove(deleteDomainRequest.getDomainName());
+    }
+
+    @Override
+    public synchronized SelectResult select(SelectRequest selectRequest)
+    {
+        selectRequests.incrementAndGet();
+
+        Matcher matcher = SELECT_PATTERN.matcher(selectRequest.getSelectExpression());
+        if (!matcher.matches()) {
+            throw new AmazonServiceException("Unsupported select expression: " + selectRequest.getSelectExpression());
+        }
+        SortedMap<String, Map<String, String>> domain = getDomain(matcher.group(1));
+        String prefix = matcher.group(2) == null ? "" : matcher.group(2);
+
+        // the next token is the index of the first item in the page
+        int start = selectRequest.getNextToken() == null ? 0 : Integer.parseInt(selectRequest.getNextToken());
+        int index = 0;
+        List<Item> items = newArrayList();
+        for (Entry<String, Map<String, String>> entry : domain.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                continue;
+            }
+            if (index >= start + pageSize) {
+                return new SelectResult().withItems(items).withNextToken(String.valueOf(index));
+            }
+            if (index >= start) {
+                List<Attribute> attributes = newArrayList();
+                for (Entry<String, String> attribute : entry.getValue().entrySet()) {
+                    attributes.add(new Attribute(attribute.getKey(), attribute.getValue()));
+                }
+                items.add(new Item(entry.getKey(), attributes));
+            }
+            index++;
+        }
+        return new SelectResult().withItems(items);
+    }
+
+    @Override
+    public synchronized void putAttributes(PutAttributesRequest putAttributesRequest)
+    {
+        put(getDomain(putAttributesRequest.getDomainName()), putAttributesRequest.getItemName(), putAttributesRequest.getAttributes());
+    }
+
+    @Override
+    public synchronized void batchPutAttributes(BatchPutAttributesRequest batchPutAttributesRequest)
+    {
+        checkBatchSize(batchPutAttributesRequest.getItems().size());
+        batchRequests.incrementAndGet();
+        SortedMap<String, Map<String, String>> domain = getDomain(batchPutAttributesRequest.getDomainName());
+        for (ReplaceableItem item : batchPutAttributesRequest.getItems()) {
+            put(domain, item.getName(), item.getAttributes());
+        }
+    }
+
+    @Override
+    public synchronized void deleteAttributes(DeleteAttributesRequest deleteAttributesRequest)
+    {
+        delete(getDomain(deleteAttributesRequest.getDomainName()), deleteAttributesRequest.getItemName(), deleteAttributesRequest.getAttributes());
+    }
+
+    @Override
+    public synchronized void batchDeleteAttributes(BatchDeleteAttributesRequest batchDeleteAttributesRequest)
+    {
+        checkBatchSize(batchDeleteAttributesRequest.getItems().size());
+        batchRequests.incrementAndGet();
+        SortedMap<String, Map<String, String>> domain = getDomain(batchDeleteAttributesRequest.getDomainName());
+        for (DeletableItem item : batchDeleteAttributesRequest.getItems()) {
+            delete(domain, item.getName(), item.getAttributes());
+        }
+    }
+
+    @Override
+    public void setEndpoint(String endpoint)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ListDomainsResult listDomains(ListDomainsRequest listDomainsRequest)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ListDomainsResult listDomains()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public GetAttributesResult getAttributes(GetAttributesRequest getAttributesRequest)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public DomainMetadataResult domainMetadata(DomainMetadataRequest domainMetadataRequest)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    private SortedMap<String, Map<String, String>> getDomain(String domainName)
+    {
+        SortedMap<String, Map<String, String>> domain = domains.get(domainName);
+        if (domain == null) {
+            throw new AmazonServiceException("No such domain: " + domainName);
+        }
+        return domain;
+    }
+
+    private static void checkBatchSize(int size)
+    {
+        if (size > MAX_BATCH_SIZE) {
+            throw new AmazonServiceException("Too many items in a single call: " + size);
+        }
+    }
+
+    // multi-valued attributes are not supported, so the replace flag is ignored
+    private static void put(SortedMap<String, Map<String, String>> domain, String itemName, List<ReplaceableAttribute> attributes)
+    {
+        Map<String, String> item = domain.get(itemName);
+        if (item == null) {
+            item = newHashMap();
+            domain.put(itemName, item);
+        }
+        for (ReplaceableAttribute attribute : attributes) {
+            item.put(attribute.getName(), attribute.getValue());
+        }
+    }
+
+    private static void delete(SortedMap<String, Map<String, String>> domain, String itemName, List<Attribute> attributes)
+    {
+        Map<String, String> item = domain.get(itemName);
+        if (item == null) {
+            return;
+        }
+        if (attributes.isEmpty()) {
+            domain.remove(itemName);
+            return;
+        }
+        for (Attribute attribute : attributes) {
+            item.remove(attribute.getName());
+        }
+        if (item.isEmpty()) {
+            domain.remove(itemName);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package io.airlift.airship.coordinator.auth;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestAuthFilter
+{
+    private static final String ARTIFACT_KEY = "0123456789abcdef0123456789abcdef01234567";
+
+    @Test
+    public void testArtifactDownloadWithoutSignature()
+            throws Exception
+    {
+        AuthFilter filter = createAuthFilter();
+
+        TestingResponse response = new TestingResponse();
+        TestingFilterChain chain = new TestingFilterChain();
+        filter.doFilter(createRequest("GET", "/v1/artifact/" + ARTIFACT_KEY), response.getResponse(), chain);
+        assertTrue(chain.isCalled());
+
+        chain = new TestingFilterChain();
+        filter.doFilter(createRequest("GET", "/v1/artifact/" + ARTIFACT_KEY + ".sha1"), response.getResponse(), chain);
+        assertTrue(chain.isCalled());
+    }
+
+    @Test
+    public void testOtherRequestsRequireSignature()
+            throws Exception
+    {
+        AuthFilter filter = createAuthFilter();
+
+        TestingResponse response = new TestingResponse();
+        TestingFilterChain chain = new TestingFilterChain();
+        filter.doFilter(createRequest("GET", "/v1/slot"), response.getResponse(), chain);
+        assertFalse(chain.isCalled());
+        assertEquals(response.getStatus(), 400);
+
+        // only downloads are allowed
+        response = new TestingResponse();
+        chain = new TestingFilterChain();
+        filter.doFilter(createRequest("DELETE", "/v1/artifact/" + ARTIFACT_KEY), response.getResponse(), chain);
+        assertFalse(chain.isCalled());
+        assertEquals(response.getStatus(), 400);
+    }
+
+    private static AuthFilter createAuthFilter()
+    {
+        AuthConfig config = new AuthConfig();
+        config.setEnabled(true);
+        return new AuthFilter(config, new SignatureVerifier(new InMemoryAuthorizedKeyStore(ImmutableList.<AuthorizedKey>of())));
+    }
+
+    private static HttpServletRequest createRequest(final String method, final String uri)
+    {
+        return (HttpServletRequest) Proxy.newProxyInstance(TestAuthFilter.class.getClassLoader(), new Class<?>[] {HttpServletRequest.class}, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(Object proxy, Method target, Object[] args)
+            {
+                switch (target.getName()) {
+                    case "getMethod":
+                        return method;
+                    case "getRequestURI":
+                        return uri;
+                    case "getHeaders":
+                        return Collections.enumeration(ImmutableList.of());
+                    default:
+                        return null;
+                }
+            }
+        });
+    }
+
+    private static class TestingResponse
+            implements InvocationHandler
+    {
+        private final StringWriter body = new StringWriter();
+        private int status = 200;
+
+        public HttpServletResponse getResponse()
+        {
+            return (HttpServletResponse) Proxy.newProxyInstance(TestAuthFilter.class.getClassLoader(), new Class<?>[] {HttpServletResponse.class}, this);
+        }
+
+        public int getStatus()
+        {
+            return status;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method target, Object[] args)
+        {
+            switch (target.getName()) {
+                case "setStatus":
+                    status = (Integer) args[0];
+                    return null;
+                case "getWriter":
+                    return new PrintWriter(body);
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private static class TestingFilterChain
+            implements FilterChain
+    {
+        private boolean called;
+
+        public boolean isCalled()
+        {
+            return called;
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response)
+        {
+            called = true;
+        }
+    }
+}
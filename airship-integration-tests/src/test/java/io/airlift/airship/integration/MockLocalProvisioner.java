@@ -140,6 +140,8 @@ public class MockLocalProvisioner implements Provisioner
                     .put("node.location", instance.getLocation())
                     .put("coordinator.slots-dir", new File(tempDir, "slots").getAbsolutePath())
                     .put("coordinator.resources-file", resourcesFile.getAbsolutePath())
+                    .put("coordinator.artifact-cache.enabled", "true")
+                    .put("coordinator.artifact-cache.dir", new File(tempDir, "artifact-cache").getAbsolutePath())
                     .put("coordinator.binary-repo", "http://localhost:9999/")
                     .put("coordinator.default-group-id", "prod")
                     .put("coordinator.agent.default-config", "@agent.config")
@@ -347,6 +349,8 @@ public class MockLocalProvisioner implements Provisioner
                     .put("node.id", instance.getInstanceId())
                     .put("node.location", instance.getLocation())
                     .put("agent.slots-dir", new File(tempDir, "slots").getAbsolutePath())
+                    .put("agent.binary-cache-dir", new File(tempDir, "binary-cache").getAbsolutePath())
+                    .put("agent.binary-cache-max-size", "1GB")
                     .put("agent.resources-file", resourcesFile.getAbsolutePath())
                     .build();
 
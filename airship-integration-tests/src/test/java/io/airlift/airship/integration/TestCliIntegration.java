@@ -104,6 +104,8 @@ public class TestCliIntegration
                 .put("coordinator.aws.agent.default-instance-type", "t1.micro")
                 .put("coordinator.expected-state.dir", expectedStateDir.getAbsolutePath())
                 .put("coordinator.service-inventory.cache-dir", serviceInventoryCacheDir.getAbsolutePath())
+                .put("coordinator.artifact-cache.enabled", "true")
+                .put("coordinator.artifact-cache.dir", new File(serviceInventoryCacheDir, "artifacts").getAbsolutePath())
                 .build();
 
         Injector coordinatorInjector = Guice.createInjector(new TestingHttpServerModule(),
@@ -33,6 +33,7 @@ import io.airlift.airship.coordinator.RemoteSlot;
 import io.airlift.airship.shared.AgentStatusRepresentation;
 import io.airlift.airship.shared.Installation;
 import io.airlift.airship.shared.InstallationRepresentation;
+import io.airlift.airship.shared.ServiceInventoryDiffRepresentation;
 import io.airlift.airship.shared.SlotStatus;
 import io.airlift.airship.shared.SlotStatusRepresentation;
 import io.airlift.configuration.ConfigurationFactory;
@@ -49,6 +50,7 @@ import io.airlift.jaxrs.JaxrsModule;
 import io.airlift.json.JsonCodec;
 import io.airlift.json.JsonModule;
 import io.airlift.node.testing.TestingNodeModule;
+import io.airlift.units.Duration;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
@@ -58,6 +60,7 @@ import java.io.File;
 import java.net.URI;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static io.airlift.airship.shared.AssignmentHelper.APPLE_ASSIGNMENT;
 import static io.airlift.airship.shared.AssignmentHelper.BANANA_ASSIGNMENT;
@@ -103,6 +106,7 @@ public class TestRemoteSlot
                 .put("agent.id", UUID.randomUUID().toString())
                 .put("agent.coordinator-uri", "http://localhost:9999/")
                 .put("agent.slots-dir", tempDir.getAbsolutePath())
+                .put("agent.binary-cache-dir", new File(tempDir, "binary-cache").getAbsolutePath())
                 .build();
 
         Injector injector = Guice.createInjector(new TestingHttpServerModule(),
@@ -131,10 +135,15 @@ public class TestRemoteSlot
                 agent.getAgentStatus(),
                 "test",
                 client,
+                client,
+                null,
+                null,
+                new Duration(1, TimeUnit.MINUTES),
                 JsonCodec.jsonCodec(InstallationRepresentation.class),
                 JsonCodec.jsonCodec(AgentStatusRepresentation.class),
                 JsonCodec.jsonCodec(SlotStatusRepresentation.class),
-                JsonCodec.jsonCodec(ServiceDescriptorsRepresentation.class));
+                JsonCodec.jsonCodec(ServiceDescriptorsRepresentation.class),
+                JsonCodec.jsonCodec(ServiceInventoryDiffRepresentation.class));
     }
 
     @BeforeMethod
@@ -31,16 +31,35 @@ public class AgentStatus
     private final String instanceType;
     private final Map<String, Integer> resources;
     private final String version;
+    private final long sequence;
 
     public AgentStatus(String agentId,
             AgentLifecycleState state,
-            final String instanceId,
+            String instanceId,
             URI internalUri,
             URI externalUri,
             String location,
             String instanceType,
             Iterable<SlotStatus> slots,
             Map<String, Integer> resources)
+    {
+        this(agentId, state, instanceId, internalUri, externalUri, location, instanceType, slots, resources, 0);
+    }
+
+    /**
+     * @param sequence increases every time the agent reports a new version of
+     * its status; zero if the sequence is unknown
+     */
+    public AgentStatus(String agentId,
+            AgentLifecycleState state,
+            final String instanceId,
+            URI internalUri,
+            URI externalUri,
+            String location,
+            String instanceType,
+            Iterable<SlotStatus> slots,
+            Map<String, Integer> resources,
+            long sequence)
     {
         Preconditions.checkNotNull(state, "state is null");
         Preconditions.checkNotNull(slots, "slots is null");
@@ -68,6 +87,7 @@ public class AgentStatus
 
         this.resources = ImmutableMap.copyOf(resources);
         this.version = VersionsUtil.createAgentVersion(agentId, state, slots, resources);
+        this.sequence = sequence;
     }
 
     public String getAgentId()
@@ -87,7 +107,7 @@ public class AgentStatus
 
     public AgentStatus changeState(AgentLifecycleState state)
     {
-        return new AgentStatus(agentId, state, instanceId, internalUri, externalUri, location, instanceType, slots.values(), resources);
+        return new AgentStatus(agentId, state, instanceId, internalUri, externalUri, location, instanceType, slots.values(), resources, sequence);
     }
 
     public AgentStatus changeSlotStatus(SlotStatus slotStatus)
@@ -98,7 +118,7 @@ public class AgentStatus
         } else {
             slots.remove(slotStatus.getId());
         }
-        return new AgentStatus(agentId, state, instanceId, internalUri, externalUri, location, instanceType, slots.values(), resources);
+        return new AgentStatus(agentId, state, instanceId, internalUri, externalUri, location, instanceType, slots.values(), resources, sequence);
     }
 
     public AgentStatus changeAllSlotsState(SlotLifecycleState slotState)
@@ -108,12 +128,12 @@ public class AgentStatus
             // set all slots to unknown state
             slots.put(slotStatus.getId(), slotStatus.changeState(slotState));
         }
-        return new AgentStatus(agentId, state, instanceId, internalUri, externalUri, location, instanceType, slots.values(), resources);
+        return new AgentStatus(agentId, state, instanceId, internalUri, externalUri, location, instanceType, slots.values(), resources, sequence);
     }
 
     public AgentStatus changeInternalUri(URI internalUri)
     {
-        return new AgentStatus(agentId, state, instanceId, internalUri, externalUri, location, instanceType, slots.values(), resources);
+        return new AgentStatus(agentId, state, instanceId, internalUri, externalUri, location, instanceType, slots.values(), resources, sequence);
     }
 
     public URI getInternalUri()
@@ -156,6 +176,11 @@ public class AgentStatus
         return version;
     }
 
+    public long getSequence()
+    {
+        return sequence;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -194,6 +219,7 @@ public class AgentStatus
         sb.append(", slots=").append(slots.values());
         sb.append(", resources=").append(resources);
         sb.append(", version=").append(version);
+        sb.append(", sequence=").append(sequence);
         sb.append('}');
         return sb.toString();
     }
@@ -70,7 +70,8 @@ public class AgentStatusRepresentation
                     status.getInstanceType(),
                     builder.build(),
                     status.getResources(),
-                    status.getVersion());
+                    status.getVersion(),
+                    status.getSequence());
         }
     }
 
@@ -86,6 +87,7 @@ public class AgentStatusRepresentation
     private final String instanceType;
     private final Map<String, Integer> resources;
     private final String version;
+    private final long sequence;
 
     public static Function<AgentStatus, AgentStatusRepresentation> fromAgentStatus(List<AgentStatus> agentStatuses, Repository repository)
     {
@@ -120,7 +122,8 @@ public class AgentStatusRepresentation
             @JsonProperty("instanceType") String instanceType,
             @JsonProperty("slots") List<SlotStatusRepresentation> slots,
             @JsonProperty("resources") Map<String, Integer> resources,
-            @JsonProperty("version") String version)
+            @JsonProperty("version") String version,
+            @JsonProperty("sequence") Long sequence)
     {
         this.agentId = agentId;
         this.shortAgentId = shortAgentId;
@@ -139,6 +142,8 @@ public class AgentStatusRepresentation
             this.resources = ImmutableMap.of();
         }
         this.version = version;
+        // agents that predate status sequence numbers do not send one
+        this.sequence = sequence == null ? 0 : sequence;
     }
 
     @JsonProperty
@@ -219,6 +224,12 @@ public class AgentStatusRepresentation
         return version;
     }
 
+    @JsonProperty
+    public long getSequence()
+    {
+        return sequence;
+    }
+
     public String getInternalHost() {
         if (self == null) {
             return null;
@@ -258,7 +269,7 @@ public class AgentStatusRepresentation
         for (SlotStatusRepresentation slot : slots) {
             builder.add(slot.toSlotStatus(instanceId));
         }
-        return new AgentStatus(agentId, AgentLifecycleState.ONLINE, instanceId, self, externalUri, location, instanceType, builder.build(), resources);
+        return new AgentStatus(agentId, AgentLifecycleState.ONLINE, instanceId, self, externalUri, location, instanceType, builder.build(), resources, sequence);
     }
 
     @Override
@@ -298,6 +309,7 @@ public class AgentStatusRepresentation
         sb.append(", instanceType='").append(instanceType).append('\'');
         sb.append(", resources=").append(resources);
         sb.append(", version='").append(version).append('\'');
+        sb.append(", sequence=").append(sequence);
         sb.append('}');
         return sb.toString();
     }
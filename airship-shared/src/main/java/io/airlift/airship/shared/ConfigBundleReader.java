@@ -0,0 +1,389 @@
+package io.airlift.airship.shared;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static com.google.common.base.Strings.nullToEmpty;
+import static com.google.common.net.HttpHeaders.CONTENT_RANGE;
+import static com.google.common.net.HttpHeaders.RANGE;
+
+/**
+ * Reads a single entry from a config bundle without reading the whole bundle.
+ * Local bundles are opened with {@link ZipFile}.  Remote bundles are read with
+ * HTTP range requests: the end of central directory record and the central
+ * directory are read from the end of the bundle, and then only the bytes of
+ * the requested entry are downloaded.  Servers that do not support range
+ * requests, and bundles the reader does not understand, are streamed from the
+ * start as before.
+ */
+public class ConfigBundleReader
+{
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+
+    // the end of central directory record is followed by a comment of at most 64k
+    private static final int MAX_TAIL_SIZE = END_OF_CENTRAL_DIRECTORY_SIZE + 0xFFFF;
+
+    private static final long ZIP64_MARKER = 0xFFFFFFFFL;
+
+    private static final String USER_AGENT = "User-Agent: Apache-Maven/3.0.3 (Java 1.6.0_29; Mac OS X 10.7.2)";
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+    private ConfigBundleReader()
+    {
+    }
+
+    /**
+     * Opens the entry in the config bundle.
+     *
+     * @throws FileNotFoundException if the bundle does not contain the entry
+     */
+    public static InputStream openEntry(URI configBundle, String entryName)
+            throws IOException
+    {
+        Preconditions.checkNotNull(configBundle, "configBundle is null");
+        Preconditions.checkNotNull(entryName, "entryName is null");
+
+        if ("file".equalsIgnoreCase(configBundle.getScheme())) {
+            return openLocalEntry(configBundle, entryName);
+        }
+        if ("http".equalsIgnoreCase(configBundle.getScheme()) || "https".equalsIgnoreCase(configBundle.getScheme())) {
+            InputStream in = openEntry(new HttpRangeReader(configBundle), entryName);
+            if (in != null) {
+                return in;
+            }
+        }
+        return openStreamedEntry(openConnection(configBundle).getInputStream(), entryName);
+    }
+
+    private static InputStream openLocalEntry(URI configBundle, String entryName)
+            throws IOException
+    {
+        final ZipFile zipFile = new ZipFile(configBundle.getPath());
+        boolean success = false;
+        try {
+            ZipEntry zipEntry = zipFile.getEntry(entryName);
+            if (zipEntry == null || zipEntry.isDirectory()) {
+                throw new FileNotFoundException(entryName);
+            }
+            InputStream in = new FilterInputStream(zipFile.getInputStream(zipEntry))
+            {
+                @Override
+                public void close()
+                        throws IOException
+                {
+                    zipFile.close();
+                }
+            };
+            success = true;
+            return in;
+        }
+        finally {
+            if (!success) {
+                zipFile.close();
+            }
+        }
+    }
+
+    /**
+     * Opens the entry using range reads, or returns null if the bundle can not
+     * be read this way.
+     */
+    @Nullable
+    static InputStream openEntry(RangeReader reader, String entryName)
+            throws IOException
+    {
+        Tail tail = reader.readTail(MAX_TAIL_SIZE);
+        if (tail == null) {
+            return null;
+        }
+
+        // find the end of central directory record
+        ByteBuffer tailBuffer = ByteBuffer.wrap(tail.getBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        int end = -1;
+        for (int position = tailBuffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; position >= 0; position--) {
+            if (tailBuffer.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                end = position;
+                break;
+            }
+        }
+        if (end < 0) {
+            return null;
+        }
+        long centralDirectorySize = unsignedInt(tailBuffer, end + 12);
+        long centralDirectoryOffset = unsignedInt(tailBuffer, end + 16);
+        if (centralDirectorySize == ZIP64_MARKER || centralDirectoryOffset == ZIP64_MARKER) {
+            return null;
+        }
+
+        // the central directory is usually in the tail that was already read
+        ByteBuffer centralDirectory;
+        long tailOffset = tail.getLength() - tail.getBytes().length;
+        if (centralDirectoryOffset >= tailOffset) {
+            int start = (int) (centralDirectoryOffset - tailOffset);
+            centralDirectory = ByteBuffer.wrap(tail.getBytes(), start, (int) Math.min(centralDirectorySize, end - start)).slice();
+        }
+        else {
+            byte[] bytes = new byte[(int) centralDirectorySize];
+            try (InputStream in = reader.openRange(centralDirectoryOffset)) {
+                ByteStreams.readFully(in, bytes);
+            }
+            centralDirectory = ByteBuffer.wrap(bytes);
+        }
+        centralDirectory.order(ByteOrder.LITTLE_ENDIAN);
+
+        // find the entry
+        byte[] name = entryName.getBytes("UTF-8");
+        int position = 0;
+        while (position + CENTRAL_HEADER_SIZE <= centralDirectory.limit()) {
+            if (centralDirectory.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                return null;
+            }
+            int method = unsignedShort(centralDirectory, position + 10);
+            long compressedSize = unsignedInt(centralDirectory, position + 20);
+            int nameLength = unsignedShort(centralDirectory, position + 28);
+            int extraLength = unsignedShort(centralDirectory, position + 30);
+            int commentLength = unsignedShort(centralDirectory, position + 32);
+            long localHeaderOffset = unsignedInt(centralDirectory, position + 42);
+
+            if (nameEquals(centralDirectory, position + CENTRAL_HEADER_SIZE, nameLength, name)) {
+                if (compressedSize == ZIP64_MARKER || localHeaderOffset == ZIP64_MARKER) {
+                    return null;
+                }
+                return openEntryData(reader, localHeaderOffset, method, compressedSize);
+            }
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        throw new FileNotFoundException(entryName);
+    }
+
+    private static InputStream openEntryData(RangeReader reader, long localHeaderOffset, int method, long compressedSize)
+            throws IOException
+    {
+        if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) {
+            return null;
+        }
+
+        InputStream in = reader.openRange(localHeaderOffset);
+        boolean success = false;
+        try {
+            // the local header may have a different extra field than the central directory
+            byte[] header = new byte[LOCAL_HEADER_SIZE];
+            ByteStreams.readFully(in, header);
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+            if (headerBuffer.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+                throw new IOException("Invalid local file header in config bundle");
+            }
+            ByteStreams.skipFully(in, unsignedShort(headerBuffer, 26) + unsignedShort(headerBuffer, 28));
+
+            InputStream data = ByteStreams.limit(in, compressedSize);
+            if (method == ZipEntry.DEFLATED) {
+                // raw inflate needs an extra dummy byte at the end of the input
+                data = new InflatingInputStream(new SequenceInputStream(data, new ByteArrayInputStream(new byte[1])));
+            }
+            success = true;
+            return data;
+        }
+        finally {
+            if (!success) {
+                in.close();
+            }
+        }
+    }
+
+    private static InputStream openStreamedEntry(InputStream bundle, String entryName)
+            throws IOException
+    {
+        boolean success = false;
+        ZipInputStream in = new ZipInputStream(bundle);
+        try {
+            ZipEntry zipEntry = in.getNextEntry();
+            while (zipEntry != null && !zipEntry.getName().equals(entryName)) {
+                zipEntry = in.getNextEntry();
+            }
+            if (zipEntry == null) {
+                throw new FileNotFoundException(entryName);
+            }
+
+            // wrap with buffer to make it difficult to mess with the zip stream
+            success = true;
+            return new BufferedInputStream(in);
+        }
+        finally {
+            if (!success) {
+                in.close();
+            }
+        }
+    }
+
+    private static boolean nameEquals(ByteBuffer buffer, int offset, int length, byte[] name)
+    {
+        if (length != name.length || offset + length > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int unsignedShort(ByteBuffer buffer, int offset)
+    {
+        return buffer.getShort(offset) & 0xFFFF;
+    }
+
+    private static long unsignedInt(ByteBuffer buffer, int offset)
+    {
+        return buffer.getInt(offset) & 0xFFFFFFFFL;
+    }
+
+    private static URLConnection openConnection(URI uri)
+            throws IOException
+    {
+        URLConnection connection = uri.toURL().openConnection();
+        if (connection instanceof HttpURLConnection) {
+            connection.addRequestProperty("User-Agent", USER_AGENT);
+        }
+        return connection;
+    }
+
+    interface RangeReader
+    {
+        /**
+         * Reads up to the last count bytes, or returns null if ranges are not
+         * supported.
+         */
+        @Nullable
+        Tail readTail(int count)
+                throws IOException;
+
+        /**
+         * Opens a stream starting at the offset and continuing to the end.
+         */
+        InputStream openRange(long offset)
+                throws IOException;
+    }
+
+    static class Tail
+    {
+        private final byte[] bytes;
+        private final long length;
+
+        Tail(byte[] bytes, long length)
+        {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        public byte[] getBytes()
+        {
+            return bytes;
+        }
+
+        public long getLength()
+        {
+            return length;
+        }
+    }
+
+    private static class HttpRangeReader
+            implements RangeReader
+    {
+        private final URI uri;
+
+        private HttpRangeReader(URI uri)
+        {
+            this.uri = uri;
+        }
+
+        @Override
+        public Tail readTail(int count)
+                throws IOException
+        {
+            HttpURLConnection connection = (HttpURLConnection) openConnection(uri);
+            connection.setRequestProperty(RANGE, "bytes=-" + count);
+            try {
+                if (connection.getResponseCode() != 206) {
+                    return null;
+                }
+                Matcher matcher = CONTENT_RANGE_PATTERN.matcher(nullToEmpty(connection.getHeaderField(CONTENT_RANGE)));
+                if (!matcher.matches()) {
+                    return null;
+                }
+                long start = Long.parseLong(matcher.group(1));
+                long end = Long.parseLong(matcher.group(2));
+                byte[] bytes = new byte[(int) (end - start + 1)];
+                try (InputStream in = connection.getInputStream()) {
+                    ByteStreams.readFully(in, bytes);
+                }
+                return new Tail(bytes, Long.parseLong(matcher.group(3)));
+            }
+            finally {
+                connection.disconnect();
+            }
+        }
+
+        @Override
+        public InputStream openRange(long offset)
+                throws IOException
+        {
+            HttpURLConnection connection = (HttpURLConnection) openConnection(uri);
+            connection.setRequestProperty(RANGE, "bytes=" + offset + "-");
+            InputStream in = connection.getInputStream();
+            if (connection.getResponseCode() != 206) {
+                // the server ignored the range, so skip to the offset
+                ByteStreams.skipFully(in, offset);
+            }
+            return in;
+        }
+    }
+
+    private static class InflatingInputStream
+            extends InflaterInputStream
+    {
+        private InflatingInputStream(InputStream in)
+        {
+            super(in, new Inflater(true));
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            try {
+                super.close();
+            }
+            finally {
+                inf.end();
+            }
+        }
+    }
+}
@@ -5,21 +5,14 @@ import com.google.common.collect.Maps;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 import com.google.common.io.InputSupplier;
-import com.google.common.io.Resources;
 import io.airlift.configuration.ConfigurationFactory;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
 import java.net.URI;
-import java.net.URL;
-import java.net.URLConnection;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map.Entry;
@@ -135,41 +128,10 @@ public class ConfigUtils
         if (uri == null) {
             return null;
         }
-
-        URL configUrl;
-        try {
-            configUrl = uri.toURL();
-        }
-        catch (MalformedURLException e) {
-            throw new RuntimeException("Invalid config bundle location " + uri);
-        }
-
-        return ConfigUtils.newConfigEntrySupplier(Resources.newInputStreamSupplier(configUrl), entryName);
+        return newConfigEntrySupplier(uri, entryName);
     }
 
-    public static InputSupplier<InputStream> newConfigEntrySupplier(final URI configBundle, String entryName)
-    {
-        InputSupplier<InputStream> configBundleInput = new InputSupplier<InputStream>()
-        {
-            @Override
-            public InputStream getInput()
-                    throws IOException
-            {
-                URL url = configBundle.toURL();
-
-                URLConnection connection = url.openConnection();
-                if (connection instanceof HttpURLConnection) {
-                    HttpURLConnection httpConnection = (HttpURLConnection) connection;
-                    httpConnection.addRequestProperty("User-Agent", "User-Agent: Apache-Maven/3.0.3 (Java 1.6.0_29; Mac OS X 10.7.2)");
-                }
-                InputStream in = connection.getInputStream();
-                return in;
-            }
-        };
-        return newConfigEntrySupplier(configBundleInput, entryName);
-    }
-
-    private static InputSupplier<InputStream> newConfigEntrySupplier(final InputSupplier<? extends InputStream> configBundle, final String entryName)
+    public static InputSupplier<InputStream> newConfigEntrySupplier(final URI configBundle, final String entryName)
     {
         return new InputSupplier<InputStream>()
         {
@@ -177,28 +139,8 @@ public class ConfigUtils
             public InputStream getInput()
                     throws IOException
             {
-                boolean success = false;
-                ZipInputStream in = new ZipInputStream(configBundle.getInput());
-                try {
-                    ZipEntry zipEntry = in.getNextEntry();
-                    while (zipEntry != null && !zipEntry.getName().equals(entryName)) {
-                        zipEntry = in.getNextEntry();
-                    }
-                    if (zipEntry == null) {
-                        throw new FileNotFoundException(entryName);
-                    }
-
-                    // wrap with buffer to make it difficult to mess with the zip stream
-                    BufferedInputStream stream = new BufferedInputStream(in);
-
-                    success = true;
-                    return stream;
-                }
-                finally {
-                    if (!success) {
-                        in.close();
-                    }
-                }
+                // only the entry is read from the bundle, not the whole bundle
+                return ConfigBundleReader.openEntry(configBundle, entryName);
             }
         };
     }
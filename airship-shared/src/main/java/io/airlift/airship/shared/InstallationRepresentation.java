@@ -15,10 +15,15 @@ package io.airlift.airship.shared;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 import javax.validation.constraints.NotNull;
 
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
 
 public class InstallationRepresentation
@@ -28,6 +33,7 @@ public class InstallationRepresentation
     private final String binaryFile;
     private final String configFile;
     private final Map<String, Integer> resources;
+    private final List<String> binaryPeers;
 
     public static InstallationRepresentation from(Installation installation)
     {
@@ -37,7 +43,13 @@ public class InstallationRepresentation
                 AssignmentRepresentation.from(assignment),
                 installation.getBinaryFile().toString(),
                 installation.getConfigFile().toString(),
-                installation.getResources());
+                installation.getResources(),
+                ImmutableList.copyOf(Lists.transform(installation.getBinaryPeers(), Functions.toStringFunction())));
+    }
+
+    public InstallationRepresentation(String shortName, AssignmentRepresentation assignmentRepresentation, String binaryFile, String configFile, Map<String, Integer> resources)
+    {
+        this(shortName, assignmentRepresentation, binaryFile, configFile, resources, null);
     }
 
     @JsonCreator
@@ -46,13 +58,16 @@ public class InstallationRepresentation
             @JsonProperty("assignment") AssignmentRepresentation assignmentRepresentation,
             @JsonProperty("binaryFile") String binaryFile,
             @JsonProperty("configFile") String configFile,
-            @JsonProperty("resources") Map<String, Integer> resources)
+            @JsonProperty("resources") Map<String, Integer> resources,
+            @JsonProperty("binaryPeers") List<String> binaryPeers)
     {
         this.shortName = shortName;
         this.assignment = assignmentRepresentation;
         this.binaryFile = binaryFile;
         this.configFile = configFile;
         this.resources = resources;
+        // older coordinators do not send peers
+        this.binaryPeers = binaryPeers == null ? ImmutableList.<String>of() : ImmutableList.copyOf(binaryPeers);
     }
 
     @JsonProperty
@@ -89,9 +104,23 @@ public class InstallationRepresentation
         return resources;
     }
 
+    @JsonProperty
+    public List<String> getBinaryPeers()
+    {
+        return binaryPeers;
+    }
+
     public Installation toInstallation()
     {
-        Installation installation = new Installation(shortName, assignment.toAssignment(), URI.create(binaryFile), URI.create(configFile), resources);
+        List<URI> peers = ImmutableList.copyOf(Lists.transform(binaryPeers, new Function<String, URI>()
+        {
+            @Override
+            public URI apply(String peer)
+            {
+                return URI.create(peer);
+            }
+        }));
+        Installation installation = new Installation(shortName, assignment.toAssignment(), URI.create(binaryFile), URI.create(configFile), resources, peers);
         return installation;
     }
 
@@ -130,6 +159,7 @@ public class InstallationRepresentation
         sb.append(", binaryFile='").append(binaryFile).append('\'');
         sb.append(", configFile=").append(configFile);
         sb.append(", resources=").append(resources);
+        sb.append(", binaryPeers=").append(binaryPeers);
         sb.append('}');
         return sb.toString();
     }
@@ -0,0 +1,136 @@
+package io.airlift.airship.shared;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multiset;
+import io.airlift.discovery.client.ServiceDescriptor;
+
+import javax.validation.constraints.NotNull;
+
+import java.util.List;
+
+import static io.airlift.airship.shared.VersionsUtil.createServiceDescriptorVersion;
+
+/**
+ * Changes to transform the service inventory with version baseVersion into
+ * the service inventory with version version.  Descriptors are identified by
+ * their content version, so a modified descriptor is a removal plus an addition.
+ */
+public class ServiceInventoryDiffRepresentation
+{
+    private final String environment;
+    private final String baseVersion;
+    private final String version;
+    private final List<ServiceDescriptor> added;
+    private final List<String> removed;
+
+    public static ServiceInventoryDiffRepresentation createServiceInventoryDiff(String environment,
+            String baseVersion,
+            Iterable<ServiceDescriptor> baseServiceDescriptors,
+            String version,
+            Iterable<ServiceDescriptor> serviceDescriptors)
+    {
+        Preconditions.checkNotNull(baseServiceDescriptors, "baseServiceDescriptors is null");
+        Preconditions.checkNotNull(serviceDescriptors, "serviceDescriptors is null");
+
+        Multiset<String> remaining = HashMultiset.create();
+        for (ServiceDescriptor serviceDescriptor : baseServiceDescriptors) {
+            remaining.add(createServiceDescriptorVersion(serviceDescriptor));
+        }
+
+        ImmutableList.Builder<ServiceDescriptor> added = ImmutableList.builder();
+        for (ServiceDescriptor serviceDescriptor : serviceDescriptors) {
+            if (!remaining.remove(createServiceDescriptorVersion(serviceDescriptor))) {
+                added.add(serviceDescriptor);
+            }
+        }
+
+        // anything from the base that was not matched has been removed
+        return new ServiceInventoryDiffRepresentation(environment, baseVersion, version, added.build(), ImmutableList.copyOf(remaining));
+    }
+
+    @JsonCreator
+    public ServiceInventoryDiffRepresentation(
+            @JsonProperty("environment") String environment,
+            @JsonProperty("baseVersion") String baseVersion,
+            @JsonProperty("version") String version,
+            @JsonProperty("added") List<ServiceDescriptor> added,
+            @JsonProperty("removed") List<String> removed)
+    {
+        this.environment = environment;
+        this.baseVersion = baseVersion;
+        this.version = version;
+        this.added = added == null ? ImmutableList.<ServiceDescriptor>of() : ImmutableList.copyOf(added);
+        this.removed = removed == null ? ImmutableList.<String>of() : ImmutableList.copyOf(removed);
+    }
+
+    @JsonProperty
+    @NotNull
+    public String getEnvironment()
+    {
+        return environment;
+    }
+
+    @JsonProperty
+    @NotNull
+    public String getBaseVersion()
+    {
+        return baseVersion;
+    }
+
+    @JsonProperty
+    @NotNull
+    public String getVersion()
+    {
+        return version;
+    }
+
+    @JsonProperty
+    public List<ServiceDescriptor> getAdded()
+    {
+        return added;
+    }
+
+    @JsonProperty
+    public List<String> getRemoved()
+    {
+        return removed;
+    }
+
+    public boolean isEmpty()
+    {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    public List<ServiceDescriptor> applyTo(Iterable<ServiceDescriptor> baseServiceDescriptors)
+    {
+        Preconditions.checkNotNull(baseServiceDescriptors, "baseServiceDescriptors is null");
+
+        Multiset<String> pendingRemovals = HashMultiset.create(removed);
+        ImmutableList.Builder<ServiceDescriptor> serviceDescriptors = ImmutableList.builder();
+        for (ServiceDescriptor serviceDescriptor : baseServiceDescriptors) {
+            if (!pendingRemovals.remove(createServiceDescriptorVersion(serviceDescriptor))) {
+                serviceDescriptors.add(serviceDescriptor);
+            }
+        }
+        serviceDescriptors.addAll(added);
+        return serviceDescriptors.build();
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("ServiceInventoryDiffRepresentation");
+        sb.append("{environment='").append(environment).append('\'');
+        sb.append(", baseVersion='").append(baseVersion).append('\'');
+        sb.append(", version='").append(version).append('\'');
+        sb.append(", added=").append(added);
+        sb.append(", removed=").append(removed);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,378 @@
+package io.airlift.airship.shared;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Extracts a tar archive while it is read from a stream, so an archive can be
+ * unpacked as it is downloaded without first being copied to disk.  Supports
+ * the ustar format along with the GNU and pax extensions for long names.
+ */
+public final class TarExtractor
+{
+    private static final int BLOCK_SIZE = 512;
+
+    private static final byte REGULAR = '0';
+    private static final byte REGULAR_OLD = 0;
+    private static final byte CONTIGUOUS = '7';
+    private static final byte HARD_LINK = '1';
+    private static final byte SYMBOLIC_LINK = '2';
+    private static final byte DIRECTORY = '5';
+    private static final byte GNU_LONG_NAME = 'L';
+    private static final byte GNU_LONG_LINK = 'K';
+    private static final byte PAX_HEADER = 'x';
+    private static final byte PAX_GLOBAL_HEADER = 'g';
+
+    private static final Map<Integer, PosixFilePermission> PERMISSION_BITS = ImmutableMap.<Integer, PosixFilePermission>builder()
+            .put(0400, PosixFilePermission.OWNER_READ)
+            .put(0200, PosixFilePermission.OWNER_WRITE)
+            .put(0100, PosixFilePermission.OWNER_EXECUTE)
+            .put(0040, PosixFilePermission.GROUP_READ)
+            .put(0020, PosixFilePermission.GROUP_WRITE)
+            .put(0010, PosixFilePermission.GROUP_EXECUTE)
+            .put(0004, PosixFilePermission.OTHERS_READ)
+            .put(0002, PosixFilePermission.OTHERS_WRITE)
+            .put(0001, PosixFilePermission.OTHERS_EXECUTE)
+            .build();
+
+    private TarExtractor()
+    {
+    }
+
+    /**
+     * Extracts a gzip compressed tar archive into the target directory.  The
+     * stream is not closed.
+     */
+    public static void extractCompressedTar(InputStream in, File targetDirectory)
+            throws IOException
+    {
+        Preconditions.checkNotNull(in, "in is null");
+        extractTar(new GZIPInputStream(in, 64 * 1024), targetDirectory);
+    }
+
+    /**
+     * Extracts an uncompressed tar archive into the target directory.  The
+     * stream is not closed.
+     */
+    public static void extractTar(InputStream in, File targetDirectory)
+            throws IOException
+    {
+        Preconditions.checkNotNull(in, "in is null");
+        Preconditions.checkNotNull(targetDirectory, "targetDirectory is null");
+        Preconditions.checkArgument(targetDirectory.isDirectory(), "targetDirectory is not a directory: " + targetDirectory.getAbsolutePath());
+
+        Path root = targetDirectory.toPath().toRealPath();
+
+        // directory permissions are applied last so read-only directories can still be filled
+        List<Entry> directories = new ArrayList<>();
+
+        byte[] header = new byte[BLOCK_SIZE];
+        Map<String, String> extendedHeader = new HashMap<>();
+        while (readHeader(in, header)) {
+            Entry.verifyChecksum(header);
+
+            // extended headers describe the entry that follows them
+            byte type = header[156];
+            if (type == GNU_LONG_NAME || type == GNU_LONG_LINK || type == PAX_HEADER || type == PAX_GLOBAL_HEADER) {
+                String value = readString(in, Entry.parseNumber(header, 124, 12));
+                if (type == GNU_LONG_NAME) {
+                    extendedHeader.put("path", value);
+                }
+                else if (type == GNU_LONG_LINK) {
+                    extendedHeader.put("linkpath", value);
+                }
+                else if (type == PAX_HEADER) {
+                    extendedHeader.putAll(parsePaxHeader(value));
+                }
+                continue;
+            }
+
+            Entry entry = new Entry(header, extendedHeader);
+            extendedHeader.clear();
+
+            Path path = resolve(root, entry.name);
+            switch (entry.type) {
+                case DIRECTORY:
+                    createDirectories(root, path);
+                    if (!path.equals(root)) {
+                        directories.add(entry);
+                    }
+                    break;
+                case SYMBOLIC_LINK:
+                    createDirectories(root, path.getParent());
+                    Files.deleteIfExists(path);
+                    Files.createSymbolicLink(path, Paths.get(entry.linkName));
+                    break;
+                case HARD_LINK:
+                    createDirectories(root, path.getParent());
+                    Files.deleteIfExists(path);
+                    Files.createLink(path, resolveLinkTarget(root, entry.linkName));
+                    break;
+                case REGULAR:
+                case REGULAR_OLD:
+                case CONTIGUOUS:
+                    createDirectories(root, path.getParent());
+                    Files.deleteIfExists(path);
+                    try (OutputStream out = Files.newOutputStream(path)) {
+                        long copied = ByteStreams.copy(ByteStreams.limit(in, entry.size), out);
+                        if (copied != entry.size) {
+                            throw new EOFException("Unexpected end of tar archive in " + entry.name);
+                        }
+                    }
+                    skipPadding(in, entry.size);
+                    setAttributes(path, entry);
+                    break;
+                default:
+                    // devices and fifos are not needed for deployments
+                    ByteStreams.skipFully(in, entry.size);
+                    skipPadding(in, entry.size);
+            }
+        }
+
+        for (Entry directory : directories) {
+            setAttributes(resolve(root, directory.name), directory);
+        }
+    }
+
+    private static boolean readHeader(InputStream in, byte[] header)
+            throws IOException
+    {
+        int read = ByteStreams.read(in, header, 0, header.length);
+        if (read == 0) {
+            // archive ended without the end of archive marker
+            return false;
+        }
+        if (read != header.length) {
+            throw new EOFException("Unexpected end of tar archive");
+        }
+
+        // the archive ends with a block of zeros
+        for (byte b : header) {
+            if (b != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Path resolve(Path root, String name)
+            throws IOException
+    {
+        Path path = root.resolve(name).normalize();
+        if (!path.startsWith(root)) {
+            throw new IOException("Invalid tar entry outside of target directory: " + name);
+        }
+        return path;
+    }
+
+    private static Path resolveLinkTarget(Path root, String linkName)
+            throws IOException
+    {
+        // the target may be reached through a symbolic link from the archive
+        Path target = resolve(root, linkName);
+        if (!target.toRealPath().startsWith(root)) {
+            throw new IOException("Invalid tar entry outside of target directory: " + linkName);
+        }
+        return target;
+    }
+
+    private static void createDirectories(Path root, Path directory)
+            throws IOException
+    {
+        Files.createDirectories(directory);
+
+        // do not follow symbolic links from the archive out of the target directory
+        if (!directory.toRealPath().startsWith(root)) {
+            throw new IOException("Invalid tar entry outside of target directory: " + root.relativize(directory));
+        }
+    }
+
+    private static void setAttributes(Path path, Entry entry)
+            throws IOException
+    {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(entry.modifiedTime * 1000));
+        try {
+            Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+            for (Map.Entry<Integer, PosixFilePermission> bit : PERMISSION_BITS.entrySet()) {
+                if ((entry.mode & bit.getKey()) != 0) {
+                    permissions.add(bit.getValue());
+                }
+            }
+            Files.setPosixFilePermissions(path, permissions);
+        }
+        catch (UnsupportedOperationException ignored) {
+            // file system does not support posix permissions
+        }
+    }
+
+    private static void skipPadding(InputStream in, long size)
+            throws IOException
+    {
+        long remainder = size % BLOCK_SIZE;
+        if (remainder != 0) {
+            ByteStreams.skipFully(in, BLOCK_SIZE - remainder);
+        }
+    }
+
+    private static String readString(InputStream in, long size)
+            throws IOException
+    {
+        Preconditions.checkArgument(size <= Integer.MAX_VALUE, "tar header is too large");
+        byte[] bytes = new byte[(int) size];
+        ByteStreams.readFully(in, bytes);
+        skipPadding(in, size);
+
+        // gnu long names are null terminated
+        int length = bytes.length;
+        while (length > 0 && bytes[length - 1] == 0) {
+            length--;
+        }
+        return new String(bytes, 0, length, Charsets.UTF_8);
+    }
+
+    private static Map<String, String> parsePaxHeader(String header)
+            throws IOException
+    {
+        // each record is "<length> <key>=<value>\n" where length includes the whole record
+        ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+        byte[] bytes = header.getBytes(Charsets.UTF_8);
+        int offset = 0;
+        while (offset < bytes.length) {
+            int space = offset;
+            while (space < bytes.length && bytes[space] != ' ') {
+                space++;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(bytes, offset, space - offset, Charsets.UTF_8));
+            }
+            catch (NumberFormatException e) {
+                throw new IOException("Invalid pax header record: " + header);
+            }
+            if (length <= 0 || offset + length > bytes.length) {
+                throw new IOException("Invalid pax header record: " + header);
+            }
+            String record = new String(bytes, space + 1, offset + length - space - 2, Charsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals > 0) {
+                builder.put(record.substring(0, equals), record.substring(equals + 1));
+            }
+            offset += length;
+        }
+        return builder.build();
+    }
+
+    private static class Entry
+    {
+        private final String name;
+        private final String linkName;
+        private final int mode;
+        private final long size;
+        private final long modifiedTime;
+        private final byte type;
+
+        private Entry(byte[] header, Map<String, String> extendedHeader)
+        {
+            String name = parseString(header, 0, 100);
+            // ustar archives split long names into a prefix and a name
+            if (parseString(header, 257, 5).equals("ustar")) {
+                String prefix = parseString(header, 345, 155);
+                if (!prefix.isEmpty()) {
+                    name = prefix + "/" + name;
+                }
+            }
+            String linkName = parseString(header, 157, 100);
+            long size = parseNumber(header, 124, 12);
+
+            if (extendedHeader.containsKey("path")) {
+                name = extendedHeader.get("path");
+            }
+            if (extendedHeader.containsKey("linkpath")) {
+                linkName = extendedHeader.get("linkpath");
+            }
+            if (extendedHeader.containsKey("size")) {
+                size = Long.parseLong(extendedHeader.get("size"));
+            }
+
+            this.name = name;
+            this.linkName = linkName;
+            this.mode = (int) parseNumber(header, 100, 8);
+            this.size = size;
+            this.modifiedTime = parseNumber(header, 136, 12);
+            this.type = header[156];
+        }
+
+        private static void verifyChecksum(byte[] header)
+                throws IOException
+        {
+            long expected = parseNumber(header, 148, 8);
+            long actual = 0;
+            for (int i = 0; i < header.length; i++) {
+                // the checksum field itself is counted as spaces
+                if (i >= 148 && i < 156) {
+                    actual += ' ';
+                }
+                else {
+                    actual += header[i] & 0xFF;
+                }
+            }
+            if (actual != expected) {
+                throw new IOException("Invalid tar header checksum");
+            }
+        }
+
+        private static String parseString(byte[] header, int offset, int length)
+        {
+            int end = offset;
+            while (end < offset + length && header[end] != 0) {
+                end++;
+            }
+            return new String(header, offset, end - offset, Charsets.UTF_8);
+        }
+
+        private static long parseNumber(byte[] header, int offset, int length)
+        {
+            // large values are stored as big endian binary with the high bit set
+            if ((header[offset] & 0x80) != 0) {
+                long value = header[offset] & 0x7F;
+                for (int i = offset + 1; i < offset + length; i++) {
+                    value = (value << 8) | (header[i] & 0xFF);
+                }
+                return value;
+            }
+
+            // otherwise the value is octal, padded with spaces or nulls
+            long value = 0;
+            for (int i = offset; i < offset + length; i++) {
+                byte b = header[i];
+                if (b >= '0' && b <= '7') {
+                    value = (value << 3) + (b - '0');
+                }
+                else if (value != 0 || (b != ' ' && b != 0)) {
+                    break;
+                }
+            }
+            return value;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package io.airlift.airship.shared;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Ordering;
+import io.airlift.discovery.client.ServiceDescriptor;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -22,6 +24,10 @@ public class VersionsUtil
 
     public static final String AIRSHIP_FORCE_HEADER = "x-airship-force";
 
+    public static final String AIRSHIP_MAX_WAIT_HEADER = "x-airship-max-wait";
+
+    public static final String AIRSHIP_SERVICE_INVENTORY_VERSION_HEADER = "x-airship-service-inventory-version";
+
     private VersionsUtil()
     {
     }
@@ -130,6 +136,38 @@ public class VersionsUtil
         return DigestUtils.md5Hex(agentVersions.values().toString());
     }
 
+    public static String createServiceDescriptorVersion(ServiceDescriptor serviceDescriptor)
+    {
+        Preconditions.checkNotNull(serviceDescriptor, "serviceDescriptor is null");
+
+        // service descriptor equality is based only on the id, which is normally null in the inventory
+        List<Object> parts = new ArrayList<Object>();
+        parts.add(serviceDescriptor.getId());
+        parts.add(serviceDescriptor.getNodeId());
+        parts.add(serviceDescriptor.getType());
+        parts.add(serviceDescriptor.getPool());
+        parts.add(serviceDescriptor.getLocation());
+        parts.add(serviceDescriptor.getState());
+
+        // canonicalize properties
+        parts.add(Joiner.on("--").withKeyValueSeparator("=").join(ImmutableSortedMap.copyOf(serviceDescriptor.getProperties())));
+
+        String data = Joiner.on("||").useForNull("--NULL--").join(parts);
+        return DigestUtils.md5Hex(data);
+    }
+
+    public static String createServiceInventoryVersion(Iterable<ServiceDescriptor> serviceDescriptors)
+    {
+        Preconditions.checkNotNull(serviceDescriptors, "serviceDescriptors is null");
+
+        // canonicalize descriptor order
+        List<String> descriptorVersions = new ArrayList<String>();
+        for (ServiceDescriptor serviceDescriptor : serviceDescriptors) {
+            descriptorVersions.add(createServiceDescriptorVersion(serviceDescriptor));
+        }
+        return DigestUtils.md5Hex(Ordering.natural().sortedCopy(descriptorVersions).toString());
+    }
+
     public static String createVersion(String coordinatorId, CoordinatorLifecycleState state)
     {
         List<Object> parts = new ArrayList<Object>();
@@ -84,7 +84,8 @@ public class TestAgentStatusRepresentation
                             null,
                             null)),
             ImmutableMap.of("cpu", 8, "memory", 1024),
-            "agent-version"
+            "agent-version",
+            42L
     );
 
     @Test
@@ -114,5 +115,6 @@ public class TestAgentStatusRepresentation
         assertEquals(actual.getShortLocation(), expected.getShortLocation());
         assertEquals(actual.getSlots(), expected.getSlots());
         assertEquals(actual.getVersion(), expected.getVersion());
+        assertEquals(actual.getSequence(), expected.getSequence());
     }
 }
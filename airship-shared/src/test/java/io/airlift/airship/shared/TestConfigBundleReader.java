@@ -0,0 +1,223 @@
+package io.airlift.airship.shared;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import io.airlift.airship.shared.ConfigBundleReader.RangeReader;
+import io.airlift.airship.shared.ConfigBundleReader.Tail;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestConfigBundleReader
+{
+    private static final String RESOURCES = "memory=512\n";
+
+    private File tempDir;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        tempDir = createTempDir("config-bundle");
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        if (tempDir != null) {
+            deleteRecursively(tempDir);
+        }
+    }
+
+    @Test
+    public void testLocalBundle()
+            throws Exception
+    {
+        File bundle = new File(tempDir, "apple-1.0.config");
+        Files.write(createBundle(10), bundle);
+
+        assertEquals(readEntry(ConfigBundleReader.openEntry(bundle.toURI(), "airship-resources.properties")), RESOURCES);
+        assertEquals(readEntry(ConfigUtils.newConfigEntrySupplier(bundle.toURI(), "etc/file-3.properties").getInput()), "file-3");
+        assertMissingEntry(bundle, "airship-service-inventory.json");
+    }
+
+    @Test
+    public void testRangeReads()
+            throws Exception
+    {
+        byte[] bundle = createBundle(10);
+        TestingRangeReader reader = new TestingRangeReader(bundle);
+
+        assertEquals(readEntry(ConfigBundleReader.openEntry(reader, "airship-resources.properties")), RESOURCES);
+        assertEquals(readEntry(ConfigBundleReader.openEntry(reader, "etc/file-7.properties")), "file-7");
+
+        // only the tail and the small entries were read, not the large binary entry
+        assertTrue(reader.getBytesRead() < bundle.length / 4, "read " + reader.getBytesRead() + " of " + bundle.length + " bytes");
+
+        try {
+            ConfigBundleReader.openEntry(reader, "airship-service-inventory.json");
+            fail("expected FileNotFoundException");
+        }
+        catch (FileNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void testLargeCentralDirectory()
+            throws Exception
+    {
+        // the central directory does not fit in the tail, so it is read separately
+        byte[] bundle = createBundle(3000);
+        TestingRangeReader reader = new TestingRangeReader(bundle);
+        assertEquals(readEntry(ConfigBundleReader.openEntry(reader, "etc/file-1.properties")), "file-1");
+        assertEquals(readEntry(ConfigBundleReader.openEntry(reader, "etc/file-2999.properties")), "file-2999");
+    }
+
+    @Test
+    public void testRangesNotSupported()
+            throws Exception
+    {
+        TestingRangeReader reader = new TestingRangeReader(createBundle(10))
+        {
+            @Override
+            public Tail readTail(int count)
+            {
+                return null;
+            }
+        };
+        assertNull(ConfigBundleReader.openEntry(reader, "airship-resources.properties"));
+    }
+
+    private void assertMissingEntry(File bundle, String entryName)
+            throws IOException
+    {
+        try {
+            ConfigBundleReader.openEntry(bundle.toURI(), entryName).close();
+            fail("expected FileNotFoundException");
+        }
+        catch (FileNotFoundException expected) {
+        }
+    }
+
+    private static byte[] createBundle(int files)
+            throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            // a large incompressible entry at the start of the bundle
+            byte[] binary = new byte[1024 * 1024];
+            new Random(0).nextBytes(binary);
+            zip.putNextEntry(new ZipEntry("lib/large.bin"));
+            zip.write(binary);
+
+            zip.putNextEntry(new ZipEntry("etc/"));
+            for (int i = 0; i < files; i++) {
+                zip.putNextEntry(new ZipEntry("etc/file-" + i + ".properties"));
+                zip.write(("file-" + i).getBytes(Charsets.UTF_8));
+            }
+
+            // stored entries are read without inflating
+            byte[] resources = RESOURCES.getBytes(Charsets.UTF_8);
+            ZipEntry resourcesEntry = new ZipEntry("airship-resources.properties");
+            resourcesEntry.setMethod(ZipEntry.STORED);
+            resourcesEntry.setSize(resources.length);
+            resourcesEntry.setCompressedSize(resources.length);
+            resourcesEntry.setCrc(crc32(resources));
+            zip.putNextEntry(resourcesEntry);
+            zip.write(resources);
+        }
+        return out.toByteArray();
+    }
+
+    private static long crc32(byte[] bytes)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private static String readEntry(InputStream in)
+            throws IOException
+    {
+        try {
+            return new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static class TestingRangeReader
+            implements RangeReader
+    {
+        private final byte[] bundle;
+        private long bytesRead;
+
+        private TestingRangeReader(byte[] bundle)
+        {
+            this.bundle = bundle;
+        }
+
+        public long getBytesRead()
+        {
+            return bytesRead;
+        }
+
+        @Override
+        public Tail readTail(int count)
+        {
+            byte[] tail = Arrays.copyOfRange(bundle, Math.max(0, bundle.length - count), bundle.length);
+            bytesRead += tail.length;
+            return new Tail(tail, bundle.length);
+        }
+
+        @Override
+        public InputStream openRange(long offset)
+        {
+            return new FilterInputStream(new ByteArrayInputStream(bundle, (int) offset, bundle.length - (int) offset))
+            {
+                @Override
+                public int read()
+                        throws IOException
+                {
+                    int value = super.read();
+                    if (value >= 0) {
+                        bytesRead++;
+                    }
+                    return value;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length)
+                        throws IOException
+                {
+                    int count = super.read(buffer, offset, length);
+                    if (count > 0) {
+                        bytesRead += count;
+                    }
+                    return count;
+                }
+            };
+        }
+    }
+}
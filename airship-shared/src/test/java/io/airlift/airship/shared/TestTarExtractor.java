@@ -0,0 +1,189 @@
+package io.airlift.airship.shared;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import static io.airlift.airship.shared.FileUtils.createTar;
+import static io.airlift.airship.shared.FileUtils.createTempDir;
+import static io.airlift.airship.shared.FileUtils.deleteRecursively;
+import static io.airlift.airship.shared.TarExtractor.extractCompressedTar;
+import static io.airlift.airship.shared.TarExtractor.extractTar;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestTarExtractor
+{
+    private File tempDir;
+
+    @BeforeMethod
+    public void setUp()
+    {
+        tempDir = createTempDir("tar-extractor");
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        deleteRecursively(tempDir);
+    }
+
+    @Test
+    public void testExtractCompressedTar()
+            throws Exception
+    {
+        // build an archive with the system tar command
+        File sourceDir = new File(tempDir, "archive");
+        File binDir = new File(sourceDir, "bin");
+        binDir.mkdirs();
+        File launcher = new File(binDir, "launcher");
+        Files.write("#!/bin/sh\n", launcher, Charsets.UTF_8);
+        launcher.setExecutable(true, true);
+
+        String longName = Strings.repeat("long-directory-name/", 8) + "file.txt";
+        File longFile = new File(sourceDir, longName);
+        longFile.getParentFile().mkdirs();
+        Files.write("long", longFile, Charsets.UTF_8);
+
+        Files.write("readme", new File(sourceDir, "README.txt"), Charsets.UTF_8);
+        java.nio.file.Files.createSymbolicLink(new File(sourceDir, "link.txt").toPath(), new File("README.txt").toPath());
+
+        File archive = new File(tempDir, "archive.tar.gz");
+        createTar(sourceDir, archive);
+
+        File outputDir = new File(tempDir, "output");
+        outputDir.mkdirs();
+        try (InputStream in = new FileInputStream(archive)) {
+            extractCompressedTar(in, outputDir);
+        }
+
+        File root = new File(outputDir, "archive");
+        assertEquals(Files.toString(new File(root, "README.txt"), Charsets.UTF_8), "readme");
+        assertEquals(Files.toString(new File(root, longName), Charsets.UTF_8), "long");
+        assertTrue(new File(root, "bin/launcher").canExecute());
+        assertFalse(new File(root, "README.txt").canExecute());
+
+        Path link = new File(root, "link.txt").toPath();
+        assertTrue(java.nio.file.Files.isSymbolicLink(link));
+        assertEquals(java.nio.file.Files.readSymbolicLink(link).toString(), "README.txt");
+        assertEquals(Files.toString(link.toFile(), Charsets.UTF_8), "readme");
+    }
+
+    @Test
+    public void testEntryOutsideTargetDirectory()
+            throws Exception
+    {
+        File outputDir = new File(tempDir, "output");
+        outputDir.mkdirs();
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, "../escape.txt", "data");
+        archive.write(new byte[1024]);
+
+        try {
+            extractTar(new ByteArrayInputStream(archive.toByteArray()), outputDir);
+            fail("expected IOException");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage().contains("outside of target directory"), e.getMessage());
+        }
+        assertFalse(new File(tempDir, "escape.txt").exists());
+    }
+
+    @Test
+    public void testHardLinkThroughSymbolicLink()
+            throws Exception
+    {
+        File outputDir = new File(tempDir, "output");
+        outputDir.mkdirs();
+        File secretDir = new File(tempDir, "secret");
+        secretDir.mkdirs();
+        File secret = new File(secretDir, "passwd");
+        Files.write("secret", secret, Charsets.UTF_8);
+
+        // the hard link target is inside the target directory until the symbolic link is followed
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, "a", '2', secretDir.getAbsolutePath(), "");
+        writeEntry(archive, "b", '1', "a/passwd", "");
+        archive.write(new byte[1024]);
+
+        try {
+            extractTar(new ByteArrayInputStream(archive.toByteArray()), outputDir);
+            fail("expected IOException");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage().contains("outside of target directory"), e.getMessage());
+        }
+        assertFalse(new File(outputDir, "b").exists());
+        assertTrue(secret.canWrite());
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testTruncatedArchive()
+            throws Exception
+    {
+        File outputDir = new File(tempDir, "output");
+        outputDir.mkdirs();
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, "file.txt", "data");
+        byte[] bytes = archive.toByteArray();
+
+        // drop the end of the file contents
+        extractTar(new ByteArrayInputStream(bytes, 0, 512 + 2), outputDir);
+    }
+
+    private static void writeEntry(ByteArrayOutputStream out, String name, String contents)
+            throws IOException
+    {
+        writeEntry(out, name, '0', "", contents);
+    }
+
+    private static void writeEntry(ByteArrayOutputStream out, String name, char type, String linkName, String contents)
+            throws IOException
+    {
+        byte[] data = contents.getBytes(Charsets.UTF_8);
+        byte[] header = new byte[512];
+        putString(header, 0, name);
+        putString(header, 100, "0000644");
+        putString(header, 108, "0000000");
+        putString(header, 116, "0000000");
+        putString(header, 124, String.format("%011o", data.length));
+        putString(header, 136, String.format("%011o", 0));
+        header[156] = (byte) type;
+        putString(header, 157, linkName);
+        putString(header, 257, "ustar");
+
+        long checksum = 0;
+        for (int i = 0; i < header.length; i++) {
+            checksum += (i >= 148 && i < 156) ? ' ' : header[i] & 0xFF;
+        }
+        putString(header, 148, String.format("%06o", checksum));
+        header[155] = ' ';
+
+        out.write(header);
+        out.write(data);
+        if (data.length % 512 != 0) {
+            out.write(new byte[512 - data.length % 512]);
+        }
+    }
+
+    private static void putString(byte[] header, int offset, String value)
+    {
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}